@@ -0,0 +1,78 @@
+package main.java.com.siddharth.librarysystem.jmh;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the selected benchmarks once per thread count and writes all results to one JSON file,
+ * so the files of two commits can be compared benchmark by benchmark.
+ *
+ * Accepts every JMH option, plus {@code -tc} with a comma-separated list of thread counts
+ * (default 1,2,4,8). An explicit {@code -t} runs only that thread count. The results go to
+ * {@code -rff} (default {@value #DEFAULT_RESULT_FILE}).
+ *
+ * Usage: java -jar benchmarks/target/benchmarks.jar [-tc 1,2,4,8] [-p catalogSize=1000,100000] [-rff results.json] [regexp]
+ */
+public class BenchmarkMain {
+
+    private static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+    private static final int[] DEFAULT_THREAD_COUNTS = {1, 2, 4, 8};
+
+    public static void main(String[] args) throws Exception {
+        int[] threadCounts = DEFAULT_THREAD_COUNTS;
+        String resultFile = DEFAULT_RESULT_FILE;
+        List<String> jmhArgs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-tc") && i + 1 < args.length) {
+                threadCounts = parseThreadCounts(args[++i]);
+            } else if (args[i].equals("-rff") && i + 1 < args.length) {
+                // Written once at the end, not by each run
+                resultFile = args[++i];
+            } else {
+                jmhArgs.add(args[i]);
+            }
+        }
+        CommandLineOptions commandLine = new CommandLineOptions(jmhArgs.toArray(new String[0]));
+        if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams()
+                || commandLine.shouldListProfilers() || commandLine.shouldListResultFormats()) {
+            // Nothing to measure; let JMH's own entry point print what was asked for.
+            org.openjdk.jmh.Main.main(jmhArgs.toArray(new String[0]));
+            return;
+        }
+        if (commandLine.getThreads().hasValue()) {
+            threadCounts = new int[] {commandLine.getThreads().get()};
+        }
+
+        Collection<RunResult> results = new ArrayList<>();
+        for (int threads : threadCounts) {
+            Options options = new OptionsBuilder()
+                    .parent(commandLine)
+                    .threads(threads)
+                    .build();
+            results.addAll(new Runner(options).run());
+        }
+        ResultFormatFactory.getInstance(ResultFormatType.JSON, resultFile).writeOut(results);
+        System.out.println("Results of " + results.size() + " runs written to " + resultFile);
+    }
+
+    private static int[] parseThreadCounts(String list) {
+        String[] parts = list.split(",");
+        int[] counts = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            counts[i] = Integer.parseInt(parts[i].trim());
+            if (counts[i] < 1) {
+                throw new IllegalArgumentException("Thread counts must be positive: " + list);
+            }
+        }
+        return counts;
+    }
+}
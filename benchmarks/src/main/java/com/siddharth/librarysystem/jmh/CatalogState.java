@@ -0,0 +1,104 @@
+package main.java.com.siddharth.librarysystem.jmh;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import main.java.com.siddharth.librarysystem.entity.Book;
+import main.java.com.siddharth.librarysystem.entity.IsbnCodec;
+import main.java.com.siddharth.librarysystem.logging.ConsoleSink;
+import main.java.com.siddharth.librarysystem.logging.EventLog;
+import main.java.com.siddharth.librarysystem.logging.OverflowPolicy;
+import main.java.com.siddharth.librarysystem.manager.BookInventory;
+
+/**
+ * A synthetic catalog shared by all benchmark threads.
+ *
+ * Book i is "Title i/4" by "Author i%(size/10)", published in one of 125 years, so an exact title
+ * matches 4 books, an author 10 and a year size/125, whatever the catalog size. Every book has
+ * {@link #COPIES} copies, more than there are benchmark threads, so borrowing never runs out.
+ *
+ * The catalog takes about 0.8 KB of heap per book, so the 10M catalog needs a machine with 12 GB of RAM
+ * or more; the benchmarks' forks may use 75% of it.
+ */
+@State(Scope.Benchmark)
+public class CatalogState {
+
+    public static final int COPIES = 64;
+    private static final int BOOKS_PER_TITLE = 4;
+    private static final int BOOKS_PER_AUTHOR = 10;
+    private static final int FIRST_YEAR = 1900;
+    private static final int YEARS = 125;
+    private static final int BATCH_SIZE = 10_000;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int catalogSize;
+
+    BookInventory inventory;
+    Book[] books;
+    private int authorCount;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Only errors are printed, so per-operation messages don't end up in the measurement.
+        EventLog.configure(main.java.com.siddharth.librarysystem.logging.Level.ERROR, OverflowPolicy.DROP,
+                EventLog.DEFAULT_CAPACITY, new ConsoleSink());
+
+        authorCount = Math.max(1, catalogSize / BOOKS_PER_AUTHOR);
+        inventory = new BookInventory(catalogSize);
+        books = new Book[catalogSize];
+        int[] quantities = new int[BATCH_SIZE];
+        Arrays.fill(quantities, COPIES);
+        List<Book> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < catalogSize; i++) {
+            books[i] = new Book(title(i / BOOKS_PER_TITLE), author(i % authorCount), isbn(i), FIRST_YEAR + i % YEARS);
+            batch.add(books[i]);
+            if (batch.size() == BATCH_SIZE || i == catalogSize - 1) {
+                inventory.addBooks(batch, quantities);
+                batch.clear();
+            }
+        }
+    }
+
+    Book randomBook() {
+        return books[ThreadLocalRandom.current().nextInt(books.length)];
+    }
+
+    String randomTitle() {
+        return title(ThreadLocalRandom.current().nextInt((catalogSize + BOOKS_PER_TITLE - 1) / BOOKS_PER_TITLE));
+    }
+
+    String randomAuthor() {
+        return author(ThreadLocalRandom.current().nextInt(authorCount));
+    }
+
+    int randomYear() {
+        return FIRST_YEAR + ThreadLocalRandom.current().nextInt(Math.min(YEARS, catalogSize));
+    }
+
+    private static String title(int n) {
+        return "Title " + n;
+    }
+
+    private static String author(int n) {
+        return "Author " + n;
+    }
+
+    // "978" and the book number padded to 9 digits, with a valid check digit.
+    static String isbn(int n) {
+        StringBuilder isbn = new StringBuilder(13).append("978");
+        String digits = Integer.toString(n);
+        for (int pad = digits.length(); pad < 9; pad++) {
+            isbn.append('0');
+        }
+        isbn.append(digits);
+        return isbn.append(IsbnCodec.checkDigit13(isbn)).toString();
+    }
+}
@@ -0,0 +1,234 @@
+package main.java.com.siddharth.librarysystem.jmh;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import main.java.com.siddharth.librarysystem.core.Library;
+import main.java.com.siddharth.librarysystem.entity.Book;
+import main.java.com.siddharth.librarysystem.entity.IsbnCodec;
+import main.java.com.siddharth.librarysystem.entity.Patron;
+import main.java.com.siddharth.librarysystem.logging.ConsoleSink;
+import main.java.com.siddharth.librarysystem.logging.EventLog;
+import main.java.com.siddharth.librarysystem.logging.Level;
+import main.java.com.siddharth.librarysystem.logging.OverflowPolicy;
+import main.java.com.siddharth.librarysystem.metrics.LatencyHistogram;
+import main.java.com.siddharth.librarysystem.server.LibraryServer;
+
+/**
+ * Measures {@link LibraryServer} over loopback: many clients, each on its own virtual thread with one
+ * keep-alive connection, repeatedly search for a title, borrow it, list their books and return it.
+ * Payments are instant, so the numbers show the cost of HTTP, JSON and the library itself.
+ *
+ * The client is a minimal hand-written HTTP/1.1 client, so it costs little next to the server, and any
+ * connection the server closes is counted: with keep-alive working that count is 0.
+ *
+ * It is a plain program rather than a JMH benchmark, since it needs a running server and many clients.
+ *
+ * Usage: java -cp benchmarks/target/benchmarks.jar main.java.com.siddharth.librarysystem.jmh.HttpServerBenchmark [clients] [seconds]
+ */
+public class HttpServerBenchmark {
+
+    private static final int TITLES = 10_000;
+    private static final int COPIES = 1_000;
+    private static final long WARMUP_NANOS = 3_000_000_000L;
+    private static final String[] ENDPOINTS = {"GET /books", "POST /loans", "GET /patrons/{id}/books", "POST /returns"};
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        EventLog.configure(Level.ERROR, OverflowPolicy.DROP, EventLog.DEFAULT_CAPACITY, new ConsoleSink());
+
+        Library library = new Library(amount -> true, TITLES);
+        String[] isbns = new String[TITLES];
+        for (int i = 0; i < TITLES; i++) {
+            isbns[i] = isbn(i);
+            library.addNewBook(new Book("Title" + i, "Author " + (i % 100), isbns[i], 1950 + i % 75), COPIES);
+        }
+        List<Patron> patrons = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            patrons.add(library.registerNewPatron("Client " + c, "client" + c + "@example.com"));
+        }
+
+        try (LibraryServer server = new LibraryServer(library, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            server.start();
+            LatencyHistogram[] latencies = new LatencyHistogram[ENDPOINTS.length];
+            for (int e = 0; e < latencies.length; e++) {
+                latencies[e] = new LatencyHistogram();
+            }
+            LongAdder unexpected = new LongAdder();
+            LongAdder reconnects = new LongAdder();
+            long measureFrom = System.nanoTime() + WARMUP_NANOS;
+            long end = measureFrom + seconds * 1_000_000_000L;
+
+            System.out.printf("%d clients, %d s after %.0f s of warm-up, %,d titles%n", clients, seconds, WARMUP_NANOS / 1e9, TITLES);
+            List<Thread> threads = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                Client client = new Client(server.getPort(), patrons.get(c).getId(), isbns, new SplittableRandom(c),
+                        latencies, unexpected, reconnects, measureFrom, end);
+                threads.add(Thread.ofVirtual().name("http-client-" + c).start(client));
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            long total = 0;
+            System.out.printf("%n%-24s %12s %10s %10s %10s %10s%n", "endpoint", "requests", "req/s", "p50 ms", "p99 ms", "max ms");
+            for (int e = 0; e < ENDPOINTS.length; e++) {
+                LatencyHistogram histogram = latencies[e];
+                total += histogram.count();
+                System.out.printf("%-24s %,12d %,10.0f %10.3f %10.3f %10.3f%n", ENDPOINTS[e], histogram.count(),
+                        histogram.count() / (double) seconds, histogram.percentile(50) / 1e6,
+                        histogram.percentile(99) / 1e6, histogram.max() / 1e6);
+            }
+            System.out.printf("%-24s %,12d %,10.0f%n", "total", total, total / (double) seconds);
+            System.out.printf("%nUnexpected responses: %,d, connections closed by the server: %,d%n",
+                    unexpected.sum(), reconnects.sum());
+        }
+    }
+
+    // "978" and the title number padded to 9 digits, with a valid check digit.
+    private static String isbn(int n) {
+        StringBuilder isbn = new StringBuilder(13).append("978");
+        String digits = Integer.toString(n);
+        for (int pad = digits.length(); pad < 9; pad++) {
+            isbn.append('0');
+        }
+        isbn.append(digits);
+        return isbn.append(IsbnCodec.checkDigit13(isbn)).toString();
+    }
+
+    /**
+     * One kiosk on one keep-alive connection.
+     */
+    private static final class Client implements Runnable {
+        private final int port;
+        private final String patronId;
+        private final String[] isbns;
+        private final SplittableRandom random;
+        private final LatencyHistogram[] latencies;
+        private final LongAdder unexpected;
+        private final LongAdder reconnects;
+        private final long measureFrom;
+        private final long end;
+        private Socket socket;
+        private InputStream in;
+        private OutputStream out;
+
+        Client(int port, String patronId, String[] isbns, SplittableRandom random, LatencyHistogram[] latencies,
+               LongAdder unexpected, LongAdder reconnects, long measureFrom, long end) {
+            this.port = port;
+            this.patronId = patronId;
+            this.isbns = isbns;
+            this.random = random;
+            this.latencies = latencies;
+            this.unexpected = unexpected;
+            this.reconnects = reconnects;
+            this.measureFrom = measureFrom;
+            this.end = end;
+        }
+
+        @Override
+        public void run() {
+            try {
+                connect();
+                while (System.nanoTime() < end) {
+                    int title = random.nextInt(isbns.length);
+                    String form = "patronId=" + patronId + "&isbn=" + isbns[title];
+                    call(0, "GET", "/books?title=title" + title, null, 200);
+                    call(1, "POST", "/loans", form, 201);
+                    call(2, "GET", "/patrons/" + patronId + "/books", null, 200);
+                    call(3, "POST", "/returns", form, 200);
+                }
+                socket.close();
+            } catch (IOException e) {
+                throw new IllegalStateException("Client failed", e);
+            }
+        }
+
+        private void connect() throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            socket.setTcpNoDelay(true);
+            in = new BufferedInputStream(socket.getInputStream());
+            out = socket.getOutputStream();
+        }
+
+        private void call(int endpoint, String method, String target, String form, int expectedStatus) throws IOException {
+            long start = System.nanoTime();
+            int status = exchange(method, target, form);
+            if (status < 0) {
+                // The server closed the connection: reconnect and retry once
+                reconnects.increment();
+                socket.close();
+                connect();
+                status = exchange(method, target, form);
+            }
+            if (start >= measureFrom && start < end) {
+                latencies[endpoint].record(System.nanoTime() - start);
+                if (status != expectedStatus) {
+                    unexpected.increment();
+                }
+            }
+        }
+
+        /**
+         * Sends one request and reads the whole response.
+         * @return The status code, or -1 if the connection was closed.
+         */
+        private int exchange(String method, String target, String form) throws IOException {
+            // Headers and body in one write; the form is ASCII, so its length in chars is its length in bytes
+            StringBuilder request = new StringBuilder(160)
+                    .append(method).append(' ').append(target).append(" HTTP/1.1\r\nHost: localhost\r\n");
+            if (form != null) {
+                request.append("Content-Type: application/x-www-form-urlencoded\r\nContent-Length: ")
+                        .append(form.length()).append("\r\n\r\n").append(form);
+            } else {
+                request.append("\r\n");
+            }
+            try {
+                out.write(request.toString().getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+            } catch (IOException e) {
+                return -1;
+            }
+
+            String statusLine = readLine();
+            if (statusLine == null) {
+                return -1;
+            }
+            int status = Integer.parseInt(statusLine.substring(9, 12));
+            int contentLength = 0;
+            for (String header = readLine(); header != null && !header.isEmpty(); header = readLine()) {
+                if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                    contentLength = Integer.parseInt(header.substring(15).trim());
+                }
+            }
+            in.skipNBytes(contentLength);
+            return status;
+        }
+
+        // One header line without its CRLF, or null at the end of the stream.
+        private String readLine() throws IOException {
+            StringBuilder line = new StringBuilder(64);
+            int b;
+            while ((b = in.read()) != '\n') {
+                if (b < 0) {
+                    return null;
+                }
+                if (b != '\r') {
+                    line.append((char) b);
+                }
+            }
+            return line.toString();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package main.java.com.siddharth.librarysystem.jmh;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.java.com.siddharth.librarysystem.entity.Book;
+
+/**
+ * Stock updates and exact lookups on {@link main.java.com.siddharth.librarysystem.manager.BookInventory},
+ * on random books of a {@link CatalogState} catalog.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-XX:MaxRAMPercentage=75")
+public class InventoryBenchmark {
+
+    /**
+     * Adds a copy of a book that is already in the catalog, so the catalog size stays as configured.
+     */
+    @Benchmark
+    public void addBook(CatalogState catalog) {
+        catalog.inventory.addBook(catalog.randomBook(), 1);
+    }
+
+    /**
+     * Borrows a copy and returns it, so the counts are unchanged afterwards.
+     */
+    @Benchmark
+    public boolean markAsBorrowedThenReturned(CatalogState catalog) {
+        Book book = catalog.randomBook();
+        return catalog.inventory.markAsBorrowed(book) && catalog.inventory.markAsReturned(book);
+    }
+
+    @Benchmark
+    public List<Book> getAllByTitle(CatalogState catalog) {
+        return catalog.inventory.getAllByTitle(catalog.randomTitle());
+    }
+
+    @Benchmark
+    public List<Book> getAllByAuthor(CatalogState catalog) {
+        return catalog.inventory.getAllByAuthor(catalog.randomAuthor());
+    }
+
+    /**
+     * Returns size/125 books per call, so its cost grows with the catalog.
+     */
+    @Benchmark
+    public List<Book> getAllByPubYear(CatalogState catalog) {
+        return catalog.inventory.getAllByPubYear(catalog.randomYear());
+    }
+}
@@ -0,0 +1,77 @@
+package main.java.com.siddharth.librarysystem.jmh;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.java.com.siddharth.librarysystem.entity.Book;
+import main.java.com.siddharth.librarysystem.entity.LendingTicket;
+import main.java.com.siddharth.librarysystem.entity.Patron;
+import main.java.com.siddharth.librarysystem.manager.PatronManager;
+import main.java.com.siddharth.librarysystem.payment.PaymentProcessor;
+
+/**
+ * Issuing and returning books through {@link PatronManager}, with a payment processor that approves
+ * at once, so the numbers show the library's own cost. Each benchmark thread is a separate patron.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-XX:MaxRAMPercentage=75")
+public class LendingBenchmark {
+
+    // Zero-latency payments: every payment succeeds immediately.
+    private static final PaymentProcessor INSTANT_PAYMENT = amount -> true;
+    // Active loans each patron holds while getBorrowedBooks is measured.
+    private static final int LOANS_PER_PATRON = 5;
+
+    @State(Scope.Benchmark)
+    public static class Desk {
+        PatronManager patrons;
+
+        @Setup(Level.Trial)
+        public void setUp(CatalogState catalog) {
+            patrons = new PatronManager(INSTANT_PAYMENT, catalog.inventory);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Borrower {
+        Patron patron;
+
+        @Setup(Level.Trial)
+        public void setUp(Desk desk, CatalogState catalog) {
+            patron = desk.patrons.registerPatron("Patron " + Thread.currentThread().getName(), "patron@example.com");
+            for (int i = 0; i < LOANS_PER_PATRON; i++) {
+                desk.patrons.issueBook(catalog.randomBook(), patron);
+            }
+        }
+    }
+
+    /**
+     * Issues a random book and returns it, so the patron's loans and the counts are unchanged afterwards.
+     */
+    @Benchmark
+    public boolean issueBookThenReturnBook(CatalogState catalog, Desk desk, Borrower borrower) {
+        Book book = catalog.randomBook();
+        LendingTicket ticket = desk.patrons.issueBook(book, borrower.patron);
+        return ticket != null && desk.patrons.returnBook(book, borrower.patron);
+    }
+
+    @Benchmark
+    public List<Book> getBorrowedBooks(Desk desk, Borrower borrower) {
+        return desk.patrons.getBorrowedBooks(borrower.patron);
+    }
+}
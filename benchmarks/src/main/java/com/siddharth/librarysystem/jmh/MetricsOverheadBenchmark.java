@@ -0,0 +1,102 @@
+package main.java.com.siddharth.librarysystem.jmh;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.java.com.siddharth.librarysystem.core.Library;
+import main.java.com.siddharth.librarysystem.entity.Book;
+import main.java.com.siddharth.librarysystem.entity.LendingTicket;
+import main.java.com.siddharth.librarysystem.entity.Patron;
+import main.java.com.siddharth.librarysystem.logging.ConsoleSink;
+import main.java.com.siddharth.librarysystem.logging.EventLog;
+import main.java.com.siddharth.librarysystem.logging.OverflowPolicy;
+import main.java.com.siddharth.librarysystem.metrics.LibraryMetrics;
+import main.java.com.siddharth.librarysystem.payment.PaymentProcessor;
+
+/**
+ * The cost of the operation metrics: the same calls through the {@link Library} facade with metrics off
+ * ({@code -Dlibrary.metrics=false}), with the default sampled timing, and with every call timed
+ * ({@code -Dlibrary.metrics.sampleEvery=1}). An issue and return is three timed operations (issue, payment
+ * and return) and two counted ones on the copy counts, all around a few microseconds of work, so this is
+ * close to the worst case relative to the work done.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-XX:MaxRAMPercentage=75")
+public class MetricsOverheadBenchmark {
+
+    private static final int CATALOG_SIZE = 100_000;
+    // Zero-latency payments, so the numbers show the library's own cost.
+    private static final PaymentProcessor INSTANT_PAYMENT = amount -> true;
+
+    @State(Scope.Benchmark)
+    public static class Desk {
+        @Param({"off", "sampled", "every-call"})
+        public String metrics;
+
+        Library library;
+        Book[] books;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            EventLog.configure(main.java.com.siddharth.librarysystem.logging.Level.ERROR, OverflowPolicy.DROP,
+                    EventLog.DEFAULT_CAPACITY, new ConsoleSink());
+            // Read when the library is created
+            System.setProperty("library.metrics", Boolean.toString(!metrics.equals("off")));
+            System.setProperty("library.metrics.sampleEvery", metrics.equals("every-call") ? "1"
+                    : Integer.toString(LibraryMetrics.DEFAULT_SAMPLE_EVERY));
+            library = new Library(INSTANT_PAYMENT, CATALOG_SIZE);
+            books = new Book[CATALOG_SIZE];
+            for (int i = 0; i < CATALOG_SIZE; i++) {
+                // One word per title, so a search touches a handful of titles rather than the whole catalog
+                books[i] = new Book("Title" + i, "Author " + (i % 10_000), CatalogState.isbn(i), 1900 + i % 125);
+                library.addNewBook(books[i], CatalogState.COPIES);
+            }
+        }
+
+        Book randomBook() {
+            return books[ThreadLocalRandom.current().nextInt(books.length)];
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Borrower {
+        Patron patron;
+
+        @Setup(Level.Trial)
+        public void setUp(Desk desk) {
+            patron = desk.library.registerNewPatron("Patron " + Thread.currentThread().getName(), "patron@example.com");
+        }
+    }
+
+    /**
+     * Issues a random book and returns it, so the patron's loans and the counts are unchanged afterwards.
+     */
+    @Benchmark
+    public boolean issueBookThenReturnBook(Desk desk, Borrower borrower) {
+        Book book = desk.randomBook();
+        LendingTicket ticket = desk.library.issueBookToPatron(book, borrower.patron);
+        return ticket != null && desk.library.returnBookFromPatron(book, borrower.patron);
+    }
+
+    @Benchmark
+    public List<Book> searchBookByTitle(Desk desk) {
+        return desk.library.searchBookByTitle(desk.randomBook().getTitle());
+    }
+}
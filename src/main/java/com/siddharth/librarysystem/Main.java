@@ -1,15 +1,70 @@
 package main.java.com.siddharth.librarysystem;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
 import main.java.com.siddharth.librarysystem.core.Library;
 import main.java.com.siddharth.librarysystem.entity.Book;
 import main.java.com.siddharth.librarysystem.entity.Patron;
+import main.java.com.siddharth.librarysystem.logging.ConsoleSink;
+import main.java.com.siddharth.librarysystem.logging.EventLog;
+import main.java.com.siddharth.librarysystem.logging.Level;
+import main.java.com.siddharth.librarysystem.logging.OverflowPolicy;
 import main.java.com.siddharth.librarysystem.payment.PaymentProcessor;
 import main.java.com.siddharth.librarysystem.payment.UpiPaymentProcessor;
+import main.java.com.siddharth.librarysystem.persistence.FsyncPolicy;
+import main.java.com.siddharth.librarysystem.persistence.LendingHistoryStore;
+import main.java.com.siddharth.librarysystem.persistence.LibraryJournal;
+import main.java.com.siddharth.librarysystem.server.LibraryServer;
+import main.java.com.siddharth.librarysystem.commandline.BatchCommandRunner;
 import main.java.com.siddharth.librarysystem.commandline.LibraryCLI;
 
 
 public class Main {
+    private static final String JOURNAL_FILE = "library.journal";
+    private static final String SNAPSHOT_FILE = "library.snapshot";
+    // How often the state is snapshotted while running, besides at shutdown.
+    private static final Duration SNAPSHOT_INTERVAL = Duration.ofHours(1);
+    private static final String HISTORY_DIRECTORY = "history";
+    private static final Duration HISTORY_FLUSH_INTERVAL = Duration.ofMinutes(1);
+    private static final int BATCH_BUFFER_SIZE = 1 << 16;
+    private static final int DEFAULT_SERVER_PORT = 8080;
+
+    // Status messages; standard error in batch mode, where standard output carries the results.
+    private static PrintStream console = System.out;
+    // Running in server mode; stopped before the journal is closed at shutdown.
+    private static volatile LibraryServer server;
+
+    /**
+     * Starts the interactive menu. With {@code --batch [script|-] [--out file] [--window n]} it runs
+     * a command script (standard input by default) and exits, see {@link BatchCommandRunner};
+     * with {@code --server [port]} it serves HTTP/JSON until stopped, see {@link LibraryServer}.
+     */
     public static void main(String[] args) {
+        boolean batch = args.length > 0 && args[0].equals("--batch");
+        boolean serve = args.length > 0 && args[0].equals("--server");
+        if (batch) {
+            console = System.err;
+            // Every command gets a result line, so only errors are logged
+            EventLog.configure(Level.ERROR, OverflowPolicy.DROP, EventLog.DEFAULT_CAPACITY,
+                    new ConsoleSink(System.err, System.err));
+        } else if (serve) {
+            // A message per request would slow the server down; the responses say what happened
+            EventLog.configure(Level.WARN, OverflowPolicy.DROP, EventLog.DEFAULT_CAPACITY, new ConsoleSink());
+        }
+
         // 1. Choose a payment processor (Strategy Pattern)
         PaymentProcessor paymentProcessor = new UpiPaymentProcessor();
         // You could easily switch to this one:
@@ -18,20 +73,146 @@ public class Main {
         // 2. Initialize the main Library system
         Library library = new Library(paymentProcessor);
 
-        // 3. (Optional) Pre-populate the library with some data for testing
-        seedData(library);
+        // 3. Restore the previous state from the snapshot and the journal, or seed demo data on the first run
+        LibraryJournal journal = openJournal(library);
+        // Archive returned loans from here on (after replay, so nothing is archived twice)
+        LendingHistoryStore history = openHistory(library);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (server != null) {
+                server.close();
+            }
+            try {
+                // The next start loads this and replays nothing
+                library.saveSnapshot(Paths.get(SNAPSHOT_FILE));
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Could not write the snapshot: " + e.getMessage());
+            }
+            try {
+                history.close();
+            } catch (IOException e) {
+                System.err.println("Could not write the lending history: " + e.getMessage());
+            }
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("Could not close the journal: " + e.getMessage());
+            }
+        }));
 
-        // 4. Create and start the Command-Line Interface
+        if (batch) {
+            runBatch(library, args);
+            return;
+        }
+
+        // 4. Mark loans as overdue in the background once their return date has passed,
+        //    snapshot the state now and then so a restart replays little of the journal,
+        //    and write returned loans to the history often enough that a crash loses few of them
+        library.startOverdueChecks(Duration.ofHours(1));
+        library.startSnapshots(Paths.get(SNAPSHOT_FILE), SNAPSHOT_INTERVAL);
+        library.startHistoryFlushes(HISTORY_FLUSH_INTERVAL);
+
+        // 5. Publish operation counts and latencies over JMX (JConsole, VisualVM)
+        library.registerStatsMBean();
+
+        if (serve) {
+            startServer(library, args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SERVER_PORT);
+            return; // The server's threads keep the JVM running until it is stopped
+        }
+
+        // 6. Create and start the Command-Line Interface
         LibraryCLI cli = new LibraryCLI(library);
         cli.start();
     }
 
+    /**
+     * Loads the last snapshot, if there is one, then opens the journal and replays what it recorded since.
+     * If there is neither, the library is seeded with demo data (which is then journaled too).
+     * @param library The library instance to restore.
+     * @return The open journal.
+     */
+    private static LibraryJournal openJournal(Library library) {
+        try {
+            Path snapshot = Paths.get(SNAPSHOT_FILE);
+            long books = Files.exists(snapshot) ? library.loadSnapshot(snapshot) : -1;
+            LibraryJournal journal = LibraryJournal.open(Paths.get(JOURNAL_FILE), FsyncPolicy.INTERVAL);
+            long replayed = library.attachJournal(journal);
+            if (books < 0 && replayed == 0) {
+                seedData(library);
+            } else if (books >= 0) {
+                console.println("Restored " + books + " books from " + SNAPSHOT_FILE + " and "
+                        + replayed + " journal records written since.\n");
+            } else {
+                console.println("Restored library state from " + replayed + " journal records.\n");
+            }
+            return journal;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not restore the library from " + SNAPSHOT_FILE + " and " + JOURNAL_FILE, e);
+        }
+    }
+
+    private static LendingHistoryStore openHistory(Library library) {
+        try {
+            LendingHistoryStore history = LendingHistoryStore.open(Paths.get(HISTORY_DIRECTORY));
+            library.attachHistory(history);
+            return history;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the lending history in " + HISTORY_DIRECTORY, e);
+        }
+    }
+
+    /**
+     * Runs the script named in the arguments (or standard input) and prints a summary to standard error.
+     * @param library The library to run it against.
+     * @param args The command line, starting with "--batch".
+     */
+    private static void runBatch(Library library, String[] args) {
+        String script = "-";
+        String out = null;
+        int window = BatchCommandRunner.DEFAULT_WINDOW;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--out" -> out = args[++i];
+                case "--window" -> window = Integer.parseInt(args[++i]);
+                default -> script = args[i];
+            }
+        }
+
+        BatchCommandRunner runner = new BatchCommandRunner(library, window);
+        long start = System.nanoTime();
+        try (BufferedReader in = script.equals("-")
+                     ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), BATCH_BUFFER_SIZE)
+                     : Files.newBufferedReader(Paths.get(script), StandardCharsets.UTF_8);
+             Writer results = out == null
+                     ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), BATCH_BUFFER_SIZE)
+                     : Files.newBufferedWriter(Paths.get(out), StandardCharsets.UTF_8)) {
+            long commands = runner.run(in, results);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            console.printf("Ran %,d commands in %.1f s (%,.0f per minute): %,d ok, %,d failed, %,d errors%n",
+                    commands, seconds, commands / seconds * 60, runner.getSucceededCount(),
+                    runner.getFailedCount(), runner.getErrorCount());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not run the batch script " + script, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void startServer(Library library, int port) {
+        try {
+            server = new LibraryServer(library, new InetSocketAddress(port));
+            server.start();
+            console.println("Serving the library on http://localhost:" + server.getPort() + " (Ctrl+C to stop)");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not start the server on port " + port, e);
+        }
+    }
+
     /**
      * Adds some initial books and patrons to the library for demonstration purposes.
      * @param library The library instance to populate.
      */
     private static void seedData(Library library) {
-        System.out.println("Seeding initial data...");
+        console.println("Seeding initial data...");
 
         // Add some books
         library.addNewBook(new Book("The Great Gatsby", "F. Scott Fitzgerald", "9780743273565", 1925), 3);
@@ -43,6 +224,7 @@ public class Main {
         Patron alice = library.registerNewPatron("Alice Smith", "alice@example.com");
         Patron bob = library.registerNewPatron("Bob Johnson", "bob@example.com");
         
-        System.out.println("Data seeding complete.\n");
+        EventLog.flush();
+        console.println("Data seeding complete.\n");
     }
 }
\ No newline at end of file
@@ -0,0 +1,120 @@
+package main.java.com.siddharth.librarysystem.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongSupplier;
+
+import main.java.com.siddharth.librarysystem.id.IdGenerator;
+import main.java.com.siddharth.librarysystem.id.Ids;
+import main.java.com.siddharth.librarysystem.id.TimeOrderedIdGenerator;
+
+/**
+ * Compares the random UUID strings entities used to get with time-ordered 64-bit IDs:
+ * generation throughput on one and on several threads, and the heap kept per stored ID.
+ *
+ * Usage: java -cp bin main.java.com.siddharth.librarysystem.benchmark.IdBenchmark [idsPerThread] [threads]
+ */
+public class IdBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int idsPerThread = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        IdGenerator generator = new TimeOrderedIdGenerator(1);
+
+        System.out.printf("IDs per thread: %,d, threads: %d%n%n", idsPerThread, threads);
+        System.out.printf("%-28s %16s %16s%n", "", "1 thread", threads + " threads");
+        report("UUID.randomUUID().toString()", () -> UUID.randomUUID().toString().hashCode(), idsPerThread, threads);
+        report("TimeOrderedIdGenerator", generator::nextId, idsPerThread, threads);
+        report("  + Ids.toText", () -> Ids.toText(generator.nextId()).hashCode(), idsPerThread, threads);
+
+        System.out.println();
+        int stored = Math.min(idsPerThread, 1_000_000);
+        System.out.printf("Heap per stored ID (%,d IDs):%n", stored);
+        System.out.printf("  UUID string:   %5.1f bytes%n", retainedBytes(stored, i -> UUID.randomUUID().toString()));
+        System.out.printf("  Compact text:  %5.1f bytes%n", retainedBytes(stored, i -> Ids.toText(generator.nextId())));
+        System.out.printf("  long:          %5.1f bytes%n", retainedBytes(stored, i -> generator.nextId()));
+    }
+
+    // Prints the best of a few rounds, in million IDs per second, so JIT warm-up doesn't count.
+    private static void report(String name, LongSupplier operation, int idsPerThread, int threads) throws Exception {
+        double single = 0;
+        double parallel = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            single = Math.max(single, throughput(operation, idsPerThread, 1));
+            parallel = Math.max(parallel, throughput(operation, idsPerThread, threads));
+        }
+        System.out.printf("%-28s %11.2f M/s %11.2f M/s%n", name, single, parallel);
+    }
+
+    private static double throughput(LongSupplier operation, int idsPerThread, int threads) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Long>> tasks = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                tasks.add(() -> {
+                    long sink = 0;
+                    for (int i = 0; i < idsPerThread; i++) {
+                        sink ^= operation.getAsLong();
+                    }
+                    return sink;
+                });
+            }
+            long start = System.nanoTime();
+            long sink = 0;
+            for (Future<Long> result : pool.invokeAll(tasks)) {
+                sink ^= result.get();
+            }
+            long elapsed = System.nanoTime() - start;
+            if (sink == 42) {
+                System.out.print("");
+            }
+            return (double) idsPerThread * threads / elapsed * 1_000;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private interface IdFactory {
+        Object create(int i);
+    }
+
+    // Heap growth from keeping the IDs in an array; rough, but enough to compare the representations.
+    private static double retainedBytes(int count, IdFactory factory) {
+        boolean primitive = factory.create(0) instanceof Long;
+        long before = usedHeap();
+        Object kept;
+        if (primitive) {
+            long[] ids = new long[count];
+            for (int i = 0; i < count; i++) {
+                ids[i] = (Long) factory.create(i);
+            }
+            kept = ids;
+        } else {
+            Object[] ids = new Object[count];
+            for (int i = 0; i < count; i++) {
+                ids[i] = factory.create(i);
+            }
+            kept = ids;
+        }
+        long after = usedHeap();
+        if (kept.hashCode() == 42) {
+            System.out.print("");
+        }
+        return (double) (after - before) / count;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
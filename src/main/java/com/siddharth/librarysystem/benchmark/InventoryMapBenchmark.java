@@ -0,0 +1,168 @@
+package main.java.com.siddharth.librarysystem.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import main.java.com.siddharth.librarysystem.entity.IsbnCodec;
+import main.java.com.siddharth.librarysystem.manager.StockCounter;
+import main.java.com.siddharth.librarysystem.manager.StockTable;
+
+/**
+ * Compares the inventory's stock counts kept in a {@code ConcurrentHashMap<String, AtomicLong>} of packed counts
+ * (one boxed counter per ISBN) with the primitive {@link StockTable} keyed by packed ISBNs: heap retained per ISBN, load time,
+ * and borrow-then-return throughput on random ISBNs, looked up by their text as the inventory does.
+ * The ISBN strings themselves are shared with the books and are not counted.
+ *
+ * Usage: java -Xmx4g -cp bin main.java.com.siddharth.librarysystem.benchmark.InventoryMapBenchmark [isbnCount] [threads] [operationsPerThread]
+ */
+public class InventoryMapBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int isbnCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int operations = args.length > 2 ? Integer.parseInt(args[2]) : 5_000_000;
+
+        String[] isbns = new String[isbnCount];
+        for (int i = 0; i < isbnCount; i++) {
+            StringBuilder isbn = new StringBuilder(13).append("978");
+            String digits = Integer.toString(i);
+            for (int pad = digits.length(); pad < 9; pad++) {
+                isbn.append('0');
+            }
+            isbn.append(digits);
+            isbns[i] = isbn.append(IsbnCodec.checkDigit13(isbn)).toString();
+        }
+        System.out.printf("ISBNs: %,d, threads: %d, operations per thread: %,d%n%n", isbnCount, threads, operations);
+        System.out.printf("%-38s %14s %12s %18s%n", "", "heap per ISBN", "load", "borrow+return");
+
+        measureConcurrentHashMap(isbns, threads, operations);
+        measureStockTable(isbns, threads, operations);
+    }
+
+    // Each backend is built in its own method, so it is garbage by the time the next one is measured.
+    private static void measureConcurrentHashMap(String[] isbns, int threads, int operations) throws Exception {
+        long before = usedHeap();
+        long start = System.nanoTime();
+        Map<String, AtomicLong> map = new ConcurrentHashMap<>(isbns.length);
+        for (String isbn : isbns) {
+            map.put(isbn, new AtomicLong(StockCounter.pack(3, 0, 0)));
+        }
+        long loadNanos = System.nanoTime() - start;
+        double bytes = (double) (usedHeap() - before) / isbns.length;
+        double rate = bestThroughput(isbns.length, threads, operations, i -> {
+            AtomicLong counts = map.get(isbns[i]);
+            return counts != null && tryBorrow(counts) && tryReturn(counts);
+        });
+        report("ConcurrentHashMap<String, AtomicLong>", bytes, loadNanos, rate);
+    }
+
+    private static boolean tryBorrow(AtomicLong counts) {
+        long current;
+        do {
+            current = counts.get();
+            if (StockCounter.available(current) == 0) {
+                return false;
+            }
+        } while (!counts.compareAndSet(current, StockCounter.pack(StockCounter.available(current) - 1,
+                StockCounter.reserved(current), StockCounter.borrowed(current) + 1)));
+        return true;
+    }
+
+    private static boolean tryReturn(AtomicLong counts) {
+        long current;
+        do {
+            current = counts.get();
+            if (StockCounter.borrowed(current) == 0) {
+                return false;
+            }
+        } while (!counts.compareAndSet(current, StockCounter.pack(StockCounter.available(current) + 1,
+                StockCounter.reserved(current), StockCounter.borrowed(current) - 1)));
+        return true;
+    }
+
+    private static void measureStockTable(String[] isbns, int threads, int operations) throws Exception {
+        long before = usedHeap();
+        long start = System.nanoTime();
+        StockTable table = new StockTable(isbns.length);
+        for (String isbn : isbns) {
+            table.addCopies(IsbnCodec.toKey(isbn), 3);
+        }
+        long loadNanos = System.nanoTime() - start;
+        double bytes = (double) (usedHeap() - before) / isbns.length;
+        double rate = bestThroughput(isbns.length, threads, operations, i -> {
+            long key = IsbnCodec.toKey(isbns[i]);
+            return table.tryBorrow(key) && table.tryReturn(key);
+        });
+        report("StockTable", bytes, loadNanos, rate);
+
+        // The inventory's own borrow and return path: Book carries its packed key, so nothing is parsed.
+        long[] keys = new long[isbns.length];
+        for (int i = 0; i < isbns.length; i++) {
+            keys[i] = IsbnCodec.toKey(isbns[i]);
+        }
+        rate = bestThroughput(isbns.length, threads, operations, i -> table.tryBorrow(keys[i]) && table.tryReturn(keys[i]));
+        report("StockTable, key cached on Book", bytes, loadNanos, rate);
+    }
+
+    private interface Operation {
+        boolean run(int isbnIndex);
+    }
+
+    private static void report(String name, double bytesPerIsbn, long loadNanos, double opsPerSecond) {
+        System.out.printf("%-38s %8.1f bytes %9d ms %12.2f M/s%n", name, bytesPerIsbn, loadNanos / 1_000_000, opsPerSecond / 1e6);
+    }
+
+    // Best of a few rounds, in borrow+return pairs per second, so JIT warm-up doesn't count.
+    private static double bestThroughput(int isbnCount, int threads, int operations, Operation operation) throws Exception {
+        double best = 0;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                List<Future<Integer>> results = new ArrayList<>();
+                long start = System.nanoTime();
+                for (int t = 0; t < threads; t++) {
+                    long seed = round * 1_000L + t;
+                    results.add(pool.submit(() -> {
+                        SplittableRandom random = new SplittableRandom(seed);
+                        int failures = 0;
+                        for (int i = 0; i < operations; i++) {
+                            if (!operation.run(random.nextInt(isbnCount))) {
+                                failures++;
+                            }
+                        }
+                        return failures;
+                    }));
+                }
+                int failures = 0;
+                for (Future<Integer> result : results) {
+                    failures += result.get();
+                }
+                long elapsed = System.nanoTime() - start;
+                if (failures > 0) {
+                    throw new IllegalStateException(failures + " borrows failed");
+                }
+                best = Math.max(best, (double) operations * threads / elapsed * 1e9);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return best;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,68 @@
+package main.java.com.siddharth.librarysystem.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import main.java.com.siddharth.librarysystem.core.Library;
+import main.java.com.siddharth.librarysystem.entity.Book;
+import main.java.com.siddharth.librarysystem.entity.IsbnCodec;
+import main.java.com.siddharth.librarysystem.logging.ConsoleSink;
+import main.java.com.siddharth.librarysystem.logging.EventLog;
+import main.java.com.siddharth.librarysystem.logging.Level;
+import main.java.com.siddharth.librarysystem.logging.OverflowPolicy;
+
+/**
+ * Compares cold-start time of loading a snapshot against rebuilding the same catalog through addNewBook.
+ *
+ * Usage: java -cp bin main.java.com.siddharth.librarysystem.benchmark.SnapshotBenchmark [bookCount]
+ */
+public class SnapshotBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int bookCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path snapshot = Files.createTempFile("library-benchmark", ".snapshot");
+        // addNewBook logs a line per book at INFO; only errors, so we measure the library, not the log.
+        EventLog.configure(Level.ERROR, OverflowPolicy.DROP, EventLog.DEFAULT_CAPACITY, new ConsoleSink());
+
+        try {
+            long start = System.nanoTime();
+            Library seeded = new Library(amount -> true);
+            for (int i = 0; i < bookCount; i++) {
+                seeded.addNewBook(new Book("Title " + i, "Author " + (i % 10_000), isbn(i), 1900 + i % 120), 1 + i % 5);
+            }
+            long replayNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            seeded.saveSnapshot(snapshot);
+            long writeNanos = System.nanoTime() - start;
+            seeded = null;
+            System.gc();
+
+            start = System.nanoTime();
+            Library loaded = new Library(amount -> true);
+            long loadedBooks = loaded.loadSnapshot(snapshot);
+            long loadNanos = System.nanoTime() - start;
+
+            System.out.println("Books:                 " + loadedBooks);
+            System.out.println("Snapshot size:         " + Files.size(snapshot) / 1024 + " KB");
+            System.out.printf("addNewBook replay:     %,d ms%n", replayNanos / 1_000_000);
+            System.out.printf("Snapshot write:        %,d ms%n", writeNanos / 1_000_000);
+            System.out.printf("Snapshot load (mmap):  %,d ms%n", loadNanos / 1_000_000);
+            System.out.printf("Speed-up:              %.1fx%n", (double) replayNanos / loadNanos);
+        } finally {
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    // "978" and the book number padded to 9 digits, with a valid check digit.
+    private static String isbn(int n) {
+        StringBuilder isbn = new StringBuilder(13).append("978");
+        String digits = Integer.toString(n);
+        for (int pad = digits.length(); pad < 9; pad++) {
+            isbn.append('0');
+        }
+        isbn.append(digits);
+        return isbn.append(IsbnCodec.checkDigit13(isbn)).toString();
+    }
+}
@@ -0,0 +1,409 @@
+package main.java.com.siddharth.librarysystem.commandline;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+import main.java.com.siddharth.librarysystem.core.Library;
+import main.java.com.siddharth.librarysystem.entity.Book;
+import main.java.com.siddharth.librarysystem.entity.Hold;
+import main.java.com.siddharth.librarysystem.entity.HoldPriority;
+import main.java.com.siddharth.librarysystem.entity.IsbnCodec;
+import main.java.com.siddharth.librarysystem.entity.LendingTicket;
+import main.java.com.siddharth.librarysystem.entity.Patron;
+import main.java.com.siddharth.librarysystem.id.Ids;
+
+/**
+ * Runs a script of library commands without the menu, one command per line:
+ * <pre>
+ * ISSUE    &lt;patronId&gt; &lt;isbn&gt;
+ * CHECKOUT &lt;patronId&gt; &lt;isbn&gt; &lt;isbn&gt;...   (one payment; all are issued or none)
+ * RETURN   &lt;patronId&gt; &lt;isbn&gt;
+ * HOLD     &lt;patronId&gt; &lt;isbn&gt; [HIGH|NORMAL]
+ * SEARCH   &lt;words...&gt;
+ * REGISTER &lt;email&gt; &lt;name...&gt;
+ * ADD      &lt;isbn&gt; &lt;quantity&gt; &lt;year&gt; &lt;title&gt; | &lt;author&gt;
+ * </pre>
+ * Keywords are case-insensitive; blank lines and lines starting with '#' are skipped.
+ *
+ * For every command one tab-separated line is written, in script order: the line number, then
+ * {@code OK} and the result (e.g. the ticket ID and return date), {@code FAILED} and why the library
+ * turned it down (no copy on the shelf, no such loan), or {@code ERROR} and what is wrong with the line.
+ *
+ * Commands run in parallel on virtual threads, so slow payments overlap. A patron's commands still run
+ * one after another in script order, and ADD and REGISTER wait for everything before them and hold back
+ * everything after them, so a script that adds a book and then issues it behaves as written.
+ * At most {@code window} commands are in flight; reading pauses until the oldest result is written.
+ */
+public class BatchCommandRunner {
+
+    public static final int DEFAULT_WINDOW = 10_000;
+    // Written after the last result, so the writer knows when to stop.
+    private static final CompletableFuture<String> END = CompletableFuture.completedFuture(null);
+
+    private final Library library;
+    private final int window;
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * @param library The library to run the commands against.
+     * @param window The maximum number of commands in flight at once.
+     */
+    public BatchCommandRunner(Library library, int window) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("Window must be positive: " + window);
+        }
+        this.library = library;
+        this.window = window;
+    }
+
+    /**
+     * Runs every command in the script and writes one result line per command.
+     * Returns once the last result has been written and flushed.
+     * @param script The commands.
+     * @param results Where to write the results; buffered by the caller.
+     * @return The number of commands run.
+     */
+    public long run(BufferedReader script, Writer results) throws IOException, InterruptedException {
+        BlockingQueue<CompletableFuture<String>> pending = new ArrayBlockingQueue<>(window);
+        ResultWriter writer = new ResultWriter(pending, results);
+        Thread writerThread = Thread.ofPlatform().name("batch-writer").start(writer);
+
+        // Commands are handed to the executor only once what they wait for is done, so it is closed
+        // after the writer has seen every result.
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        long commands = 0;
+        try {
+            // The latest command of each patron since the last barrier, which the next one waits for
+            Map<String, CompletableFuture<String>> patronTails = new HashMap<>();
+            // Commands since the last barrier that belong to no patron, e.g. searches
+            List<CompletableFuture<String>> unordered = new ArrayList<>();
+            CompletableFuture<String> barrier = CompletableFuture.completedFuture("");
+
+            String line;
+            long lineNumber = 0;
+            while ((line = script.readLine()) != null) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                Command command = Command.parse(lineNumber, trimmed);
+                CompletableFuture<String> result;
+                if (command.error != null) {
+                    result = CompletableFuture.completedFuture(error(command.lineNumber, command.error));
+                } else if (command.isBarrier()) {
+                    List<CompletableFuture<String>> before = new ArrayList<>(patronTails.values());
+                    before.addAll(unordered);
+                    before.add(barrier);
+                    result = CompletableFuture.allOf(before.toArray(new CompletableFuture<?>[0]))
+                            .thenApplyAsync(ignored -> execute(command), executor);
+                    barrier = result;
+                    patronTails.clear();
+                    unordered.clear();
+                } else if (command.patronKey != null) {
+                    CompletableFuture<String> previous = patronTails.getOrDefault(command.patronKey, barrier);
+                    result = previous.thenApplyAsync(ignored -> execute(command), executor);
+                    patronTails.put(command.patronKey, result);
+                } else {
+                    result = barrier.thenApplyAsync(ignored -> execute(command), executor);
+                    unordered.add(result);
+                    // Results are written in order and at most a window apart, so all but the last window or so
+                    // of these are done; drop those rather than keep every search since the barrier.
+                    if (unordered.size() > 2 * window) {
+                        unordered.removeIf(CompletableFuture::isDone);
+                    }
+                }
+                pending.put(result);
+                commands++;
+            }
+        } finally {
+            pending.put(END);
+            writerThread.join();
+            executor.close();
+        }
+        if (writer.failure != null) {
+            throw writer.failure;
+        }
+        return commands;
+    }
+
+    // --- Counts ---
+
+    public long getSucceededCount() {
+        return succeeded.sum();
+    }
+
+    /**
+     * @return The number of commands the library turned down, e.g. an issue with no copy on the shelf.
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * @return The number of lines that could not be run, e.g. malformed lines or unknown patrons.
+     */
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    // --- Commands ---
+
+    /**
+     * Runs one command; never throws, so a bad command doesn't hold up the patron's next ones.
+     * @return The result line.
+     */
+    private String execute(Command command) {
+        try {
+            switch (command.keyword) {
+                case "ISSUE": {
+                    Patron patron = library.findPatronById(command.args[0]);
+                    Book book = library.searchBookByIsbn(command.args[1]);
+                    if (patron == null || book == null) {
+                        return error(command.lineNumber, patron == null ? "Unknown patron" : "Unknown ISBN");
+                    }
+                    LendingTicket ticket = library.issueBookToPatron(book, patron);
+                    return ticket != null
+                            ? ok(command.lineNumber, ticket.getId() + "\t" + ticket.getReturnDate())
+                            : failed(command.lineNumber, "Not issued: no copy available or payment failed");
+                }
+                case "CHECKOUT": {
+                    Patron patron = library.findPatronById(command.args[0]);
+                    if (patron == null) {
+                        return error(command.lineNumber, "Unknown patron");
+                    }
+                    List<String> isbns = List.of(command.args).subList(1, command.args.length);
+                    for (String isbn : isbns) {
+                        if (library.searchBookByIsbn(isbn) == null) {
+                            return error(command.lineNumber, "Unknown ISBN " + isbn);
+                        }
+                    }
+                    List<LendingTicket> tickets = library.checkoutBooks(patron, isbns);
+                    if (tickets == null) {
+                        return failed(command.lineNumber, "Not checked out: a copy was unavailable or payment failed");
+                    }
+                    StringBuilder ids = new StringBuilder();
+                    for (LendingTicket ticket : tickets) {
+                        if (ids.length() > 0) {
+                            ids.append(',');
+                        }
+                        ids.append(ticket.getId());
+                    }
+                    return ok(command.lineNumber, ids + "\t" + tickets.get(0).getReturnDate());
+                }
+                case "RETURN": {
+                    Patron patron = library.findPatronById(command.args[0]);
+                    Book book = library.searchBookByIsbn(command.args[1]);
+                    if (patron == null || book == null) {
+                        return error(command.lineNumber, patron == null ? "Unknown patron" : "Unknown ISBN");
+                    }
+                    return library.returnBookFromPatron(book, patron)
+                            ? ok(command.lineNumber, book.getIsbn())
+                            : failed(command.lineNumber, "No active loan of this book");
+                }
+                case "HOLD": {
+                    Patron patron = library.findPatronById(command.args[0]);
+                    Book book = library.searchBookByIsbn(command.args[1]);
+                    if (patron == null || book == null) {
+                        return error(command.lineNumber, patron == null ? "Unknown patron" : "Unknown ISBN");
+                    }
+                    HoldPriority priority = command.args.length > 2
+                            ? HoldPriority.valueOf(command.args[2].toUpperCase(Locale.ROOT))
+                            : HoldPriority.NORMAL;
+                    Hold hold = library.placeHold(book, patron, priority);
+                    return hold != null
+                            ? ok(command.lineNumber, hold.getId() + "\t" + hold.getStatus())
+                            : failed(command.lineNumber, "Hold limit reached");
+                }
+                case "SEARCH": {
+                    StringBuilder isbns = new StringBuilder();
+                    List<Book> books = library.searchBookByTitle(command.args[0]);
+                    for (Book book : books) {
+                        if (isbns.length() > 0) {
+                            isbns.append(',');
+                        }
+                        isbns.append(book.getIsbn());
+                    }
+                    return ok(command.lineNumber, books.size() + "\t" + isbns);
+                }
+                case "REGISTER": {
+                    Patron patron = library.registerNewPatron(command.args[1], command.args[0]);
+                    return ok(command.lineNumber, patron.getId());
+                }
+                case "ADD": {
+                    Book book = new Book(command.args[3], command.args[4], command.args[0], Integer.parseInt(command.args[2]));
+                    int quantity = Integer.parseInt(command.args[1]);
+                    if (!IsbnCodec.isValid(book.getIsbn())) {
+                        return error(command.lineNumber, "Not a valid ISBN-10 or ISBN-13: " + book.getIsbn());
+                    }
+                    if (quantity <= 0) {
+                        return error(command.lineNumber, "Quantity must be positive");
+                    }
+                    library.addNewBook(book, quantity);
+                    return ok(command.lineNumber, book.getIsbn() + "\t" + library.getAvailableCopies(book));
+                }
+                default:
+                    throw new IllegalStateException("Unknown command: " + command.keyword);
+            }
+        } catch (RuntimeException e) {
+            return error(command.lineNumber, e.toString());
+        }
+    }
+
+    private String ok(long lineNumber, String result) {
+        succeeded.increment();
+        return lineNumber + "\tOK\t" + result;
+    }
+
+    private String failed(long lineNumber, String reason) {
+        failed.increment();
+        return lineNumber + "\tFAILED\t" + reason;
+    }
+
+    private String error(long lineNumber, String message) {
+        errors.increment();
+        // Keep the result on one line and its column count fixed
+        return lineNumber + "\tERROR\t" + message.replace('\t', ' ').replace('\n', ' ');
+    }
+
+    /**
+     * One parsed script line.
+     */
+    private static final class Command {
+        final long lineNumber;
+        final String keyword;
+        final String[] args;
+        // The patron whose commands this one is ordered with, or null
+        final String patronKey;
+        // Why the line can't be run, or null
+        final String error;
+
+        private Command(long lineNumber, String keyword, String[] args, String patronKey, String error) {
+            this.lineNumber = lineNumber;
+            this.keyword = keyword;
+            this.args = args;
+            this.patronKey = patronKey;
+            this.error = error;
+        }
+
+        boolean isBarrier() {
+            return keyword.equals("ADD") || keyword.equals("REGISTER");
+        }
+
+        static Command parse(long lineNumber, String line) {
+            String[] parts = line.split("\\s+", 2);
+            String keyword = parts[0].toUpperCase(Locale.ROOT);
+            String rest = parts.length > 1 ? parts[1] : "";
+            switch (keyword) {
+                case "ISSUE":
+                case "RETURN":
+                case "HOLD": {
+                    String[] args = rest.isEmpty() ? new String[0] : rest.split("\\s+");
+                    int maxArgs = keyword.equals("HOLD") ? 3 : 2;
+                    if (args.length < 2 || args.length > maxArgs) {
+                        return invalid(lineNumber, keyword, "Expected " + keyword + " <patronId> <isbn>"
+                                + (keyword.equals("HOLD") ? " [HIGH|NORMAL]" : ""));
+                    }
+                    return new Command(lineNumber, keyword, args, Ids.normalize(args[0]), null);
+                }
+                case "CHECKOUT": {
+                    String[] args = rest.isEmpty() ? new String[0] : rest.split("\\s+");
+                    if (args.length < 2) {
+                        return invalid(lineNumber, keyword, "Expected CHECKOUT <patronId> <isbn> <isbn>...");
+                    }
+                    return new Command(lineNumber, keyword, args, Ids.normalize(args[0]), null);
+                }
+                case "SEARCH":
+                    if (rest.isEmpty()) {
+                        return invalid(lineNumber, keyword, "Expected SEARCH <words...>");
+                    }
+                    return new Command(lineNumber, keyword, new String[] {rest}, null, null);
+                case "REGISTER": {
+                    String[] args = rest.split("\\s+", 2);
+                    if (args.length < 2) {
+                        return invalid(lineNumber, keyword, "Expected REGISTER <email> <name...>");
+                    }
+                    return new Command(lineNumber, keyword, args, null, null);
+                }
+                case "ADD": {
+                    // isbn, quantity, year, then "title | author"
+                    String[] head = rest.split("\\s+", 4);
+                    int bar = head.length == 4 ? head[3].lastIndexOf('|') : -1;
+                    if (bar < 0) {
+                        return invalid(lineNumber, keyword, "Expected ADD <isbn> <quantity> <year> <title> | <author>");
+                    }
+                    return new Command(lineNumber, keyword, new String[] {head[0], head[1], head[2],
+                            head[3].substring(0, bar).trim(), head[3].substring(bar + 1).trim()}, null, null);
+                }
+                default:
+                    return invalid(lineNumber, keyword, "Unknown command: " + parts[0]);
+            }
+        }
+
+        private static Command invalid(long lineNumber, String keyword, String error) {
+            return new Command(lineNumber, keyword, new String[0], null, error);
+        }
+    }
+
+    /**
+     * Writes results in script order as they complete, flushing whenever it catches up with the commands.
+     */
+    private static final class ResultWriter implements Runnable {
+        private final BlockingQueue<CompletableFuture<String>> pending;
+        private final Writer results;
+        private volatile IOException failure;
+
+        ResultWriter(BlockingQueue<CompletableFuture<String>> pending, Writer results) {
+            this.pending = pending;
+            this.results = results;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    CompletableFuture<String> next = pending.take();
+                    if (next == END) {
+                        results.flush();
+                        return;
+                    }
+                    results.write(next.join());
+                    results.write(System.lineSeparator());
+                    if (pending.isEmpty()) {
+                        results.flush();
+                    }
+                }
+            } catch (IOException e) {
+                failure = e;
+                drain();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // Keeps taking results after a write failed, so the reader isn't blocked on a full window.
+        private void drain() {
+            try {
+                while (pending.take() != END) {
+                    // Discard
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -1,15 +1,30 @@
 package main.java.com.siddharth.librarysystem.commandline;
+import java.io.IOException;
 import java.util.List;
 import java.util.Scanner;
 
 import main.java.com.siddharth.librarysystem.core.Library;
 import main.java.com.siddharth.librarysystem.entity.Book;
+import main.java.com.siddharth.librarysystem.entity.Hold;
+import main.java.com.siddharth.librarysystem.entity.HoldStatus;
+import main.java.com.siddharth.librarysystem.entity.IsbnCodec;
 import main.java.com.siddharth.librarysystem.entity.Patron;
+import main.java.com.siddharth.librarysystem.logging.EventLog;
+import main.java.com.siddharth.librarysystem.query.BookMatch;
+import main.java.com.siddharth.librarysystem.query.CatalogPage;
+import main.java.com.siddharth.librarysystem.query.InventoryRow;
 
 /**
  * Handles all command-line interface interactions for the Library System.
  */
 public class LibraryCLI {
+    // Number of books fetched at a time when listing the catalog.
+    private static final int LIST_PAGE_SIZE = 100;
+    // How many close titles to suggest when a title search finds nothing.
+    private static final int SUGGESTIONS = 5;
+    // Menu number of the statistics screen, which can also be opened by typing "stats".
+    private static final int STATS_CHOICE = 11;
+
     private final Library library;
     private final Scanner scanner;
 
@@ -26,13 +41,15 @@ public class LibraryCLI {
         int choice;
         do {
             printMenu();
-            choice = getIntInput();
+            choice = getMenuChoice();
             handleMenuChoice(choice);
         } while (choice != 0);
         System.out.println("Thank you for using the Library Management System. Goodbye!");
     }
 
     private void printMenu() {
+        // Let queued log messages from the last command print before the menu does
+        EventLog.flush();
         System.out.println("\n--- Library Menu ---");
         System.out.println("1. Add a new book to the inventory");
         System.out.println("2. Register a new patron");
@@ -41,6 +58,10 @@ public class LibraryCLI {
         System.out.println("5. Search for a book by title");
         System.out.println("6. List all books");
         System.out.println("7. List books borrowed by a patron");
+        System.out.println("8. Show the lending history of a patron");
+        System.out.println("9. Place a hold on a book");
+        System.out.println("10. Show or cancel the holds of a patron");
+        System.out.println("11. Show statistics (or type 'stats')");
         System.out.println("0. Exit");
         System.out.print("Enter your choice: ");
     }
@@ -54,6 +75,10 @@ public class LibraryCLI {
             case 5: handleSearchByTitle(); break;
             case 6: handleListAllBooks(); break;
             case 7: handleListBorrowedBooks(); break;
+            case 8: handlePatronHistory(); break;
+            case 9: handlePlaceHold(); break;
+            case 10: handlePatronHolds(); break;
+            case STATS_CHOICE: handleShowStats(); break;
             case 0: break;
             default: System.out.println("Invalid choice. Please try again.");
         }
@@ -66,7 +91,11 @@ public class LibraryCLI {
         System.out.print("Enter author: ");
         String author = scanner.nextLine();
         System.out.print("Enter ISBN: ");
-        String isbn = scanner.nextLine();
+        String isbn = IsbnCodec.normalize(scanner.nextLine());
+        if (!IsbnCodec.isValid(isbn)) {
+            System.out.println("Invalid ISBN. Enter a 10 or 13 digit ISBN with a correct check digit.");
+            return;
+        }
         System.out.print("Enter publication year: ");
         int year = getIntInput();
         System.out.print("Enter quantity to add: ");
@@ -76,6 +105,13 @@ public class LibraryCLI {
         library.addNewBook(newBook, quantity);
     }
 
+    // Reads an ISBN, dropping hyphens and spaces if it looks like one, so "978-0-306-40615-7" is found too.
+    private String readIsbn() {
+        String input = scanner.nextLine();
+        String isbn = IsbnCodec.normalize(input);
+        return isbn != null ? isbn : input;
+    }
+
     private void handleRegisterPatron() {
         System.out.println("\n--- Register New Patron ---");
         System.out.print("Enter patron name: ");
@@ -98,8 +134,7 @@ public class LibraryCLI {
         }
 
         System.out.print("Enter Book ISBN to issue: ");
-        String isbn = scanner.nextLine();
-        Book book = library.searchBookByIsbn(isbn);
+        Book book = library.searchBookByIsbn(readIsbn());
         if (book == null) {
             System.out.println("Book not found.");
             return;
@@ -119,8 +154,7 @@ public class LibraryCLI {
         }
 
         System.out.print("Enter Book ISBN to return: ");
-        String isbn = scanner.nextLine();
-        Book book = library.searchBookByIsbn(isbn);
+        Book book = library.searchBookByIsbn(readIsbn());
         if (book == null) {
             System.out.println("Book not found.");
             return;
@@ -136,6 +170,12 @@ public class LibraryCLI {
         List<Book> books = library.searchBookByTitle(title);
         if (books.isEmpty()) {
             System.out.println("No books found with that title.");
+            List<BookMatch> suggestions = library.findClosestTitles(title, SUGGESTIONS);
+            if (!suggestions.isEmpty()) {
+                System.out.println("Did you mean:");
+                suggestions.forEach(match -> System.out.println(" - " + match + ", Available Copies: "
+                        + library.getAvailableCopies(match.getBook())));
+            }
         } else {
             System.out.println("Found Books:");
             books.forEach(book -> System.out.println(" - " + book + ", Available Copies: " + library.getAvailableCopies(book)));
@@ -144,11 +184,20 @@ public class LibraryCLI {
     
     private void handleListAllBooks() {
         System.out.println("\n--- All Books in Inventory ---");
-        List<Book> allBooks = library.listAllBooks();
-        if (allBooks.isEmpty()) {
+        // Page through the catalog so a large library is never copied into one big list
+        CatalogPage page = library.listBooks(null, LIST_PAGE_SIZE);
+        if (page.getRows().isEmpty()) {
             System.out.println("The library has no books.");
-        } else {
-            allBooks.forEach(book -> System.out.println(" - " + book + ", Available Copies: " + library.getAvailableCopies(book)));
+            return;
+        }
+        while (true) {
+            for (InventoryRow row : page.getRows()) {
+                System.out.println(" - " + row.getBook() + ", Available Copies: " + row.getAvailableCopies());
+            }
+            if (!page.hasMore()) {
+                break;
+            }
+            page = library.listBooks(page.getNextCursor(), LIST_PAGE_SIZE);
         }
     }
     
@@ -171,6 +220,117 @@ public class LibraryCLI {
         }
     }
 
+    private void handlePatronHistory() {
+        System.out.println("\n--- Lending History of Patron ---");
+        if (!library.isHistoryEnabled()) {
+            System.out.println("Lending history is not enabled.");
+            return;
+        }
+        System.out.print("Enter Patron ID: ");
+        String patronId = scanner.nextLine();
+        Patron patron = library.findPatronById(patronId);
+        if (patron == null) {
+            System.out.println("Patron not found.");
+            return;
+        }
+
+        // Printed as the records are read, so a long history is never loaded all at once
+        int[] count = {0};
+        try {
+            library.forEachPastLoan(patron, record -> {
+                Book book = library.searchBookByIsbn(record.getIsbn());
+                String title = book == null ? record.getIsbn() : book.getTitle();
+                System.out.println(" - " + title + " (ISBN: " + record.getIsbn() + "), borrowed " + record.getIssueDate()
+                        + ", returned " + record.getReturnedDate()
+                        + (record.getFineAmount() > 0 ? ", fine " + record.getFineAmount() : ""));
+                count[0]++;
+            });
+        } catch (IOException e) {
+            System.out.println("Could not read the lending history: " + e.getMessage());
+            return;
+        }
+        if (count[0] == 0) {
+            System.out.println(patron.getName() + " has not returned any books yet.");
+        }
+    }
+
+    private void handlePlaceHold() {
+        System.out.println("\n--- Place Hold ---");
+        System.out.print("Enter Patron ID: ");
+        String patronId = scanner.nextLine();
+        Patron patron = library.findPatronById(patronId);
+        if (patron == null) {
+            System.out.println("Patron not found.");
+            return;
+        }
+
+        System.out.print("Enter Book ISBN to hold: ");
+        Book book = library.searchBookByIsbn(readIsbn());
+        if (book == null) {
+            System.out.println("Book not found.");
+            return;
+        }
+
+        Hold hold = library.placeHold(book, patron);
+        if (hold == null) {
+            return;
+        }
+        if (hold.getStatus() == HoldStatus.READY) {
+            System.out.println("A copy is set aside for " + patron.getName() + " until " + hold.getPickupDeadline()
+                    + ". Issue the book to collect it.");
+        } else {
+            System.out.println("Hold " + hold.getId() + " placed; patrons waiting for this book: "
+                    + library.getHoldQueueLength(book));
+        }
+    }
+
+    private void handlePatronHolds() {
+        System.out.println("\n--- Holds of Patron ---");
+        System.out.print("Enter Patron ID: ");
+        String patronId = scanner.nextLine();
+        Patron patron = library.findPatronById(patronId);
+        if (patron == null) {
+            System.out.println("Patron not found.");
+            return;
+        }
+
+        List<Hold> holds = library.getHoldsOfPatron(patron);
+        if (holds.isEmpty()) {
+            System.out.println(patron.getName() + " has no holds.");
+            return;
+        }
+        holds.forEach(hold -> System.out.println(" - " + hold.getId() + ": " + hold.getBook().getTitle() + ", "
+                + (hold.getStatus() == HoldStatus.READY ? "ready until " + hold.getPickupDeadline() : "waiting")));
+        System.out.print("Enter a hold ID to cancel, or press Enter to go back: ");
+        String holdId = scanner.nextLine().trim();
+        if (holdId.isEmpty()) {
+            return;
+        }
+        System.out.println(library.cancelHold(holdId) ? "Hold cancelled." : "No open hold with that ID.");
+    }
+
+    private void handleShowStats() {
+        System.out.println("\n--- Statistics ---");
+        System.out.print(library.getStats().format());
+    }
+
+    /**
+     * Reads a menu number, or "stats" for the statistics screen.
+     */
+    private int getMenuChoice() {
+        while (true) {
+            String input = scanner.nextLine().trim();
+            if (input.equalsIgnoreCase("stats")) {
+                return STATS_CHOICE;
+            }
+            try {
+                return Integer.parseInt(input);
+            } catch (NumberFormatException e) {
+                System.out.print("Invalid input. Please enter a number: ");
+            }
+        }
+    }
+
     /**
      * Helper method to safely read an integer from the console.
      */
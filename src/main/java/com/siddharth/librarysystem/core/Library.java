@@ -2,13 +2,42 @@ package main.java.com.siddharth.librarysystem.core;
 
 
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.management.ObjectName;
 
 import main.java.com.siddharth.librarysystem.entity.Book;
+import main.java.com.siddharth.librarysystem.entity.Hold;
+import main.java.com.siddharth.librarysystem.entity.HoldPriority;
+import main.java.com.siddharth.librarysystem.entity.LendingTicket;
 import main.java.com.siddharth.librarysystem.entity.Patron;
+import main.java.com.siddharth.librarysystem.importer.CatalogImporter;
+import main.java.com.siddharth.librarysystem.importer.ImportReport;
+import main.java.com.siddharth.librarysystem.logging.EventLogger;
 import main.java.com.siddharth.librarysystem.manager.BookInventory;
 import main.java.com.siddharth.librarysystem.manager.PatronManager;
+import main.java.com.siddharth.librarysystem.metrics.LibraryMetrics;
+import main.java.com.siddharth.librarysystem.metrics.LibraryStats;
+import main.java.com.siddharth.librarysystem.metrics.OperationType;
+import main.java.com.siddharth.librarysystem.payment.AsyncPaymentProcessor;
 import main.java.com.siddharth.librarysystem.payment.PaymentProcessor;
+import main.java.com.siddharth.librarysystem.persistence.HistoryRecord;
+import main.java.com.siddharth.librarysystem.persistence.LendingHistoryStore;
+import main.java.com.siddharth.librarysystem.persistence.LibraryJournal;
+import main.java.com.siddharth.librarysystem.persistence.LibrarySnapshot;
+import main.java.com.siddharth.librarysystem.query.BookMatch;
+import main.java.com.siddharth.librarysystem.query.CatalogPage;
+import main.java.com.siddharth.librarysystem.query.CatalogQuery;
 
 /**
  * The main facade class for the library system.
@@ -16,8 +45,25 @@ import main.java.com.siddharth.librarysystem.payment.PaymentProcessor;
  * This class provides a simplified interface for the CLI.
  */
 public class Library {
+    private static final EventLogger log = EventLogger.forClass(Library.class);
+
     private final BookInventory bookInventory;
     private final PatronManager patronManager;
+    // Counts and latencies of every operation, down to the payment processors. Off with -Dlibrary.metrics=false.
+    private final LibraryMetrics metrics = new LibraryMetrics();
+    private final LibraryStats stats;
+    // Archive of closed loans; null until attachHistory is called.
+    private volatile LendingHistoryStore history;
+    // The journal changes are recorded to; null until attachJournal is called.
+    private volatile LibraryJournal journal;
+    // Where the journal picks up from the state loaded by loadSnapshot; 0 if no snapshot was loaded.
+    private long snapshotJournalPosition;
+    // Writes snapshots and flushes the lending history in the background, one at a time.
+    private final ScheduledExecutorService persistenceExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "persistence-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     /**
      * Constructor for the Library.
@@ -25,39 +71,262 @@ public class Library {
      * @param paymentProcessor The payment processor to be used for transactions.
      */
     public Library(PaymentProcessor paymentProcessor) {
-        this.bookInventory = new BookInventory();
+        this(new BookInventory(), paymentProcessor, null);
+    }
+
+    /**
+     * Constructor for the Library with an explicit processor for asynchronous issues,
+     * e.g. a VirtualThreadPaymentProcessor with a custom concurrency limit and timeout.
+     * @param paymentProcessor The payment processor to be used for synchronous transactions.
+     * @param asyncPaymentProcessor The payment processor to be used by {@link #issueBookToPatronAsync(Book, Patron)}.
+     */
+    public Library(PaymentProcessor paymentProcessor, AsyncPaymentProcessor asyncPaymentProcessor) {
+        this(new BookInventory(), paymentProcessor, asyncPaymentProcessor);
+    }
+
+    /**
+     * Constructor for a Library that is about to load a large catalog,
+     * e.g. sized with {@link CatalogImporter#estimateRowCount(Path)}.
+     * @param paymentProcessor The payment processor to be used for transactions.
+     * @param expectedBooks The number of distinct titles expected.
+     */
+    public Library(PaymentProcessor paymentProcessor, int expectedBooks) {
+        this(new BookInventory(expectedBooks), paymentProcessor, null);
+    }
+
+    /**
+     * @param asyncPaymentProcessor The processor for asynchronous issues, or null to run the
+     *                              synchronous one on virtual threads.
+     */
+    private Library(BookInventory bookInventory, PaymentProcessor paymentProcessor, AsyncPaymentProcessor asyncPaymentProcessor) {
+        this.bookInventory = bookInventory;
         // The PatronManager needs access to the BookInventory to check for book availability
-        // and to the PaymentProcessor to handle payments.
-        this.patronManager = new PatronManager(paymentProcessor, this.bookInventory);
+        // and to the PaymentProcessor to handle payments. Payments are measured at the processor.
+        PaymentProcessor measuredProcessor = metrics.instrument(paymentProcessor);
+        this.patronManager = asyncPaymentProcessor == null
+                ? new PatronManager(measuredProcessor, bookInventory)
+                : new PatronManager(measuredProcessor, metrics.instrumentAsync(asyncPaymentProcessor), bookInventory);
+        bookInventory.attachMetrics(metrics);
+        patronManager.attachMetrics(metrics);
+        this.stats = new LibraryStats(metrics, bookInventory::getBookCount, patronManager::getActiveLoanCount,
+                patronManager::getOverdueCount);
+    }
+
+    /**
+     * Rebuilds the library state from the journal, then records every further change to it.
+     * Call this once at startup, before the library is used; after {@link #loadSnapshot(Path)} only the
+     * records written since the snapshot are replayed.
+     * @param journal The journal to replay and write to.
+     * @return The number of records replayed.
+     */
+    public long attachJournal(LibraryJournal journal) throws IOException {
+        long replayed = journal.replay(bookInventory, patronManager, snapshotJournalPosition);
+        bookInventory.attachJournal(journal);
+        patronManager.attachJournal(journal);
+        this.journal = journal;
+        return replayed;
+    }
+
+    /**
+     * Starts archiving returned loans to the given history store.
+     * Call this after {@link #attachJournal(LibraryJournal)}, so replayed returns aren't archived twice.
+     * @param history The store to append to and query.
+     */
+    public void attachHistory(LendingHistoryStore history) {
+        this.history = history;
+        patronManager.attachHistory(history);
+    }
+
+    /**
+     * Loads a snapshot written by {@link #saveSnapshot(Path)}. Call this once at startup, on an empty library,
+     * and then {@link #attachJournal(LibraryJournal)} to replay what the journal recorded after the snapshot.
+     * @param file The snapshot file.
+     * @return The number of books loaded.
+     */
+    public long loadSnapshot(Path file) throws IOException {
+        snapshotJournalPosition = LibrarySnapshot.load(file, bookInventory, patronManager);
+        return bookInventory.getBookCount();
+    }
+
+    /**
+     * Writes a snapshot of the whole library, replacing the file atomically.
+     * @param file The snapshot file.
+     * @return The number of books written.
+     */
+    public long saveSnapshot(Path file) throws IOException {
+        long start = metrics.startTimer(OperationType.SNAPSHOT);
+        boolean written = false;
+        try {
+            long books = LibrarySnapshot.write(file, bookInventory, patronManager, journal);
+            written = true;
+            return books;
+        } finally {
+            metrics.record(OperationType.SNAPSHOT, start, written);
+        }
+    }
+
+    /**
+     * Writes a snapshot on a background thread while the library keeps serving requests.
+     * @param file The snapshot file.
+     * @return A future with the number of books written.
+     */
+    public CompletableFuture<Long> saveSnapshotAsync(Path file) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return saveSnapshot(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, persistenceExecutor);
+    }
+
+    /**
+     * Writes a snapshot in the background at a fixed interval, so a restart only replays the journal
+     * written since the last one. A snapshot that fails is logged and retried at the next interval.
+     * @param file The snapshot file.
+     * @param interval The time between snapshots.
+     */
+    public void startSnapshots(Path file, Duration interval) {
+        persistenceExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                saveSnapshot(file);
+            } catch (IOException | RuntimeException e) {
+                log.error("Could not write the snapshot %s: %s", file, e.getMessage());
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Flushes the lending history in the background at a fixed interval, so a process that is killed
+     * loses at most that long of closed loans rather than a whole unwritten segment. Does nothing while
+     * no history store is attached or nothing was returned since the last flush.
+     * @param interval The time between flushes.
+     */
+    public void startHistoryFlushes(Duration interval) {
+        persistenceExecutor.scheduleWithFixedDelay(() -> {
+            LendingHistoryStore store = history;
+            if (store == null) {
+                return;
+            }
+            try {
+                store.flush();
+            } catch (IOException | RuntimeException e) {
+                log.error("Could not flush the lending history: %s", e.getMessage());
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Imports a CSV or TSV catalog (title, author, ISBN, year, quantity) in parallel.
+     * Invalid rows are written to the reject file instead of stopping the import.
+     * @param source The catalog file.
+     * @param rejectFile Where to write rejected rows.
+     * @return A summary of the import.
+     */
+    public ImportReport importCatalog(Path source, Path rejectFile) throws IOException {
+        long start = metrics.startTimer(OperationType.IMPORT);
+        ImportReport report = null;
+        try {
+            report = new CatalogImporter(bookInventory).importFile(source, rejectFile);
+            return report;
+        } finally {
+            metrics.record(OperationType.IMPORT, start, report != null);
+        }
     }
 
     // --- Book Inventory Methods ---
 
     public void addNewBook(Book book, int quantity) {
         bookInventory.addBook(book, quantity);
+        // New copies of a title people are waiting for go to them first
+        Book stocked = bookInventory.getByIsbn(book.getIsbn());
+        if (stocked != null) {
+            patronManager.fillHolds(stocked);
+        }
     }
 
     public List<Book> searchBookByTitle(String title) {
-        return bookInventory.getAllByTitle(title);
+        return bookInventory.searchByTitle(title);
     }
 
     public List<Book> searchBookByAuthor(String author) {
-        return bookInventory.getAllByAuthor(author);
+        return bookInventory.searchByAuthor(author);
+    }
+
+    /**
+     * Finds the books with the titles closest to one that may be misspelled,
+     * e.g. to suggest what was meant when {@link #searchBookByTitle(String)} finds nothing.
+     * @param title The title as typed.
+     * @param limit The most books to return.
+     * @return The closest books, best match first, each with how closely it matched.
+     */
+    public List<BookMatch> findClosestTitles(String title, int limit) {
+        return bookInventory.findClosestTitles(title, limit);
+    }
+
+    /**
+     * Finds the books by the authors closest to one that may be misspelled.
+     * @param author The author as typed.
+     * @param limit The most books to return.
+     * @return The closest books, best match first, each with how closely it matched.
+     */
+    public List<BookMatch> findClosestAuthors(String author, int limit) {
+        return bookInventory.findClosestAuthors(author, limit);
+    }
+
+    /**
+     * Finds books by any combination of title, author, publication year range and availability,
+     * e.g. {@code new CatalogQuery().author("asimov").publishedBetween(1950, 1970).availableOnly()}.
+     * @param query The predicates, ordering and page to return.
+     * @return The matching books in the requested order.
+     */
+    public List<Book> findBooks(CatalogQuery query) {
+        return bookInventory.query(query);
+    }
+
+    public boolean updateBookDetails(String isbn, String title, String author, int pubYear) {
+        return bookInventory.updateBookDetails(isbn, title, author, pubYear);
     }
     
     public Book searchBookByIsbn(String isbn) {
         return bookInventory.getByIsbn(isbn);
     }
     
+    /**
+     * Copies the whole catalog into a list. Prefer {@link #listBooks(String, int)} for large catalogs.
+     */
     public List<Book> listAllBooks() {
         return bookInventory.getAllBooks();
     }
+
+    /**
+     * Lists the catalog in ISBN order one page at a time, each book with its available and borrowed counts.
+     * @param cursor The cursor from the previous page, or null for the first page.
+     * @param pageSize The maximum number of books per page.
+     * @return The page and the cursor for the next one.
+     */
+    public CatalogPage listBooks(String cursor, int pageSize) {
+        return bookInventory.listBooks(cursor, pageSize);
+    }
     
      public int getAvailableCopies(Book book) {
         if (book == null) return 0;
         return bookInventory.getAvailableCopiesCount(book.getIsbn());
     }
 
+    /**
+     * @return The copies of the book held back for issues that are being paid for and for ready holds.
+     */
+    public int getReservedCopies(Book book) {
+        if (book == null) return 0;
+        return bookInventory.getReservedCopiesCount(book.getIsbn());
+    }
+
+    public int getBorrowedCopies(Book book) {
+        if (book == null) return 0;
+        return bookInventory.getBorrowedCopiesCount(book.getIsbn());
+    }
+
     // --- Patron Manager Methods ---
 
     public Patron registerNewPatron(String name, String email) {
@@ -68,23 +337,194 @@ public class Library {
         return patronManager.findPatronById(id);
     }
 
-    public void issueBookToPatron(Book book, Patron patron) {
+    /**
+     * @return The lending ticket, or null if the book could not be issued.
+     */
+    public LendingTicket issueBookToPatron(Book book, Patron patron) {
         if (book == null || patron == null) {
-            System.out.println("Error: Book or Patron not found.");
-            return;
+            log.warn("Error: Book or Patron not found.");
+            return null;
+        }
+        return patronManager.issueBook(book, patron);
+    }
+
+    /**
+     * Issues several books to a patron with a single payment; all of them are issued or none is.
+     * See {@link PatronManager#checkoutBooks(List, Patron)}.
+     * @param patron The patron.
+     * @param isbns The ISBNs of the books; an ISBN listed twice borrows two copies.
+     * @return The lending tickets in ISBN order, or null if the books could not be issued.
+     */
+    public List<LendingTicket> checkoutBooks(Patron patron, List<String> isbns) {
+        if (patron == null) {
+            log.warn("Error: Book or Patron not found.");
+            return null;
+        }
+        List<Book> books = new ArrayList<>(isbns.size());
+        for (String isbn : isbns) {
+            Book book = bookInventory.getByIsbn(isbn);
+            if (book == null) {
+                log.warn("Error: No book with ISBN %s.", isbn);
+                return null;
+            }
+            books.add(book);
         }
-        patronManager.issueBook(book, patron);
+        return patronManager.checkoutBooks(books, patron);
     }
 
-    public void returnBookFromPatron(Book book, Patron patron) {
+    public CompletableFuture<LendingTicket> issueBookToPatronAsync(Book book, Patron patron) {
         if (book == null || patron == null) {
-            System.out.println("Error: Book or Patron not found.");
-            return;
+            log.warn("Error: Book or Patron not found.");
+            return CompletableFuture.completedFuture(null);
         }
-        patronManager.returnBook(book, patron);
+        return patronManager.issueBookAsync(book, patron);
+    }
+
+    /**
+     * @return true if the book was returned, false if the patron had not borrowed it.
+     */
+    public boolean returnBookFromPatron(Book book, Patron patron) {
+        if (book == null || patron == null) {
+            log.warn("Error: Book or Patron not found.");
+            return false;
+        }
+        return patronManager.returnBook(book, patron);
     }
 
     public List<Book> getBooksBorrowedByPatron(Patron patron) {
         return patronManager.getBorrowedBooks(patron);
     }
+
+    public LendingTicket findActiveLoan(String ticketId) {
+        return patronManager.findActiveTicket(ticketId);
+    }
+
+    /**
+     * @param book The book to check.
+     * @return The active loans of the book, i.e. who currently has a copy.
+     */
+    public List<LendingTicket> getActiveLoansForBook(Book book) {
+        if (book == null) return new ArrayList<>();
+        return patronManager.getActiveTicketsForBook(book.getIsbn());
+    }
+
+    // --- Hold Methods ---
+
+    /**
+     * Puts a patron in the queue for a book instead of having them retry until a copy is free.
+     * Returned copies go to waiting patrons before the shelf; use {@link Hold#whenReady()} to be
+     * told when a copy is set aside, then issue the book to collect it.
+     * @param book The book.
+     * @param patron The patron.
+     * @param priority Where in the queue the hold goes.
+     * @return The hold, or null if the book or patron is missing or the patron has reached the hold limit.
+     */
+    public Hold placeHold(Book book, Patron patron, HoldPriority priority) {
+        if (book == null || patron == null) {
+            log.warn("Error: Book or Patron not found.");
+            return null;
+        }
+        return patronManager.placeHold(book, patron, priority);
+    }
+
+    public Hold placeHold(Book book, Patron patron) {
+        return placeHold(book, patron, HoldPriority.NORMAL);
+    }
+
+    /**
+     * @param holdId The ID of the hold.
+     * @return true if the hold was cancelled, false if there is no open hold with that ID.
+     */
+    public boolean cancelHold(String holdId) {
+        Hold hold = patronManager.findHold(holdId);
+        return hold != null && patronManager.cancelHold(hold);
+    }
+
+    public Hold findHold(String holdId) {
+        return patronManager.findHold(holdId);
+    }
+
+    public List<Hold> getHoldsOfPatron(Patron patron) {
+        return patronManager.getHolds(patron);
+    }
+
+    public int getHoldQueueLength(Book book) {
+        if (book == null) return 0;
+        return patronManager.getHoldQueueLength(book.getIsbn());
+    }
+
+    // --- Lending History Methods ---
+
+    /**
+     * Streams every past loan of a patron, oldest first, without loading the whole history.
+     * @param patron The patron.
+     * @param action Called once per past loan.
+     * @throws IllegalStateException if no history store is attached.
+     */
+    public void forEachPastLoan(Patron patron, Consumer<HistoryRecord> action) throws IOException {
+        requireHistory().forEachByPatron(patron.getId(), action);
+    }
+
+    /**
+     * Streams every past loan of a book, oldest first, without loading the whole history.
+     * @param book The book.
+     * @param action Called once per past loan.
+     * @throws IllegalStateException if no history store is attached.
+     */
+    public void forEachPastLoan(Book book, Consumer<HistoryRecord> action) throws IOException {
+        requireHistory().forEachByIsbn(book.getIsbn(), action);
+    }
+
+    public boolean isHistoryEnabled() {
+        return history != null;
+    }
+
+    private LendingHistoryStore requireHistory() {
+        LendingHistoryStore store = history;
+        if (store == null) {
+            throw new IllegalStateException("No lending history store is attached.");
+        }
+        return store;
+    }
+
+    // --- Due Date Methods ---
+
+    public List<LendingTicket> getOverdueLoans() {
+        return patronManager.getOverdueTickets();
+    }
+
+    public List<LendingTicket> getLoansDueWithin(int days) {
+        return patronManager.getTicketsDueWithin(days);
+    }
+
+    public double getOutstandingFines() {
+        return patronManager.getOutstandingFines();
+    }
+
+    /**
+     * Starts marking loans as overdue in the background as soon as the day changes,
+     * and passing on copies whose holders didn't pick them up in time.
+     * Overdue queries are correct without this; it only makes the status changes happen on time.
+     * @param checkInterval How often to check whether the day has changed.
+     */
+    public void startOverdueChecks(Duration checkInterval) {
+        patronManager.startOverdueChecks(checkInterval);
+    }
+
+    // --- Statistics ---
+
+    /**
+     * @return Catalog size, active and overdue loans, and the counts and latencies of every operation so far.
+     */
+    public LibraryStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Publishes {@link #getStats()} over JMX, e.g. for JConsole or VisualVM.
+     * @return The name the stats were registered under.
+     */
+    public ObjectName registerStatsMBean() {
+        return stats.register();
+    }
 }
\ No newline at end of file
@@ -3,13 +3,16 @@ package main.java.com.siddharth.librarysystem.entity;
 
 
 import java.util.Objects;
-import java.util.UUID;
+
+import main.java.com.siddharth.librarysystem.id.Ids;
 
 public class Book {
-    private String id;
+    private long id; // Compact time-ordered ID, see Ids; a negative legacy key if legacyId is set
+    private String legacyId; // Set instead of id for IDs issued before compact IDs, e.g. UUIDs
     private String title;
     private String author;
     private String isbn;
+    private long isbnKey; // The ISBN packed by IsbnCodec, so stock lookups don't parse it again
     private int pubYear;
 
     /**
@@ -17,19 +20,52 @@ public class Book {
      * Generates a unique ID for each new book.
      */
     public Book(String title, String author, String isbn, int pubYear) {
-        this.id = UUID.randomUUID().toString(); // Assign a unique ID
+        this.id = Ids.next();
+        this.title = title;
+        this.author = author;
+        this.isbn = isbn;
+        this.isbnKey = IsbnCodec.toKey(isbn);
+        this.pubYear = pubYear;
+    }
+
+    /**
+     * Constructor for restoring a previously saved Book with its original ID.
+     */
+    public Book(String id, String title, String author, String isbn, int pubYear) {
+        if (Ids.isCompact(id)) {
+            this.id = Ids.parse(id);
+        } else {
+            this.id = Ids.legacyKey(id);
+            this.legacyId = id;
+        }
         this.title = title;
         this.author = author;
         this.isbn = isbn;
+        this.isbnKey = IsbnCodec.toKey(isbn);
         this.pubYear = pubYear;
     }
 
     // --- Getters ---
 
     public String getId() {
+        return legacyId != null ? legacyId : Ids.toText(id);
+    }
+
+    /**
+     * @return The ID as a number, for keying maps without formatting it; negative for a legacy ID,
+     *         see {@link Ids#legacyKey(String)}.
+     */
+    public long getIdValue() {
         return id;
     }
 
+    /**
+     * @return The ISBN packed into a long, or {@link IsbnCodec#NO_KEY} if it is not an ISBN-10 or ISBN-13.
+     */
+    public long getIsbnKey() {
+        return isbnKey;
+    }
+
     public String getTitle() {
         return title;
     }
@@ -58,6 +94,7 @@ public class Book {
 
     public void setIsbn(String isbn) {
         this.isbn = isbn;
+        this.isbnKey = IsbnCodec.toKey(isbn);
     }
 
     public void setPubYear(int pubYear) {
@@ -69,7 +106,7 @@ public class Book {
     @Override
     public String toString() {
         return "Book{" +
-                "id='" + id + '\'' +
+                "id='" + getId() + '\'' +
                 ", title='" + title + '\'' +
                 ", author='" + author + '\'' +
                 ", isbn='" + isbn + '\'' +
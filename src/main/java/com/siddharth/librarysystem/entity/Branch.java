@@ -0,0 +1,83 @@
+package main.java.com.siddharth.librarysystem.entity;
+
+import java.util.Objects;
+
+public class Branch {
+    private static final double EARTH_RADIUS_KM = 6371.0;
+
+    private final String id;
+    private final String name;
+    private final double latitude;
+    private final double longitude;
+
+    /**
+     * Constructor for a library branch.
+     * @param id A short, unique code for the branch, e.g. "central".
+     * @param name The name shown to patrons.
+     * @param latitude The branch's latitude in degrees.
+     * @param longitude The branch's longitude in degrees.
+     */
+    public Branch(String id, String name, double latitude, double longitude) {
+        this.id = id;
+        this.name = name;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    // --- Getters ---
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * @param other Another branch.
+     * @return The great-circle distance between the two branches in kilometres.
+     */
+    public double distanceTo(Branch other) {
+        double dLat = Math.toRadians(other.latitude - latitude);
+        double dLon = Math.toRadians(other.longitude - longitude);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(latitude)) * Math.cos(Math.toRadians(other.latitude))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    // --- Overridden Methods ---
+
+    @Override
+    public String toString() {
+        return "Branch{" +
+                "id='" + id + '\'' +
+                ", name='" + name + '\'' +
+                ", latitude=" + latitude +
+                ", longitude=" + longitude +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Branch branch = (Branch) o;
+        // Branches are unique by their ID
+        return Objects.equals(id, branch.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+}
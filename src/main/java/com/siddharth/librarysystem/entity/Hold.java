@@ -0,0 +1,119 @@
+package main.java.com.siddharth.librarysystem.entity;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+import main.java.com.siddharth.librarysystem.id.Ids;
+
+/**
+ * A patron's place in the queue for a copy of a book.
+ */
+public class Hold {
+    private final long id; // Compact time-ordered ID, see Ids
+    private final Book book;
+    private final Patron patron;
+    private final HoldPriority priority;
+    private final LocalDateTime placedAt;
+    private volatile HoldStatus status;
+    private volatile LocalDateTime pickupDeadline; // Set once a copy is ready
+    // Completed when a copy is set aside, or with a CancellationException if the hold ends before that.
+    private final CompletableFuture<Hold> ready = new CompletableFuture<>();
+
+    /**
+     * Constructor for placing a new hold.
+     */
+    public Hold(Book book, Patron patron, HoldPriority priority, LocalDateTime placedAt) {
+        this.id = Ids.next();
+        this.book = book;
+        this.patron = patron;
+        this.priority = priority;
+        this.placedAt = placedAt;
+        this.status = HoldStatus.WAITING;
+    }
+
+    // --- Getters ---
+
+    public String getId() {
+        return Ids.toText(id);
+    }
+
+    /**
+     * @return The ID as a number, for keying maps without formatting it.
+     */
+    public long getIdValue() {
+        return id;
+    }
+
+    public Book getBook() {
+        return book;
+    }
+
+    public Patron getPatron() {
+        return patron;
+    }
+
+    public HoldPriority getPriority() {
+        return priority;
+    }
+
+    public LocalDateTime getPlacedAt() {
+        return placedAt;
+    }
+
+    public HoldStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * @return The time by which the copy must be picked up, or null while the hold is waiting.
+     */
+    public LocalDateTime getPickupDeadline() {
+        return pickupDeadline;
+    }
+
+    /**
+     * Lets the holder wait for a copy instead of polling, e.g. {@code hold.whenReady().thenAccept(...)}.
+     * @return A future completed with this hold once a copy is ready for pickup; it completes exceptionally,
+     *         with a {@link CancellationException} as the cause, if the hold is cancelled first.
+     */
+    public CompletableFuture<Hold> whenReady() {
+        // A copy, so callers can't complete the hold's own future
+        return ready.copy();
+    }
+
+    // --- Setters ---
+
+    public void setStatus(HoldStatus status) {
+        this.status = status;
+    }
+
+    public void setPickupDeadline(LocalDateTime pickupDeadline) {
+        this.pickupDeadline = pickupDeadline;
+    }
+
+    /**
+     * Completes {@link #whenReady()} according to the current status; does nothing while the hold is waiting
+     * or if it was already completed.
+     */
+    public void notifyHolder() {
+        HoldStatus current = status;
+        if (current == HoldStatus.READY) {
+            ready.complete(this);
+        } else if (current == HoldStatus.CANCELLED || current == HoldStatus.EXPIRED) {
+            ready.completeExceptionally(new CancellationException("Hold " + getId() + " is " + current));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Hold{" +
+                "id='" + getId() + '\'' +
+                ", isbn='" + book.getIsbn() + '\'' +
+                ", patron='" + patron.getName() + '\'' +
+                ", priority=" + priority +
+                ", status=" + status +
+                (pickupDeadline != null ? ", pickupDeadline=" + pickupDeadline : "") +
+                '}';
+    }
+}
@@ -0,0 +1,10 @@
+package main.java.com.siddharth.librarysystem.entity;
+
+/**
+ * The order in which holds on a title are served: every {@code HIGH} hold before any {@code NORMAL} one,
+ * and holds of the same priority in the order they were placed.
+ */
+public enum HoldPriority {
+    HIGH,
+    NORMAL
+}
@@ -0,0 +1,9 @@
+package main.java.com.siddharth.librarysystem.entity;
+
+public enum HoldStatus {
+    WAITING,   // In the queue for a copy
+    READY,     // A copy is set aside for pickup
+    COLLECTED, // The copy was issued to the patron
+    CANCELLED,
+    EXPIRED    // The copy was not picked up in time
+}
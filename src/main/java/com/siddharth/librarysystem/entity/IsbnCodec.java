@@ -0,0 +1,182 @@
+package main.java.com.siddharth.librarysystem.entity;
+
+/**
+ * Cleans up, validates and packs ISBNs.
+ *
+ * The library keeps ISBNs in compact form: 10 or 13 characters without hyphens or spaces,
+ * where an ISBN-10 may end in X. {@link #toKey(String)} packs either form into a positive long
+ * so inventories can key primitive maps by ISBN instead of hashing strings. ISBN-10 and ISBN-13
+ * keys are tagged differently, so an ISBN-10 and its ISBN-13 equivalent get different keys,
+ * just as they are different strings.
+ */
+public final class IsbnCodec {
+
+    /**
+     * Returned by {@link #toKey(String)} for text that is not a compact ISBN.
+     */
+    public static final long NO_KEY = -1;
+
+    private static final long ISBN13_TAG = 1L << 61;
+    private static final long ISBN10_TAG = 1L << 62;
+    private static final long DIGITS_MASK = ISBN13_TAG - 1;
+
+    private IsbnCodec() {
+    }
+
+    /**
+     * Strips hyphens and spaces and checks the shape of an ISBN-10 or ISBN-13 (not its check digit).
+     * @param raw The ISBN as written, e.g. "978-0-306-40615-7".
+     * @return The compact ISBN, or null if it is malformed.
+     */
+    public static String normalize(String raw) {
+        StringBuilder isbn = new StringBuilder(13);
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (c == '-' || c == ' ') {
+                continue;
+            }
+            boolean checkDigitX = (c == 'X' || c == 'x') && isbn.length() == 9 && i == raw.length() - 1;
+            if (!isDigit(c) && !checkDigitX) {
+                return null;
+            }
+            isbn.append(Character.toUpperCase(c));
+        }
+        if (isbn.length() != 10 && isbn.length() != 13) {
+            return null;
+        }
+        return isbn.toString();
+    }
+
+    /**
+     * Checks a compact ISBN-10 or ISBN-13, including its check digit.
+     * @param isbn The compact ISBN.
+     * @return true if the ISBN is well formed and its check digit is right.
+     */
+    public static boolean isValid(String isbn) {
+        if (isbn == null || !hasIsbnShape(isbn)) {
+            return false;
+        }
+        char last = isbn.charAt(isbn.length() - 1);
+        return isbn.length() == 13
+                ? last == checkDigit13(isbn)
+                : last == checkDigit10(isbn);
+    }
+
+    /**
+     * @param digits At least the first 12 digits of an ISBN-13.
+     * @return The check digit of the ISBN-13 (weights 1, 3, 1, 3, ... modulo 10).
+     */
+    public static char checkDigit13(CharSequence digits) {
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += (digits.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return (char) ('0' + (10 - sum % 10) % 10);
+    }
+
+    /**
+     * @param digits At least the first 9 digits of an ISBN-10.
+     * @return The check digit of the ISBN-10 (weights 10 down to 2, modulo 11), 'X' standing for 10.
+     */
+    public static char checkDigit10(CharSequence digits) {
+        int sum = 0;
+        for (int i = 0; i < 9; i++) {
+            sum += (digits.charAt(i) - '0') * (10 - i);
+        }
+        int check = (11 - sum % 11) % 11;
+        return check == 10 ? 'X' : (char) ('0' + check);
+    }
+
+    /**
+     * Converts an ISBN-10 to the ISBN-13 of the same edition.
+     * @param isbn10 A compact ISBN-10.
+     * @return The "978"-prefixed ISBN-13 with its own check digit.
+     */
+    public static String toIsbn13(String isbn10) {
+        if (isbn10.length() != 10 || !hasIsbnShape(isbn10)) {
+            throw new IllegalArgumentException("Not an ISBN-10: " + isbn10);
+        }
+        StringBuilder isbn = new StringBuilder(13).append("978").append(isbn10, 0, 9);
+        return isbn.append(checkDigit13(isbn)).toString();
+    }
+
+    // --- Packed Keys ---
+
+    /**
+     * Packs a compact ISBN into a positive long. The check digit is kept as written and not verified,
+     * so books stored before ISBNs were validated still get a key.
+     * @param isbn The compact ISBN.
+     * @return The key, or {@link #NO_KEY} if the text is not a compact ISBN.
+     */
+    public static long toKey(String isbn) {
+        // One pass that checks and parses together; this runs on every borrow and return.
+        int length = isbn == null ? 0 : isbn.length();
+        if (length != 13 && length != 10) {
+            return NO_KEY;
+        }
+        int last = length - 1;
+        long digits = 0;
+        for (int i = 0; i < last; i++) {
+            char c = isbn.charAt(i);
+            if (!isDigit(c)) {
+                return NO_KEY;
+            }
+            digits = digits * 10 + (c - '0');
+        }
+        char c = isbn.charAt(last);
+        int check;
+        if (isDigit(c)) {
+            check = c - '0';
+        } else if (c == 'X' && length == 10) {
+            check = 10;
+        } else {
+            return NO_KEY;
+        }
+        // The ISBN-10 check "digit" runs from 0 to 10, so it takes base 11.
+        return length == 13 ? ISBN13_TAG | (digits * 10 + check) : ISBN10_TAG | (digits * 11 + check);
+    }
+
+    /**
+     * Unpacks a key made by {@link #toKey(String)}.
+     * @param key The key.
+     * @return The compact ISBN.
+     */
+    public static String fromKey(long key) {
+        long digits = key & DIGITS_MASK;
+        if ((key & ISBN13_TAG) != 0) {
+            StringBuilder isbn = new StringBuilder(Long.toString(digits));
+            while (isbn.length() < 13) {
+                isbn.insert(0, '0');
+            }
+            return isbn.toString();
+        }
+        if ((key & ISBN10_TAG) == 0) {
+            throw new IllegalArgumentException("Not an ISBN key: " + key);
+        }
+        int check = (int) (digits % 11);
+        StringBuilder isbn = new StringBuilder(Long.toString(digits / 11));
+        while (isbn.length() < 9) {
+            isbn.insert(0, '0');
+        }
+        return isbn.append(check == 10 ? 'X' : (char) ('0' + check)).toString();
+    }
+
+    // 13 digits, or 9 digits followed by a digit or X.
+    private static boolean hasIsbnShape(String isbn) {
+        int length = isbn.length();
+        if (length != 10 && length != 13) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = isbn.charAt(i);
+            if (!isDigit(c) && !(c == 'X' && length == 10 && i == 9)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -1,22 +1,25 @@
 package main.java.com.siddharth.librarysystem.entity;
 
 import java.time.LocalDate;
-import java.util.UUID;
+
+import main.java.com.siddharth.librarysystem.id.Ids;
 
 public class LendingTicket {
-    private String id;
+    private long id; // Compact time-ordered ID, see Ids; a negative legacy key if legacyId is set
+    private String legacyId; // Set instead of id for IDs issued before compact IDs, e.g. UUIDs
     private Book book;
     private Patron patron;
     private LocalDate issueDate;
     private LocalDate returnDate;
     private double issuePrice;
     private PaymentStatus paymentStatus;
+    private double fineAmount; // Late fees accrued so far
 
     /**
      * Constructor for creating a lending ticket.
      */
     public LendingTicket(Book book, Patron patron, LocalDate issueDate, LocalDate returnDate, double issuePrice) {
-        this.id = UUID.randomUUID().toString();
+        this.id = Ids.next();
         this.book = book;
         this.patron = patron;
         this.issueDate = issueDate;
@@ -25,9 +28,36 @@ public class LendingTicket {
         this.paymentStatus = PaymentStatus.PENDING; // Default status
     }
 
+    /**
+     * Constructor for restoring a previously saved lending ticket with its original ID and status.
+     */
+    public LendingTicket(String id, Book book, Patron patron, LocalDate issueDate, LocalDate returnDate,
+                         double issuePrice, PaymentStatus paymentStatus) {
+        if (Ids.isCompact(id)) {
+            this.id = Ids.parse(id);
+        } else {
+            this.id = Ids.legacyKey(id);
+            this.legacyId = id;
+        }
+        this.book = book;
+        this.patron = patron;
+        this.issueDate = issueDate;
+        this.returnDate = returnDate;
+        this.issuePrice = issuePrice;
+        this.paymentStatus = paymentStatus;
+    }
+
     // --- Getters ---
 
     public String getId() {
+        return legacyId != null ? legacyId : Ids.toText(id);
+    }
+
+    /**
+     * @return The ID as a number, for keying maps without formatting it; negative for a legacy ID,
+     *         see {@link Ids#legacyKey(String)}.
+     */
+    public long getIdValue() {
         return id;
     }
 
@@ -55,6 +85,10 @@ public class LendingTicket {
         return paymentStatus;
     }
 
+    public double getFineAmount() {
+        return fineAmount;
+    }
+
     // --- Setters ---
 
     public void setBook(Book book) {
@@ -80,19 +114,24 @@ public class LendingTicket {
     public void setPaymentStatus(PaymentStatus paymentStatus) {
         this.paymentStatus = paymentStatus;
     }
+
+    public void setFineAmount(double fineAmount) {
+        this.fineAmount = fineAmount;
+    }
     
     // --- Overridden Methods ---
     
     @Override
     public String toString() {
         return "LendingTicket{" +
-                "id='" + id + '\'' +
+                "id='" + getId() + '\'' +
                 ", bookTitle=" + book.getTitle() +
                 ", patronName=" + patron.getName() +
                 ", issueDate=" + issueDate +
                 ", returnDate=" + returnDate +
                 ", issuePrice=" + issuePrice +
                 ", paymentStatus=" + paymentStatus +
+                ", fineAmount=" + fineAmount +
                 '}';
     }
 }
\ No newline at end of file
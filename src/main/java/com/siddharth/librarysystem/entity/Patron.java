@@ -2,10 +2,12 @@ package main.java.com.siddharth.librarysystem.entity;
 
 import java.time.LocalDateTime;
 import java.util.Objects;
-import java.util.UUID;
+
+import main.java.com.siddharth.librarysystem.id.Ids;
 
 public class Patron {
-    private String id;
+    private long id; // Compact time-ordered ID, see Ids; a negative legacy key if legacyId is set
+    private String legacyId; // Set instead of id for IDs issued before compact IDs, e.g. UUIDs
     private String name;
     private String email;
     private final LocalDateTime createdAt; // Should be final, set once
@@ -15,16 +17,40 @@ public class Patron {
      * Constructor for creating a new Patron.
      */
     public Patron(String name, String email) {
-        this.id = UUID.randomUUID().toString(); // Assign a unique ID
+        this.id = Ids.next();
         this.name = name;
         this.email = email;
         this.createdAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
     }
 
+    /**
+     * Constructor for restoring a previously saved Patron with its original ID and timestamps.
+     */
+    public Patron(String id, String name, String email, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        if (Ids.isCompact(id)) {
+            this.id = Ids.parse(id);
+        } else {
+            this.id = Ids.legacyKey(id);
+            this.legacyId = id;
+        }
+        this.name = name;
+        this.email = email;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
     // --- Getters ---
 
     public String getId() {
+        return legacyId != null ? legacyId : Ids.toText(id);
+    }
+
+    /**
+     * @return The ID as a number, for keying maps without formatting it; negative for a legacy ID,
+     *         see {@link Ids#legacyKey(String)}.
+     */
+    public long getIdValue() {
         return id;
     }
 
@@ -62,7 +88,7 @@ public class Patron {
     @Override
     public String toString() {
         return "Patron{" +
-                "id='" + id + '\'' +
+                "id='" + getId() + '\'' +
                 ", name='" + name + '\'' +
                 ", email='" + email + '\'' +
                 ", createdAt=" + createdAt +
@@ -76,11 +102,11 @@ public class Patron {
         if (o == null || getClass() != o.getClass()) return false;
         Patron patron = (Patron) o;
         // Patrons are unique by their ID
-        return Objects.equals(id, patron.id);
+        return id == patron.id && Objects.equals(legacyId, patron.legacyId);
     }
     
     @Override
     public int hashCode() {
-        return Objects.hash(id);
+        return legacyId != null ? legacyId.hashCode() : Long.hashCode(id);
     }
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package main.java.com.siddharth.librarysystem.id;
+
+/**
+ * Produces unique 64-bit IDs for books, patrons and lending tickets.
+ * Implementations must be safe to call from many threads at once.
+ * Install one with {@link Ids#setGenerator(IdGenerator)}.
+ */
+public interface IdGenerator {
+
+    /**
+     * @return A new ID, never returned before by this generator. Must not be negative.
+     */
+    long nextId();
+}
@@ -0,0 +1,159 @@
+package main.java.com.siddharth.librarysystem.id;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Entry point for entity IDs: hands out new IDs from the installed {@link IdGenerator}
+ * and converts them to and from their text form.
+ *
+ * The text form is 13 characters of Crockford base-32 (digits and upper-case letters without I, L, O, U),
+ * zero-padded so that text order matches numeric order. Lookups accept it in any case.
+ * IDs issued before compact IDs existed (UUID strings) are not compact; entities keep those as text,
+ * and stand in a negative {@link #legacyKey(String) legacy key} for them wherever IDs are used as numbers.
+ *
+ * The default generator is a {@link TimeOrderedIdGenerator} whose node ID comes from the
+ * {@code library.nodeId} system property, or is picked at random if the property is not set.
+ */
+public final class Ids {
+
+    public static final int TEXT_LENGTH = 13;
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        java.util.Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            VALUES[ALPHABET[i]] = (byte) i;
+            VALUES[Character.toLowerCase(ALPHABET[i])] = (byte) i;
+        }
+    }
+
+    // Legacy ID text -> its key; grows only with the legacy IDs actually loaded
+    private static final Map<String, Long> legacyKeys = new ConcurrentHashMap<>();
+    private static final AtomicLong lastLegacyKey = new AtomicLong();
+
+    private static volatile IdGenerator generator = new TimeOrderedIdGenerator(
+            Integer.getInteger("library.nodeId", ThreadLocalRandom.current().nextInt(TimeOrderedIdGenerator.MAX_NODE_ID + 1)));
+
+    private Ids() {
+    }
+
+    /**
+     * Replaces the generator used for all new entities, e.g. one with a fixed node ID per server.
+     * @param idGenerator The generator to use from now on.
+     */
+    public static void setGenerator(IdGenerator idGenerator) {
+        if (idGenerator == null) {
+            throw new IllegalArgumentException("ID generator must not be null.");
+        }
+        generator = idGenerator;
+    }
+
+    /**
+     * @return A new ID from the installed generator.
+     */
+    public static long next() {
+        return generator.nextId();
+    }
+
+    /**
+     * Gives an ID that is not compact a key, so its entity can be kept in the same long-keyed maps
+     * as compact IDs. The same text always gets the same key. Legacy keys are negative, so they never
+     * clash with a compact ID, and they are only valid in this process: they are never written anywhere.
+     * @param text The legacy ID.
+     * @return Its negative key.
+     */
+    public static long legacyKey(String text) {
+        return legacyKeys.computeIfAbsent(text, k -> -lastLegacyKey.incrementAndGet());
+    }
+
+    /**
+     * Turns an ID as typed into its numeric form without creating anything: compact IDs are parsed,
+     * legacy ones looked up.
+     * @param text The ID as typed.
+     * @return The ID, or null if the text is neither a compact ID nor a legacy ID that has been loaded.
+     */
+    public static Long toKey(String text) {
+        String normalized = normalize(text);
+        if (normalized == null) {
+            return null;
+        }
+        return isCompact(normalized) ? Long.valueOf(parse(normalized)) : legacyKeys.get(normalized);
+    }
+
+    // --- Text Form ---
+
+    /**
+     * @param id A non-negative ID.
+     * @return Its 13-character text form.
+     */
+    public static String toText(long id) {
+        char[] text = new char[TEXT_LENGTH];
+        for (int i = TEXT_LENGTH - 1; i >= 0; i--) {
+            text[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(text);
+    }
+
+    /**
+     * Checks whether the text is a compact ID in canonical (upper-case) form,
+     * i.e. whether {@code toText(parse(text))} gives the same text back.
+     * @param text The text to check.
+     * @return true if the text is a canonical compact ID.
+     */
+    public static boolean isCompact(String text) {
+        if (text == null || text.length() != TEXT_LENGTH || text.charAt(0) > '7') {
+            return false;
+        }
+        for (int i = 0; i < TEXT_LENGTH; i++) {
+            char c = text.charAt(i);
+            if (c >= 128 || VALUES[c] < 0 || Character.isLowerCase(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses a compact ID in any case.
+     * @param text The text form.
+     * @return The ID.
+     * @throws IllegalArgumentException if the text is not a compact ID.
+     */
+    public static long parse(String text) {
+        // The first character only carries 3 bits (13 * 5 = 65), so it must be at most 7.
+        if (text.length() != TEXT_LENGTH || text.charAt(0) > '7') {
+            throw new IllegalArgumentException("Not a compact ID: " + text);
+        }
+        long id = 0;
+        for (int i = 0; i < TEXT_LENGTH; i++) {
+            char c = text.charAt(i);
+            int value = c < 128 ? VALUES[c] : -1;
+            if (value < 0) {
+                throw new IllegalArgumentException("Not a compact ID: " + text);
+            }
+            id = (id << 5) | value;
+        }
+        return id;
+    }
+
+    /**
+     * Turns user input into the form IDs are stored under: compact IDs are upper-cased,
+     * anything else (e.g. a UUID) is only trimmed.
+     * @param text The ID as typed.
+     * @return The canonical ID text.
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return null;
+        }
+        String trimmed = text.trim();
+        String upper = trimmed.toUpperCase(java.util.Locale.ROOT);
+        return isCompact(upper) ? upper : trimmed;
+    }
+}
@@ -0,0 +1,370 @@
+package main.java.com.siddharth.librarysystem.importer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Year;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import main.java.com.siddharth.librarysystem.entity.Book;
+import main.java.com.siddharth.librarysystem.entity.IsbnCodec;
+import main.java.com.siddharth.librarysystem.logging.EventLogger;
+import main.java.com.siddharth.librarysystem.manager.BookInventory;
+
+/**
+ * Streams a CSV or TSV catalog file into a {@link BookInventory}.
+ *
+ * Each row holds {@code title, author, ISBN, year, quantity}. The file is read line by line and cut into
+ * chunks that are parsed and validated in parallel; the parsed chunks are then deduplicated and inserted
+ * in file order, one batch per chunk. Rows that fail validation are written to a reject file together with
+ * their line number and the reason, and the import carries on.
+ *
+ * Duplicate ISBNs, within the file or already in the inventory, are merged (their quantities are added up)
+ * when the title and author agree, and rejected when they don't.
+ * Quoted fields may contain the delimiter but not line breaks.
+ */
+public class CatalogImporter {
+
+    private static final EventLogger log = EventLogger.forClass(CatalogImporter.class);
+
+    private static final int CHUNK_SIZE = 10_000;
+    private static final long PROGRESS_INTERVAL_NANOS = 1_000_000_000L;
+    private static final int FIELD_COUNT = 5;
+
+    private final BookInventory bookInventory;
+    private final int parallelism;
+
+    public CatalogImporter(BookInventory bookInventory) {
+        this(bookInventory, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param bookInventory The inventory to import into.
+     * @param parallelism The number of threads parsing chunks.
+     */
+    public CatalogImporter(BookInventory bookInventory, int parallelism) {
+        this.bookInventory = bookInventory;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Estimates the number of rows in a catalog file from its size and the length of its first lines,
+     * so the inventory can be sized before importing.
+     * @param source The catalog file.
+     * @return The estimated number of rows.
+     */
+    public static int estimateRowCount(Path source) throws IOException {
+        long size = Files.size(source);
+        byte[] sample = new byte[(int) Math.min(size, 64 * 1024)];
+        int read;
+        try (InputStream in = Files.newInputStream(source)) {
+            read = in.readNBytes(sample, 0, sample.length);
+        }
+        int lines = 0;
+        for (int i = 0; i < read; i++) {
+            if (sample[i] == '\n') {
+                lines++;
+            }
+        }
+        if (lines == 0) {
+            return 1;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, size * lines / read);
+    }
+
+    /**
+     * Imports the catalog file.
+     * @param source The catalog file (.tsv files, or files whose first line contains a tab, are read as TSV).
+     * @param rejectFile Where to write rejected rows; created or overwritten.
+     * @return A summary of the import.
+     */
+    public ImportReport importFile(Path source, Path rejectFile) throws IOException {
+        // Size the stock table for the whole file now rather than growing it chunk by chunk.
+        bookInventory.ensureCapacity((int) Math.min(Integer.MAX_VALUE,
+                (long) bookInventory.getBookCount() + estimateRowCount(source)));
+        long start = System.nanoTime();
+        ImportState state = new ImportState(start);
+        ExecutorService parsers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "catalog-parser");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ArrayDeque<Future<ParsedChunk>> inFlight = new ArrayDeque<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8);
+             BufferedWriter rejects = Files.newBufferedWriter(rejectFile, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            if (line == null) {
+                return state.toReport();
+            }
+            char delimiter = source.toString().endsWith(".tsv") || line.indexOf('\t') >= 0 ? '\t' : ',';
+            long lineNumber = 1;
+            if (isHeader(line, delimiter)) {
+                line = reader.readLine();
+                lineNumber++;
+            }
+
+            RawChunk chunk = new RawChunk();
+            for (; line != null; line = reader.readLine(), lineNumber++) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                chunk.add(line, lineNumber);
+                if (chunk.size() == CHUNK_SIZE) {
+                    RawChunk toParse = chunk;
+                    inFlight.add(parsers.submit(() -> parse(toParse, delimiter)));
+                    chunk = new RawChunk();
+                    // Bound the read-ahead so a huge file doesn't end up in memory all at once.
+                    if (inFlight.size() >= 2 * parallelism) {
+                        insert(await(inFlight.poll()), state, rejects);
+                    }
+                }
+            }
+            if (chunk.size() > 0) {
+                RawChunk toParse = chunk;
+                inFlight.add(parsers.submit(() -> parse(toParse, delimiter)));
+            }
+            while (!inFlight.isEmpty()) {
+                insert(await(inFlight.poll()), state, rejects);
+            }
+        } finally {
+            parsers.shutdownNow();
+        }
+
+        ImportReport report = state.toReport();
+        log.info("Import finished: %s", report);
+        return report;
+    }
+
+    // --- Parsing (runs on the parser threads) ---
+
+    private static ParsedChunk parse(RawChunk chunk, char delimiter) {
+        ParsedChunk parsed = new ParsedChunk(chunk.size());
+        int currentYear = Year.now().getValue();
+        for (int i = 0; i < chunk.size(); i++) {
+            String line = chunk.lines.get(i);
+            long lineNumber = chunk.lineNumbers[i];
+            List<String> fields = split(line, delimiter);
+            if (fields.size() != FIELD_COUNT) {
+                parsed.rejectAtParse(lineNumber, "expected " + FIELD_COUNT + " fields but found " + fields.size(), line);
+                continue;
+            }
+            String title = fields.get(0);
+            String author = fields.get(1);
+            String isbn = IsbnCodec.normalize(fields.get(2));
+            if (title.isEmpty() || author.isEmpty()) {
+                parsed.rejectAtParse(lineNumber, "missing title or author", line);
+                continue;
+            }
+            if (isbn == null) {
+                parsed.rejectAtParse(lineNumber, "invalid ISBN '" + fields.get(2) + "'", line);
+                continue;
+            }
+            if (!IsbnCodec.isValid(isbn)) {
+                parsed.rejectAtParse(lineNumber, "wrong check digit in ISBN '" + fields.get(2) + "'", line);
+                continue;
+            }
+            int year;
+            int quantity;
+            try {
+                year = Integer.parseInt(fields.get(3));
+                quantity = Integer.parseInt(fields.get(4));
+            } catch (NumberFormatException e) {
+                parsed.rejectAtParse(lineNumber, "year and quantity must be whole numbers", line);
+                continue;
+            }
+            if (year < 0 || year > currentYear + 1) {
+                parsed.rejectAtParse(lineNumber, "implausible publication year " + year, line);
+                continue;
+            }
+            if (quantity <= 0) {
+                parsed.rejectAtParse(lineNumber, "quantity must be positive", line);
+                continue;
+            }
+            parsed.accept(new Book(title, author, isbn, year), quantity, lineNumber, line);
+        }
+        return parsed;
+    }
+
+    /**
+     * Splits a CSV/TSV line, honouring double-quoted fields and doubled quotes inside them.
+     */
+    static List<String> split(String line, char delimiter) {
+        List<String> fields = new ArrayList<>(FIELD_COUNT);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    private static boolean isHeader(String line, char delimiter) {
+        List<String> fields = split(line, delimiter);
+        return fields.size() == FIELD_COUNT && fields.get(2).equalsIgnoreCase("isbn");
+    }
+
+    // --- Inserting (runs on the importing thread, in file order) ---
+
+    private void insert(ParsedChunk chunk, ImportState state, BufferedWriter rejects) throws IOException {
+        List<Book> batch = new ArrayList<>(chunk.books.size());
+        List<Integer> batchQuantities = new ArrayList<>(chunk.books.size());
+        // Earlier chunks are already in the inventory, so only this chunk's books need remembering.
+        Map<String, Book> inChunk = new HashMap<>(chunk.books.size() * 2);
+        for (int i = 0; i < chunk.books.size(); i++) {
+            Book book = chunk.books.get(i);
+            Book first = inChunk.putIfAbsent(book.getIsbn(), book);
+            if (first == null) {
+                first = bookInventory.getByIsbn(book.getIsbn());
+            }
+            if (first != null) {
+                if (!first.getTitle().equalsIgnoreCase(book.getTitle()) || !first.getAuthor().equalsIgnoreCase(book.getAuthor())) {
+                    chunk.reject(chunk.lineNumbers.get(i), "ISBN " + book.getIsbn() + " was already imported as '"
+                            + first.getTitle() + "' by " + first.getAuthor(), chunk.lines.get(i));
+                    continue;
+                }
+                state.duplicatesMerged++;
+            } else {
+                state.booksAdded++;
+            }
+            batch.add(first != null ? first : book);
+            batchQuantities.add(chunk.quantities.get(i));
+            state.copiesAdded += chunk.quantities.get(i);
+        }
+
+        int[] quantities = new int[batchQuantities.size()];
+        for (int i = 0; i < quantities.length; i++) {
+            quantities[i] = batchQuantities.get(i);
+        }
+        bookInventory.addBooks(batch, quantities);
+
+        for (String reject : chunk.rejects) {
+            rejects.write(reject);
+            rejects.newLine();
+        }
+        state.rowsRead += chunk.books.size() + chunk.rejectedAtParse;
+        state.rowsRejected += chunk.rejects.size();
+        state.reportProgress();
+    }
+
+    private static ParsedChunk await(Future<ParsedChunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to parse catalog chunk", e.getCause());
+        }
+    }
+
+    // --- Helper classes ---
+
+    private static final class RawChunk {
+        private final List<String> lines = new ArrayList<>(CHUNK_SIZE);
+        private final long[] lineNumbers = new long[CHUNK_SIZE];
+
+        void add(String line, long lineNumber) {
+            lineNumbers[lines.size()] = lineNumber;
+            lines.add(line);
+        }
+
+        int size() {
+            return lines.size();
+        }
+    }
+
+    private static final class ParsedChunk {
+        private final List<Book> books;
+        private final List<Integer> quantities;
+        private final List<Long> lineNumbers;
+        private final List<String> lines;
+        private final List<String> rejects = new ArrayList<>();
+        private int rejectedAtParse;
+
+        ParsedChunk(int capacity) {
+            books = new ArrayList<>(capacity);
+            quantities = new ArrayList<>(capacity);
+            lineNumbers = new ArrayList<>(capacity);
+            lines = new ArrayList<>(capacity);
+        }
+
+        void accept(Book book, int quantity, long lineNumber, String line) {
+            books.add(book);
+            quantities.add(quantity);
+            lineNumbers.add(lineNumber);
+            lines.add(line);
+        }
+
+        void reject(long lineNumber, String reason, String line) {
+            rejects.add(lineNumber + "\t" + reason + "\t" + line);
+        }
+
+        void rejectAtParse(long lineNumber, String reason, String line) {
+            reject(lineNumber, reason, line);
+            rejectedAtParse++;
+        }
+    }
+
+    private static final class ImportState {
+        private final long start;
+        private long lastProgress;
+        private long rowsRead;
+        private long booksAdded;
+        private long copiesAdded;
+        private long duplicatesMerged;
+        private long rowsRejected;
+
+        ImportState(long start) {
+            this.start = start;
+            this.lastProgress = start;
+        }
+
+        void reportProgress() {
+            long now = System.nanoTime();
+            if (now - lastProgress >= PROGRESS_INTERVAL_NANOS) {
+                lastProgress = now;
+                double seconds = (now - start) / 1e9;
+                log.info("Imported %s, %,d rejected",
+                        String.format("%,d rows (%,.0f rows/s)", rowsRead, rowsRead / seconds), rowsRejected);
+            }
+        }
+
+        ImportReport toReport() {
+            return new ImportReport(rowsRead, booksAdded, copiesAdded, duplicatesMerged, rowsRejected,
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package main.java.com.siddharth.librarysystem.importer;
+
+/**
+ * Summary of a finished catalog import.
+ */
+public class ImportReport {
+    private final long rowsRead;
+    private final long booksAdded;
+    private final long copiesAdded;
+    private final long duplicatesMerged;
+    private final long rowsRejected;
+    private final long elapsedMillis;
+
+    public ImportReport(long rowsRead, long booksAdded, long copiesAdded, long duplicatesMerged,
+                        long rowsRejected, long elapsedMillis) {
+        this.rowsRead = rowsRead;
+        this.booksAdded = booksAdded;
+        this.copiesAdded = copiesAdded;
+        this.duplicatesMerged = duplicatesMerged;
+        this.rowsRejected = rowsRejected;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    // --- Getters ---
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public long getBooksAdded() {
+        return booksAdded;
+    }
+
+    public long getCopiesAdded() {
+        return copiesAdded;
+    }
+
+    public long getDuplicatesMerged() {
+        return duplicatesMerged;
+    }
+
+    public long getRowsRejected() {
+        return rowsRejected;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedMillis == 0 ? rowsRead : rowsRead * 1000.0 / elapsedMillis;
+    }
+
+    // --- Overridden Methods ---
+
+    @Override
+    public String toString() {
+        return "ImportReport{" +
+                "rowsRead=" + rowsRead +
+                ", booksAdded=" + booksAdded +
+                ", copiesAdded=" + copiesAdded +
+                ", duplicatesMerged=" + duplicatesMerged +
+                ", rowsRejected=" + rowsRejected +
+                ", elapsedMillis=" + elapsedMillis +
+                ", rowsPerSecond=" + String.format("%.0f", getRowsPerSecond()) +
+                '}';
+    }
+}
@@ -0,0 +1,343 @@
+package main.java.com.siddharth.librarysystem.index;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An inverted index from normalized words to the ISBNs of the books that contain them.
+ * One instance indexes a single text field (e.g. the title or the author).
+ *
+ * Supports exact phrase lookups, prefix lookups on the last word and multi-word AND queries,
+ * so that a search only touches the posting lists of the query words instead of the whole catalog.
+ * Safe for concurrent use: searches share a read lock, updates take the write lock.
+ */
+public class TokenIndex {
+
+    // Score given to a book whose whole field matches the query exactly.
+    private static final int EXACT_MATCH_SCORE = 3;
+    // Score given to a book whose field starts with the query.
+    private static final int LEADING_MATCH_SCORE = 2;
+    // Score given to any other book containing all the query words.
+    private static final int TOKEN_MATCH_SCORE = 1;
+
+    // Sorted so that prefix lookups can use a sub-map instead of a scan.
+    private final TreeMap<String, Set<String>> postings = new TreeMap<>();
+    // Maps ISBN to the normalized text that was indexed for it, needed for re-indexing and ranking.
+    private final Map<String, String> normalizedByIsbn = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Indexes (or re-indexes) the given text for a book.
+     * @param isbn The ISBN of the book.
+     * @param text The raw field value, e.g. the title.
+     */
+    public void put(String isbn, String text) {
+        String normalized = normalize(text);
+        List<String> tokens = tokenize(normalized);
+        lock.writeLock().lock();
+        try {
+            removeLocked(isbn);
+            normalizedByIsbn.put(isbn, normalized);
+            for (String token : tokens) {
+                postings.computeIfAbsent(token, k -> new HashSet<>()).add(isbn);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a book from the index.
+     * @param isbn The ISBN of the book.
+     */
+    public void remove(String isbn) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(isbn);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(String isbn) {
+        String previous = normalizedByIsbn.remove(isbn);
+        if (previous == null) {
+            return;
+        }
+        for (String token : tokenize(previous)) {
+            Set<String> isbns = postings.get(token);
+            if (isbns != null) {
+                isbns.remove(isbn);
+                if (isbns.isEmpty()) {
+                    postings.remove(token);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the books whose field equals the given text, ignoring case, accents and punctuation.
+     * @param text The text to match.
+     * @return The matching ISBNs.
+     */
+    public List<String> findExact(String text) {
+        String normalized = normalize(text);
+        List<String> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (String isbn : candidates(tokenize(normalized), false)) {
+                if (normalizedByIsbn.get(isbn).equals(normalized)) {
+                    result.add(isbn);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Finds the books containing every word of the query, treating the last word as a prefix.
+     * Results are ranked: exact matches first, then fields starting with the query,
+     * then other matches; shorter fields come before longer ones.
+     * @param query The words to search for.
+     * @return The matching ISBNs, best match first.
+     */
+    public List<String> search(String query) {
+        String normalized = normalize(query);
+        List<String> result;
+        Map<String, String> fields = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            result = new ArrayList<>(candidates(tokenize(normalized), true));
+            for (String isbn : result) {
+                fields.put(isbn, normalizedByIsbn.get(isbn));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        // Rank outside the lock so long sorts don't hold up writers.
+        result.sort(Comparator.comparing(fields::get, relevanceOrder(normalized)));
+        return result;
+    }
+
+    /**
+     * The ranking used by {@link #search(String)}, for merging results from several indexes.
+     * @param normalizedQuery The query, passed through {@link #normalize(String)}.
+     * @return Orders normalized field texts best match first.
+     */
+    public static Comparator<String> relevanceOrder(String normalizedQuery) {
+        return Comparator.<String>comparingInt(field -> score(field, normalizedQuery)).reversed()
+                .thenComparingInt(String::length)
+                .thenComparing(Comparator.naturalOrder());
+    }
+
+    // --- Query Planning ---
+
+    /**
+     * Splits a query into the normalized words used by {@link #estimate(List)},
+     * {@link #findAll(List)} and {@link #matches(String, List)}.
+     * @param query The raw query text.
+     * @return The query words; the last one is treated as a prefix.
+     */
+    public static List<String> queryTokens(String query) {
+        return tokenize(normalize(query));
+    }
+
+    /**
+     * Estimates how many books {@link #findAll(List)} would return, without building the result.
+     * The estimate is the size of the smallest posting list, so it is never lower than the real count.
+     * @param tokens The query words, from {@link #queryTokens(String)}.
+     * @return An upper bound on the number of matching books.
+     */
+    public int estimate(List<String> tokens) {
+        if (tokens.isEmpty()) {
+            return 0;
+        }
+        lock.readLock().lock();
+        try {
+            int smallest = Integer.MAX_VALUE;
+            for (int i = 0; i < tokens.size(); i++) {
+                String token = tokens.get(i);
+                int size;
+                if (i == tokens.size() - 1) {
+                    size = 0;
+                    for (Set<String> isbns : postings.subMap(token, true, token + Character.MAX_VALUE, false).values()) {
+                        size += isbns.size();
+                    }
+                } else {
+                    Set<String> isbns = postings.get(token);
+                    size = isbns == null ? 0 : isbns.size();
+                }
+                smallest = Math.min(smallest, size);
+            }
+            return smallest;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds every book containing all the query words (the last one as a prefix), unranked.
+     * @param tokens The query words, from {@link #queryTokens(String)}.
+     * @return The matching ISBNs, in a new set the caller may modify.
+     */
+    public Set<String> findAll(List<String> tokens) {
+        lock.readLock().lock();
+        try {
+            return new HashSet<>(candidates(tokens, true));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks a single book against the query, for when looking it up is cheaper than
+     * building the whole result of {@link #findAll(List)}.
+     * @param isbn The ISBN of the book.
+     * @param tokens The query words, from {@link #queryTokens(String)}.
+     * @return true if the book contains every word, the last one as a prefix.
+     */
+    public boolean matches(String isbn, List<String> tokens) {
+        String field;
+        lock.readLock().lock();
+        try {
+            field = normalizedByIsbn.get(isbn);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (field == null || tokens.isEmpty()) {
+            return false;
+        }
+        List<String> fieldTokens = tokenize(field);
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            boolean prefix = i == tokens.size() - 1;
+            boolean found = false;
+            for (String fieldToken : fieldTokens) {
+                if (prefix ? fieldToken.startsWith(token) : fieldToken.equals(token)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Intersects the posting lists of the given tokens, starting from the smallest one.
+     */
+    private Set<String> candidates(List<String> tokens, boolean lastIsPrefix) {
+        if (tokens.isEmpty()) {
+            return Collections.emptySet();
+        }
+        List<Set<String>> lists = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            Set<String> isbns = (lastIsPrefix && i == tokens.size() - 1)
+                    ? prefixPostings(token)
+                    : postings.getOrDefault(token, Collections.emptySet());
+            if (isbns.isEmpty()) {
+                return Collections.emptySet();
+            }
+            lists.add(isbns);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+
+        Set<String> result = new HashSet<>(lists.get(0));
+        for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+            result.retainAll(lists.get(i));
+        }
+        return result;
+    }
+
+    private Set<String> prefixPostings(String prefix) {
+        Map<String, Set<String>> matching = postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        if (matching.size() == 1) {
+            return matching.values().iterator().next();
+        }
+        Set<String> union = new HashSet<>();
+        matching.values().forEach(union::addAll);
+        return union;
+    }
+
+    private static int score(String field, String query) {
+        if (field.equals(query)) {
+            return EXACT_MATCH_SCORE;
+        }
+        if (field.startsWith(query)) {
+            return LEADING_MATCH_SCORE;
+        }
+        return TOKEN_MATCH_SCORE;
+    }
+
+    /**
+     * Lower-cases the text, strips accents and collapses everything that is not a letter or digit
+     * into single spaces, so "Pride & Prejudice" and "pride  prejudice" index the same way.
+     * @param text The raw text.
+     * @return The normalized text.
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String stripped = isAscii(text)
+                ? text.toLowerCase(Locale.ROOT)
+                : Normalizer.normalize(text, Normalizer.Form.NFD)
+                        .replaceAll("\\p{M}+", "")
+                        .toLowerCase(Locale.ROOT);
+        StringBuilder sb = new StringBuilder(stripped.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < stripped.length(); i++) {
+            char c = stripped.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && sb.length() > 0) {
+                    sb.append(' ');
+                }
+                sb.append(c);
+                pendingSpace = false;
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return sb.toString();
+    }
+
+    // Plain ASCII text has no accents to strip, so it can skip the (slow) Unicode normalization.
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<String> tokenize(String normalized) {
+        List<String> tokens = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i <= normalized.length(); i++) {
+            if (i == normalized.length() || normalized.charAt(i) == ' ') {
+                if (i > start) {
+                    tokens.add(normalized.substring(start, i));
+                }
+                start = i + 1;
+            }
+        }
+        return tokens;
+    }
+}
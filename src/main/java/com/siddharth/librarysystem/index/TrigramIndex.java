@@ -0,0 +1,467 @@
+package main.java.com.siddharth.librarysystem.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A character-trigram index over one text field, for finding the fields closest to a mistyped query:
+ * "pride and predjudice" still finds "Pride and Prejudice", and "jane austin" finds "Jane Austen".
+ *
+ * Fields are normalized as in {@link TokenIndex}, padded with a space at each end and split into their
+ * overlapping three-character sequences. A field within k edits of the query lacks at most 3k of the
+ * query's trigrams, so every such field is in one of the 3k + 1 shortest posting lists of the query, and
+ * the long lists of common trigrams ("the", "and") are never read. Those candidates are then ranked by
+ * their edit distance to the query, computed only as far as it can still beat the best matches so far.
+ *
+ * Posting lists are sorted int arrays of document numbers, one int per distinct trigram of each field.
+ * Safe for concurrent use: searches share a read lock, updates take the write lock.
+ */
+public class TrigramIndex {
+
+    // A match may differ from the query by one edit per this many characters of the query, and at least one.
+    private static final int CHARS_PER_EDIT = 6;
+    // Posting lists are kept per trigram and field length, with lengths grouped this many to a bucket, so a
+    // search only reads the lists of fields long enough and short enough to be within its bound.
+    private static final int LENGTH_BUCKET_SIZE = 4;
+    // Removed fields leave gaps in the document numbers; once there are this many, and as many gaps as
+    // fields, the numbers are closed up instead of growing the arrays.
+    private static final int MIN_GAPS_TO_COMPACT = 1024;
+
+    private static final Comparator<Match> RANKING = Comparator.comparingInt(Match::getDistance)
+            .thenComparing(Comparator.comparingDouble(Match::getScore).reversed())
+            .thenComparing(Match::getIsbn);
+
+    // Trigrams with the length buckets of fields containing them, from key(), to the numbers of those
+    // fields' documents in ascending order.
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private final Map<String, Integer> docsByIsbn = new HashMap<>();
+    // By document number; null where a document was removed.
+    private String[] isbns = new String[16];
+    private String[] texts = new String[16];
+    // The length of each text and the characters it contains, from summary(), so most candidates can be
+    // ruled out by one array read instead of following the string.
+    private long[] summaries = new long[16];
+    // Numbers handed out so far; a new document always gets the highest, so posting lists stay sorted by appending.
+    private int docCount;
+    private int gapCount;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Indexes (or re-indexes) the given text for a book.
+     * @param isbn The ISBN of the book.
+     * @param text The raw field value, e.g. the title.
+     */
+    public void put(String isbn, String text) {
+        String normalized = TokenIndex.normalize(text);
+        long[] grams = trigrams(normalized);
+        lock.writeLock().lock();
+        try {
+            removeLocked(isbn);
+            if (grams.length == 0) {
+                return;
+            }
+            ensureRoom();
+            int doc = docCount++;
+            isbns[doc] = isbn;
+            texts[doc] = normalized;
+            summaries[doc] = summary(normalized);
+            docsByIsbn.put(isbn, doc);
+            int bucket = lengthBucket(normalized.length());
+            for (long gram : grams) {
+                postings.computeIfAbsent(key(gram, bucket), k -> new Postings()).add(doc);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a book from the index. This shifts the tail of each of its posting lists,
+     * so it costs more than adding one; books are rarely removed or renamed.
+     * @param isbn The ISBN of the book.
+     */
+    public void remove(String isbn) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(isbn);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(String isbn) {
+        Integer doc = docsByIsbn.remove(isbn);
+        if (doc == null) {
+            return;
+        }
+        int bucket = lengthBucket(texts[doc].length());
+        for (long gram : trigrams(texts[doc])) {
+            long key = key(gram, bucket);
+            Postings docs = postings.get(key);
+            docs.remove(doc);
+            if (docs.size == 0) {
+                postings.remove(key);
+            }
+        }
+        isbns[doc] = null;
+        texts[doc] = null;
+        gapCount++;
+    }
+
+    /**
+     * Makes room for one more document number, closing up the gaps left by removals if there are enough of them.
+     */
+    private void ensureRoom() {
+        if (docCount < texts.length) {
+            return;
+        }
+        if (gapCount >= MIN_GAPS_TO_COMPACT && gapCount * 2 >= docCount) {
+            compact();
+            return;
+        }
+        isbns = Arrays.copyOf(isbns, docCount * 2);
+        texts = Arrays.copyOf(texts, docCount * 2);
+        summaries = Arrays.copyOf(summaries, docCount * 2);
+    }
+
+    // Renumbers the documents in their current order, so every posting list stays sorted.
+    private void compact() {
+        int[] renumbered = new int[docCount];
+        int live = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (texts[doc] != null) {
+                renumbered[doc] = live;
+                isbns[live] = isbns[doc];
+                texts[live] = texts[doc];
+                summaries[live] = summaries[doc];
+                docsByIsbn.put(isbns[live], live);
+                live++;
+            }
+        }
+        Arrays.fill(isbns, live, docCount, null);
+        Arrays.fill(texts, live, docCount, null);
+        for (Postings docs : postings.values()) {
+            for (int i = 0; i < docs.size; i++) {
+                docs.docs[i] = renumbered[docs.docs[i]];
+            }
+        }
+        docCount = live;
+        gapCount = 0;
+    }
+
+    /**
+     * Finds the fields closest to the given text by edit distance, ignoring case, accents and punctuation.
+     * Only fields within one edit per six characters of the query (and at least one edit) are matched,
+     * and a match must share at least one trigram with the query.
+     * @param text The text as typed, possibly misspelled.
+     * @param limit The most matches to return.
+     * @return The closest matches: fewest edits first, then highest score.
+     */
+    public List<Match> findClosest(String text, int limit) {
+        String query = TokenIndex.normalize(text);
+        long[] grams = trigrams(query);
+        if (grams.length == 0 || limit <= 0) {
+            return new ArrayList<>();
+        }
+        int maxDistance = Math.max(1, query.length() / CHARS_PER_EDIT);
+        Search search = new Search(query, grams, maxDistance, limit);
+
+        lock.readLock().lock();
+        try {
+            search.seen = new long[(docCount + 63) >>> 6];
+            // The bucket of the query's own length first, then outwards, so the closest matches are likely
+            // found early and the bound they set can rule out whole buckets further away
+            int home = lengthBucket(query.length());
+            int lowest = lengthBucket(Math.max(1, query.length() - maxDistance));
+            int highest = lengthBucket(query.length() + maxDistance);
+            search.scan(home);
+            for (int step = 1; home - step >= lowest || home + step <= highest; step++) {
+                if (home - step >= lowest) {
+                    search.scan(home - step);
+                }
+                if (home + step <= highest) {
+                    search.scan(home + step);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Match> result = new ArrayList<>(search.best);
+        result.sort(RANKING);
+        return result;
+    }
+
+    /**
+     * The state of one {@link #findClosest(String, int)}; runs under the read lock.
+     */
+    private final class Search {
+        private final String query;
+        private final long[] grams;
+        private final long querySummary;
+        private final int maxDistance;
+        // A field within maxDistance edits shares at least this many of the query's trigrams.
+        private final int minShared;
+        private final int limit;
+        // The worst of the best matches so far at the head, so it can be replaced by a better one.
+        private final PriorityQueue<Match> best;
+        private final EditDistance distances;
+        // The documents already checked, one bit each.
+        private long[] seen;
+
+        Search(String query, long[] grams, int maxDistance, int limit) {
+            this.query = query;
+            this.grams = grams;
+            this.querySummary = summary(query);
+            this.maxDistance = maxDistance;
+            this.minShared = Math.max(1, grams.length - 3 * maxDistance);
+            this.limit = limit;
+            this.best = new PriorityQueue<>(limit, RANKING.reversed());
+            this.distances = new EditDistance(query, maxDistance);
+        }
+
+        // The most edits a new match may have and still make the results.
+        private int bound() {
+            return best.size() == limit ? best.peek().getDistance() : maxDistance;
+        }
+
+        /**
+         * Checks the fields in one length bucket that share a trigram with the query.
+         */
+        void scan(int bucket) {
+            int nearestLength = Math.max(bucket * LENGTH_BUCKET_SIZE, Math.min(query.length(), bucket * LENGTH_BUCKET_SIZE + LENGTH_BUCKET_SIZE - 1));
+            if (Math.abs(nearestLength - query.length()) > bound()) {
+                return;
+            }
+            Postings[] lists = new Postings[grams.length];
+            for (int i = 0; i < grams.length; i++) {
+                lists[i] = postings.getOrDefault(key(grams[i], bucket), Postings.EMPTY);
+            }
+            Arrays.sort(lists, Comparator.comparingInt(docs -> docs.size));
+            // A field sharing minShared trigrams has at least one in any grams.length - minShared + 1 of the lists
+            int generators = grams.length - minShared + 1;
+            for (int g = 0; g < generators; g++) {
+                Postings docs = lists[g];
+                for (int i = 0; i < docs.size; i++) {
+                    int doc = docs.docs[i];
+                    // Each candidate is checked once, in the first list it turns up in
+                    if ((seen[doc >>> 6] & (1L << doc)) == 0) {
+                        seen[doc >>> 6] |= 1L << doc;
+                        check(doc);
+                    }
+                }
+            }
+        }
+
+        private void check(int doc) {
+            int bound = bound();
+            if (!mayBeWithin(summaries[doc], querySummary, bound)) {
+                return;
+            }
+            String candidate = texts[doc];
+            int distance = distances.to(candidate, bound);
+            if (distance > bound) {
+                return;
+            }
+            Match match = new Match(isbns[doc], distance,
+                    1.0 - (double) distance / Math.max(query.length(), candidate.length()));
+            if (best.size() < limit) {
+                best.add(match);
+            } else if (RANKING.compare(match, best.peek()) < 0) {
+                best.poll();
+                best.add(match);
+            }
+        }
+    }
+
+    /**
+     * The distinct trigrams of a normalized text padded with a space at each end, sorted,
+     * each packed three chars to a long.
+     */
+    private static long[] trigrams(String normalized) {
+        if (normalized.isEmpty()) {
+            return new long[0];
+        }
+        int padded = normalized.length() + 2;
+        long[] grams = new long[padded - 2];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = ((long) paddedChar(normalized, i) << 32) | ((long) paddedChar(normalized, i + 1) << 16)
+                    | paddedChar(normalized, i + 2);
+        }
+        Arrays.sort(grams);
+        int distinct = 0;
+        for (int i = 0; i < grams.length; i++) {
+            if (i == 0 || grams[i] != grams[distinct - 1]) {
+                grams[distinct++] = grams[i];
+            }
+        }
+        return distinct == grams.length ? grams : Arrays.copyOf(grams, distinct);
+    }
+
+    private static int lengthBucket(int length) {
+        return Math.min(length / LENGTH_BUCKET_SIZE, 0xFFFF);
+    }
+
+    // The trigram's 48 bits above the 16-bit length bucket.
+    private static long key(long gram, int bucket) {
+        return gram << 16 | bucket;
+    }
+
+    /**
+     * The length of the text (capped) in the top 16 bits, and below them one bit for each letter and digit
+     * it contains, with other characters sharing the last 12 bits.
+     */
+    private static long summary(String normalized) {
+        long characters = 0;
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                characters |= 1L << (c - 'a');
+            } else if (c >= '0' && c <= '9') {
+                characters |= 1L << (26 + c - '0');
+            } else if (c != ' ') {
+                characters |= 1L << (36 + c % 12);
+            }
+        }
+        return ((long) Math.min(normalized.length(), 0xFFFF) << 48) | characters;
+    }
+
+    /**
+     * A quick test that is never false for two texts within the bound: each edit changes the length by
+     * at most one, and adds or removes at most two of the characters a text contains.
+     */
+    private static boolean mayBeWithin(long summary, long querySummary, int bound) {
+        return Math.abs((int) (summary >>> 48) - (int) (querySummary >>> 48)) <= bound
+                && Long.bitCount((summary ^ querySummary) & 0xFFFF_FFFF_FFFFL) <= 2 * bound;
+    }
+
+    private static char paddedChar(String normalized, int index) {
+        return index == 0 || index == normalized.length() + 1 ? ' ' : normalized.charAt(index - 1);
+    }
+
+    /**
+     * A field close to the query: its book, how many edits away it is, and how similar it is.
+     */
+    public static final class Match {
+        private final String isbn;
+        private final int distance;
+        private final double score;
+
+        Match(String isbn, int distance, double score) {
+            this.isbn = isbn;
+            this.distance = distance;
+            this.score = score;
+        }
+
+        public String getIsbn() {
+            return isbn;
+        }
+
+        /**
+         * @return The fewest single-character insertions, deletions and substitutions turning the
+         *         normalized query into the normalized field.
+         */
+        public int getDistance() {
+            return distance;
+        }
+
+        /**
+         * @return 1 minus the distance over the length of the longer of the two, so 1 is an exact match.
+         */
+        public double getScore() {
+            return score;
+        }
+    }
+
+    /**
+     * One sorted, growable posting list.
+     */
+    private static final class Postings {
+        static final Postings EMPTY = new Postings();
+
+        int[] docs = new int[2];
+        int size;
+
+        // Documents are added in increasing order, so appending keeps the list sorted.
+        void add(int doc) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size + (size >> 1) + 1);
+            }
+            docs[size++] = doc;
+        }
+
+        void remove(int doc) {
+            int index = Arrays.binarySearch(docs, 0, size, doc);
+            if (index >= 0) {
+                System.arraycopy(docs, index + 1, docs, index, size - index - 1);
+                size--;
+            }
+        }
+    }
+
+    /**
+     * Levenshtein distances from one query, computed in a band around the diagonal and abandoned as soon as
+     * every path is over the bound, so a far-off candidate costs a few rows. Reuses its rows between candidates.
+     */
+    static final class EditDistance {
+        private final String query;
+        private int[] previous;
+        private int[] current;
+
+        EditDistance(String query, int maxDistance) {
+            this.query = query;
+            // Candidates are never longer than the query plus the largest bound
+            this.previous = new int[query.length() + maxDistance + 1];
+            this.current = new int[previous.length];
+        }
+
+        /**
+         * @return The distance from the query to the candidate, or bound + 1 if it is more than bound.
+         */
+        int to(String candidate, int bound) {
+            int over = bound + 1;
+            int columns = candidate.length();
+            if (Math.abs(columns - query.length()) > bound) {
+                // The last cell is outside the band, and each edit changes the length by at most one
+                return over;
+            }
+            for (int j = 0; j <= Math.min(columns, bound); j++) {
+                previous[j] = j;
+            }
+            if (bound + 1 <= columns) {
+                previous[bound + 1] = over;
+            }
+            for (int i = 1; i <= query.length(); i++) {
+                int from = Math.max(1, i - bound);
+                int to = Math.min(columns, i + bound);
+                // The cell left of the band: the empty prefix of the candidate, or outside the band
+                current[from - 1] = from == 1 && i <= bound ? i : over;
+                int rowMin = current[from - 1];
+                char c = query.charAt(i - 1);
+                for (int j = from; j <= to; j++) {
+                    int substitute = previous[j - 1] + (c == candidate.charAt(j - 1) ? 0 : 1);
+                    int cell = Math.min(substitute, Math.min(previous[j], current[j - 1]) + 1);
+                    current[j] = Math.min(cell, over);
+                    rowMin = Math.min(rowMin, current[j]);
+                }
+                if (to < columns) {
+                    // The next row reads one cell further right
+                    current[to + 1] = over;
+                }
+                if (rowMin > bound) {
+                    return over;
+                }
+                int[] swap = previous;
+                previous = current;
+                current = swap;
+            }
+            return previous[columns];
+        }
+    }
+}
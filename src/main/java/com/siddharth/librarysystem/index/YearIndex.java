@@ -0,0 +1,81 @@
+package main.java.com.siddharth.librarysystem.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A sorted index from publication year to the ISBNs published in that year.
+ * Answers exact and ranged year lookups by visiting only the years in range,
+ * and can walk them in year order so a query sorted by year can stop early.
+ * Safe for concurrent use without locking.
+ */
+public class YearIndex {
+
+    private final ConcurrentSkipListMap<Integer, Set<String>> isbnsByYear = new ConcurrentSkipListMap<>();
+
+    /**
+     * Indexes a book under its publication year.
+     * @param isbn The ISBN of the book.
+     * @param year The publication year.
+     */
+    public void put(String isbn, int year) {
+        isbnsByYear.computeIfAbsent(year, k -> ConcurrentHashMap.newKeySet()).add(isbn);
+    }
+
+    /**
+     * Removes a book from the given year, e.g. before re-indexing it under a corrected year.
+     * Empty years are kept; there are only ever a few hundred of them.
+     * @param isbn The ISBN of the book.
+     * @param year The year it was indexed under.
+     */
+    public void remove(String isbn, int year) {
+        Set<String> isbns = isbnsByYear.get(year);
+        if (isbns != null) {
+            isbns.remove(isbn);
+        }
+    }
+
+    /**
+     * Counts the books published between the two years, both inclusive.
+     * @return The number of books in range.
+     */
+    public int count(int fromYear, int toYear) {
+        int count = 0;
+        for (Set<String> isbns : range(fromYear, toYear, false)) {
+            count += isbns.size();
+        }
+        return count;
+    }
+
+    /**
+     * Collects the books published between the two years, both inclusive.
+     * @return The matching ISBNs, in a new set the caller may modify.
+     */
+    public Set<String> findBetween(int fromYear, int toYear) {
+        Set<String> result = new HashSet<>();
+        for (Set<String> isbns : range(fromYear, toYear, false)) {
+            result.addAll(isbns);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the per-year ISBN sets between the two years, both inclusive, in year order.
+     * The sets are live views; copy them before holding on to them.
+     * @param descending true to walk from the latest year to the earliest.
+     * @return One set per year in range.
+     */
+    public Collection<Set<String>> range(int fromYear, int toYear, boolean descending) {
+        if (fromYear > toYear) {
+            return Collections.emptyList();
+        }
+        NavigableMap<Integer, Set<String>> years = isbnsByYear.subMap(fromYear, true, toYear, true);
+        return new ArrayList<>((descending ? years.descendingMap() : years).values());
+    }
+}
@@ -0,0 +1,238 @@
+package main.java.com.siddharth.librarysystem.loadgen;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+
+import main.java.com.siddharth.librarysystem.core.Library;
+import main.java.com.siddharth.librarysystem.entity.Book;
+import main.java.com.siddharth.librarysystem.entity.IsbnCodec;
+import main.java.com.siddharth.librarysystem.entity.LendingTicket;
+import main.java.com.siddharth.librarysystem.entity.Patron;
+import main.java.com.siddharth.librarysystem.logging.ConsoleSink;
+import main.java.com.siddharth.librarysystem.logging.EventLog;
+import main.java.com.siddharth.librarysystem.logging.Level;
+import main.java.com.siddharth.librarysystem.logging.OverflowPolicy;
+
+/**
+ * Replays desk traffic against the {@link Library} facade from many threads and reports latency
+ * percentiles per operation.
+ *
+ * Each worker is one desk serving one operation at a time, with its own share of the patrons and
+ * its own outstanding loans. Titles are picked by Zipf-distributed popularity, operations by the
+ * configured mix, and payments take the configured simulated latency.
+ *
+ * In closed loop every worker starts its next operation as soon as the previous one ends. In open loop
+ * each worker has a fixed schedule (the target rate split evenly across workers) and latency is measured
+ * from the operation's scheduled start, not from when the worker got round to it. A stall therefore shows
+ * up in the latency of every operation that should have started during it, instead of silently
+ * delaying the load and hiding in the percentiles (coordinated omission).
+ *
+ * Usage: java -cp bin main.java.com.siddharth.librarysystem.loadgen.LoadGenerator [name=value ...]
+ * e.g. {@code workers=1000 rate=20000 seconds=60 paymentMillis=5 zipf=1.1 out=load.txt};
+ * see {@link WorkloadConfig#parse(String[])} for all options.
+ */
+public class LoadGenerator {
+
+    private static final String[] ADJECTIVES = {
+            "Silent", "Hidden", "Broken", "Golden", "Last", "Distant", "Burning", "Frozen", "Secret", "Wild",
+            "Crimson", "Lost", "Endless", "Quiet", "Iron", "Bright", "Dark", "Ancient", "Restless", "Little"};
+    private static final String[] NOUNS = {
+            "River", "Garden", "Empire", "Letter", "Harbor", "Forest", "Kingdom", "Promise", "Shadow", "Voyage",
+            "Mountain", "Window", "Station", "Orchard", "Island", "Library", "Storm", "Bridge", "Journey", "Winter"};
+    // Lets every worker start before the first operation is due.
+    private static final long START_DELAY_NANOS = 100_000_000L;
+
+    public static void main(String[] args) throws Exception {
+        WorkloadConfig config = WorkloadConfig.parse(args);
+        LoadReport report = run(config);
+        String summary = report.format();
+        System.out.print(summary);
+        if (config.getReportFile() != null) {
+            Files.writeString(config.getReportFile(), summary);
+            System.out.println("\nSummary written to " + config.getReportFile());
+        }
+    }
+
+    /**
+     * Seeds a new library, runs the workload against it and collects the latencies.
+     * @param config The workload.
+     * @return The latencies and outcomes of the measured part of the run.
+     */
+    public static LoadReport run(WorkloadConfig config) throws InterruptedException, IOException {
+        if (!config.isVerbose()) {
+            // Only errors are printed, so per-operation messages don't become the bottleneck.
+            EventLog.configure(Level.ERROR, OverflowPolicy.DROP, EventLog.DEFAULT_CAPACITY, new ConsoleSink());
+        }
+        Library library = new Library(new SimulatedPaymentProcessor(config.getPaymentLatency()), config.getTitles());
+        System.out.printf("Seeding %,d titles and %,d patrons...%n", config.getTitles(), config.getPatrons());
+        Book[] books = seedCatalog(library, config);
+        Patron[] patrons = new Patron[config.getPatrons()];
+        for (int i = 0; i < patrons.length; i++) {
+            patrons[i] = library.registerNewPatron("Patron " + i, "patron" + i + "@example.com");
+        }
+
+        ZipfDistribution popularity = new ZipfDistribution(books.length, config.getZipfExponent());
+        LoadReport report = new LoadReport(config);
+        long start = System.nanoTime() + START_DELAY_NANOS;
+        long measureFrom = start + config.getWarmup().toNanos();
+        long end = measureFrom + config.getDuration().toNanos();
+
+        System.out.printf("Running %d workers for %.1f s after %.1f s of warm-up...%n", config.getWorkers(),
+                config.getDuration().toMillis() / 1e3, config.getWarmup().toMillis() / 1e3);
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < config.getWorkers(); w++) {
+            Worker worker = new Worker(w, config, library, books, popularity, ownPatrons(patrons, w, config.getWorkers()),
+                    report, start, measureFrom, end);
+            Thread.Builder builder = config.isVirtualThreads() ? Thread.ofVirtual() : Thread.ofPlatform().daemon();
+            threads.add(builder.name("load-worker-" + w).start(worker));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // An overloaded open-loop run finishes its backlog after the end; count that time too.
+        report.setMeasuredNanos(Math.max(end, System.nanoTime()) - measureFrom);
+        return report;
+    }
+
+    private static Book[] seedCatalog(Library library, WorkloadConfig config) {
+        Book[] books = new Book[config.getTitles()];
+        for (int i = 0; i < books.length; i++) {
+            String title = ADJECTIVES[i % ADJECTIVES.length] + " " + NOUNS[(i / ADJECTIVES.length) % NOUNS.length] + " " + (i + 1);
+            books[i] = new Book(title, "Author " + (i % 997), isbn(i), 1950 + i % 75);
+            library.addNewBook(books[i], config.getCopiesPerTitle());
+        }
+        return books;
+    }
+
+    // "978" and the title number padded to 9 digits, with a valid check digit.
+    private static String isbn(int n) {
+        StringBuilder isbn = new StringBuilder(13).append("978");
+        String digits = Integer.toString(n);
+        for (int pad = digits.length(); pad < 9; pad++) {
+            isbn.append('0');
+        }
+        isbn.append(digits);
+        return isbn.append(IsbnCodec.checkDigit13(isbn)).toString();
+    }
+
+    // Every workers-th patron, starting at the worker's index; shared round-robin if there are fewer patrons than workers.
+    private static List<Patron> ownPatrons(Patron[] patrons, int worker, int workers) {
+        List<Patron> own = new ArrayList<>();
+        for (int i = worker; i < patrons.length; i += workers) {
+            own.add(patrons[i]);
+        }
+        if (own.isEmpty()) {
+            own.add(patrons[worker % patrons.length]);
+        }
+        return own;
+    }
+
+    /**
+     * One simulated desk. All its state is its own, so it needs no synchronization besides the library's.
+     */
+    private static final class Worker implements Runnable {
+        private final Library library;
+        private final Book[] books;
+        private final ZipfDistribution popularity;
+        private final List<Patron> patrons;
+        // Loans this desk made and hasn't taken back yet.
+        private final List<LendingTicket> loans = new ArrayList<>();
+        private final LoadReport report;
+        private final SplittableRandom random;
+        private final WorkloadConfig.OperationPicker picker;
+        private final int index;
+        private final long start;
+        private final long measureFrom;
+        private final long end;
+        // Open loop: time between this worker's scheduled starts, and its offset from the other workers.
+        private final double intervalNanos;
+        private final double phase;
+        private int registered;
+
+        Worker(int index, WorkloadConfig config, Library library, Book[] books, ZipfDistribution popularity,
+               List<Patron> patrons, LoadReport report, long start, long measureFrom, long end) {
+            this.index = index;
+            this.library = library;
+            this.books = books;
+            this.popularity = popularity;
+            this.patrons = patrons;
+            this.report = report;
+            this.random = new SplittableRandom(config.getSeed() * 1_000_003L + index);
+            this.picker = config.newPicker(random);
+            this.start = start;
+            this.measureFrom = measureFrom;
+            this.end = end;
+            this.intervalNanos = config.isOpenLoop() ? config.getWorkers() * 1e9 / config.getTargetRate() : 0;
+            this.phase = (double) index / config.getWorkers();
+        }
+
+        @Override
+        public void run() {
+            waitUntil(start);
+            for (long n = 0; ; n++) {
+                long scheduled = intervalNanos > 0 ? start + (long) ((n + phase) * intervalNanos) : System.nanoTime();
+                if (scheduled >= end) {
+                    return;
+                }
+                waitUntil(scheduled);
+
+                Operation operation = picker.next();
+                if (operation == Operation.RETURN && loans.isEmpty()) {
+                    operation = Operation.ISSUE; // Nothing to give back yet
+                }
+                boolean succeeded;
+                try {
+                    succeeded = perform(operation);
+                } catch (RuntimeException e) {
+                    succeeded = false;
+                }
+                long latency = System.nanoTime() - scheduled;
+                if (scheduled >= measureFrom) {
+                    report.record(operation, latency, succeeded);
+                }
+            }
+        }
+
+        private boolean perform(Operation operation) {
+            switch (operation) {
+                case ISSUE: {
+                    Patron patron = patrons.get(random.nextInt(patrons.size()));
+                    LendingTicket ticket = library.issueBookToPatron(books[popularity.sample(random)], patron);
+                    if (ticket == null) {
+                        return false;
+                    }
+                    loans.add(ticket);
+                    return true;
+                }
+                case RETURN: {
+                    // Swap-remove a random loan
+                    int i = random.nextInt(loans.size());
+                    LendingTicket ticket = loans.get(i);
+                    loans.set(i, loans.get(loans.size() - 1));
+                    loans.remove(loans.size() - 1);
+                    return library.returnBookFromPatron(ticket.getBook(), ticket.getPatron());
+                }
+                case SEARCH:
+                    return !library.searchBookByTitle(books[popularity.sample(random)].getTitle()).isEmpty();
+                case REGISTER:
+                    registered++;
+                    patrons.add(library.registerNewPatron("Patron " + index + "-" + registered,
+                            "patron" + index + "-" + registered + "@example.com"));
+                    return true;
+                default:
+                    throw new IllegalStateException("Unknown operation: " + operation);
+            }
+        }
+
+        private static void waitUntil(long deadline) {
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(remaining);
+            }
+        }
+    }
+}
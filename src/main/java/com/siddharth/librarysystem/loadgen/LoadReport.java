@@ -0,0 +1,96 @@
+package main.java.com.siddharth.librarysystem.loadgen;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import main.java.com.siddharth.librarysystem.metrics.LatencyHistogram;
+
+/**
+ * The latencies and outcomes of the measured part of a load run, per operation.
+ */
+public class LoadReport {
+
+    private final WorkloadConfig config;
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> failures = new EnumMap<>(Operation.class);
+    private volatile long measuredNanos;
+
+    LoadReport(WorkloadConfig config) {
+        this.config = config;
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new LatencyHistogram());
+            failures.put(operation, new LongAdder());
+        }
+    }
+
+    /**
+     * @param operation The operation.
+     * @param latencyNanos From the operation's scheduled start (open loop) or actual start (closed loop) to its end.
+     * @param succeeded false if the library turned the operation down, e.g. no copy was available.
+     */
+    void record(Operation operation, long latencyNanos, boolean succeeded) {
+        latencies.get(operation).record(latencyNanos);
+        if (!succeeded) {
+            failures.get(operation).increment();
+        }
+    }
+
+    void setMeasuredNanos(long measuredNanos) {
+        this.measuredNanos = measuredNanos;
+    }
+
+    public LatencyHistogram getLatencies(Operation operation) {
+        return latencies.get(operation);
+    }
+
+    public long getFailures(Operation operation) {
+        return failures.get(operation).sum();
+    }
+
+    public long getOperationCount() {
+        long count = 0;
+        for (LatencyHistogram histogram : latencies.values()) {
+            count += histogram.count();
+        }
+        return count;
+    }
+
+    /**
+     * @return The operations completed per second while latencies were recorded.
+     */
+    public double getThroughput() {
+        return measuredNanos == 0 ? 0 : getOperationCount() / (measuredNanos / 1e9);
+    }
+
+    /**
+     * @return A table of counts, failures, throughput and latency percentiles in milliseconds.
+     */
+    public String format() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("Mode: %s, workers: %d (%s threads), titles: %,d (zipf %.2f), patrons: %,d, payment latency: %.1f ms%n",
+                config.isOpenLoop() ? String.format("open loop at %,.0f ops/s", config.getTargetRate()) : "closed loop",
+                config.getWorkers(), config.isVirtualThreads() ? "virtual" : "platform",
+                config.getTitles(), config.getZipfExponent(), config.getPatrons(), config.getPaymentLatency().toNanos() / 1e6));
+        out.append(String.format("Measured %.1f s: %,d operations, %,.0f ops/s%n%n",
+                measuredNanos / 1e9, getOperationCount(), getThroughput()));
+        out.append(String.format("%-9s %12s %10s %12s %10s %10s %10s %10s %10s%n",
+                "operation", "count", "failed", "ops/s", "mean ms", "p50 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram histogram = latencies.get(operation);
+            long count = histogram.count();
+            if (count == 0) {
+                continue;
+            }
+            out.append(String.format("%-9s %,12d %,10d %,12.0f %10.3f %10.3f %10.3f %10.3f %10.3f%n",
+                    operation.name().toLowerCase(), count, getFailures(operation), count / (measuredNanos / 1e9),
+                    histogram.mean() / 1e6, millis(histogram.percentile(50)), millis(histogram.percentile(99)),
+                    millis(histogram.percentile(99.9)), millis(histogram.max())));
+        }
+        return out.toString();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -0,0 +1,11 @@
+package main.java.com.siddharth.librarysystem.loadgen;
+
+/**
+ * The desk operations a load run mixes.
+ */
+public enum Operation {
+    ISSUE,    // Issue a title, picked by popularity, to one of the worker's patrons
+    RETURN,   // Return one of the worker's outstanding loans
+    SEARCH,   // Search for a title, picked by popularity
+    REGISTER  // Register a new patron
+}
@@ -0,0 +1,35 @@
+package main.java.com.siddharth.librarysystem.loadgen;
+
+import java.time.Duration;
+
+import main.java.com.siddharth.librarysystem.payment.PaymentProcessor;
+
+/**
+ * A payment processor that approves every payment after a fixed delay, standing in for
+ * the payment gateway's round-trip during load runs. Sleeping doesn't pin virtual threads.
+ */
+public class SimulatedPaymentProcessor implements PaymentProcessor {
+
+    private final long latencyNanos;
+
+    /**
+     * @param latency How long each payment takes; zero approves at once.
+     */
+    public SimulatedPaymentProcessor(Duration latency) {
+        this.latencyNanos = latency.toNanos();
+    }
+
+    @Override
+    public boolean processPayment(double amount) {
+        if (latencyNanos <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(Duration.ofNanos(latencyNanos));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package main.java.com.siddharth.librarysystem.loadgen;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * What a load run does: the catalog and patrons it starts with, the operation mix, how hard it pushes
+ * and for how long. Defaults give a short closed-loop run; for example
+ * <pre>
+ * new WorkloadConfig().workers(500).targetRate(20_000).mix(Operation.SEARCH, 60).paymentLatency(Duration.ofMillis(5))
+ * </pre>
+ * runs 500 simulated desks at a combined 20,000 operations per second.
+ */
+public class WorkloadConfig {
+    private int titles = 10_000;
+    private int copiesPerTitle = 3;
+    private double zipfExponent = 1.0;
+    private int patrons = 2_000;
+    private int workers = 100;
+    private boolean virtualThreads = true;
+    private double targetRate; // Operations per second over all workers; 0 runs closed loop
+    private Duration warmup = Duration.ofSeconds(5);
+    private Duration duration = Duration.ofSeconds(30);
+    private Duration paymentLatency = Duration.ZERO;
+    private final Map<Operation, Integer> mix = new EnumMap<>(Map.of(
+            Operation.ISSUE, 35, Operation.RETURN, 35, Operation.SEARCH, 25, Operation.REGISTER, 5));
+    private long seed = 42;
+    private Path reportFile;
+    private boolean verbose;
+
+    // --- Catalog and Patrons ---
+
+    public WorkloadConfig titles(int titles) {
+        this.titles = requirePositive("titles", titles);
+        return this;
+    }
+
+    public WorkloadConfig copiesPerTitle(int copiesPerTitle) {
+        this.copiesPerTitle = requirePositive("copiesPerTitle", copiesPerTitle);
+        return this;
+    }
+
+    /**
+     * @param zipfExponent How skewed title popularity is: 0 is uniform, 1 is typical.
+     */
+    public WorkloadConfig zipfExponent(double zipfExponent) {
+        if (zipfExponent < 0) {
+            throw new IllegalArgumentException("zipfExponent must not be negative: " + zipfExponent);
+        }
+        this.zipfExponent = zipfExponent;
+        return this;
+    }
+
+    /**
+     * @param patrons The number of patrons registered before the run; they are split among the workers.
+     */
+    public WorkloadConfig patrons(int patrons) {
+        this.patrons = requirePositive("patrons", patrons);
+        return this;
+    }
+
+    // --- Load ---
+
+    /**
+     * @param workers The number of simulated desks, each running one operation at a time.
+     */
+    public WorkloadConfig workers(int workers) {
+        this.workers = requirePositive("workers", workers);
+        return this;
+    }
+
+    /**
+     * @param virtualThreads true to run each worker on a virtual thread, false for platform threads.
+     */
+    public WorkloadConfig virtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+        return this;
+    }
+
+    /**
+     * Runs open loop: operations are scheduled at this combined rate whether or not earlier ones have
+     * finished, and each latency counts from the operation's scheduled start.
+     * @param operationsPerSecond The target rate; 0 runs closed loop, each worker starting its next
+     *                            operation as soon as the previous one finishes.
+     */
+    public WorkloadConfig targetRate(double operationsPerSecond) {
+        if (operationsPerSecond < 0) {
+            throw new IllegalArgumentException("targetRate must not be negative: " + operationsPerSecond);
+        }
+        this.targetRate = operationsPerSecond;
+        return this;
+    }
+
+    /**
+     * @param warmup How long to run before latencies are recorded, so JIT compilation isn't measured.
+     */
+    public WorkloadConfig warmup(Duration warmup) {
+        this.warmup = warmup;
+        return this;
+    }
+
+    public WorkloadConfig duration(Duration duration) {
+        this.duration = duration;
+        return this;
+    }
+
+    /**
+     * @param paymentLatency How long each simulated payment takes.
+     */
+    public WorkloadConfig paymentLatency(Duration paymentLatency) {
+        this.paymentLatency = paymentLatency;
+        return this;
+    }
+
+    /**
+     * Sets the relative weight of an operation; weights need not add up to 100.
+     * @param operation The operation.
+     * @param weight Its weight; 0 leaves it out.
+     */
+    public WorkloadConfig mix(Operation operation, int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weight of " + operation + " must not be negative: " + weight);
+        }
+        mix.put(operation, weight);
+        return this;
+    }
+
+    public WorkloadConfig seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    // --- Output ---
+
+    /**
+     * @param reportFile Where to write the summary as well as printing it; null to only print it.
+     */
+    public WorkloadConfig reportFile(Path reportFile) {
+        this.reportFile = reportFile;
+        return this;
+    }
+
+    /**
+     * @param verbose true to keep the library's per-operation messages, which are otherwise suppressed.
+     */
+    public WorkloadConfig verbose(boolean verbose) {
+        this.verbose = verbose;
+        return this;
+    }
+
+    /**
+     * Reads options of the form {@code name=value}, e.g. {@code workers=500 rate=20000 seconds=60
+     * mix=issue:40,return:40,search:15,register:5 paymentMillis=2.5 out=load.txt}.
+     * @param args The options.
+     * @return A configuration with the given options and defaults for the rest.
+     */
+    public static WorkloadConfig parse(String[] args) {
+        WorkloadConfig config = new WorkloadConfig();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Expected name=value: " + arg);
+            }
+            String name = arg.substring(0, equals);
+            String value = arg.substring(equals + 1);
+            switch (name) {
+                case "titles" -> config.titles(Integer.parseInt(value));
+                case "copies" -> config.copiesPerTitle(Integer.parseInt(value));
+                case "zipf" -> config.zipfExponent(Double.parseDouble(value));
+                case "patrons" -> config.patrons(Integer.parseInt(value));
+                case "workers" -> config.workers(Integer.parseInt(value));
+                case "virtual" -> config.virtualThreads(Boolean.parseBoolean(value));
+                case "rate" -> config.targetRate(Double.parseDouble(value));
+                case "warmup" -> config.warmup(Duration.ofMillis((long) (Double.parseDouble(value) * 1000)));
+                case "seconds" -> config.duration(Duration.ofMillis((long) (Double.parseDouble(value) * 1000)));
+                case "paymentMillis" -> config.paymentLatency(Duration.ofNanos((long) (Double.parseDouble(value) * 1_000_000)));
+                case "mix" -> config.parseMix(value);
+                case "seed" -> config.seed(Long.parseLong(value));
+                case "out" -> config.reportFile(Path.of(value));
+                case "verbose" -> config.verbose(Boolean.parseBoolean(value));
+                default -> throw new IllegalArgumentException("Unknown option: " + name);
+            }
+        }
+        return config;
+    }
+
+    // "issue:40,return:40,search:15,register:5"; operations not listed get weight 0.
+    private void parseMix(String value) {
+        mix.replaceAll((operation, weight) -> 0);
+        for (String part : value.split(",")) {
+            String[] entry = part.split(":");
+            if (entry.length != 2) {
+                throw new IllegalArgumentException("Expected operation:weight in the mix: " + part);
+            }
+            mix(Operation.valueOf(entry[0].trim().toUpperCase()), Integer.parseInt(entry[1].trim()));
+        }
+    }
+
+    private static int requirePositive(String name, int value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be positive: " + value);
+        }
+        return value;
+    }
+
+    // --- Getters ---
+
+    public int getTitles() {
+        return titles;
+    }
+
+    public int getCopiesPerTitle() {
+        return copiesPerTitle;
+    }
+
+    public double getZipfExponent() {
+        return zipfExponent;
+    }
+
+    public int getPatrons() {
+        return patrons;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public double getTargetRate() {
+        return targetRate;
+    }
+
+    public boolean isOpenLoop() {
+        return targetRate > 0;
+    }
+
+    public Duration getWarmup() {
+        return warmup;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public Duration getPaymentLatency() {
+        return paymentLatency;
+    }
+
+    public int getWeight(Operation operation) {
+        return mix.get(operation);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public Path getReportFile() {
+        return reportFile;
+    }
+
+    public boolean isVerbose() {
+        return verbose;
+    }
+
+    /**
+     * Picks operations in proportion to their weights.
+     * @return A picker to use from one thread, with its own random source.
+     */
+    OperationPicker newPicker(SplittableRandom random) {
+        return new OperationPicker(this, random);
+    }
+
+    /**
+     * Draws operations according to the mix; one per worker, not thread-safe.
+     */
+    static final class OperationPicker {
+        private final Operation[] operations = Operation.values();
+        private final int[] cumulative = new int[operations.length];
+        private final SplittableRandom random;
+
+        OperationPicker(WorkloadConfig config, SplittableRandom random) {
+            this.random = random;
+            int sum = 0;
+            for (int i = 0; i < operations.length; i++) {
+                sum += config.getWeight(operations[i]);
+                cumulative[i] = sum;
+            }
+            if (sum == 0) {
+                throw new IllegalArgumentException("The operation mix is empty.");
+            }
+        }
+
+        Operation next() {
+            int draw = random.nextInt(cumulative[cumulative.length - 1]);
+            for (int i = 0; i < cumulative.length; i++) {
+                if (draw < cumulative[i]) {
+                    return operations[i];
+                }
+            }
+            throw new IllegalStateException("Unreachable");
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package main.java.com.siddharth.librarysystem.logging;
+
+import java.io.PrintStream;
+
+/**
+ * Prints event messages to the console: warnings and errors to standard error, everything else to standard output.
+ * Only the message is printed, so the console looks the same as before logging was introduced.
+ */
+public class ConsoleSink implements LogSink {
+    private final PrintStream out;
+    private final PrintStream err;
+
+    public ConsoleSink() {
+        this(System.out, System.err);
+    }
+
+    public ConsoleSink(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    @Override
+    public void write(LogEvent event) {
+        PrintStream stream = event.getLevel().compareTo(Level.WARN) >= 0 ? err : out;
+        stream.println(event.getMessage());
+    }
+
+    @Override
+    public void flush() {
+        out.flush();
+        err.flush();
+    }
+}
@@ -0,0 +1,170 @@
+package main.java.com.siddharth.librarysystem.logging;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The asynchronous log pipeline shared by every {@link EventLogger}.
+ *
+ * Logging threads only drop events into a lock-free ring buffer; a single background thread takes them out,
+ * formats them and hands them to the sinks. Events below the minimum level are discarded before anything
+ * is allocated. When the buffer is full the {@link OverflowPolicy} decides whether to drop or wait.
+ *
+ * By default events of level INFO and above are printed to the console, waiting rather than dropping.
+ * Use {@link #configure(Level, OverflowPolicy, int, LogSink...)} to change that.
+ */
+public final class EventLog {
+
+    public static final int DEFAULT_CAPACITY = 8192;
+    private static final long IDLE_PARK_NANOS = 10_000_000L;
+    private static final long FULL_PARK_NANOS = 50_000L;
+
+    private static volatile EventLog current =
+            new EventLog(Level.INFO, OverflowPolicy.BLOCK, DEFAULT_CAPACITY, List.of(new ConsoleSink()));
+
+    static {
+        // Write out whatever is still buffered when the JVM exits.
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> current.shutdown(), "event-log-shutdown"));
+    }
+
+    private final Level minLevel;
+    private final OverflowPolicy overflowPolicy;
+    private final EventRingBuffer buffer;
+    private final List<LogSink> sinks;
+    private final Thread writer;
+    private final LongAdder dropped = new LongAdder();
+    private volatile boolean running = true;
+    private volatile boolean writerIdle;
+    // Number of events written and flushed to the sinks so far.
+    private volatile long flushedUpTo;
+
+    private EventLog(Level minLevel, OverflowPolicy overflowPolicy, int capacity, List<LogSink> sinks) {
+        this.minLevel = minLevel;
+        this.overflowPolicy = overflowPolicy;
+        this.buffer = new EventRingBuffer(capacity);
+        this.sinks = sinks;
+        this.writer = new Thread(this::writeLoop, "event-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Replaces the log pipeline. Events already queued in the old one are written out first.
+     * @param minLevel Events below this level are ignored.
+     * @param overflowPolicy What to do when the buffer is full.
+     * @param capacity The number of events the buffer can hold (rounded up to a power of two).
+     * @param sinks Where events are written.
+     */
+    public static void configure(Level minLevel, OverflowPolicy overflowPolicy, int capacity, LogSink... sinks) {
+        EventLog previous = current;
+        current = new EventLog(minLevel, overflowPolicy, capacity, List.of(sinks));
+        previous.shutdown();
+    }
+
+    static EventLog current() {
+        return current;
+    }
+
+    /**
+     * Waits until every event logged so far has been written to the sinks.
+     * Useful before prompting the user, so log output doesn't appear after the prompt.
+     */
+    public static void flush() {
+        current.awaitFlushed();
+    }
+
+    /**
+     * @return The number of events dropped because the buffer was full.
+     */
+    public static long droppedCount() {
+        return current.dropped.sum();
+    }
+
+    boolean isEnabled(Level level) {
+        return level.compareTo(minLevel) >= 0;
+    }
+
+    void publish(LogEvent event) {
+        while (!buffer.offer(event)) {
+            if (overflowPolicy == OverflowPolicy.DROP || !running) {
+                dropped.increment();
+                return;
+            }
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+        if (writerIdle) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void awaitFlushed() {
+        long target = buffer.claimed();
+        while (flushedUpTo < target && writer.isAlive()) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            boolean stopping = !running;
+            int written = drain();
+            if (written > 0) {
+                continue;
+            }
+            if (stopping) {
+                break;
+            }
+            writerIdle = true;
+            if (buffer.claimed() == buffer.consumed()) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            writerIdle = false;
+        }
+        for (LogSink sink : sinks) {
+            try {
+                sink.close();
+            } catch (RuntimeException e) {
+                System.err.println("Log sink failed to close: " + e);
+            }
+        }
+    }
+
+    private int drain() {
+        int written = 0;
+        LogEvent event;
+        while ((event = buffer.poll()) != null) {
+            for (LogSink sink : sinks) {
+                try {
+                    sink.write(event);
+                } catch (RuntimeException e) {
+                    System.err.println("Log sink failed: " + e);
+                }
+            }
+            written++;
+        }
+        if (written > 0) {
+            for (LogSink sink : sinks) {
+                try {
+                    sink.flush();
+                } catch (RuntimeException e) {
+                    System.err.println("Log sink failed to flush: " + e);
+                }
+            }
+            flushedUpTo = buffer.consumed();
+        }
+        return written;
+    }
+
+    private void shutdown() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
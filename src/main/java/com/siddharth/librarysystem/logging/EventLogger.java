@@ -0,0 +1,111 @@
+package main.java.com.siddharth.librarysystem.logging;
+
+/**
+ * Logs events on behalf of one component, e.g. {@code EventLogger.forClass(BookInventory.class)}.
+ *
+ * Messages are {@link String#format} templates whose arguments are only formatted on the background
+ * writer, and only if the level is enabled. The fixed-arity methods avoid allocating an argument
+ * array when the level is off.
+ */
+public final class EventLogger {
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private final String source;
+
+    private EventLogger(String source) {
+        this.source = source;
+    }
+
+    public static EventLogger forClass(Class<?> type) {
+        return new EventLogger(type.getSimpleName());
+    }
+
+    public boolean isEnabled(Level level) {
+        return EventLog.current().isEnabled(level);
+    }
+
+    // --- DEBUG ---
+
+    public void debug(String template) {
+        log(Level.DEBUG, template, NO_ARGS);
+    }
+
+    public void debug(String template, Object arg) {
+        if (isEnabled(Level.DEBUG)) {
+            log(Level.DEBUG, template, new Object[] {arg});
+        }
+    }
+
+    public void debug(String template, Object arg1, Object arg2) {
+        if (isEnabled(Level.DEBUG)) {
+            log(Level.DEBUG, template, new Object[] {arg1, arg2});
+        }
+    }
+
+    // --- INFO ---
+
+    public void info(String template) {
+        log(Level.INFO, template, NO_ARGS);
+    }
+
+    public void info(String template, Object arg) {
+        if (isEnabled(Level.INFO)) {
+            log(Level.INFO, template, new Object[] {arg});
+        }
+    }
+
+    public void info(String template, Object arg1, Object arg2) {
+        if (isEnabled(Level.INFO)) {
+            log(Level.INFO, template, new Object[] {arg1, arg2});
+        }
+    }
+
+    public void info(String template, Object arg1, Object arg2, Object arg3) {
+        if (isEnabled(Level.INFO)) {
+            log(Level.INFO, template, new Object[] {arg1, arg2, arg3});
+        }
+    }
+
+    // --- WARN ---
+
+    public void warn(String template) {
+        log(Level.WARN, template, NO_ARGS);
+    }
+
+    public void warn(String template, Object arg) {
+        if (isEnabled(Level.WARN)) {
+            log(Level.WARN, template, new Object[] {arg});
+        }
+    }
+
+    public void warn(String template, Object arg1, Object arg2) {
+        if (isEnabled(Level.WARN)) {
+            log(Level.WARN, template, new Object[] {arg1, arg2});
+        }
+    }
+
+    // --- ERROR ---
+
+    public void error(String template) {
+        log(Level.ERROR, template, NO_ARGS);
+    }
+
+    public void error(String template, Object arg) {
+        if (isEnabled(Level.ERROR)) {
+            log(Level.ERROR, template, new Object[] {arg});
+        }
+    }
+
+    public void error(String template, Object arg1, Object arg2) {
+        if (isEnabled(Level.ERROR)) {
+            log(Level.ERROR, template, new Object[] {arg1, arg2});
+        }
+    }
+
+    private void log(Level level, String template, Object[] args) {
+        EventLog log = EventLog.current();
+        if (log.isEnabled(level)) {
+            log.publish(new LogEvent(level, source, template, args));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package main.java.com.siddharth.librarysystem.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue of log events for many producers and a single consumer.
+ *
+ * Each slot carries a sequence number that tells producers whether it is free and the consumer whether it
+ * has been filled. Producers claim a position with one compare-and-set on the tail; the consumer owns the head.
+ */
+final class EventRingBuffer {
+    private final LogEvent[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // Only touched by the consumer thread.
+    private long head;
+
+    EventRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new LogEvent[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return true if the event was queued, false if the buffer is full.
+     */
+    boolean offer(LogEvent event) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[index] = event;
+                    sequences.set(index, position + 1); // publishes the slot to the consumer
+                    return true;
+                }
+                position = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Consumer only.
+     * @return The next event, or null if none is ready.
+     */
+    LogEvent poll() {
+        int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        LogEvent event = slots[index];
+        slots[index] = null;
+        sequences.set(index, head + mask + 1); // hands the slot back to producers
+        head++;
+        return event;
+    }
+
+    /**
+     * @return The number of positions claimed by producers so far.
+     */
+    long claimed() {
+        return tail.get();
+    }
+
+    /**
+     * Consumer only.
+     * @return The number of events taken by the consumer so far.
+     */
+    long consumed() {
+        return head;
+    }
+}
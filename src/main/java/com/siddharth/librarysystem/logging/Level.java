@@ -0,0 +1,11 @@
+package main.java.com.siddharth.librarysystem.logging;
+
+/**
+ * Severity of a log event, from least to most severe.
+ */
+public enum Level {
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR
+}
@@ -0,0 +1,65 @@
+package main.java.com.siddharth.librarysystem.logging;
+
+import java.time.Instant;
+
+/**
+ * A single log event. The message template and its arguments are kept separately and only combined
+ * (with {@link String#format}) on the background writer, so the logging thread never formats text.
+ */
+public final class LogEvent {
+    private final long timestampMillis;
+    private final Level level;
+    private final String source;
+    private final String thread;
+    private final String template;
+    private final Object[] args;
+
+    LogEvent(Level level, String source, String template, Object[] args) {
+        this.timestampMillis = System.currentTimeMillis();
+        this.level = level;
+        this.source = source;
+        this.thread = Thread.currentThread().getName();
+        this.template = template;
+        this.args = args;
+    }
+
+    // --- Getters ---
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String getThread() {
+        return thread;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    public Object[] getArgs() {
+        return args;
+    }
+
+    /**
+     * @return The message with its arguments filled in.
+     */
+    public String getMessage() {
+        return args.length == 0 ? template : String.format(template, args);
+    }
+
+    // --- Overridden Methods ---
+
+    @Override
+    public String toString() {
+        return Instant.ofEpochMilli(timestampMillis) + " " + level + " [" + thread + "] " + source + " - " + getMessage();
+    }
+}
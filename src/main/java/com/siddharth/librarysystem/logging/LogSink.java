@@ -0,0 +1,21 @@
+package main.java.com.siddharth.librarysystem.logging;
+
+/**
+ * Destination for log events. Sinks are only ever called from the background writer thread,
+ * so implementations don't need to be thread-safe.
+ */
+public interface LogSink {
+
+    /**
+     * Writes one event. Implementations may buffer; {@link #flush()} is called after each batch.
+     * @param event The event to write.
+     */
+    void write(LogEvent event);
+
+    default void flush() {
+    }
+
+    default void close() {
+        flush();
+    }
+}
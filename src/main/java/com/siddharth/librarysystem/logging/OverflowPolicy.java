@@ -0,0 +1,11 @@
+package main.java.com.siddharth.librarysystem.logging;
+
+/**
+ * What a logging thread does when the event buffer is full.
+ */
+public enum OverflowPolicy {
+    // Drop the event and count it, so the caller never waits on logging.
+    DROP,
+    // Wait until the background writer frees a slot, so no event is lost.
+    BLOCK
+}
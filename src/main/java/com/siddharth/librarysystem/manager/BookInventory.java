@@ -1,25 +1,128 @@
 package main.java.com.siddharth.librarysystem.manager;
 
 
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 import main.java.com.siddharth.librarysystem.entity.Book;
+import main.java.com.siddharth.librarysystem.entity.IsbnCodec;
+import main.java.com.siddharth.librarysystem.index.TokenIndex;
+import main.java.com.siddharth.librarysystem.index.TrigramIndex;
+import main.java.com.siddharth.librarysystem.index.YearIndex;
+import main.java.com.siddharth.librarysystem.logging.EventLogger;
+import main.java.com.siddharth.librarysystem.metrics.LibraryMetrics;
+import main.java.com.siddharth.librarysystem.metrics.OperationType;
+import main.java.com.siddharth.librarysystem.persistence.LibraryJournal;
+import main.java.com.siddharth.librarysystem.query.BookMatch;
+import main.java.com.siddharth.librarysystem.query.CatalogPage;
+import main.java.com.siddharth.librarysystem.query.CatalogQuery;
+import main.java.com.siddharth.librarysystem.query.InventoryRow;
 
 /**
  * Manages the inventory of all books in the library.
  * It tracks the total count, available count, and borrowed count for each book.
+ * All methods are safe to call from multiple threads; borrow and return are single
+ * atomic updates, so two desks can never hand out the same last copy.
+ *
+ * An issue that has to be paid for first reserves a copy with {@link #reserve(Book)} and then commits or
+ * releases the lease. A lease that is neither committed nor released within the
+ * {@link #setLeaseDuration(Duration) lease duration}, e.g. because its payment hung, expires and its copy
+ * goes back on the shelf. Reservations sweep expired leases as they go, and so do borrows and availability
+ * reads once a lease is due, so a copy comes back even while nobody reserves. Reservations, commits and
+ * releases take no locks.
  */
 public class BookInventory {
 
+    private static final EventLogger log = EventLogger.forClass(BookInventory.class);
+
+    /**
+     * How long a reservation lasts unless set otherwise: longer than the timeout of asynchronous payments
+     * ({@link main.java.com.siddharth.librarysystem.payment.VirtualThreadPaymentProcessor#DEFAULT_TIMEOUT}),
+     * so a lease normally ends with its payment. Synchronous issues stop waiting for their payment just
+     * before their lease runs out (see {@link PatronManager#issueBook}).
+     */
+    public static final Duration DEFAULT_LEASE = Duration.ofMinutes(1);
+
+    private static final int DEFAULT_EXPECTED_BOOKS = 16;
+    // How often reservations look for expired leases, and how old a lease must be to count as slow.
+    private static final long LEASE_SWEEP_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
     // Using ISBN as the key for efficiency, since it's unique per book edition.
-    private final Map<String, Book> booksByIsbn = new HashMap<>();
-    private final Map<String, Integer> availableCopies = new HashMap<>();
-    private final Map<String, Integer> borrowedCopies = new HashMap<>();
+    private final Map<String, Book> booksByIsbn;
+    // Available and borrowed counts for each ISBN, packed together so they change atomically.
+    // Keyed by the ISBN packed into a long, so borrowing and returning neither hash strings nor allocate.
+    private final StockTable stock;
+
+    // Word indexes over titles and authors, so searches don't have to scan every book.
+    private final TokenIndex titleIndex = new TokenIndex();
+    private final TokenIndex authorIndex = new TokenIndex();
+    // Trigram indexes over the same fields, for finding the closest titles and authors to a misspelled one.
+    private final TrigramIndex titleTrigrams = new TrigramIndex();
+    private final TrigramIndex authorTrigrams = new TrigramIndex();
+    // Sorted publication year index, for exact and ranged year queries.
+    private final YearIndex yearIndex = new YearIndex();
+    private final CatalogQueryPlanner queryPlanner;
+    // The same books in ISBN order, each paired with its stock key, so listings don't re-parse the ISBN.
+    private final ConcurrentSkipListMap<String, CatalogEntry> catalog = new ConcurrentSkipListMap<>();
+
+    // Leases are swept in two generations, so the many that end within milliseconds die young instead of
+    // being kept alive (and copied by every collection) until their deadline. New leases, in the order taken:
+    private final LeaseQueue newLeases = new LeaseQueue();
+    // Leases still active a sweep interval after they were taken, in deadline order as they all last as long.
+    // Ended leases stay until they reach the front, so ending a lease is just its compare-and-set.
+    // Only the sweeping thread touches it.
+    private final ArrayDeque<CopyLease> slowLeases = new ArrayDeque<>();
+    private final AtomicBoolean sweepingLeases = new AtomicBoolean();
+    private volatile long nextLeaseSweepNanos = System.nanoTime();
+    // No lease expires before this, so a reservation that finds no copy only sweeps once it has passed.
+    private volatile long nextLeaseExpiryNanos = System.nanoTime() + DEFAULT_LEASE.toNanos();
+    private volatile long leaseNanos = DEFAULT_LEASE.toNanos();
+    // Told about each copy that went back on the shelf because its lease expired.
+    private volatile Consumer<Book> leaseExpiryListener = book -> { };
+
+    // Serializes metadata updates so the journal and the indexes see them in the same order.
+    // A ReentrantLock rather than synchronized, so virtual threads waiting on the journal aren't pinned.
+    private final ReentrantLock updateLock = new ReentrantLock();
+
+    // Write-ahead journal; changes are recorded here before they are applied. Null if not persisted.
+    private volatile LibraryJournal journal;
+    // Passed by every journaled change here and in the PatronManager, so snapshots see none half-applied.
+    private final ChangeGate changeGate = new ChangeGate();
+    // Counts and times additions, searches, borrows and returns; records nothing until metrics are attached.
+    private volatile LibraryMetrics metrics = LibraryMetrics.DISABLED;
+
+    public BookInventory() {
+        this(DEFAULT_EXPECTED_BOOKS);
+    }
+
+    /**
+     * Creates an inventory sized for the expected number of titles,
+     * so that large catalogs don't repeatedly resize the maps while loading.
+     * @param expectedBooks The number of distinct ISBNs expected.
+     */
+    public BookInventory(int expectedBooks) {
+        this.booksByIsbn = new ConcurrentHashMap<>(expectedBooks);
+        this.stock = new StockTable(expectedBooks);
+        this.queryPlanner = new CatalogQueryPlanner(booksByIsbn, stock, titleIndex, authorIndex, yearIndex);
+    }
 
+    /**
+     * Makes room for the given number of titles up front, e.g. before importing a large catalog
+     * into an inventory that was created with the default size.
+     * @param expectedBooks The number of distinct ISBNs expected in total.
+     */
+    public void ensureCapacity(int expectedBooks) {
+        stock.ensureCapacity(expectedBooks);
+    }
 
     /**
      * Adds a new book to the inventory or increases the count if it already exists.
@@ -27,59 +130,430 @@ public class BookInventory {
      * @param quantity The number of copies to add.
      */
     public void addBook(Book book, int quantity) {
+        LibraryMetrics metrics = this.metrics;
+        long start = metrics.startTimer(OperationType.ADD_BOOK);
         if (quantity <= 0) {
-            System.out.println("Error: Quantity must be positive.");
+            log.warn("Error: Quantity must be positive.");
+            metrics.record(OperationType.ADD_BOOK, start, false);
             return;
         }
+        if (!IsbnCodec.isValid(book.getIsbn())) {
+            log.warn("Error: '%s' is not a valid ISBN-10 or ISBN-13.", book.getIsbn());
+            metrics.record(OperationType.ADD_BOOK, start, false);
+            return;
+        }
+
+        long stamp = changeGate.enter();
+        try {
+            if (journal != null) {
+                journal.appendAddBook(book, quantity);
+            }
+
+            // Increase the number of available copies
+            stock.addCopies(register(book), quantity);
+        } finally {
+            changeGate.exit(stamp);
+        }
+
+        log.info("%d copies of '%s' added to inventory.", quantity, book.getTitle());
+        metrics.record(OperationType.ADD_BOOK, start, true);
+    }
+
+    /**
+     * Adds many books in one call, e.g. from a bulk import.
+     * Works like {@link #addBook(Book, int)} for each book, but writes one journal batch
+     * and prints nothing per book.
+     * @param books The books to add; their ISBNs must be compact ISBN-10s or ISBN-13s with a correct check digit.
+     * @param quantities The number of copies to add for each book, in the same order.
+     * @throws IllegalArgumentException if an ISBN is not valid; nothing is added then.
+     */
+    public void addBooks(List<Book> books, int[] quantities) {
+        if (books.isEmpty()) {
+            return;
+        }
+        for (Book book : books) {
+            if (!IsbnCodec.isValid(book.getIsbn())) {
+                throw new IllegalArgumentException("Not a valid ISBN-10 or ISBN-13: " + book.getIsbn());
+            }
+        }
+        long stamp = changeGate.enter();
+        try {
+            if (journal != null) {
+                journal.appendAddBooks(books, quantities);
+            }
+            for (int i = 0; i < books.size(); i++) {
+                stock.addCopies(register(books.get(i)), quantities[i]);
+            }
+        } finally {
+            changeGate.exit(stamp);
+        }
+    }
+
+    /**
+     * Adds a book read back from a snapshot or the journal, without journaling or console output.
+     * All copies start out available; loans restored afterwards mark them as borrowed.
+     * Check digits are not verified, so books stored before ISBNs were validated still come back.
+     * @param book The book to add.
+     * @param totalCopies The number of copies the library owns.
+     */
+    public void restoreBook(Book book, int totalCopies) {
+        if (book.getIsbnKey() == IsbnCodec.NO_KEY) {
+            log.warn("Skipped restoring '%s': not an ISBN-10 or ISBN-13.", book.getIsbn());
+            return;
+        }
+        stock.addCopies(register(book), totalCopies);
+    }
+
+    /**
+     * Adds a book with copies already on loan, e.g. one moved here from another inventory.
+     * Nothing is journaled or printed.
+     * @param book The book to add.
+     * @param availableCopies The number of copies on the shelf.
+     * @param borrowedCopies The number of copies on loan.
+     */
+    public void restoreBook(Book book, int availableCopies, int borrowedCopies) {
+        stock.addCopies(register(book), availableCopies, borrowedCopies);
+    }
+
+    /**
+     * Takes a book and all its copies out of the inventory and the search indexes, e.g. to move it
+     * to another inventory. Removals are not journaled, so this is refused while a journal is attached.
+     * @param isbn The ISBN of the book.
+     * @return The book with the counts it had, or null if it was not in the inventory.
+     * @throws IllegalStateException if a journal is attached.
+     */
+    public InventoryRow removeBook(String isbn) {
+        if (journal != null) {
+            throw new IllegalStateException("Books can't be removed from a journaled inventory");
+        }
+        updateLock.lock();
+        try {
+            Book book = booksByIsbn.remove(isbn);
+            if (book == null) {
+                return null;
+            }
+            catalog.remove(isbn);
+            titleIndex.remove(isbn);
+            authorIndex.remove(isbn);
+            titleTrigrams.remove(isbn);
+            authorTrigrams.remove(isbn);
+            yearIndex.remove(isbn, book.getPubYear());
+            long counts = stock.remove(book.getIsbnKey());
+            return counts == StockTable.ABSENT ? new InventoryRow(book, 0, 0, 0) : row(book, counts);
+        } finally {
+            updateLock.unlock();
+        }
+    }
 
+    /**
+     * Adds the book to the maps and indexes if its ISBN is new.
+     * @return The stock key of the ISBN.
+     * @throws IllegalArgumentException if the ISBN is not a compact ISBN-10 or ISBN-13.
+     */
+    private long register(Book book) {
         String isbn = book.getIsbn();
-        booksByIsbn.putIfAbsent(isbn, book);
+        long key = book.getIsbnKey();
+        if (key == IsbnCodec.NO_KEY) {
+            throw new IllegalArgumentException("Not an ISBN-10 or ISBN-13: " + isbn);
+        }
+        if (booksByIsbn.putIfAbsent(isbn, book) == null) {
+            titleIndex.put(isbn, book.getTitle());
+            authorIndex.put(isbn, book.getAuthor());
+            titleTrigrams.put(isbn, book.getTitle());
+            authorTrigrams.put(isbn, book.getAuthor());
+            yearIndex.put(isbn, book.getPubYear());
+            catalog.put(isbn, new CatalogEntry(book, key));
+        }
+        return key;
+    }
+
+    /**
+     * Starts recording every change to the given journal.
+     * The journal should already have been replayed into this inventory.
+     * @param journal The journal to write to.
+     */
+    public void attachJournal(LibraryJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * @return The gate every journaled change to this inventory, and to the PatronManager using it, passes;
+     *         close it to read a snapshot that matches the journal.
+     */
+    public ChangeGate getChangeGate() {
+        return changeGate;
+    }
 
-        // Increase the number of available copies
-        availableCopies.put(isbn, availableCopies.getOrDefault(isbn, 0) + quantity);
-        borrowedCopies.putIfAbsent(isbn, 0); // Ensure borrowed count is initialized
+    /**
+     * Sets how long leases taken from now on last. Leases already out keep their deadline, and may
+     * expire up to the difference late if the duration was shortened.
+     * @param lease The lease duration; must be positive.
+     */
+    public void setLeaseDuration(Duration lease) {
+        if (lease.isNegative() || lease.isZero()) {
+            throw new IllegalArgumentException("Lease duration must be positive.");
+        }
+        this.leaseNanos = lease.toNanos();
+    }
 
-        System.out.println(quantity + " copies of '" + book.getTitle() + "' added to inventory.");
+    /**
+     * @param listener Called with the book of each lease that expires, after its copy is back on the
+     *                 shelf, e.g. to hand it to a patron waiting for it.
+     */
+    public void setLeaseExpiryListener(Consumer<Book> listener) {
+        this.leaseExpiryListener = listener;
+    }
+
+    /**
+     * Starts counting and timing additions, searches, borrows and returns.
+     * @param metrics Where to record them.
+     */
+    public void attachMetrics(LibraryMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Updates the details of a book already in the inventory and keeps the search indexes in sync.
+     * Book details should be changed through this method rather than the Book setters,
+     * otherwise title and author searches will not see the change.
+     * @param isbn The ISBN of the book to update.
+     * @param title The new title.
+     * @param author The new author.
+     * @param pubYear The new publication year.
+     * @return true if the book was found and updated, false otherwise.
+     */
+    public boolean updateBookDetails(String isbn, String title, String author, int pubYear) {
+        Book book = booksByIsbn.get(isbn);
+        if (book == null) {
+            return false;
+        }
+        long stamp = changeGate.enter();
+        updateLock.lock();
+        try {
+            if (journal != null) {
+                journal.appendUpdateBook(isbn, title, author, pubYear);
+            }
+            int previousYear = book.getPubYear();
+            book.setTitle(title);
+            book.setAuthor(author);
+            book.setPubYear(pubYear);
+            titleIndex.put(isbn, title);
+            authorIndex.put(isbn, author);
+            titleTrigrams.put(isbn, title);
+            authorTrigrams.put(isbn, author);
+            if (previousYear != pubYear) {
+                yearIndex.put(isbn, pubYear);
+                yearIndex.remove(isbn, previousYear);
+            }
+        } finally {
+            updateLock.unlock();
+            changeGate.exit(stamp);
+        }
+        return true;
     }
 
     /**
      * Checks if a book is available to be borrowed.
+     * Note that the answer may be stale by the time the caller acts on it;
+     * use the return value of {@link #markAsBorrowed(String)} to actually claim a copy.
      * @param isbn The ISBN of the book to check.
      * @return true if at least one copy is available, false otherwise.
      */
     public boolean isBookAvailable(String isbn) {
-        return availableCopies.getOrDefault(isbn, 0) > 0;
+        return getAvailableCopiesCount(isbn) > 0;
     }
 
     /**
      * Marks one copy of a book as borrowed.
-     * This should be called when a book is issued to a patron.
+     * The availability check and the update happen as one atomic step.
      * @param isbn The ISBN of the book.
+     * @return true if a copy was borrowed, false if none was available.
      */
-    public void markAsBorrowed(String isbn) {
-        if (isBookAvailable(isbn)) {
-            availableCopies.put(isbn, availableCopies.get(isbn) - 1);
-            borrowedCopies.put(isbn, borrowedCopies.get(isbn) + 1);
-        } else {
-            // This case should ideally be prevented by checking availability first.
-            System.out.println("Error: Book with ISBN " + isbn + " is not available to borrow.");
-        }
+    public boolean markAsBorrowed(String isbn) {
+        long key = IsbnCodec.toKey(isbn);
+        boolean borrowed = stock.tryBorrow(key) || (expireDueLeases() && stock.tryBorrow(key));
+        metrics.count(OperationType.BORROW_COPY, borrowed);
+        return borrowed;
+    }
+
+    /**
+     * Same as {@link #markAsBorrowed(String)}, using the ISBN key the book already holds.
+     * @param book The book.
+     * @return true if a copy was borrowed, false if none was available.
+     */
+    public boolean markAsBorrowed(Book book) {
+        long key = book.getIsbnKey();
+        // The last copy may be held by a lease that ran out since the last sweep
+        boolean borrowed = stock.tryBorrow(key) || (expireDueLeases() && stock.tryBorrow(key));
+        metrics.count(OperationType.BORROW_COPY, borrowed);
+        return borrowed;
     }
 
     /**
      * Marks one copy of a book as returned.
      * This should be called when a patron returns a book.
      * @param isbn The ISBN of the book.
+     * @return true if a copy was returned, false if no copies were on loan.
      */
-    public void markAsReturned(String isbn) {
-        if (borrowedCopies.getOrDefault(isbn, 0) > 0) {
-            availableCopies.put(isbn, availableCopies.get(isbn) + 1);
-            borrowedCopies.put(isbn, borrowedCopies.get(isbn) - 1);
-        } else {
-            System.out.println("Error: No borrowed copies of ISBN " + isbn + " to return.");
+    public boolean markAsReturned(String isbn) {
+        boolean returned = stock.tryReturn(IsbnCodec.toKey(isbn));
+        metrics.count(OperationType.RETURN_COPY, returned);
+        return returned;
+    }
+
+    /**
+     * Same as {@link #markAsReturned(String)}, using the ISBN key the book already holds.
+     * @param book The book.
+     * @return true if a copy was returned, false if no copies were on loan.
+     */
+    public boolean markAsReturned(Book book) {
+        boolean returned = stock.tryReturn(book.getIsbnKey());
+        metrics.count(OperationType.RETURN_COPY, returned);
+        return returned;
+    }
+
+
+    // --- Reservations ---
+
+    /**
+     * Reserves one copy of a book: it leaves the shelf but isn't borrowed yet. Commit the lease with
+     * {@link #commit(CopyLease)} once the issue went through, or {@link #release(CopyLease)} it; otherwise
+     * it expires after the lease duration. The reservation is one atomic update, like a borrow.
+     * @param book The book.
+     * @return The lease, or null if no copy was available.
+     */
+    public CopyLease reserve(Book book) {
+        long now = System.nanoTime();
+        if (now - nextLeaseSweepNanos >= 0) {
+            expireLeases(now);
+        }
+        boolean reserved = stock.tryReserve(book.getIsbnKey());
+        if (!reserved && now - nextLeaseExpiryNanos >= 0 && expireLeases(now) > 0) {
+            // The last copy may have been held by a lease that ran out since the last sweep
+            reserved = stock.tryReserve(book.getIsbnKey());
+        }
+        metrics.count(OperationType.BORROW_COPY, reserved);
+        if (!reserved) {
+            return null;
+        }
+        CopyLease lease = new CopyLease(book, now, now + leaseNanos);
+        newLeases.add(lease);
+        return lease;
+    }
+
+    /**
+     * Turns a reservation into a loan: the reserved copy becomes borrowed.
+     * @param lease The lease.
+     * @return true if the copy is now borrowed; false if the lease had already expired or ended,
+     *         or the book was removed meanwhile.
+     */
+    public boolean commit(CopyLease lease) {
+        return lease.finish(CopyLease.State.COMMITTED) && stock.commitReserved(lease.getBook().getIsbnKey());
+    }
+
+    /**
+     * Gives up a reservation: the reserved copy goes back on the shelf.
+     * @param lease The lease.
+     * @return true if the copy went back; false if the lease had already expired or ended.
+     */
+    public boolean release(CopyLease lease) {
+        return lease.finish(CopyLease.State.RELEASED) && stock.releaseReserved(lease.getBook().getIsbnKey());
+    }
+
+    /**
+     * Expires the leases whose time is up, putting their copies back on the shelf.
+     * Reservations, borrows and availability reads already do this once a lease is due, so calling it
+     * is only needed to hand copies to waiting holders promptly while the inventory is idle.
+     * @return The number of leases that expired.
+     */
+    public int expireLeases() {
+        return expireLeases(System.nanoTime());
+    }
+
+    // Sweeps if a lease may have run out; otherwise just a volatile read.
+    private boolean expireDueLeases() {
+        long now = System.nanoTime();
+        return now - nextLeaseExpiryNanos >= 0 && expireLeases(now) > 0;
+    }
+
+    // Only one thread sweeps at a time; the others carry on rather than wait for it.
+    private int expireLeases(long now) {
+        if (!sweepingLeases.compareAndSet(false, true)) {
+            return 0;
         }
+        int expired = 0;
+        try {
+            nextLeaseSweepNanos = now + LEASE_SWEEP_INTERVAL_NANOS;
+            CopyLease lease;
+            // Drop the new leases that have ended and move the slow ones on; those behind are younger
+            while ((lease = newLeases.peek()) != null && (!lease.isActive() || now - lease.getTakenNanos() >= LEASE_SWEEP_INTERVAL_NANOS)) {
+                newLeases.poll();
+                if (lease.isActive()) {
+                    slowLeases.addLast(lease);
+                }
+            }
+            while ((lease = slowLeases.peekFirst()) != null) {
+                if (lease.isActive() && lease.getDeadlineNanos() - now > 0) {
+                    break;
+                }
+                slowLeases.pollFirst();
+                if (lease.finish(CopyLease.State.EXPIRED) && stock.releaseReserved(lease.getBook().getIsbnKey())) {
+                    expired++;
+                    log.warn("A reserved copy of '%s' was not issued in time and is back on the shelf.",
+                            lease.getBook().getTitle());
+                    leaseExpiryListener.accept(lease.getBook());
+                }
+            }
+            // The oldest slow lease, or a new one taken just after this sweep's threshold, expires first
+            lease = slowLeases.peekFirst();
+            nextLeaseExpiryNanos = lease != null ? lease.getDeadlineNanos() : now - LEASE_SWEEP_INTERVAL_NANOS + leaseNanos;
+        } finally {
+            sweepingLeases.set(false);
+        }
+        return expired;
     }
 
+    // --- Copies set aside for holds ---
+    // Reserved like a lease, so they count neither as on the shelf nor on loan, but without a deadline:
+    // the hold's pickup window decides how long they stay aside.
+
+    /**
+     * Takes a copy off the shelf and sets it aside, e.g. for a patron's hold.
+     * @param book The book.
+     * @return true if a copy was available.
+     */
+    public boolean setAside(Book book) {
+        boolean reserved = stock.tryReserve(book.getIsbnKey());
+        metrics.count(OperationType.BORROW_COPY, reserved);
+        return reserved;
+    }
+
+    /**
+     * Sets aside a copy that was on loan and has just come back, instead of putting it on the shelf.
+     * @param book The book.
+     * @return true if a copy was on loan.
+     */
+    public boolean setAsideReturned(Book book) {
+        return stock.reserveReturned(book.getIsbnKey());
+    }
+
+    /**
+     * Lends a copy that was set aside, once it has been issued to the patron it was kept for.
+     * @param book The book.
+     * @return true if a copy was set aside.
+     */
+    public boolean lendSetAside(Book book) {
+        return stock.commitReserved(book.getIsbnKey());
+    }
+
+    /**
+     * Puts a copy that was set aside back on the shelf, e.g. when nobody collected it.
+     * @param book The book.
+     * @return true if a copy was set aside.
+     */
+    public boolean shelveSetAside(Book book) {
+        return stock.releaseReserved(book.getIsbnKey());
+    }
 
     // --- Search Methods ---
 
@@ -88,34 +562,190 @@ public class BookInventory {
     }
 
     public List<Book> getAllByTitle(String title) {
-        return booksByIsbn.values().stream()
-                .filter(book -> book.getTitle().equalsIgnoreCase(title))
-                .collect(Collectors.toList());
+        long start = metrics.startTimer(OperationType.SEARCH);
+        return recordSearch(start, toBooks(titleIndex.findExact(title)));
     }
 
     public List<Book> getAllByAuthor(String author) {
-        return booksByIsbn.values().stream()
-                .filter(book -> book.getAuthor().equalsIgnoreCase(author))
-                .collect(Collectors.toList());
+        long start = metrics.startTimer(OperationType.SEARCH);
+        return recordSearch(start, toBooks(authorIndex.findExact(author)));
+    }
+
+    /**
+     * Searches titles word by word. Every word must match, and the last one may be a prefix
+     * (e.g. "great gat" finds "The Great Gatsby").
+     * @param query The words to search for.
+     * @return The matching books, best match first.
+     */
+    public List<Book> searchByTitle(String query) {
+        long start = metrics.startTimer(OperationType.SEARCH);
+        return recordSearch(start, toBooks(titleIndex.search(query)));
+    }
+
+    /**
+     * Searches authors word by word, with the same rules as {@link #searchByTitle(String)}.
+     * @param query The words to search for.
+     * @return The matching books, best match first.
+     */
+    public List<Book> searchByAuthor(String query) {
+        long start = metrics.startTimer(OperationType.SEARCH);
+        return recordSearch(start, toBooks(authorIndex.search(query)));
+    }
+
+    /**
+     * Finds the books whose titles are closest to one that may be misspelled, e.g. "pride and predjudice",
+     * for when {@link #getAllByTitle(String)} and {@link #searchByTitle(String)} find nothing.
+     * @param title The title as typed.
+     * @param limit The most books to return.
+     * @return The closest books, best match first.
+     */
+    public List<BookMatch> findClosestTitles(String title, int limit) {
+        long start = metrics.startTimer(OperationType.SEARCH);
+        List<BookMatch> matches = toMatches(titleTrigrams.findClosest(title, limit));
+        metrics.record(OperationType.SEARCH, start, true);
+        return matches;
+    }
+
+    /**
+     * Finds the books whose authors are closest to one that may be misspelled, e.g. "jane austin".
+     * @param author The author as typed.
+     * @param limit The most books to return.
+     * @return The closest books, best match first.
+     */
+    public List<BookMatch> findClosestAuthors(String author, int limit) {
+        long start = metrics.startTimer(OperationType.SEARCH);
+        List<BookMatch> matches = toMatches(authorTrigrams.findClosest(author, limit));
+        metrics.record(OperationType.SEARCH, start, true);
+        return matches;
     }
 
     public List<Book> getAllByPubYear(int year) {
-        return booksByIsbn.values().stream()
-                .filter(book -> book.getPubYear() == year)
-                .collect(Collectors.toList());
+        return query(new CatalogQuery().publishedIn(year));
+    }
+
+    /**
+     * Finds the books matching every predicate of the query, starting from the most selective index.
+     * @param query The predicates, ordering and page to return.
+     * @return The matching books in the requested order.
+     */
+    public List<Book> query(CatalogQuery query) {
+        if (query.isAvailableOnly()) {
+            expireDueLeases();
+        }
+        long start = metrics.startTimer(OperationType.SEARCH);
+        return recordSearch(start, queryPlanner.execute(query));
     }
     
+    public int getBookCount() {
+        return booksByIsbn.size();
+    }
+
     public List<Book> getAllBooks() {
         return new ArrayList<>(booksByIsbn.values());
     }
 
+    /**
+     * Lists the catalog in ISBN order, one page at a time, with each book's counts read alongside it.
+     * Only the requested page is materialised, so listing a large catalog needs little memory.
+     * @param cursor The cursor from the previous page, or null to start from the beginning.
+     * @param pageSize The maximum number of rows to return.
+     * @return The page, with the cursor for the next one.
+     * @throws IllegalArgumentException if the page size is not positive or the cursor is malformed.
+     */
+    public CatalogPage listBooks(String cursor, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive.");
+        }
+        Map<String, CatalogEntry> remaining = cursor == null
+                ? catalog
+                : catalog.tailMap(CatalogPage.decodeCursor(cursor), false);
+        expireDueLeases();
+        List<InventoryRow> rows = new ArrayList<>(Math.min(pageSize, 1024));
+        String lastIsbn = null;
+        for (Map.Entry<String, CatalogEntry> entry : remaining.entrySet()) {
+            if (rows.size() == pageSize) {
+                return new CatalogPage(rows, CatalogPage.encodeCursor(lastIsbn));
+            }
+            long counts = counts(entry.getValue().key);
+            rows.add(row(entry.getValue().book, counts));
+            lastIsbn = entry.getKey();
+        }
+        return new CatalogPage(rows, null);
+    }
+
+    // A search that finds nothing still succeeded.
+    private List<Book> recordSearch(long start, List<Book> results) {
+        metrics.record(OperationType.SEARCH, start, true);
+        return results;
+    }
+
+    private List<Book> toBooks(List<String> isbns) {
+        List<Book> books = new ArrayList<>(isbns.size());
+        for (String isbn : isbns) {
+            books.add(booksByIsbn.get(isbn));
+        }
+        return books;
+    }
+
+    private List<BookMatch> toMatches(List<TrigramIndex.Match> matches) {
+        List<BookMatch> books = new ArrayList<>(matches.size());
+        for (TrigramIndex.Match match : matches) {
+            Book book = booksByIsbn.get(match.getIsbn());
+            // Skips a book removed since the index was read
+            if (book != null) {
+                books.add(new BookMatch(book, match.getDistance(), match.getScore()));
+            }
+        }
+        return books;
+    }
+
     // --- Getters for inventory counts ---
 
     public int getAvailableCopiesCount(String isbn) {
-        return availableCopies.getOrDefault(isbn, 0);
+        expireDueLeases();
+        return StockCounter.available(counts(IsbnCodec.toKey(isbn)));
+    }
+
+    /**
+     * @return The number of copies held back for issues that are being paid for and for ready holds.
+     */
+    public int getReservedCopiesCount(String isbn) {
+        expireDueLeases();
+        return StockCounter.reserved(counts(IsbnCodec.toKey(isbn)));
     }
 
     public int getBorrowedCopiesCount(String isbn) {
-        return borrowedCopies.getOrDefault(isbn, 0);
+        return StockCounter.borrowed(counts(IsbnCodec.toKey(isbn)));
+    }
+
+    /**
+     * @return The number of copies owned (available, reserved and borrowed), read atomically.
+     */
+    public int getTotalCopiesCount(String isbn) {
+        long counts = counts(IsbnCodec.toKey(isbn));
+        return StockCounter.available(counts) + StockCounter.reserved(counts) + StockCounter.borrowed(counts);
+    }
+
+    private static InventoryRow row(Book book, long counts) {
+        return new InventoryRow(book, StockCounter.available(counts), StockCounter.reserved(counts), StockCounter.borrowed(counts));
+    }
+
+    // Both counts of an ISBN, packed; zero for unknown ISBNs.
+    private long counts(long key) {
+        long counts = stock.snapshot(key);
+        return counts == StockTable.ABSENT ? 0 : counts;
+    }
+
+    /**
+     * A book and its stock key, stored together in the ISBN-ordered catalog.
+     */
+    private static final class CatalogEntry {
+        final Book book;
+        final long key;
+
+        CatalogEntry(Book book, long key) {
+            this.book = book;
+            this.key = key;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,271 @@
+package main.java.com.siddharth.librarysystem.manager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import main.java.com.siddharth.librarysystem.entity.Book;
+import main.java.com.siddharth.librarysystem.entity.IsbnCodec;
+import main.java.com.siddharth.librarysystem.index.TokenIndex;
+import main.java.com.siddharth.librarysystem.index.YearIndex;
+import main.java.com.siddharth.librarysystem.logging.EventLogger;
+import main.java.com.siddharth.librarysystem.logging.Level;
+import main.java.com.siddharth.librarysystem.query.CatalogQuery;
+import main.java.com.siddharth.librarysystem.query.SortOrder;
+
+/**
+ * Runs {@link CatalogQuery} conjunctions against the inventory's indexes.
+ *
+ * The planner estimates how many books each indexed predicate matches, fetches the candidates of the
+ * most selective one and intersects them with the other indexes that are about as small. Predicates
+ * whose index would be much larger than the candidate set are checked book by book instead, which is
+ * cheaper than materialising a big posting list just to throw most of it away. Availability has no
+ * index and is always checked per book.
+ *
+ * Queries ordered by year whose most selective predicate is the year range walk the year index in
+ * order and stop as soon as the requested page is full.
+ */
+class CatalogQueryPlanner {
+
+    private static final EventLogger log = EventLogger.forClass(CatalogQueryPlanner.class);
+
+    // Another index is intersected only if it is at most this many times larger than the candidate set.
+    private static final int INTERSECT_FACTOR = 4;
+
+    private final Map<String, Book> booksByIsbn;
+    private final StockTable stock;
+    private final TokenIndex titleIndex;
+    private final TokenIndex authorIndex;
+    private final YearIndex yearIndex;
+
+    CatalogQueryPlanner(Map<String, Book> booksByIsbn, StockTable stock,
+                        TokenIndex titleIndex, TokenIndex authorIndex, YearIndex yearIndex) {
+        this.booksByIsbn = booksByIsbn;
+        this.stock = stock;
+        this.titleIndex = titleIndex;
+        this.authorIndex = authorIndex;
+        this.yearIndex = yearIndex;
+    }
+
+    /**
+     * Runs a query.
+     * @param query The predicates, ordering and page to return.
+     * @return The matching books in the requested order, at most {@code limit} of them.
+     */
+    List<Book> execute(CatalogQuery query) {
+        if (query.getLimit() == 0) {
+            return Collections.emptyList();
+        }
+        List<String> titleTokens = tokensOf(query.getTitle());
+        List<String> authorTokens = tokensOf(query.getAuthor());
+        // A predicate with no words in it (e.g. only punctuation) matches nothing, as in the word searches;
+        // dropping it would turn the query into a scan of the whole catalog.
+        if ((query.getTitle() != null && titleTokens.isEmpty()) || (query.getAuthor() != null && authorTokens.isEmpty())) {
+            logPlan(query, "nothing (a text predicate has no words)", Collections.emptyList(), Collections.emptyList());
+            return Collections.emptyList();
+        }
+        List<IndexAccess> accesses = new ArrayList<>(3);
+        if (!titleTokens.isEmpty()) {
+            accesses.add(new IndexAccess("title", titleIndex.estimate(titleTokens),
+                    () -> titleIndex.findAll(titleTokens),
+                    isbn -> titleIndex.matches(isbn, titleTokens)));
+        }
+        if (!authorTokens.isEmpty()) {
+            accesses.add(new IndexAccess("author", authorIndex.estimate(authorTokens),
+                    () -> authorIndex.findAll(authorTokens),
+                    isbn -> authorIndex.matches(isbn, authorTokens)));
+        }
+        IndexAccess yearAccess = null;
+        if (query.hasYearRange()) {
+            int from = query.getFromYear();
+            int to = query.getToYear();
+            yearAccess = new IndexAccess("pubYear", yearIndex.count(from, to),
+                    () -> yearIndex.findBetween(from, to),
+                    isbn -> {
+                        Book book = booksByIsbn.get(isbn);
+                        return book != null && book.getPubYear() >= from && book.getPubYear() <= to;
+                    });
+            accesses.add(yearAccess);
+        }
+        accesses.sort(Comparator.comparingInt(access -> access.estimate));
+
+        List<Predicate<String>> filters = new ArrayList<>(accesses.size() + 1);
+        if (query.isAvailableOnly()) {
+            // A single map lookup, so it goes before the text checks.
+            filters.add(isbn -> {
+                long counts = stock.snapshot(IsbnCodec.toKey(isbn));
+                return counts != StockTable.ABSENT && StockCounter.available(counts) > 0;
+            });
+        }
+
+        boolean byYear = query.getSortOrder() == SortOrder.PUB_YEAR || query.getSortOrder() == SortOrder.PUB_YEAR_DESC;
+        if (byYear && (accesses.isEmpty() || accesses.get(0) == yearAccess) && query.getLimit() != Integer.MAX_VALUE) {
+            for (IndexAccess access : accesses) {
+                if (access != yearAccess) {
+                    filters.add(access.verify);
+                }
+            }
+            logPlan(query, "ordered pubYear scan", Collections.emptyList(), filters);
+            return scanByYear(query, filters);
+        }
+
+        Collection<String> candidates;
+        List<IndexAccess> intersected = new ArrayList<>();
+        if (accesses.isEmpty()) {
+            candidates = new ArrayList<>(booksByIsbn.keySet());
+        } else {
+            Set<String> driving = accesses.get(0).fetch.get();
+            for (int i = 1; i < accesses.size(); i++) {
+                IndexAccess access = accesses.get(i);
+                if (driving.isEmpty()) {
+                    break;
+                }
+                if ((long) access.estimate <= (long) driving.size() * INTERSECT_FACTOR) {
+                    driving.retainAll(access.fetch.get());
+                    intersected.add(access);
+                } else {
+                    filters.add(access.verify);
+                }
+            }
+            candidates = driving;
+        }
+        logPlan(query, accesses.isEmpty() ? "full scan" : accesses.get(0).name, intersected, filters);
+
+        List<Row> rows = new ArrayList<>(candidates.size());
+        for (String isbn : candidates) {
+            if (passes(isbn, filters)) {
+                Book book = booksByIsbn.get(isbn);
+                if (book != null) {
+                    rows.add(new Row(book, query.getSortOrder()));
+                }
+            }
+        }
+        rows.sort(Row.ORDER);
+
+        int from = Math.min(query.getOffset(), rows.size());
+        int to = (int) Math.min((long) from + query.getLimit(), rows.size());
+        List<Book> page = new ArrayList<>(to - from);
+        for (Row row : rows.subList(from, to)) {
+            page.add(row.book);
+        }
+        return page;
+    }
+
+    private List<Book> scanByYear(CatalogQuery query, List<Predicate<String>> filters) {
+        boolean descending = query.getSortOrder() == SortOrder.PUB_YEAR_DESC;
+        int toSkip = query.getOffset();
+        int limit = query.getLimit();
+        List<Book> page = new ArrayList<>(Math.min(limit, 1024));
+        for (Set<String> isbns : yearIndex.range(query.getFromYear(), query.getToYear(), descending)) {
+            // Within one year, ties are broken by ISBN like everywhere else.
+            List<String> sorted = new ArrayList<>(isbns);
+            Collections.sort(sorted);
+            for (String isbn : sorted) {
+                if (!passes(isbn, filters)) {
+                    continue;
+                }
+                Book book = booksByIsbn.get(isbn);
+                if (book == null) {
+                    continue;
+                }
+                if (toSkip > 0) {
+                    toSkip--;
+                    continue;
+                }
+                page.add(book);
+                if (page.size() == limit) {
+                    return page;
+                }
+            }
+        }
+        return page;
+    }
+
+    private static boolean passes(String isbn, List<Predicate<String>> filters) {
+        for (Predicate<String> filter : filters) {
+            if (!filter.test(isbn)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<String> tokensOf(String text) {
+        return text == null ? Collections.emptyList() : TokenIndex.queryTokens(text);
+    }
+
+    private static void logPlan(CatalogQuery query, String driver, List<IndexAccess> intersected,
+                                List<Predicate<String>> filters) {
+        if (log.isEnabled(Level.DEBUG)) {
+            List<String> names = new ArrayList<>();
+            intersected.forEach(access -> names.add(access.name));
+            log.debug("Query plan for %s: %s", query,
+                    "drive from " + driver + ", intersect " + names + ", " + filters.size() + " per-book checks");
+        }
+    }
+
+    /**
+     * One indexed predicate: its estimated size, how to fetch its matches and how to check a single book.
+     */
+    private static final class IndexAccess {
+        final String name;
+        final int estimate;
+        final Supplier<Set<String>> fetch;
+        final Predicate<String> verify;
+
+        IndexAccess(String name, int estimate, Supplier<Set<String>> fetch, Predicate<String> verify) {
+            this.name = name;
+            this.estimate = estimate;
+            this.fetch = fetch;
+            this.verify = verify;
+        }
+    }
+
+    /**
+     * A matching book with its sort key read once, so concurrent edits can't upset the sort.
+     */
+    private static final class Row {
+        static final Comparator<Row> ORDER = Comparator.<Row, String>comparing(row -> row.textKey)
+                .thenComparingInt(row -> row.yearKey)
+                .thenComparing(row -> row.isbn);
+
+        final Book book;
+        final String isbn;
+        final String textKey;
+        final int yearKey;
+
+        Row(Book book, SortOrder order) {
+            this.book = book;
+            this.isbn = book.getIsbn();
+            switch (order) {
+                case TITLE -> {
+                    this.textKey = keyOf(book.getTitle());
+                    this.yearKey = 0;
+                }
+                case AUTHOR -> {
+                    this.textKey = keyOf(book.getAuthor());
+                    this.yearKey = 0;
+                }
+                case PUB_YEAR -> {
+                    this.textKey = "";
+                    this.yearKey = book.getPubYear();
+                }
+                default -> {
+                    this.textKey = "";
+                    this.yearKey = -book.getPubYear();
+                }
+            }
+        }
+
+        private static String keyOf(String text) {
+            return text == null ? "" : text.toLowerCase(Locale.ROOT);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package main.java.com.siddharth.librarysystem.manager;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Lets a snapshot read the library between changes rather than in the middle of one.
+ *
+ * Every change that is journaled (additions, detail updates, registrations, issues and returns) passes the
+ * gate from writing its record until it is applied in memory. A snapshot closes the gate while it copies
+ * the state: it waits for the changes already inside and holds new ones back until it is done, so what it
+ * copies is exactly what the journal's records so far add up to. Changes share the gate and don't wait for
+ * each other. A StampedLock rather than synchronized, so virtual threads waiting at the gate aren't pinned.
+ */
+public final class ChangeGate {
+
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * Passes the gate for one change; must not be nested.
+     * @return The stamp to hand back to {@link #exit(long)}.
+     */
+    long enter() {
+        return lock.readLock();
+    }
+
+    void exit(long stamp) {
+        lock.unlockRead(stamp);
+    }
+
+    /**
+     * Runs the given read with no change in progress.
+     * Changes wait meanwhile, so it should only copy what it needs and do the slow work afterwards.
+     * @param read The read, e.g. copying the catalog, patrons and tickets and noting the journal position.
+     */
+    public void closeWhile(Runnable read) {
+        long stamp = lock.writeLock();
+        try {
+            read.run();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+}
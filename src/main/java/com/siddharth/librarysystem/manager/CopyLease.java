@@ -0,0 +1,77 @@
+package main.java.com.siddharth.librarysystem.manager;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+import main.java.com.siddharth.librarysystem.entity.Book;
+
+/**
+ * A copy of a book held back from the shelf while its issue is paid for, from
+ * {@link BookInventory#reserve(Book)}. The copy counts as reserved until the lease is committed
+ * (the copy is borrowed), released (it goes back on the shelf) or expires, which also puts it back.
+ *
+ * Exactly one of those happens: each is a single compare-and-set from {@link State#ACTIVE}, so a
+ * payment that completes just as its lease runs out either commits or finds the lease expired, never both.
+ */
+public final class CopyLease {
+
+    public enum State {
+        ACTIVE,
+        COMMITTED,
+        RELEASED,
+        EXPIRED
+    }
+
+    private static final VarHandle STATE;
+
+    static {
+        try {
+            STATE = MethodHandles.lookup().findVarHandle(CopyLease.class, "state", State.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Book book;
+    // Both in System.nanoTime() terms.
+    private final long takenNanos;
+    private final long deadlineNanos;
+    private volatile State state = State.ACTIVE;
+    // The lease taken after this one, while both wait in the LeaseQueue.
+    CopyLease next;
+
+    CopyLease(Book book, long takenNanos, long deadlineNanos) {
+        this.book = book;
+        this.takenNanos = takenNanos;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public Book getBook() {
+        return book;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isActive() {
+        return state == State.ACTIVE;
+    }
+
+    long getTakenNanos() {
+        return takenNanos;
+    }
+
+    long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    /**
+     * Ends the lease, unless it has already ended.
+     * @param outcome How it ended.
+     * @return true if this call ended it, false if it had already ended.
+     */
+    boolean finish(State outcome) {
+        return STATE.compareAndSet(this, State.ACTIVE, outcome);
+    }
+}
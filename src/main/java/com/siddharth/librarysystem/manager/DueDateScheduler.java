@@ -0,0 +1,264 @@
+package main.java.com.siddharth.librarysystem.manager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import main.java.com.siddharth.librarysystem.entity.LendingTicket;
+import main.java.com.siddharth.librarysystem.entity.PaymentStatus;
+import main.java.com.siddharth.librarysystem.logging.EventLogger;
+
+/**
+ * Tracks when active loans fall due and moves them to {@link PaymentStatus#OVERDUE}.
+ *
+ * Loans are kept in buckets keyed by their due day, in a sorted map. Advancing the clock only visits
+ * the buckets whose day has passed, so each loan is touched once when it becomes overdue instead of
+ * every loan being checked every day. "Due in the next N days" reads the buckets in that range, and
+ * "overdue now" reads a separate set of overdue loans, so both cost time proportional to the result.
+ *
+ * Fines accrue incrementally: when the day changes, every overdue loan is charged for the days that
+ * passed, and a running total of outstanding fines is kept alongside.
+ *
+ * The scheduler catches up to the current date before every operation, so its answers are correct
+ * even if {@link #start(Duration)} is never called; the background check only makes status changes
+ * happen on time when nobody is using the library.
+ */
+public class DueDateScheduler implements AutoCloseable {
+
+    private static final EventLogger log = EventLogger.forClass(DueDateScheduler.class);
+
+    private final Clock clock;
+    private final double finePerDay;
+
+    // Loans that are not overdue yet: due day (epoch day) -> ticket ID (see getIdValue()) -> ticket.
+    private final TreeMap<Long, Map<Long, LendingTicket>> dueByDay = new TreeMap<>();
+    // Loans past their due day, by ticket ID, in the order they became overdue.
+    private final Map<Long, LendingTicket> overdue = new LinkedHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private long currentDay;
+    private double outstandingFines;
+
+    private ScheduledExecutorService checker;
+
+    /**
+     * @param clock The clock that decides what "today" is.
+     * @param finePerDay The fine charged for each day a loan is overdue.
+     */
+    public DueDateScheduler(Clock clock, double finePerDay) {
+        this.clock = clock;
+        this.finePerDay = finePerDay;
+        this.currentDay = LocalDate.now(clock).toEpochDay();
+    }
+
+    /**
+     * Starts a background thread that advances to the current date at the given interval.
+     * @param checkInterval How often to check whether the day has changed.
+     */
+    public void start(Duration checkInterval) {
+        lock.lock();
+        try {
+            if (checker != null) {
+                return;
+            }
+            checker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "due-date-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long millis = checkInterval.toMillis();
+            checker.scheduleAtFixedRate(this::advance, millis, millis, TimeUnit.MILLISECONDS);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // --- Scheduling ---
+
+    /**
+     * Starts tracking an active loan. A loan that is already past its due day becomes overdue at once.
+     * @param ticket The ticket to track.
+     */
+    public void schedule(LendingTicket ticket) {
+        lock.lock();
+        try {
+            advanceLocked(today());
+            long dueDay = ticket.getReturnDate().toEpochDay();
+            if (dueDay < currentDay) {
+                markOverdue(ticket, currentDay - dueDay);
+            } else {
+                dueByDay.computeIfAbsent(dueDay, k -> new LinkedHashMap<>()).put(ticket.getIdValue(), ticket);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops tracking a loan, e.g. because the book was returned.
+     * The loan is first brought up to date, so its status and fine are final when this returns.
+     * @param ticket The ticket to stop tracking.
+     * @return true if the loan was being tracked.
+     */
+    public boolean cancel(LendingTicket ticket) {
+        lock.lock();
+        try {
+            advanceLocked(today());
+            if (overdue.remove(ticket.getIdValue()) != null) {
+                outstandingFines -= ticket.getFineAmount();
+                return true;
+            }
+            long dueDay = ticket.getReturnDate().toEpochDay();
+            Map<Long, LendingTicket> bucket = dueByDay.get(dueDay);
+            if (bucket == null || bucket.remove(ticket.getIdValue()) == null) {
+                return false;
+            }
+            if (bucket.isEmpty()) {
+                dueByDay.remove(dueDay);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Advances to the current date of the clock.
+     * @return The number of loans that became overdue.
+     */
+    public int advance() {
+        lock.lock();
+        try {
+            return advanceLocked(today());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int advanceLocked(long today) {
+        if (today <= currentDay) {
+            return 0;
+        }
+        long elapsedDays = today - currentDay;
+        // Charge the loans that were already overdue for the days that passed.
+        if (!overdue.isEmpty()) {
+            double charge = finePerDay * elapsedDays;
+            for (LendingTicket ticket : overdue.values()) {
+                ticket.setFineAmount(ticket.getFineAmount() + charge);
+            }
+            outstandingFines += charge * overdue.size();
+        }
+        // Loans are overdue once their due day has passed, i.e. due day < today.
+        int newlyOverdue = 0;
+        Iterator<Map.Entry<Long, Map<Long, LendingTicket>>> buckets = dueByDay.headMap(today, false).entrySet().iterator();
+        while (buckets.hasNext()) {
+            Map.Entry<Long, Map<Long, LendingTicket>> bucket = buckets.next();
+            for (LendingTicket ticket : bucket.getValue().values()) {
+                markOverdue(ticket, today - bucket.getKey());
+                newlyOverdue++;
+            }
+            buckets.remove();
+        }
+        currentDay = today;
+        if (newlyOverdue > 0) {
+            log.debug("%d loans became overdue.", newlyOverdue);
+        }
+        return newlyOverdue;
+    }
+
+    private void markOverdue(LendingTicket ticket, long daysLate) {
+        double fine = finePerDay * daysLate;
+        ticket.setPaymentStatus(PaymentStatus.OVERDUE);
+        ticket.setFineAmount(ticket.getFineAmount() + fine);
+        outstandingFines += fine;
+        overdue.put(ticket.getIdValue(), ticket);
+    }
+
+    private long today() {
+        return LocalDate.now(clock).toEpochDay();
+    }
+
+    // --- Queries ---
+
+    /**
+     * @return The loans that are overdue right now, oldest first.
+     */
+    public List<LendingTicket> getOverdue() {
+        lock.lock();
+        try {
+            advanceLocked(today());
+            return new ArrayList<>(overdue.values());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Finds the loans due between today and the given number of days from now, both inclusive.
+     * @param days How many days ahead to look; 0 means loans due today.
+     * @return The loans in due date order.
+     */
+    public List<LendingTicket> getDueWithin(int days) {
+        if (days < 0) {
+            throw new IllegalArgumentException("Days must not be negative.");
+        }
+        lock.lock();
+        try {
+            advanceLocked(today());
+            List<LendingTicket> result = new ArrayList<>();
+            NavigableMap<Long, Map<Long, LendingTicket>> range = dueByDay.subMap(currentDay, true, currentDay + days, true);
+            for (Map<Long, LendingTicket> bucket : range.values()) {
+                result.addAll(bucket.values());
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getOverdueCount() {
+        lock.lock();
+        try {
+            advanceLocked(today());
+            return overdue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The fines accrued so far on loans that are still out.
+     */
+    public double getOutstandingFines() {
+        lock.lock();
+        try {
+            advanceLocked(today());
+            return outstandingFines;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (checker != null) {
+                checker.shutdownNow();
+                checker = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
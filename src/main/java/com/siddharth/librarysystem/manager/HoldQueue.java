@@ -0,0 +1,464 @@
+package main.java.com.siddharth.librarysystem.manager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import main.java.com.siddharth.librarysystem.entity.Book;
+import main.java.com.siddharth.librarysystem.entity.Hold;
+import main.java.com.siddharth.librarysystem.entity.HoldPriority;
+import main.java.com.siddharth.librarysystem.entity.HoldStatus;
+import main.java.com.siddharth.librarysystem.entity.Patron;
+import main.java.com.siddharth.librarysystem.logging.EventLogger;
+
+/**
+ * Queues patrons for copies of popular titles, so they are told when a copy is theirs instead of
+ * polling until one is on the shelf.
+ *
+ * Each ISBN has one FIFO queue per {@link HoldPriority}; higher priorities are served first, and holds of
+ * the same priority in the order they were placed. A copy that comes back while someone is waiting goes
+ * straight to the next holder instead of to the shelf: the inventory sets it aside, counting it as reserved
+ * rather than on the shelf or on loan, so nobody else can take it, and the hold becomes {@link HoldStatus#READY}
+ * until its pickup deadline. A copy that isn't picked up in time goes to the next holder, or back to the shelf
+ * if nobody is waiting.
+ *
+ * Cancelled holds are only marked and stay in their queue until serving reaches them, and a queue is
+ * compacted once it holds more cancelled holds than waiting ones, so placing, cancelling and serving are
+ * O(1) amortized however long the queue is. Ready holds are kept in the order they became ready, which is
+ * also the order of their deadlines because the pickup window is fixed, so expiring them only looks at the
+ * front of that queue.
+ *
+ * Holders are notified through {@link Hold#whenReady()}. The futures are completed after the lock is
+ * released, so their callbacks may call back into the queue.
+ */
+public class HoldQueue implements AutoCloseable {
+
+    private static final EventLogger log = EventLogger.forClass(HoldQueue.class);
+
+    private final BookInventory inventory;
+    private final Clock clock;
+    private final Duration pickupWindow;
+    private final int maxHoldsPerPatron;
+
+    // Waiting holds by ISBN; an ISBN is removed once nobody is waiting for it.
+    private final Map<String, TitleQueue> waiting = new HashMap<>();
+    // Waiting and ready holds: by hold ID, and by patron ID -> ISBN (IDs as numbers, see getIdValue()).
+    private final Map<Long, Hold> openById = new HashMap<>();
+    private final Map<Long, Map<String, Hold>> openByPatron = new HashMap<>();
+    // Ready holds, earliest deadline first; holds collected or cancelled meanwhile are skipped.
+    private final ArrayDeque<Hold> awaitingPickup = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private ScheduledExecutorService checker;
+
+    /**
+     * @param inventory The inventory copies are taken from and returned to.
+     * @param clock The clock that sets and checks pickup deadlines.
+     * @param pickupWindow How long a copy is kept for its holder.
+     * @param maxHoldsPerPatron How many waiting or ready holds a patron may have at once.
+     */
+    public HoldQueue(BookInventory inventory, Clock clock, Duration pickupWindow, int maxHoldsPerPatron) {
+        this.inventory = inventory;
+        this.clock = clock;
+        this.pickupWindow = pickupWindow;
+        this.maxHoldsPerPatron = maxHoldsPerPatron;
+    }
+
+    /**
+     * Starts a background thread that expires uncollected holds at the given interval.
+     * @param checkInterval How often to look for passed pickup deadlines.
+     */
+    public void start(Duration checkInterval) {
+        lock.lock();
+        try {
+            if (checker != null) {
+                return;
+            }
+            checker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "hold-expiry");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long millis = checkInterval.toMillis();
+            checker.scheduleAtFixedRate(this::expire, millis, millis, TimeUnit.MILLISECONDS);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // --- Holds ---
+
+    /**
+     * Puts a patron in the queue for a book. If nobody is waiting and a copy is on the shelf,
+     * the copy is set aside at once and the hold is ready straight away.
+     * @param book The book.
+     * @param patron The patron.
+     * @param priority Where in the queue the hold goes.
+     * @return The hold; the patron's existing hold if they already have one on this book,
+     *         or null if they have reached the hold limit.
+     */
+    public Hold place(Book book, Patron patron, HoldPriority priority) {
+        List<Hold> changed = new ArrayList<>();
+        Hold hold;
+        lock.lock();
+        try {
+            expireLocked(changed);
+            Map<String, Hold> patronHolds = openByPatron.get(patron.getIdValue());
+            if (patronHolds != null) {
+                Hold existing = patronHolds.get(book.getIsbn());
+                if (existing != null) {
+                    return existing;
+                }
+                if (patronHolds.size() >= maxHoldsPerPatron) {
+                    log.warn("%s already has %d holds; cancel one to place another.", patron.getName(), patronHolds.size());
+                    return null;
+                }
+            }
+            hold = new Hold(book, patron, priority, LocalDateTime.now(clock));
+            open(hold);
+            if (!waiting.containsKey(book.getIsbn()) && inventory.setAside(book)) {
+                makeReady(hold, changed);
+            } else {
+                waiting.computeIfAbsent(book.getIsbn(), k -> new TitleQueue()).add(hold);
+                log.info("Hold placed for %s on '%s'.", patron.getName(), book.getTitle());
+            }
+        } finally {
+            lock.unlock();
+        }
+        notifyHolders(changed);
+        return hold;
+    }
+
+    /**
+     * Cancels a waiting or ready hold. The copy set aside for a ready hold goes to the next holder.
+     * @param hold The hold.
+     * @return true if the hold was still open.
+     */
+    public boolean cancel(Hold hold) {
+        List<Hold> changed = new ArrayList<>();
+        lock.lock();
+        try {
+            HoldStatus status = hold.getStatus();
+            if (status == HoldStatus.WAITING) {
+                TitleQueue queue = waiting.get(hold.getBook().getIsbn());
+                hold.setStatus(HoldStatus.CANCELLED);
+                if (queue.cancelled()) {
+                    waiting.remove(hold.getBook().getIsbn());
+                }
+            } else if (status == HoldStatus.READY) {
+                hold.setStatus(HoldStatus.CANCELLED);
+                handOver(hold.getBook(), changed);
+            } else {
+                return false;
+            }
+            close(hold);
+            changed.add(hold);
+        } finally {
+            lock.unlock();
+        }
+        notifyHolders(changed);
+        return true;
+    }
+
+    /**
+     * Takes a returned copy: sets it aside for the next holder, or puts it back on the shelf if nobody is waiting.
+     * @param book The book whose copy came back; the copy must still be counted as borrowed.
+     */
+    public void release(Book book) {
+        List<Hold> changed = new ArrayList<>();
+        lock.lock();
+        try {
+            TitleQueue queue = waiting.get(book.getIsbn());
+            if (queue == null) {
+                inventory.markAsReturned(book);
+            } else if (inventory.setAsideReturned(book)) {
+                makeReady(next(book.getIsbn(), queue), changed);
+            }
+        } finally {
+            lock.unlock();
+        }
+        notifyHolders(changed);
+    }
+
+    /**
+     * Sets aside copies on the shelf for waiting holders, e.g. after new copies were added.
+     * @param book The book.
+     * @return The number of holds that became ready.
+     */
+    public int fill(Book book) {
+        List<Hold> changed = new ArrayList<>();
+        lock.lock();
+        try {
+            TitleQueue queue;
+            while ((queue = waiting.get(book.getIsbn())) != null && inventory.setAside(book)) {
+                makeReady(next(book.getIsbn(), queue), changed);
+            }
+        } finally {
+            lock.unlock();
+        }
+        notifyHolders(changed);
+        return changed.size();
+    }
+
+    /**
+     * Takes the patron's ready hold on a book, so the copy set aside for it can be issued.
+     * The copy stays set aside: lend it with {@link BookInventory#lendSetAside(Book)} once the issue went through,
+     * or give it back with {@link #restore(Hold)} if the issue fails.
+     * @param patron The patron.
+     * @param isbn The ISBN of the book.
+     * @return The hold, now collected, or null if the patron has no copy waiting.
+     */
+    public Hold collect(Patron patron, String isbn) {
+        lock.lock();
+        try {
+            Map<String, Hold> patronHolds = openByPatron.get(patron.getIdValue());
+            Hold hold = patronHolds == null ? null : patronHolds.get(isbn);
+            if (hold == null || hold.getStatus() != HoldStatus.READY) {
+                return null;
+            }
+            hold.setStatus(HoldStatus.COLLECTED);
+            close(hold);
+            return hold;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Makes a collected hold ready again after the issue failed, e.g. because payment was declined.
+     * The pickup deadline doesn't move; if it has passed, the copy goes to the next holder.
+     * The copy must still be set aside, not lent.
+     * @param hold The hold returned by {@link #collect(Patron, String)}.
+     */
+    public void restore(Hold hold) {
+        List<Hold> changed = new ArrayList<>();
+        lock.lock();
+        try {
+            if (hold.getStatus() != HoldStatus.COLLECTED) {
+                return;
+            }
+            if (hold.getPickupDeadline().isAfter(LocalDateTime.now(clock))) {
+                hold.setStatus(HoldStatus.READY);
+                open(hold);
+                // May sit behind later deadlines, so it can expire up to one pickup window late.
+                awaitingPickup.addLast(hold);
+            } else {
+                hold.setStatus(HoldStatus.EXPIRED);
+                handOver(hold.getBook(), changed);
+            }
+        } finally {
+            lock.unlock();
+        }
+        notifyHolders(changed);
+    }
+
+    /**
+     * Expires ready holds whose pickup deadline has passed, passing their copies on.
+     * @return The number of holds that expired.
+     */
+    public int expire() {
+        List<Hold> changed = new ArrayList<>();
+        int expired;
+        lock.lock();
+        try {
+            expired = expireLocked(changed);
+        } finally {
+            lock.unlock();
+        }
+        notifyHolders(changed);
+        return expired;
+    }
+
+    // --- Queries ---
+
+    /**
+     * @param holdId The hold ID, see {@link Hold#getIdValue()}.
+     * @return The waiting or ready hold with that ID, or null if there is none.
+     */
+    public Hold find(long holdId) {
+        lock.lock();
+        try {
+            return openById.get(holdId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param patron The patron.
+     * @return The patron's waiting and ready holds.
+     */
+    public List<Hold> getHolds(Patron patron) {
+        lock.lock();
+        try {
+            Map<String, Hold> patronHolds = openByPatron.get(patron.getIdValue());
+            return patronHolds == null ? new ArrayList<>() : new ArrayList<>(patronHolds.values());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param isbn The ISBN of the book.
+     * @return The number of patrons waiting for a copy.
+     */
+    public int getWaitingCount(String isbn) {
+        lock.lock();
+        try {
+            TitleQueue queue = waiting.get(isbn);
+            return queue == null ? 0 : queue.live;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (checker != null) {
+                checker.shutdownNow();
+                checker = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // --- Internals (called with the lock held) ---
+
+    private int expireLocked(List<Hold> changed) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        int expired = 0;
+        Hold hold;
+        while ((hold = awaitingPickup.peekFirst()) != null) {
+            if (hold.getStatus() != HoldStatus.READY) {
+                awaitingPickup.pollFirst(); // Collected or cancelled meanwhile
+                continue;
+            }
+            if (hold.getPickupDeadline().isAfter(now)) {
+                break;
+            }
+            awaitingPickup.pollFirst();
+            hold.setStatus(HoldStatus.EXPIRED);
+            close(hold);
+            expired++;
+            log.info("%s did not pick up '%s' in time; the hold has expired.", hold.getPatron().getName(), hold.getBook().getTitle());
+            handOver(hold.getBook(), changed);
+        }
+        return expired;
+    }
+
+    // Passes on a copy that is set aside.
+    private void handOver(Book book, List<Hold> changed) {
+        TitleQueue queue = waiting.get(book.getIsbn());
+        if (queue == null) {
+            inventory.shelveSetAside(book);
+            return;
+        }
+        makeReady(next(book.getIsbn(), queue), changed);
+    }
+
+    // The queue always has a waiting hold, or it would have been removed.
+    private Hold next(String isbn, TitleQueue queue) {
+        Hold hold = queue.poll();
+        if (queue.live == 0) {
+            waiting.remove(isbn);
+        }
+        return hold;
+    }
+
+    private void makeReady(Hold hold, List<Hold> changed) {
+        hold.setPickupDeadline(LocalDateTime.now(clock).plus(pickupWindow));
+        hold.setStatus(HoldStatus.READY);
+        awaitingPickup.addLast(hold);
+        changed.add(hold);
+        log.info("A copy of '%s' is ready for %s to pick up.", hold.getBook().getTitle(), hold.getPatron().getName());
+    }
+
+    private void open(Hold hold) {
+        openById.put(hold.getIdValue(), hold);
+        openByPatron.computeIfAbsent(hold.getPatron().getIdValue(), k -> new HashMap<>()).put(hold.getBook().getIsbn(), hold);
+    }
+
+    private void close(Hold hold) {
+        openById.remove(hold.getIdValue());
+        Map<String, Hold> patronHolds = openByPatron.get(hold.getPatron().getIdValue());
+        patronHolds.remove(hold.getBook().getIsbn());
+        if (patronHolds.isEmpty()) {
+            openByPatron.remove(hold.getPatron().getIdValue());
+        }
+    }
+
+    // Outside the lock: callbacks run on this thread and may use the queue.
+    private static void notifyHolders(List<Hold> changed) {
+        for (Hold hold : changed) {
+            hold.notifyHolder();
+        }
+    }
+
+    /**
+     * The holds waiting for one ISBN, a FIFO queue per priority.
+     */
+    private static final class TitleQueue {
+        // Below this many cancelled holds a queue is never compacted.
+        private static final int MIN_COMPACT = 16;
+
+        private final List<ArrayDeque<Hold>> byPriority = new ArrayList<>();
+        private int live;
+        private int cancelled;
+
+        TitleQueue() {
+            for (int i = 0; i < HoldPriority.values().length; i++) {
+                byPriority.add(new ArrayDeque<>());
+            }
+        }
+
+        void add(Hold hold) {
+            byPriority.get(hold.getPriority().ordinal()).addLast(hold);
+            live++;
+        }
+
+        /**
+         * @return The next waiting hold, or null if there is none.
+         */
+        Hold poll() {
+            for (ArrayDeque<Hold> queue : byPriority) {
+                Hold hold;
+                while ((hold = queue.pollFirst()) != null) {
+                    if (hold.getStatus() == HoldStatus.WAITING) {
+                        live--;
+                        return hold;
+                    }
+                    cancelled--;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Records that one of the queued holds was cancelled.
+         * @return true if no waiting holds are left.
+         */
+        boolean cancelled() {
+            live--;
+            cancelled++;
+            if (cancelled >= MIN_COMPACT && cancelled > live) {
+                for (ArrayDeque<Hold> queue : byPriority) {
+                    queue.removeIf(hold -> hold.getStatus() != HoldStatus.WAITING);
+                }
+                cancelled = 0;
+            }
+            return live == 0;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package main.java.com.siddharth.librarysystem.manager;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * The leases taken but not yet swept, oldest first: a linked queue threaded through the leases
+ * themselves, so adding one costs a single atomic swap and no node.
+ *
+ * Any number of threads may {@link #add(CopyLease)} at once, but only one thread at a time may
+ * {@link #peek()} and {@link #poll()}; {@link BookInventory} makes sure of that with its sweeping flag,
+ * which also makes each sweeper see where the previous one left off.
+ */
+final class LeaseQueue {
+
+    private static final VarHandle TAIL;
+    private static final VarHandle NEXT;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            TAIL = lookup.findVarHandle(LeaseQueue.class, "tail", CopyLease.class);
+            NEXT = lookup.findVarHandle(CopyLease.class, "next", CopyLease.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // The last lease taken off the queue (or a placeholder); the queue starts after it. Sweeper only.
+    private CopyLease head;
+    private volatile CopyLease tail;
+
+    LeaseQueue() {
+        head = new CopyLease(null, 0, 0);
+        tail = head;
+    }
+
+    void add(CopyLease lease) {
+        CopyLease previous = (CopyLease) TAIL.getAndSet(this, lease);
+        // Until this store lands the sweeper sees the queue end at previous, and picks the rest up next time
+        NEXT.setRelease(previous, lease);
+    }
+
+    /**
+     * @return The oldest lease, or null if there is none.
+     */
+    CopyLease peek() {
+        return (CopyLease) NEXT.getAcquire(head);
+    }
+
+    /**
+     * Removes the oldest lease.
+     * @return It, or null if there is none.
+     */
+    CopyLease poll() {
+        CopyLease next = (CopyLease) NEXT.getAcquire(head);
+        if (next != null) {
+            NEXT.setRelease(head, null); // Unlinks the old head, so it doesn't hold later leases alive
+            head = next;
+        }
+        return next;
+    }
+}
@@ -0,0 +1,68 @@
+package main.java.com.siddharth.librarysystem.manager;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import main.java.com.siddharth.librarysystem.entity.Book;
+import main.java.com.siddharth.librarysystem.entity.LendingTicket;
+
+/**
+ * The active loans of one patron, indexed by ticket ID and by ISBN,
+ * so a return finds and removes its ticket in constant time however many books the patron holds.
+ *
+ * A patron may hold several copies of the same ISBN; they are returned oldest first.
+ * All methods synchronize on this object and never block while holding it.
+ */
+final class PatronLoans {
+
+    // In issue order, so listings show loans the way they were made.
+    private final Map<Long, LendingTicket> byTicketId = new LinkedHashMap<>();
+    private final Map<String, ArrayDeque<LendingTicket>> byIsbn = new HashMap<>();
+
+    synchronized void add(LendingTicket ticket) {
+        byTicketId.put(ticket.getIdValue(), ticket);
+        byIsbn.computeIfAbsent(ticket.getBook().getIsbn(), k -> new ArrayDeque<>(1)).addLast(ticket);
+    }
+
+    /**
+     * Finds and removes the oldest active loan of the given ISBN in one step,
+     * so two desks can't both return the same loan.
+     * @return The removed ticket, or null if the patron has no loan of that ISBN.
+     */
+    synchronized LendingTicket removeOldest(String isbn) {
+        ArrayDeque<LendingTicket> tickets = byIsbn.get(isbn);
+        if (tickets == null) {
+            return null;
+        }
+        LendingTicket ticket = tickets.pollFirst();
+        if (tickets.isEmpty()) {
+            byIsbn.remove(isbn);
+        }
+        byTicketId.remove(ticket.getIdValue());
+        return ticket;
+    }
+
+    /**
+     * Puts back a ticket that was removed by {@link #removeOldest(String)} but could not be closed.
+     */
+    synchronized void restore(LendingTicket ticket) {
+        byTicketId.put(ticket.getIdValue(), ticket);
+        byIsbn.computeIfAbsent(ticket.getBook().getIsbn(), k -> new ArrayDeque<>(1)).addFirst(ticket);
+    }
+
+    synchronized List<LendingTicket> tickets() {
+        return new ArrayList<>(byTicketId.values());
+    }
+
+    synchronized List<Book> books() {
+        List<Book> books = new ArrayList<>(byTicketId.size());
+        for (LendingTicket ticket : byTicketId.values()) {
+            books.add(ticket.getBook());
+        }
+        return books;
+    }
+}
@@ -1,33 +1,103 @@
 package main.java.com.siddharth.librarysystem.manager;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import main.java.com.siddharth.librarysystem.entity.Book;
+import main.java.com.siddharth.librarysystem.entity.Hold;
+import main.java.com.siddharth.librarysystem.entity.HoldPriority;
 import main.java.com.siddharth.librarysystem.entity.LendingTicket;
 import main.java.com.siddharth.librarysystem.entity.Patron;
 import main.java.com.siddharth.librarysystem.entity.PaymentStatus;
+import main.java.com.siddharth.librarysystem.id.Ids;
+import main.java.com.siddharth.librarysystem.logging.EventLogger;
+import main.java.com.siddharth.librarysystem.metrics.LibraryMetrics;
+import main.java.com.siddharth.librarysystem.metrics.OperationType;
+import main.java.com.siddharth.librarysystem.payment.AsyncPaymentProcessor;
+import main.java.com.siddharth.librarysystem.persistence.HistoryRecord;
+import main.java.com.siddharth.librarysystem.persistence.LendingHistoryStore;
+import main.java.com.siddharth.librarysystem.persistence.LibraryJournal;
 import main.java.com.siddharth.librarysystem.payment.PaymentProcessor;
+import main.java.com.siddharth.librarysystem.payment.VirtualThreadPaymentProcessor;
 
 /**
  * Manages patrons, their lending activities, and payments.
  */
 public class PatronManager {
+
+    private static final EventLogger log = EventLogger.forClass(PatronManager.class);
+    private static final int LENDING_PERIOD_DAYS = 14;
+    private static final double ISSUE_PRICE = 5.0; // Example price
+    private static final double FINE_PER_DAY = 1.0; // Charged for each day a book is overdue
+    private static final int PICKUP_WINDOW_DAYS = 3; // How long a copy is kept for the patron whose hold it fills
+    private static final int MAX_HOLDS_PER_PATRON = 5;
+    // How long before its lease runs out a synchronous payment is given up on, at most.
+    private static final long PAYMENT_MARGIN_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    // IDs are keyed by their numeric value (see Patron.getIdValue()); text is parsed only in the find methods.
     // Maps Patron ID to Patron object
-    private final Map<String, Patron> patrons = new HashMap<>();
-    // Maps Patron ID to a list of their active lending tickets
-    private final Map<String, List<LendingTicket>> patronLendingHistory = new HashMap<>();
+    private final Map<Long, Patron> patrons = new ConcurrentHashMap<>();
+    // Maps Patron ID to their active lending tickets, indexed by ticket ID and ISBN
+    private final Map<Long, PatronLoans> patronLendingHistory = new ConcurrentHashMap<>();
+    // Active tickets by ticket ID, and by ISBN (ticket ID -> ticket) to answer "who has this book"
+    private final Map<Long, LendingTicket> activeTicketsById = new ConcurrentHashMap<>();
+    private final Map<String, Map<Long, LendingTicket>> activeTicketsByIsbn = new ConcurrentHashMap<>();
     
     private final PaymentProcessor paymentProcessor;
+    private final AsyncPaymentProcessor asyncPaymentProcessor;
+    // Runs synchronous payments for reserved copies, so the issue can stop waiting before the lease runs out.
+    private final ExecutorService leasedPayments = Executors.newVirtualThreadPerTaskExecutor();
     private final BookInventory bookInventory; // To check book availability
+    // Shared with the inventory: every journaled change passes it, so snapshots see none half-applied.
+    private final ChangeGate changeGate;
+    // Moves loans to OVERDUE once their return date has passed and accrues their fines.
+    private final DueDateScheduler dueDates = new DueDateScheduler(Clock.systemDefaultZone(), FINE_PER_DAY);
+    // Patrons waiting for copies; returned copies go to them before the shelf.
+    private final HoldQueue holds;
+    // Write-ahead journal; changes are recorded here before they are applied. Null if not persisted.
+    private volatile LibraryJournal journal;
+    // Archive of closed loans. Null if history is not kept.
+    private volatile LendingHistoryStore history;
+    // Counts and times issues, returns, registrations and holds; records nothing until metrics are attached.
+    private volatile LibraryMetrics metrics = LibraryMetrics.DISABLED;
 
+    /**
+     * Creates a PatronManager whose async issues run the given processor on virtual threads
+     * with the default concurrency limit and timeout.
+     */
     public PatronManager(PaymentProcessor paymentProcessor, BookInventory bookInventory) {
+        this(paymentProcessor, new VirtualThreadPaymentProcessor(paymentProcessor), bookInventory);
+    }
+
+    /**
+     * @param paymentProcessor The processor used by {@link #issueBook(Book, Patron)}.
+     * @param asyncPaymentProcessor The processor used by {@link #issueBookAsync(Book, Patron)}.
+     * @param bookInventory The inventory to borrow from and return to.
+     */
+    public PatronManager(PaymentProcessor paymentProcessor, AsyncPaymentProcessor asyncPaymentProcessor,
+                         BookInventory bookInventory) {
         this.paymentProcessor = paymentProcessor;
+        this.asyncPaymentProcessor = asyncPaymentProcessor;
         this.bookInventory = bookInventory;
+        this.changeGate = bookInventory.getChangeGate();
+        this.holds = new HoldQueue(bookInventory, Clock.systemDefaultZone(), Duration.ofDays(PICKUP_WINDOW_DAYS),
+                MAX_HOLDS_PER_PATRON);
+        // A reserved copy whose issue never finished goes to the next holder, if anyone is waiting
+        bookInventory.setLeaseExpiryListener(holds::fill);
     }
 
     /**
@@ -37,107 +107,624 @@ public class PatronManager {
      * @return The newly created Patron object.
      */
     public Patron registerPatron(String name, String email) {
+        long start = metrics.startTimer(OperationType.REGISTER_PATRON);
         Patron patron = new Patron(name, email);
-        patrons.put(patron.getId(), patron);
-        patronLendingHistory.put(patron.getId(), new ArrayList<>());
-        System.out.println("Patron registered successfully: " + patron.getName());
+        long stamp = changeGate.enter();
+        try {
+            if (journal != null) {
+                journal.appendRegisterPatron(patron);
+            }
+            restorePatron(patron);
+        } finally {
+            changeGate.exit(stamp);
+        }
+        log.info("Patron registered successfully: %s", patron.getName());
+        metrics.record(OperationType.REGISTER_PATRON, start, true);
         return patron;
     }
+
+    /**
+     * Adds an existing patron (e.g. one read back from the journal) without recording it again.
+     * @param patron The patron to add.
+     */
+    public void restorePatron(Patron patron) {
+        patrons.put(patron.getIdValue(), patron);
+        patronLendingHistory.putIfAbsent(patron.getIdValue(), new PatronLoans());
+    }
+
+    /**
+     * Adds an existing active ticket (e.g. one read back from the journal) without taking payment
+     * or recording it again. One copy of the book is marked as borrowed.
+     * @param ticket The ticket to add.
+     * @return true if it was added; false, with a warning, if every copy of the book is already on loan,
+     *         so the ticket can't be honoured.
+     */
+    public boolean restoreTicket(LendingTicket ticket) {
+        if (!bookInventory.markAsBorrowed(ticket.getBook())) {
+            log.warn("Ticket %s: no copy of '%s' is left to lend; the loan is not restored.",
+                    ticket.getId(), ticket.getBook().getTitle());
+            return false;
+        }
+        dueDates.schedule(ticket);
+        indexTicket(ticket);
+        patronLendingHistory.get(ticket.getPatron().getIdValue()).add(ticket);
+        return true;
+    }
+
+    /**
+     * Starts recording every change to the given journal.
+     * The journal should already have been replayed into this manager.
+     * @param journal The journal to write to.
+     */
+    public void attachJournal(LibraryJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Starts archiving every closed loan to the given history store.
+     * Attach it after the journal has been replayed, so replayed returns aren't archived twice.
+     * @param history The store to append to.
+     */
+    public void attachHistory(LendingHistoryStore history) {
+        this.history = history;
+    }
+
+    /**
+     * Starts counting and timing issues, returns, registrations and holds.
+     * Payments are measured by wrapping the processors, see {@link LibraryMetrics#instrument(PaymentProcessor)}.
+     * @param metrics Where to record them.
+     */
+    public void attachMetrics(LibraryMetrics metrics) {
+        this.metrics = metrics;
+    }
     
+    /**
+     * @param id The patron ID, as typed; compact IDs are matched in any case.
+     * @return The patron, or null if there is none with that ID.
+     */
     public Patron findPatronById(String id) {
-        return patrons.get(id);
+        Long key = Ids.toKey(id);
+        return key == null ? null : patrons.get(key);
+    }
+
+    public List<Patron> getAllPatrons() {
+        return new ArrayList<>(patrons.values());
+    }
+
+    /**
+     * @param patron The patron to check.
+     * @return A copy of the patron's active lending tickets.
+     */
+    public List<LendingTicket> getActiveTickets(Patron patron) {
+        PatronLoans loans = patronLendingHistory.get(patron.getIdValue());
+        return loans == null ? new ArrayList<>() : loans.tickets();
+    }
+
+    /**
+     * @param ticketId The ID of the ticket.
+     * @return The active ticket with that ID, or null if there is none (e.g. the book was returned).
+     */
+    public LendingTicket findActiveTicket(String ticketId) {
+        Long key = Ids.toKey(ticketId);
+        return key == null ? null : activeTicketsById.get(key);
+    }
+
+    /**
+     * Lists who currently has a copy of the book.
+     * @param isbn The ISBN of the book.
+     * @return The active tickets for that ISBN.
+     */
+    public List<LendingTicket> getActiveTicketsForBook(String isbn) {
+        Map<Long, LendingTicket> tickets = activeTicketsByIsbn.get(isbn);
+        return tickets == null ? new ArrayList<>() : new ArrayList<>(tickets.values());
+    }
+
+    private void indexTicket(LendingTicket ticket) {
+        activeTicketsById.put(ticket.getIdValue(), ticket);
+        activeTicketsByIsbn.computeIfAbsent(ticket.getBook().getIsbn(), k -> new ConcurrentHashMap<>())
+                .put(ticket.getIdValue(), ticket);
+    }
+
+    private void unindexTicket(LendingTicket ticket) {
+        activeTicketsById.remove(ticket.getIdValue());
+        // Removes the per-ISBN map once it is empty, atomically with respect to indexTicket
+        activeTicketsByIsbn.computeIfPresent(ticket.getBook().getIsbn(), (isbn, tickets) -> {
+            tickets.remove(ticket.getIdValue());
+            return tickets.isEmpty() ? null : tickets;
+        });
     }
 
     /**
      * Issues a book to a patron.
-     * Creates a lending ticket and processes the payment.
+     * Creates a lending ticket and processes the payment. A copy set aside for the patron's hold is used first;
+     * otherwise a copy is reserved before paying, so a concurrent issue can't take it meanwhile. A payment
+     * still running just before the reservation runs out is interrupted and the issue fails, rather than
+     * taking the money after the copy went back on the shelf.
      * @param book The book to be issued.
      * @param patron The patron borrowing the book.
      * @return The created LendingTicket, or null if the process fails.
      */
     public LendingTicket issueBook(Book book, Patron patron) {
-        if (!bookInventory.isBookAvailable(book.getIsbn())) {
-            System.out.println("Sorry, the book '" + book.getTitle() + "' is currently not available.");
-            return null;
+        LibraryMetrics metrics = this.metrics;
+        long start = metrics.startTimer(OperationType.ISSUE);
+        LendingTicket ticket = null;
+        try {
+            Hold pickup = holds.collect(patron, book.getIsbn());
+            CopyLease lease = pickup == null ? reserveCopy(book) : null;
+            if (pickup == null && lease == null) {
+                return null;
+            }
+            // Process payment
+            boolean paymentSuccess = lease == null
+                    ? paymentProcessor.processPayment(ISSUE_PRICE)
+                    : payBefore(ISSUE_PRICE, lease.getDeadlineNanos());
+            ticket = completeIssue(book, patron, pickup, lease, paymentSuccess);
+            return ticket;
+        } finally {
+            metrics.record(OperationType.ISSUE, start, ticket != null);
         }
+    }
 
-        // Define lending period and price
-        LocalDate issueDate = LocalDate.now();
-        LocalDate returnDate = issueDate.plusDays(14); // 14-day lending period
-        double issuePrice = 5.0; // Example price
+    /**
+     * Issues a book to a patron without blocking the caller during payment.
+     * The copy is reserved immediately; the ticket is created once the payment completes.
+     * @param book The book to be issued.
+     * @param patron The patron borrowing the book.
+     * @return A future with the created LendingTicket, or null if the process fails.
+     */
+    public CompletableFuture<LendingTicket> issueBookAsync(Book book, Patron patron) {
+        LibraryMetrics metrics = this.metrics;
+        long start = metrics.startTimer(OperationType.ISSUE);
+        Hold pickup = holds.collect(patron, book.getIsbn());
+        CopyLease lease = pickup == null ? reserveCopy(book) : null;
+        if (pickup == null && lease == null) {
+            metrics.record(OperationType.ISSUE, start, false);
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<LendingTicket> issued = asyncPaymentProcessor.processPaymentAsync(ISSUE_PRICE)
+                .exceptionally(error -> false)
+                .thenApply(paymentSuccess -> completeIssue(book, patron, pickup, lease, paymentSuccess));
+        // Timed until the ticket exists, payment included
+        issued.whenComplete((ticket, error) -> metrics.record(OperationType.ISSUE, start, ticket != null));
+        return issued;
+    }
 
-        // Process payment
-        boolean paymentSuccess = paymentProcessor.processPayment(issuePrice);
-        
+    /**
+     * Reserves a copy before taking payment, so a concurrent issue can't take it in between.
+     * @return The lease, or null if no copy is on the shelf.
+     */
+    private CopyLease reserveCopy(Book book) {
+        CopyLease lease = bookInventory.reserve(book);
+        if (lease == null) {
+            log.warn("Sorry, the book '%s' is currently not available. Place a hold to be told when a copy is free.",
+                    book.getTitle());
+        }
+        return lease;
+    }
+
+    /**
+     * Takes a payment for reserved copies, giving up shortly before the first of their leases runs out, so a
+     * slow payment fails the issue instead of going through once the copy is back on the shelf.
+     * A payment given up on is interrupted.
+     * @param deadlineNanos When the first lease runs out, on the {@link System#nanoTime()} clock.
+     * @return true if the payment went through in time.
+     */
+    private boolean payBefore(double amount, long deadlineNanos) {
+        long remaining = deadlineNanos - System.nanoTime();
+        long wait = remaining - Math.min(PAYMENT_MARGIN_NANOS, remaining / 10);
+        Future<Boolean> payment = leasedPayments.submit(() -> paymentProcessor.processPayment(amount));
+        try {
+            return payment.get(Math.max(0, wait), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            payment.cancel(true);
+            log.warn("The payment took longer than the reservation lasts; it was given up on.");
+            return false;
+        } catch (InterruptedException e) {
+            payment.cancel(true);
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            // As if the processor had been called on this thread
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Payment failed", e.getCause());
+        }
+    }
+
+    /**
+     * Lends the copy set aside for the patron's hold, or turns the reservation into a loan. If the lease ran
+     * out while the payment was slow, any copy still on the shelf will do.
+     * @return true if a copy is now borrowed for the issue.
+     */
+    private boolean commitCopy(Book book, Hold pickup, CopyLease lease) {
+        if (pickup != null) {
+            return bookInventory.lendSetAside(book);
+        }
+        if (bookInventory.commit(lease)) {
+            return true;
+        }
+        log.warn("The reservation of '%s' expired before payment completed; taking another copy.", book.getTitle());
+        return bookInventory.markAsBorrowed(book);
+    }
+
+    /**
+     * Gives back a copy claimed for an issue that failed: to the patron's hold if it came from one,
+     * a reserved copy to the shelf, and a borrowed one to the next holder or the shelf.
+     * @param lease The reservation, or null if the copy came from the patron's hold.
+     * @param lent Whether the copy was already lent by {@link #commitCopy(Book, Hold, CopyLease)}.
+     */
+    private void giveBack(Book book, Hold pickup, CopyLease lease, boolean lent) {
+        if (pickup != null) {
+            if (lent) {
+                bookInventory.setAsideReturned(book);
+            }
+            holds.restore(pickup);
+        } else if (lent) {
+            holds.release(book);
+        } else if (bookInventory.release(lease)) {
+            holds.fill(book); // Someone may have placed a hold while the copy was reserved
+        }
+    }
+
+    /**
+     * Creates the ticket once payment succeeded, or gives the claimed copy back if it failed.
+     * @param lease The reservation, or null if the copy came from the patron's hold.
+     */
+    private LendingTicket completeIssue(Book book, Patron patron, Hold pickup, CopyLease lease, boolean paymentSuccess) {
+        if (paymentSuccess && !commitCopy(book, pickup, lease)) {
+            // Nothing was lent, but a hold collected for the issue must be made ready again
+            giveBack(book, pickup, lease, false);
+            log.error("Payment for '%s' was taken but no copy is left; refund %s.", book.getTitle(), patron.getName());
+            return null;
+        }
         if (paymentSuccess) {
+            // Define lending period
+            LocalDate issueDate = LocalDate.now();
+            LocalDate returnDate = issueDate.plusDays(LENDING_PERIOD_DAYS);
+
             // Create the ticket
-            LendingTicket ticket = new LendingTicket(book, patron, issueDate, returnDate, issuePrice);
+            LendingTicket ticket = new LendingTicket(book, patron, issueDate, returnDate, ISSUE_PRICE);
             ticket.setPaymentStatus(PaymentStatus.PAID);
 
-            // Update inventory
-            bookInventory.markAsBorrowed(book.getIsbn());
+            long stamp = changeGate.enter();
+            try {
+                if (journal != null) {
+                    try {
+                        journal.appendIssue(ticket);
+                    } catch (RuntimeException e) {
+                        giveBack(book, pickup, lease, true);
+                        log.error("Error: Could not record the issue (%s). Book not issued.", e.getMessage());
+                        return null;
+                    }
+                }
 
-            // Add ticket to patron's history
-            patronLendingHistory.get(patron.getId()).add(ticket);
+                // Track the due date before the ticket becomes visible, so a quick return can cancel it
+                dueDates.schedule(ticket);
+                indexTicket(ticket);
+                // Add ticket to patron's history
+                patronLendingHistory.get(patron.getIdValue()).add(ticket);
+            } finally {
+                changeGate.exit(stamp);
+            }
             
-            System.out.println("Book '" + book.getTitle() + "' issued successfully to " + patron.getName());
+            log.info("Book '%s' issued successfully to %s", book.getTitle(), patron.getName());
             return ticket;
         } else {
-            System.out.println("Payment failed. Could not issue book.");
+            // Give the claimed copy back
+            giveBack(book, pickup, lease, false);
+            log.warn("Payment failed. Could not issue book.");
             return null;
         }
     }
 
+    // --- Checkout ---
+
+    /**
+     * Issues several books to a patron in one checkout: a copy of every book is secured first, one payment
+     * covers them all, and then either every ticket is created or none is. So a five-book checkout waits
+     * for one payment instead of five.
+     *
+     * Copies set aside for the patron's holds are used first and the rest are reserved in ISBN order,
+     * so two checkouts after the last copies of the same books can't each end up with some of them and
+     * both fail: whichever reserves the first of those books gets the rest too.
+     * @param books The books; a book listed twice is borrowed twice.
+     * @param patron The patron borrowing them.
+     * @return The tickets in ISBN order, or null if a book had no copy available, the payment failed or
+     *         the issues could not be recorded; then nothing was issued.
+     */
+    public List<LendingTicket> checkoutBooks(List<Book> books, Patron patron) {
+        LibraryMetrics metrics = this.metrics;
+        long start = metrics.startTimer(OperationType.CHECKOUT);
+        List<LendingTicket> tickets = null;
+        try {
+            if (books.isEmpty()) {
+                tickets = List.of();
+                return tickets;
+            }
+            Book[] cart = books.toArray(new Book[0]);
+            Arrays.sort(cart, Comparator.comparingLong(Book::getIsbnKey));
+            Hold[] pickups = new Hold[cart.length];
+            CopyLease[] leases = new CopyLease[cart.length];
+            for (int i = 0; i < cart.length; i++) {
+                pickups[i] = holds.collect(patron, cart[i].getIsbn());
+                if (pickups[i] == null && (leases[i] = reserveCopy(cart[i])) == null) {
+                    giveBackAll(cart, pickups, leases, false, 0, i);
+                    return null;
+                }
+            }
+
+            CopyLease firstToExpire = null;
+            for (CopyLease lease : leases) {
+                if (lease != null && (firstToExpire == null || lease.getDeadlineNanos() - firstToExpire.getDeadlineNanos() < 0)) {
+                    firstToExpire = lease;
+                }
+            }
+            boolean paid = firstToExpire == null
+                    ? paymentProcessor.processPayment(ISSUE_PRICE * cart.length)
+                    : payBefore(ISSUE_PRICE * cart.length, firstToExpire.getDeadlineNanos());
+            if (!paid) {
+                giveBackAll(cart, pickups, leases, false, 0, cart.length);
+                log.warn("Payment failed. Could not check out %d books.", cart.length);
+                return null;
+            }
+            int committed = 0;
+            while (committed < cart.length && commitCopy(cart[committed], pickups[committed], leases[committed])) {
+                committed++;
+            }
+            if (committed < cart.length) {
+                // The copy that couldn't be lent is given back with the rest, so a hold it came from is restored
+                giveBackAll(cart, pickups, leases, true, 0, committed);
+                giveBackAll(cart, pickups, leases, false, committed, cart.length);
+                log.error("Payment for %d books was taken but a copy is no longer available; refund %s.",
+                        cart.length, patron.getName());
+                return null;
+            }
+
+            LocalDate issueDate = LocalDate.now();
+            LocalDate returnDate = issueDate.plusDays(LENDING_PERIOD_DAYS);
+            List<LendingTicket> issued = new ArrayList<>(cart.length);
+            for (Book book : cart) {
+                LendingTicket ticket = new LendingTicket(book, patron, issueDate, returnDate, ISSUE_PRICE);
+                ticket.setPaymentStatus(PaymentStatus.PAID);
+                issued.add(ticket);
+            }
+            long stamp = changeGate.enter();
+            try {
+                if (journal != null) {
+                    try {
+                        journal.appendIssues(issued);
+                    } catch (RuntimeException e) {
+                        giveBackAll(cart, pickups, leases, true, 0, cart.length);
+                        log.error("Error: Could not record the checkout (%s). No books issued.", e.getMessage());
+                        return null;
+                    }
+                }
+                PatronLoans loans = patronLendingHistory.get(patron.getIdValue());
+                for (LendingTicket ticket : issued) {
+                    dueDates.schedule(ticket);
+                    indexTicket(ticket);
+                    loans.add(ticket);
+                }
+            } finally {
+                changeGate.exit(stamp);
+            }
+            log.info("%d books checked out to %s", cart.length, patron.getName());
+            tickets = issued;
+            return tickets;
+        } finally {
+            metrics.record(OperationType.CHECKOUT, start, tickets != null);
+        }
+    }
+
+    // Gives back the copies of cart[from] to cart[to - 1], all lent or all still claimed.
+    private void giveBackAll(Book[] cart, Hold[] pickups, CopyLease[] leases, boolean lent, int from, int to) {
+        for (int i = from; i < to; i++) {
+            giveBack(cart[i], pickups[i], leases[i], lent);
+        }
+    }
+
     /**
      * Returns a book from a patron.
      * Finds the corresponding lending ticket and marks the book as returned in the inventory.
      * @param book The book being returned.
      * @param patron The patron returning the book.
+     * @return true if the book was returned, false if the patron had not borrowed it.
      */
-    public void returnBook(Book book, Patron patron) {
-        List<LendingTicket> activeTickets = patronLendingHistory.get(patron.getId());
-
-        // Find the active ticket for this specific book
-        LendingTicket ticketToReturn = null;
-        for (LendingTicket ticket : activeTickets) {
-            if (ticket.getBook().getIsbn().equals(book.getIsbn())) {
-                ticketToReturn = ticket;
-                break;
-            }
+    public boolean returnBook(Book book, Patron patron) {
+        long start = metrics.startTimer(OperationType.RETURN);
+        LendingTicket ticketToReturn;
+        try {
+            ticketToReturn = closeTicket(patron, book.getIsbn());
+        } catch (RuntimeException e) {
+            metrics.record(OperationType.RETURN, start, false);
+            throw e;
         }
-        
-        if (ticketToReturn != null) {
-            // Update inventory
-            bookInventory.markAsReturned(book.getIsbn());
+        metrics.record(OperationType.RETURN, start, ticketToReturn != null);
 
-            // Remove the ticket from the active list (could be moved to an archive)
-            activeTickets.remove(ticketToReturn);
-            
-            System.out.println("Book '" + book.getTitle() + "' returned successfully by " + patron.getName());
+        if (ticketToReturn != null) {
+            log.info("Book '%s' returned successfully by %s", book.getTitle(), patron.getName());
             
-            // Here you could add logic to check for overdue fines
-            if (LocalDate.now().isAfter(ticketToReturn.getReturnDate())) {
-                System.out.println("Note: This book was returned late. Fines may apply.");
+            if (ticketToReturn.getPaymentStatus() == PaymentStatus.OVERDUE) {
+                log.info("Note: This book was returned late. A fine of %.2f applies.", ticketToReturn.getFineAmount());
             }
-            
+            return true;
         } else {
-            System.out.println("Error: No record found of " + patron.getName() + " borrowing '" + book.getTitle() + "'.");
+            log.warn("Error: No record found of %s borrowing '%s'.", patron.getName(), book.getTitle());
+            return false;
+        }
+    }
+
+    /**
+     * Closes the patron's active ticket for the given ISBN and hands the copy to the next holder,
+     * or puts it back on the shelf if nobody is waiting.
+     * @param patron The patron returning the book.
+     * @param isbn The ISBN of the book.
+     * @return The closed ticket, or null if the patron had no active loan of that book.
+     */
+    public LendingTicket closeTicket(Patron patron, String isbn) {
+        PatronLoans loans = patronLendingHistory.get(patron.getIdValue());
+        if (loans == null) {
+            return null;
         }
+
+        LendingTicket ticketToReturn;
+        long stamp = changeGate.enter();
+        try {
+            // Find and remove the active ticket for this specific book in one step,
+            // so two desks can't both return the same loan.
+            ticketToReturn = loans.removeOldest(isbn);
+            if (ticketToReturn == null) {
+                return null;
+            }
+
+            // Recorded while still passing the change gate (its read lock), so a snapshot sees either both
+            // the return and its journal record or neither, and its journal position stays consistent.
+            // Replay closes the first matching ticket, so the order relative to other returns doesn't matter.
+            if (journal != null) {
+                try {
+                    journal.appendReturn(patron.getId(), isbn);
+                } catch (RuntimeException e) {
+                    loans.restore(ticketToReturn);
+                    throw e;
+                }
+            }
+        } finally {
+            changeGate.exit(stamp);
+        }
+        unindexTicket(ticketToReturn);
+
+        // Settles the fine up to today and stops tracking the due date
+        dueDates.cancel(ticketToReturn);
+
+        // Move the closed ticket to the archive
+        if (history != null) {
+            history.append(HistoryRecord.of(ticketToReturn, LocalDate.now()));
+        }
+
+        // Update inventory, unless someone is waiting for the copy
+        holds.release(ticketToReturn.getBook());
+        return ticketToReturn;
+    }
+
+    // --- Holds ---
+
+    /**
+     * Puts a patron in the queue for a book. When a copy is set aside for them, the hold's
+     * {@link Hold#whenReady()} completes and {@link #issueBook(Book, Patron)} issues that copy.
+     * @param book The book.
+     * @param patron The patron.
+     * @param priority Where in the queue the hold goes.
+     * @return The hold (the existing one if the patron already has a hold on this book),
+     *         or null if the patron has reached the hold limit.
+     */
+    public Hold placeHold(Book book, Patron patron, HoldPriority priority) {
+        long start = metrics.startTimer(OperationType.PLACE_HOLD);
+        Hold hold = holds.place(book, patron, priority);
+        metrics.record(OperationType.PLACE_HOLD, start, hold != null);
+        return hold;
+    }
+
+    /**
+     * Cancels a hold; a copy already set aside for it goes to the next holder.
+     * @param hold The hold.
+     * @return true if the hold was still waiting or ready.
+     */
+    public boolean cancelHold(Hold hold) {
+        return holds.cancel(hold);
+    }
+
+    /**
+     * @param holdId The hold ID, as typed; compact IDs are matched in any case.
+     * @return The waiting or ready hold, or null if there is none with that ID.
+     */
+    public Hold findHold(String holdId) {
+        Long key = Ids.toKey(holdId);
+        return key == null ? null : holds.find(key);
+    }
+
+    /**
+     * @param patron The patron.
+     * @return The patron's waiting and ready holds.
+     */
+    public List<Hold> getHolds(Patron patron) {
+        return holds.getHolds(patron);
+    }
+
+    /**
+     * @param isbn The ISBN of the book.
+     * @return The number of patrons waiting for a copy.
+     */
+    public int getHoldQueueLength(String isbn) {
+        return holds.getWaitingCount(isbn);
+    }
+
+    /**
+     * Sets aside copies on the shelf for patrons waiting for the book, e.g. after copies were added.
+     * @param book The book.
+     * @return The number of holds that became ready.
+     */
+    public int fillHolds(Book book) {
+        return holds.fill(book);
     }
     
+    // --- Due Dates ---
+
+    /**
+     * @return The active loans past their return date, with their status set to OVERDUE.
+     */
+    public List<LendingTicket> getOverdueTickets() {
+        return dueDates.getOverdue();
+    }
+
+    /**
+     * @return The number of active loans past their return date.
+     */
+    public int getOverdueCount() {
+        return dueDates.getOverdueCount();
+    }
+
+    /**
+     * @return The number of loans currently out.
+     */
+    public int getActiveLoanCount() {
+        return activeTicketsById.size();
+    }
+
+    /**
+     * @param days How many days ahead to look; 0 means loans due today.
+     * @return The active loans due within the given number of days, soonest first.
+     */
+    public List<LendingTicket> getTicketsDueWithin(int days) {
+        return dueDates.getDueWithin(days);
+    }
+
+    /**
+     * @return The fines accrued so far on loans that are still out.
+     */
+    public double getOutstandingFines() {
+        return dueDates.getOutstandingFines();
+    }
+
+    /**
+     * Starts checking for newly overdue loans and uncollected holds in the background.
+     * @param checkInterval How often to check whether the day has changed and pickup deadlines have passed.
+     */
+    public void startOverdueChecks(Duration checkInterval) {
+        dueDates.start(checkInterval);
+        holds.start(checkInterval);
+    }
+
     /**
      * Retrieves a list of books currently borrowed by a specific patron.
      * @param patron The patron to check.
      * @return A list of books.
      */
     public List<Book> getBorrowedBooks(Patron patron) {
-        if (!patronLendingHistory.containsKey(patron.getId())) {
+        PatronLoans loans = patronLendingHistory.get(patron.getIdValue());
+        if (loans == null) {
             return new ArrayList<>(); // Return empty list if patron has no history
         }
-        
-        return patronLendingHistory.get(patron.getId())
-                .stream()
-                .map(LendingTicket::getBook)
-                .collect(Collectors.toList());
+        return loans.books();
     }
 }
\ No newline at end of file
@@ -0,0 +1,65 @@
+package main.java.com.siddharth.librarysystem.manager;
+
+/**
+ * Packs the available, reserved and borrowed copy counts of one ISBN into a single long, as kept in {@link StockTable}.
+ * Each count has 21 bits: available in bits 42-62, reserved in bits 21-41 and borrowed in bits 0-20,
+ * so all three change together in one compare-and-set and can never be observed out of step.
+ * The sign bit is never set, so tables holding packed counts can use negative values as markers.
+ */
+public final class StockCounter {
+
+    /**
+     * The most copies of one ISBN that can be owned, over all three counts together.
+     */
+    public static final int MAX_COPIES = (1 << 21) - 1;
+
+    // Where each count starts in the packed value.
+    static final int AVAILABLE = 42;
+    static final int RESERVED = 21;
+    static final int BORROWED = 0;
+
+    private StockCounter() {
+    }
+
+    // --- Packing ---
+
+    public static long pack(int available, int reserved, int borrowed) {
+        return ((long) available << AVAILABLE) | ((long) reserved << RESERVED) | borrowed;
+    }
+
+    /**
+     * Adds copies to the available and borrowed counts of a packed value.
+     * @throws IllegalStateException if the ISBN would own more than {@link #MAX_COPIES} copies.
+     */
+    static long add(long packed, int available, int borrowed) {
+        long total = (long) available(packed) + reserved(packed) + borrowed(packed) + available + borrowed;
+        if (total > MAX_COPIES) {
+            throw new IllegalStateException("An ISBN can't have more than " + MAX_COPIES + " copies");
+        }
+        return pack(available(packed) + available, reserved(packed), borrowed(packed) + borrowed);
+    }
+
+    /**
+     * Moves one copy between two counts; the count it comes from must be positive.
+     * As the total never exceeds {@link #MAX_COPIES}, the count it goes to can't overflow.
+     */
+    static long move(long packed, int from, int to) {
+        return packed - (1L << from) + (1L << to);
+    }
+
+    static int count(long packed, int shift) {
+        return (int) (packed >>> shift) & MAX_COPIES;
+    }
+
+    public static int available(long packed) {
+        return count(packed, AVAILABLE);
+    }
+
+    public static int reserved(long packed) {
+        return count(packed, RESERVED);
+    }
+
+    public static int borrowed(long packed) {
+        return count(packed, BORROWED);
+    }
+}
@@ -0,0 +1,403 @@
+package main.java.com.siddharth.librarysystem.manager;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The available, reserved and borrowed counts of every ISBN, in a concurrent open-addressing hash table
+ * from packed ISBN keys ({@link main.java.com.siddharth.librarysystem.entity.IsbnCodec#toKey(String)})
+ * to packed counts (as in {@link StockCounter}).
+ *
+ * Keys and counts sit next to each other in plain {@code long[]} arrays, so an ISBN costs 16 bytes
+ * of table plus slack instead of a map node, a counter and an atomic per title, and moving a copy between
+ * counts (borrowing, returning, reserving) is a probe and one compare-and-set, with no allocation or locking.
+ *
+ * The table is split into segments that grow independently. Only adding or removing an ISBN takes the
+ * segment's lock. While a segment grows, each count in the old array is swapped for {@link #MOVED} as it
+ * is copied, so an update racing with the copy either lands before it or sees the marker and retries on
+ * the new array. Removed ISBNs leave a tombstone that is only cleared when the segment is rebuilt, so a
+ * slot is never reused by another ISBN while an update may still be looking at it.
+ */
+public final class StockTable {
+
+    /**
+     * Returned by {@link #snapshot(long)} for ISBNs that are not in the table.
+     */
+    public static final long ABSENT = -1;
+
+    // Counts are never negative, so neither of these is a valid packed value.
+    private static final long MOVED = Long.MIN_VALUE;
+    private static final long REMOVED = Long.MIN_VALUE + 1;
+    // Keys are always positive.
+    private static final long EMPTY_KEY = 0;
+    private static final long TOMBSTONE = Long.MIN_VALUE;
+
+    private static final int SEGMENT_BITS = 6;
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final int MIN_SEGMENT_CAPACITY = 16;
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+
+    public StockTable() {
+        this(0);
+    }
+
+    /**
+     * @param expectedKeys The number of distinct ISBNs expected, so loading them doesn't grow the table.
+     */
+    public StockTable(int expectedKeys) {
+        int capacity = segmentCapacity(expectedKeys);
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(capacity);
+        }
+    }
+
+    /**
+     * Grows the table up front to hold the given number of ISBNs, e.g. before a large import,
+     * so adding them doesn't grow it step by step. Never shrinks it.
+     * @param expectedKeys The number of distinct ISBNs expected in total.
+     */
+    public void ensureCapacity(int expectedKeys) {
+        int capacity = segmentCapacity(expectedKeys);
+        for (Segment segment : segments) {
+            segment.ensureCapacity(capacity);
+        }
+    }
+
+    private int segmentCapacity(int expectedKeys) {
+        int perSegment = (int) Math.ceil(expectedKeys / (double) segments.length / LOAD_FACTOR);
+        return Math.max(MIN_SEGMENT_CAPACITY, Integer.highestOneBit(Math.max(1, perSegment - 1)) << 1);
+    }
+
+    /**
+     * Adds copies to the available count, adding the ISBN first if it is new.
+     * @param key The packed ISBN; must be positive.
+     * @param quantity The number of copies to add.
+     */
+    public void addCopies(long key, int quantity) {
+        addCopies(key, quantity, 0);
+    }
+
+    /**
+     * Adds to both counts at once, adding the ISBN first if it is new; used when moving stock between tables.
+     * @param key The packed ISBN; must be positive.
+     * @param available The number of copies to add to the available count.
+     * @param borrowed The number of copies to add to the borrowed count.
+     * @throws IllegalStateException if the ISBN would own more than {@link StockCounter#MAX_COPIES} copies.
+     */
+    public void addCopies(long key, int available, int borrowed) {
+        long hash = mix(key);
+        Segment segment = segmentFor(hash);
+        for (;;) {
+            long[] slots = segment.slots;
+            int index = find(slots, key, hash);
+            if (index < 0) {
+                segment.insert(key, hash);
+                continue;
+            }
+            long current = (long) SLOTS.getVolatile(slots, index);
+            if (current < 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            long next = StockCounter.add(current, available, borrowed);
+            if (SLOTS.compareAndSet(slots, index, current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Moves one copy from available to borrowed.
+     * @param key The packed ISBN.
+     * @return true if a copy was available, false otherwise or if the ISBN is unknown.
+     */
+    public boolean tryBorrow(long key) {
+        return transfer(key, StockCounter.AVAILABLE, StockCounter.BORROWED);
+    }
+
+    /**
+     * Moves one copy from borrowed back to available.
+     * @param key The packed ISBN.
+     * @return true if a copy was on loan, false otherwise or if the ISBN is unknown.
+     */
+    public boolean tryReturn(long key) {
+        return transfer(key, StockCounter.BORROWED, StockCounter.AVAILABLE);
+    }
+
+    /**
+     * Moves one copy from available to reserved, holding it back while its issue is paid for.
+     * @param key The packed ISBN.
+     * @return true if a copy was available, false otherwise or if the ISBN is unknown.
+     */
+    public boolean tryReserve(long key) {
+        return transfer(key, StockCounter.AVAILABLE, StockCounter.RESERVED);
+    }
+
+    /**
+     * Moves one copy from reserved to borrowed, once its issue went through.
+     * @param key The packed ISBN.
+     * @return true if a copy was reserved, false otherwise or if the ISBN is unknown.
+     */
+    public boolean commitReserved(long key) {
+        return transfer(key, StockCounter.RESERVED, StockCounter.BORROWED);
+    }
+
+    /**
+     * Moves one copy from reserved back to available, when its issue failed or its lease expired.
+     * @param key The packed ISBN.
+     * @return true if a copy was reserved, false otherwise or if the ISBN is unknown.
+     */
+    public boolean releaseReserved(long key) {
+        return transfer(key, StockCounter.RESERVED, StockCounter.AVAILABLE);
+    }
+
+    /**
+     * Moves one copy from borrowed to reserved, when a returned copy is set aside for someone waiting for it.
+     * @param key The packed ISBN.
+     * @return true if a copy was on loan, false otherwise or if the ISBN is unknown.
+     */
+    public boolean reserveReturned(long key) {
+        return transfer(key, StockCounter.BORROWED, StockCounter.RESERVED);
+    }
+
+    /**
+     * Moves one copy between two counts with a single compare-and-set.
+     * @param from The count to take it from, e.g. {@link StockCounter#AVAILABLE}.
+     * @param to The count to add it to.
+     * @return true if the count it comes from was positive, false otherwise or if the ISBN is unknown.
+     */
+    private boolean transfer(long key, int from, int to) {
+        long hash = mix(key);
+        Segment segment = segmentFor(hash);
+        for (;;) {
+            long[] slots = segment.slots;
+            int index = find(slots, key, hash);
+            if (index < 0) {
+                return false;
+            }
+            long current = (long) SLOTS.getVolatile(slots, index);
+            if (current < 0) {
+                // Being moved or removed; look the key up again.
+                Thread.onSpinWait();
+                continue;
+            }
+            if (StockCounter.count(current, from) <= 0) {
+                return false;
+            }
+            if (SLOTS.compareAndSet(slots, index, current, StockCounter.move(current, from, to))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Reads all counts of an ISBN at the same instant.
+     * @param key The packed ISBN.
+     * @return The packed counts (decode with {@link StockCounter#available(long)}, {@link StockCounter#reserved(long)}
+     *         and {@link StockCounter#borrowed(long)}), or {@link #ABSENT} if the ISBN is unknown.
+     */
+    public long snapshot(long key) {
+        long hash = mix(key);
+        Segment segment = segmentFor(hash);
+        for (;;) {
+            long[] slots = segment.slots;
+            int index = find(slots, key, hash);
+            if (index < 0) {
+                return ABSENT;
+            }
+            long current = (long) SLOTS.getVolatile(slots, index);
+            if (current >= 0) {
+                return current;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Takes copies off the available count, e.g. to send them to another branch.
+     * @param key The packed ISBN.
+     * @param quantity The number of copies to take.
+     * @return true if that many copies were available, false otherwise or if the ISBN is unknown.
+     */
+    public boolean tryRemoveCopies(long key, int quantity) {
+        long hash = mix(key);
+        Segment segment = segmentFor(hash);
+        for (;;) {
+            long[] slots = segment.slots;
+            int index = find(slots, key, hash);
+            if (index < 0) {
+                return false;
+            }
+            long current = (long) SLOTS.getVolatile(slots, index);
+            if (current < 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            if (StockCounter.available(current) < quantity) {
+                return false;
+            }
+            long next = current - ((long) quantity << StockCounter.AVAILABLE);
+            if (SLOTS.compareAndSet(slots, index, current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes an ISBN and its counts.
+     * @param key The packed ISBN.
+     * @return The counts it had, packed, or {@link #ABSENT} if the ISBN is unknown.
+     */
+    public long remove(long key) {
+        long hash = mix(key);
+        return segmentFor(hash).remove(key, hash);
+    }
+
+    /**
+     * @return The number of ISBNs in the table.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    // --- Hashing ---
+
+    // Packed ISBNs are mostly sequential, so spread them before picking a segment and a slot.
+    private static long mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    private Segment segmentFor(long hash) {
+        return segments[(int) (hash >>> (64 - SEGMENT_BITS))];
+    }
+
+    /**
+     * Finds the key by linear probing.
+     * @return The array index of the key's count, or -1 if the key is not in this array.
+     */
+    private static int find(long[] slots, long key, long hash) {
+        if (key <= 0) {
+            return -1; // Not a packed ISBN; also keeps NO_KEY from matching anything
+        }
+        int mask = (slots.length >>> 1) - 1;
+        int slot = (int) hash & mask;
+        for (;;) {
+            long found = (long) SLOTS.getAcquire(slots, slot << 1);
+            if (found == key) {
+                return (slot << 1) + 1;
+            }
+            if (found == EMPTY_KEY) {
+                return -1;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * One independently growing part of the table: key at even indexes, its counts right after it.
+     */
+    private static final class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile long[] slots;
+        private volatile int size;
+        // Live keys plus tombstones; decides when the array is rebuilt. Guarded by the lock.
+        private int used;
+
+        Segment(int capacity) {
+            this.slots = new long[capacity << 1];
+        }
+
+        void insert(long key, long hash) {
+            lock.lock();
+            try {
+                if (find(slots, key, hash) >= 0) {
+                    return; // Added by another thread meanwhile
+                }
+                if (used + 1 > (slots.length >>> 1) * LOAD_FACTOR) {
+                    rebuild();
+                }
+                long[] current = slots;
+                int mask = (current.length >>> 1) - 1;
+                int slot = (int) hash & mask;
+                while (current[slot << 1] != EMPTY_KEY) {
+                    slot = (slot + 1) & mask;
+                }
+                // Count first, then publish the key, so a reader that finds the key sees a valid count.
+                SLOTS.setVolatile(current, (slot << 1) + 1, 0L);
+                SLOTS.setRelease(current, slot << 1, key);
+                size = size + 1;
+                used++;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void ensureCapacity(int capacity) {
+            lock.lock();
+            try {
+                if (slots.length >>> 1 < capacity) {
+                    rebuild(capacity << 1);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long remove(long key, long hash) {
+            lock.lock();
+            try {
+                long[] current = slots;
+                int index = find(current, key, hash);
+                if (index < 0) {
+                    return ABSENT;
+                }
+                // Counts first, so a racing update sees REMOVED and looks again, then finds the tombstone.
+                long counts = (long) SLOTS.getAndSet(current, index, REMOVED);
+                SLOTS.setRelease(current, index - 1, TOMBSTONE);
+                size = size - 1;
+                return counts;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Copies the live keys into a new array: twice as large if the segment is more than
+        // half full, otherwise the same size, which just clears the tombstones.
+        private void rebuild() {
+            long[] old = slots;
+            int capacity = old.length >>> 1;
+            rebuild(size + 1 > capacity * LOAD_FACTOR / 2 ? old.length << 1 : old.length);
+        }
+
+        private void rebuild(int length) {
+            long[] old = slots;
+            long[] grown = new long[length];
+            int mask = (grown.length >>> 1) - 1;
+            for (int i = 0; i < old.length; i += 2) {
+                long key = old[i];
+                if (key == EMPTY_KEY || key == TOMBSTONE) {
+                    continue;
+                }
+                // Freeze the count; updates that lose the race retry once the new array is published.
+                long counts = (long) SLOTS.getAndSet(old, i + 1, MOVED);
+                int slot = (int) mix(key) & mask;
+                while (grown[slot << 1] != EMPTY_KEY) {
+                    slot = (slot + 1) & mask;
+                }
+                grown[slot << 1] = key;
+                grown[(slot << 1) + 1] = counts;
+            }
+            used = size;
+            slots = grown;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package main.java.com.siddharth.librarysystem.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import main.java.com.siddharth.librarysystem.payment.AsyncPaymentProcessor;
+import main.java.com.siddharth.librarysystem.payment.PaymentProcessor;
+
+/**
+ * Call counts, failure counts and latency histograms for every {@link OperationType}.
+ *
+ * Counters are {@link LongAdder}s and histograms are striped, so threads recording at the same time
+ * don't contend. A timed operation reads {@link System#nanoTime()} at its start and end:
+ * <pre>
+ * long start = metrics.startTimer(OperationType.ISSUE);
+ * boolean ok = ...;
+ * metrics.record(OperationType.ISSUE, start, ok);
+ * </pre>
+ * Counts are exact. Operations timed by {@link OperationType.Timing#SAMPLED sampling} read the clock for one
+ * call in {@code -Dlibrary.metrics.sampleEvery} (default {@value #DEFAULT_SAMPLE_EVERY}), picked at random
+ * per call, so their percentiles are estimates and their maximum is the largest sampled latency.
+ * A disabled instance ({@link #DISABLED}, or any instance when {@code -Dlibrary.metrics=false} is set)
+ * records nothing, so components that were never given metrics pay almost nothing.
+ */
+public final class LibraryMetrics {
+
+    /**
+     * Records nothing; the default for components that have not been given metrics.
+     */
+    public static final LibraryMetrics DISABLED = new LibraryMetrics(false, 1);
+
+    public static final int DEFAULT_SAMPLE_EVERY = 16;
+    // Returned by startTimer for calls that aren't timed.
+    private static final long NOT_TIMED = Long.MIN_VALUE;
+
+    private final boolean enabled;
+    private final int sampleEvery;
+    private final OperationCounters[] counters = new OperationCounters[OperationType.values().length];
+
+    /**
+     * Creates metrics that record, unless the {@code library.metrics} system property is "false",
+     * timing sampled operations as often as {@code library.metrics.sampleEvery} says.
+     */
+    public LibraryMetrics() {
+        this(Boolean.parseBoolean(System.getProperty("library.metrics", "true")),
+                Integer.getInteger("library.metrics.sampleEvery", DEFAULT_SAMPLE_EVERY));
+    }
+
+    /**
+     * @param enabled false to record nothing.
+     * @param sampleEvery Time one call in this many of the sampled operations; 1 times every call.
+     */
+    public LibraryMetrics(boolean enabled, int sampleEvery) {
+        if (sampleEvery < 1) {
+            throw new IllegalArgumentException("sampleEvery must be at least 1: " + sampleEvery);
+        }
+        this.enabled = enabled;
+        this.sampleEvery = sampleEvery;
+        for (OperationType operation : OperationType.values()) {
+            counters[operation.ordinal()] = new OperationCounters(operation.isTimed());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // --- Recording ---
+
+    /**
+     * Decides whether this call is timed and, if so, reads the clock.
+     * @param operation The operation about to start.
+     * @return The start time to pass to {@link #record(OperationType, long, boolean)}.
+     */
+    public long startTimer(OperationType operation) {
+        if (!enabled) {
+            return NOT_TIMED;
+        }
+        switch (operation.getTiming()) {
+            case ALWAYS:
+                return System.nanoTime();
+            case SAMPLED:
+                return sampleEvery == 1 || ThreadLocalRandom.current().nextInt(sampleEvery) == 0 ? System.nanoTime() : NOT_TIMED;
+            default:
+                return NOT_TIMED;
+        }
+    }
+
+    /**
+     * Counts a finished operation and records its latency, if this call was timed.
+     * @param operation The operation.
+     * @param startNanos The value {@link #startTimer(OperationType)} returned when it began.
+     * @param succeeded false if it failed or was turned down.
+     */
+    public void record(OperationType operation, long startNanos, boolean succeeded) {
+        if (!enabled) {
+            return;
+        }
+        OperationCounters operationCounters = counters[operation.ordinal()];
+        if (startNanos != NOT_TIMED) {
+            operationCounters.latency.record(System.nanoTime() - startNanos);
+        }
+        operationCounters.count(succeeded);
+    }
+
+    /**
+     * Counts a finished operation without timing it.
+     * @param operation The operation.
+     * @param succeeded false if it failed or was turned down.
+     */
+    public void count(OperationType operation, boolean succeeded) {
+        if (enabled) {
+            counters[operation.ordinal()].count(succeeded);
+        }
+    }
+
+    // --- Payment Processors ---
+
+    /**
+     * @param processor The processor to measure.
+     * @return A processor that records every payment as {@link OperationType#PAYMENT} and then delegates.
+     */
+    public PaymentProcessor instrument(PaymentProcessor processor) {
+        if (!enabled) {
+            return processor;
+        }
+        return new PaymentProcessor() {
+            @Override
+            public boolean processPayment(double amount) {
+                long start = startTimer(OperationType.PAYMENT);
+                boolean succeeded = false;
+                try {
+                    succeeded = processor.processPayment(amount);
+                    return succeeded;
+                } finally {
+                    record(OperationType.PAYMENT, start, succeeded);
+                }
+            }
+
+            @Override
+            public List<Boolean> processPayments(List<Double> amounts) {
+                long start = startTimer(OperationType.PAYMENT);
+                List<Boolean> results = null;
+                try {
+                    results = processor.processPayments(amounts);
+                    return results;
+                } finally {
+                    // Every payment in the batch took as long as the batch
+                    for (int i = 0; i < amounts.size(); i++) {
+                        record(OperationType.PAYMENT, start, results != null && results.get(i));
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * @param processor The processor to measure.
+     * @return A processor that records every payment as {@link OperationType#PAYMENT} when its future completes.
+     */
+    public AsyncPaymentProcessor instrumentAsync(AsyncPaymentProcessor processor) {
+        if (!enabled) {
+            return processor;
+        }
+        return amount -> {
+            long start = startTimer(OperationType.PAYMENT);
+            CompletableFuture<Boolean> result = processor.processPaymentAsync(amount);
+            result.whenComplete((succeeded, error) ->
+                    record(OperationType.PAYMENT, start, error == null && Boolean.TRUE.equals(succeeded)));
+            return result;
+        };
+    }
+
+    // --- Reading ---
+
+    /**
+     * @param operation The operation.
+     * @return Its counts and, if it is timed, its latency percentiles so far, estimated from the timed calls.
+     */
+    public OperationStats snapshot(OperationType operation) {
+        OperationCounters operationCounters = counters[operation.ordinal()];
+        LatencyHistogram latency = operationCounters.latency;
+        if (latency == null) {
+            return new OperationStats(operation.name(), operationCounters.calls.sum(), operationCounters.failures.sum(),
+                    0, 0, 0, 0, 0);
+        }
+        return new OperationStats(operation.name(), operationCounters.calls.sum(), operationCounters.failures.sum(),
+                latency.mean() / 1e6, millis(latency.percentile(50)), millis(latency.percentile(99)),
+                millis(latency.percentile(99.9)), millis(latency.max()));
+    }
+
+    /**
+     * @return A reading of every operation, in the order of {@link OperationType}.
+     */
+    public List<OperationStats> snapshot() {
+        List<OperationStats> stats = new ArrayList<>();
+        for (OperationType operation : OperationType.values()) {
+            stats.add(snapshot(operation));
+        }
+        return stats;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    /**
+     * The counters of one operation.
+     */
+    private static final class OperationCounters {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LatencyHistogram latency; // Null for operations that are only counted
+
+        OperationCounters(boolean timed) {
+            this.latency = timed ? new LatencyHistogram() : null;
+        }
+
+        void count(boolean succeeded) {
+            calls.increment();
+            if (!succeeded) {
+                failures.increment();
+            }
+        }
+    }
+}
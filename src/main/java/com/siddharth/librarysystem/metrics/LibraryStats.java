@@ -0,0 +1,106 @@
+package main.java.com.siddharth.librarysystem.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The library's gauges together with its per-operation metrics, read on demand.
+ * The CLI prints it with {@link #format()}; {@link #register()} publishes it over JMX.
+ */
+public class LibraryStats implements LibraryStatsMXBean {
+
+    /**
+     * The name the stats are registered under by {@link #register()}.
+     */
+    public static final String OBJECT_NAME = "main.java.com.siddharth.librarysystem:type=Library";
+
+    private final LibraryMetrics metrics;
+    private final IntSupplier catalogSize;
+    private final IntSupplier activeLoans;
+    private final IntSupplier overdueLoans;
+
+    /**
+     * @param metrics The per-operation metrics.
+     * @param catalogSize Reads the number of distinct titles.
+     * @param activeLoans Reads the number of loans out.
+     * @param overdueLoans Reads the number of loans past their return date.
+     */
+    public LibraryStats(LibraryMetrics metrics, IntSupplier catalogSize, IntSupplier activeLoans, IntSupplier overdueLoans) {
+        this.metrics = metrics;
+        this.catalogSize = catalogSize;
+        this.activeLoans = activeLoans;
+        this.overdueLoans = overdueLoans;
+    }
+
+    @Override
+    public int getCatalogSize() {
+        return catalogSize.getAsInt();
+    }
+
+    @Override
+    public int getActiveLoans() {
+        return activeLoans.getAsInt();
+    }
+
+    @Override
+    public int getOverdueLoans() {
+        return overdueLoans.getAsInt();
+    }
+
+    @Override
+    public List<OperationStats> getOperations() {
+        return metrics.snapshot();
+    }
+
+    /**
+     * Registers these stats with the platform MBean server under {@link #OBJECT_NAME},
+     * replacing stats registered earlier, e.g. by another library in the same JVM.
+     * @return The name they were registered under.
+     * @throws IllegalStateException if the MBean server refuses them.
+     */
+    public ObjectName register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+            return name;
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register the library stats over JMX", e);
+        }
+    }
+
+    /**
+     * @return The gauges and a table of counts, failures and latency percentiles in milliseconds,
+     *         leaving out operations that haven't happened yet.
+     */
+    public String format() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("Catalog: %,d titles, active loans: %,d, overdue loans: %,d%n",
+                getCatalogSize(), getActiveLoans(), getOverdueLoans()));
+        if (!metrics.isEnabled()) {
+            return out.append(String.format("Operation metrics are turned off (-Dlibrary.metrics=false).%n")).toString();
+        }
+        out.append(String.format("%n%-15s %10s %8s %10s %10s %10s %10s %10s%n",
+                "operation", "count", "failed", "mean ms", "p50 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (OperationStats stats : getOperations()) {
+            if (stats.getCount() == 0) {
+                continue;
+            }
+            out.append(String.format("%-15s %,10d %,8d", stats.getOperation().toLowerCase(), stats.getCount(), stats.getFailures()));
+            if (OperationType.valueOf(stats.getOperation()).isTimed()) {
+                out.append(String.format(" %10.3f %10.3f %10.3f %10.3f %10.3f", stats.getMeanMillis(), stats.getP50Millis(),
+                        stats.getP99Millis(), stats.getP999Millis(), stats.getMaxMillis()));
+            }
+            out.append(System.lineSeparator());
+        }
+        return out.toString();
+    }
+}
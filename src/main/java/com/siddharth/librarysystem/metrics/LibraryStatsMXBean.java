@@ -0,0 +1,24 @@
+package main.java.com.siddharth.librarysystem.metrics;
+
+import java.util.List;
+
+/**
+ * The library's metrics as seen over JMX, e.g. in JConsole under
+ * {@code main.java.com.siddharth.librarysystem:type=Library}.
+ */
+public interface LibraryStatsMXBean {
+
+    /**
+     * @return The number of distinct titles in the catalog.
+     */
+    int getCatalogSize();
+
+    int getActiveLoans();
+
+    int getOverdueLoans();
+
+    /**
+     * @return Counts, failures and latency percentiles of every operation.
+     */
+    List<OperationStats> getOperations();
+}
@@ -0,0 +1,65 @@
+package main.java.com.siddharth.librarysystem.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * A point-in-time reading of one operation's counters and latencies, in milliseconds.
+ * Shown by the CLI and exposed over JMX, where it appears as composite data.
+ */
+public class OperationStats {
+    private final String operation;
+    private final long count;
+    private final long failures;
+    private final double meanMillis;
+    private final double p50Millis;
+    private final double p99Millis;
+    private final double p999Millis;
+    private final double maxMillis;
+
+    @ConstructorProperties({"operation", "count", "failures", "meanMillis", "p50Millis", "p99Millis", "p999Millis", "maxMillis"})
+    public OperationStats(String operation, long count, long failures, double meanMillis, double p50Millis,
+                          double p99Millis, double p999Millis, double maxMillis) {
+        this.operation = operation;
+        this.count = count;
+        this.failures = failures;
+        this.meanMillis = meanMillis;
+        this.p50Millis = p50Millis;
+        this.p99Millis = p99Millis;
+        this.p999Millis = p999Millis;
+        this.maxMillis = maxMillis;
+    }
+
+    // --- Getters ---
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public double getMeanMillis() {
+        return meanMillis;
+    }
+
+    public double getP50Millis() {
+        return p50Millis;
+    }
+
+    public double getP99Millis() {
+        return p99Millis;
+    }
+
+    public double getP999Millis() {
+        return p999Millis;
+    }
+
+    public double getMaxMillis() {
+        return maxMillis;
+    }
+}
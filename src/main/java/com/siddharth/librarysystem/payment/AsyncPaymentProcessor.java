@@ -0,0 +1,18 @@
+package main.java.com.siddharth.librarysystem.payment;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking variant of {@link PaymentProcessor}.
+ * The caller gets a future straight away and is free to serve other patrons while the payment runs.
+ */
+public interface AsyncPaymentProcessor {
+
+    /**
+     * Starts a payment for a given amount.
+     *
+     * @param amount The amount to be processed.
+     * @return A future completing with true if the payment was successful, false if it failed or timed out.
+     */
+    CompletableFuture<Boolean> processPaymentAsync(double amount);
+}
@@ -0,0 +1,250 @@
+package main.java.com.siddharth.librarysystem.payment;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects payments from many concurrent issues and settles them through
+ * {@link PaymentProcessor#processPayments(List)} in a single round-trip.
+ *
+ * A batch is sent as soon as it holds {@code maxBatchSize} payments, or when the oldest payment in it
+ * has waited {@code linger}, whichever comes first. Each caller gets back its own result.
+ * It can be used both as a blocking {@link PaymentProcessor} and as an {@link AsyncPaymentProcessor}.
+ */
+public class BatchingPaymentProcessor implements PaymentProcessor, AsyncPaymentProcessor, AutoCloseable {
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 64;
+    public static final Duration DEFAULT_LINGER = Duration.ofMillis(20);
+
+    private final PaymentProcessor delegate;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final BlockingQueue<PendingPayment> queue = new LinkedBlockingQueue<>();
+    // Batches are settled on their own virtual threads, so the dispatcher can keep filling the next one.
+    private final ExecutorService settlementExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    // --- Statistics ---
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder totalAddedLatencyNanos = new LongAdder();
+    private final AtomicLong maxAddedLatencyNanos = new AtomicLong();
+
+    public BatchingPaymentProcessor(PaymentProcessor delegate) {
+        this(delegate, DEFAULT_MAX_BATCH_SIZE, DEFAULT_LINGER);
+    }
+
+    /**
+     * @param delegate The processor that settles each batch.
+     * @param maxBatchSize The largest number of payments sent in one call.
+     * @param linger The longest a payment waits for others to join its batch.
+     */
+    public BatchingPaymentProcessor(PaymentProcessor delegate, int maxBatchSize, Duration linger) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be positive");
+        }
+        this.delegate = delegate;
+        this.maxBatchSize = maxBatchSize;
+        this.lingerNanos = linger.toNanos();
+        this.dispatcher = new Thread(this::dispatchLoop, "payment-batcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Waits for the payment's batch to be settled. If the caller is interrupted meanwhile, e.g. because what
+     * it was paying for has been given up on, the payment is withdrawn: it is never sent unless its batch has
+     * already gone out, and the call returns false with the interrupt flag set.
+     */
+    @Override
+    public boolean processPayment(double amount) {
+        PendingPayment payment = enqueue(amount);
+        try {
+            return payment.result.get();
+        } catch (InterruptedException e) {
+            queue.remove(payment);
+            Thread.currentThread().interrupt();
+            // Settled just as the caller gave up; report what actually happened
+            return !payment.result.complete(false) && !payment.result.isCompletedExceptionally()
+                    && payment.result.getNow(false);
+        } catch (ExecutionException e) {
+            // As if the processor had been called on this thread
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Payment failed", e.getCause());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Boolean> processPaymentAsync(double amount) {
+        return enqueue(amount).result;
+    }
+
+    private PendingPayment enqueue(double amount) {
+        PendingPayment payment = new PendingPayment(amount);
+        if (!running) {
+            payment.result.complete(false);
+            return payment;
+        }
+        queue.add(payment);
+        // Closed while we were enqueuing; the dispatcher may already be gone.
+        if (!running && queue.remove(payment)) {
+            payment.result.complete(false);
+        }
+        return payment;
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            List<PendingPayment> batch = new ArrayList<>(maxBatchSize);
+            try {
+                PendingPayment first = queue.take();
+                batch.add(first);
+                long deadline = first.enqueuedAt + lingerNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        queue.drainTo(batch, maxBatchSize - batch.size());
+                        break;
+                    }
+                    PendingPayment next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                batch.forEach(payment -> payment.result.complete(false));
+                break;
+            }
+            recordDispatch(batch);
+            try {
+                settlementExecutor.execute(() -> settle(batch));
+            } catch (RejectedExecutionException e) {
+                // Closed between taking the batch and handing it off; fail it rather than hang its callers.
+                batch.forEach(payment -> payment.result.complete(false));
+            }
+        }
+        // Anything still queued at shutdown fails rather than hanging its caller.
+        PendingPayment leftover;
+        while ((leftover = queue.poll()) != null) {
+            leftover.result.complete(false);
+        }
+    }
+
+    private void settle(List<PendingPayment> batch) {
+        // Payments withdrawn while their batch was filling up are not sent.
+        batch.removeIf(payment -> payment.result.isDone());
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Double> amounts = new ArrayList<>(batch.size());
+        for (PendingPayment payment : batch) {
+            amounts.add(payment.amount);
+        }
+        try {
+            List<Boolean> results = delegate.processPayments(amounts);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result.complete(i < results.size() && Boolean.TRUE.equals(results.get(i)));
+            }
+        } catch (RuntimeException e) {
+            batch.forEach(payment -> payment.result.completeExceptionally(e));
+        }
+    }
+
+    private void recordDispatch(List<PendingPayment> batch) {
+        long now = System.nanoTime();
+        batchCount.increment();
+        requestCount.add(batch.size());
+        for (PendingPayment payment : batch) {
+            long waited = now - payment.enqueuedAt;
+            totalAddedLatencyNanos.add(waited);
+            maxAddedLatencyNanos.accumulateAndGet(waited, Math::max);
+        }
+    }
+
+    // --- Statistics ---
+
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    /**
+     * @return How many calls to the underlying processor were avoided by batching.
+     */
+    public long getRoundTripsSaved() {
+        return getRequestCount() - getBatchCount();
+    }
+
+    /**
+     * @return The average time a payment waited in the batcher before being sent, in milliseconds.
+     */
+    public double getAverageAddedLatencyMillis() {
+        long requests = getRequestCount();
+        return requests == 0 ? 0.0 : totalAddedLatencyNanos.sum() / (requests * 1_000_000.0);
+    }
+
+    /**
+     * @return The longest time a payment waited in the batcher before being sent, in milliseconds.
+     */
+    public double getMaxAddedLatencyMillis() {
+        return maxAddedLatencyNanos.get() / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchingPaymentProcessor{" +
+                "requests=" + getRequestCount() +
+                ", batches=" + getBatchCount() +
+                ", roundTripsSaved=" + getRoundTripsSaved() +
+                ", avgAddedLatencyMs=" + String.format("%.3f", getAverageAddedLatencyMillis()) +
+                ", maxAddedLatencyMs=" + String.format("%.3f", getMaxAddedLatencyMillis()) +
+                '}';
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        dispatcher.interrupt();
+        // The dispatcher fails what it still holds on the way out; only then stop the settlement threads.
+        boolean interrupted = false;
+        while (dispatcher.isAlive()) {
+            try {
+                dispatcher.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        settlementExecutor.shutdown();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class PendingPayment {
+        private final double amount;
+        private final long enqueuedAt = System.nanoTime();
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        private PendingPayment(double amount) {
+            this.amount = amount;
+        }
+    }
+}
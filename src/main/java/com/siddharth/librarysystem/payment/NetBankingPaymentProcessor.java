@@ -1,27 +1,57 @@
 package main.java.com.siddharth.librarysystem.payment;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import main.java.com.siddharth.librarysystem.logging.EventLogger;
+
 public class NetBankingPaymentProcessor implements PaymentProcessor {
+    private static final EventLogger log = EventLogger.forClass(NetBankingPaymentProcessor.class);
 
     @Override
     public boolean processPayment(double amount) {
-        System.out.println("\nInitiating Net Banking payment of $" + String.format("%.2f", amount) + "...");
+        log.info("\nInitiating Net Banking payment of $%.2f...", amount);
 
         // --- DUMMY LOGIC ---
         // In a real application, you would integrate with a bank's API here.
         // We will simulate a successful transaction.
         try {
             // Simulate network delay
-            System.out.println("Connecting to the bank's server...");
+            log.debug("Connecting to the bank's server...");
             Thread.sleep(1500); // Wait for 1.5 seconds
-            System.out.println("Payment authorized by the bank.");
+            log.debug("Payment authorized by the bank.");
         } catch (InterruptedException e) {
-            System.err.println("Payment process was interrupted.");
+            log.error("Payment process was interrupted.");
             Thread.currentThread().interrupt();
             return false;
         }
         // --- END OF DUMMY LOGIC ---
 
-        System.out.println("Net Banking payment of $" + String.format("%.2f", amount) + " was successful.");
+        log.info("Net Banking payment of $%.2f was successful.", amount);
         return true; // Assume payment is always successful for this simulation
     }
+
+    @Override
+    public List<Boolean> processPayments(List<Double> amounts) {
+        double total = amounts.stream().mapToDouble(Double::doubleValue).sum();
+        log.info("\nInitiating Net Banking batch of %d payments totalling $%.2f...", amounts.size(), total);
+
+        // --- DUMMY LOGIC ---
+        // The bank settles the whole batch in a single request.
+        List<Boolean> results = new ArrayList<>(amounts.size());
+        try {
+            log.debug("Connecting to the bank's server...");
+            Thread.sleep(1500); // Same delay as a single payment
+            log.debug("Batch authorized by the bank.");
+        } catch (InterruptedException e) {
+            log.error("Payment process was interrupted.");
+            Thread.currentThread().interrupt();
+            amounts.forEach(amount -> results.add(false));
+            return results;
+        }
+        // --- END OF DUMMY LOGIC ---
+
+        amounts.forEach(amount -> results.add(true));
+        return results;
+    }
 }
\ No newline at end of file
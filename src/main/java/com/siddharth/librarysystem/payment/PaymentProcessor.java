@@ -1,5 +1,8 @@
 package main.java.com.siddharth.librarysystem.payment;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public interface PaymentProcessor {
 
     /**
@@ -9,4 +12,20 @@ public interface PaymentProcessor {
      * @return true if the payment was successful, false otherwise.
      */
     boolean processPayment(double amount);
+
+    /**
+     * Processes several payments in one call.
+     * The default processes them one by one; processors whose backend can settle a batch
+     * in a single round-trip should override this.
+     *
+     * @param amounts The amounts to be processed.
+     * @return One result per amount, in the same order.
+     */
+    default List<Boolean> processPayments(List<Double> amounts) {
+        List<Boolean> results = new ArrayList<>(amounts.size());
+        for (double amount : amounts) {
+            results.add(processPayment(amount));
+        }
+        return results;
+    }
 }
\ No newline at end of file
@@ -1,29 +1,30 @@
 package main.java.com.siddharth.librarysystem.payment;
 
-
+import main.java.com.siddharth.librarysystem.logging.EventLogger;
 
 public class UpiPaymentProcessor implements PaymentProcessor {
+    private static final EventLogger log = EventLogger.forClass(UpiPaymentProcessor.class);
 
     @Override
     public boolean processPayment(double amount) {
-        System.out.println("\nProcessing UPI payment of $" + String.format("%.2f", amount) + "...");
+        log.info("\nProcessing UPI payment of $%.2f...", amount);
 
         // --- DUMMY LOGIC ---
         // In a real application, this would involve generating a QR code or
         // sending a payment request to a UPI app.
         try {
             // Simulate user action delay (e.g., scanning QR code)
-            System.out.println("Waiting for payment confirmation from UPI app...");
+            log.debug("Waiting for payment confirmation from UPI app...");
             Thread.sleep(2000); // Wait for 2 seconds
-            System.out.println("Confirmation received.");
+            log.debug("Confirmation received.");
         } catch (InterruptedException e) {
-            System.err.println("Payment process was interrupted.");
+            log.error("Payment process was interrupted.");
             Thread.currentThread().interrupt();
             return false;
         }
         // --- END OF DUMMY LOGIC ---
 
-        System.out.println("UPI payment of $" + String.format("%.2f", amount) + " completed successfully.");
+        log.info("UPI payment of $%.2f completed successfully.", amount);
         return true; // Assume payment is always successful for this simulation
     }
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+package main.java.com.siddharth.librarysystem.payment;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a blocking {@link PaymentProcessor} on virtual threads and exposes it as an {@link AsyncPaymentProcessor}.
+ * Each payment gets its own virtual thread, so a slow payment only parks that thread instead of holding a
+ * platform thread. A semaphore caps how many payments reach the underlying processor at once, and a
+ * payment that has not finished within the timeout is interrupted and reported as failed.
+ */
+public class VirtualThreadPaymentProcessor implements AsyncPaymentProcessor, AutoCloseable {
+
+    public static final int DEFAULT_MAX_CONCURRENT_PAYMENTS = 256;
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+
+    private final PaymentProcessor delegate;
+    private final Semaphore permits;
+    private final Duration timeout;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public VirtualThreadPaymentProcessor(PaymentProcessor delegate) {
+        this(delegate, DEFAULT_MAX_CONCURRENT_PAYMENTS, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * @param delegate The blocking processor that does the actual work.
+     * @param maxConcurrentPayments The maximum number of payments running at the same time.
+     * @param timeout How long a payment may take once it has a slot.
+     */
+    public VirtualThreadPaymentProcessor(PaymentProcessor delegate, int maxConcurrentPayments, Duration timeout) {
+        if (maxConcurrentPayments <= 0) {
+            throw new IllegalArgumentException("maxConcurrentPayments must be positive");
+        }
+        this.delegate = delegate;
+        this.permits = new Semaphore(maxConcurrentPayments, true);
+        this.timeout = timeout;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> processPaymentAsync(double amount) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                result.complete(false);
+                return;
+            }
+            // The clock starts once the payment has a slot, so time queued behind other payments doesn't count.
+            // On timeout the future reports failure and the still-running payment is interrupted; a payment that
+            // finishes in time completes the deadline, which cancels its timer.
+            Thread worker = Thread.currentThread();
+            CompletableFuture<Void> deadline = new CompletableFuture<>();
+            deadline.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS).exceptionally(timedOut -> {
+                if (result.complete(false)) {
+                    worker.interrupt();
+                }
+                return null;
+            });
+            try {
+                result.complete(delegate.processPayment(amount));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            } finally {
+                deadline.complete(null);
+                permits.release();
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @return The number of payments that could start right now without waiting for a slot.
+     */
+    public int availableSlots() {
+        return permits.availablePermits();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
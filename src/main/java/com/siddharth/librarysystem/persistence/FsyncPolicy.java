@@ -0,0 +1,13 @@
+package main.java.com.siddharth.librarysystem.persistence;
+
+/**
+ * Controls when the journal forces its writes to disk.
+ */
+public enum FsyncPolicy {
+    // Every operation waits until its record is on disk. Concurrent operations share one fsync.
+    EVERY_WRITE,
+    // Records are written straight away and forced to disk at a fixed interval.
+    INTERVAL,
+    // Records are written but never forced; the operating system decides when they reach disk.
+    NONE
+}
@@ -0,0 +1,103 @@
+package main.java.com.siddharth.librarysystem.persistence;
+
+import java.time.LocalDate;
+
+import main.java.com.siddharth.librarysystem.entity.LendingTicket;
+import main.java.com.siddharth.librarysystem.entity.PaymentStatus;
+
+/**
+ * A closed loan as kept in the lending history: who borrowed which book, when, and what it cost.
+ * Unlike {@link LendingTicket} it holds IDs rather than the patron and book objects,
+ * so history can outlive both.
+ */
+public final class HistoryRecord {
+    private final String ticketId;
+    private final String patronId;
+    private final String isbn;
+    private final LocalDate issueDate;
+    private final LocalDate dueDate;
+    private final LocalDate returnedDate;
+    private final double issuePrice;
+    private final double fineAmount;
+    private final PaymentStatus paymentStatus;
+
+    public HistoryRecord(String ticketId, String patronId, String isbn, LocalDate issueDate, LocalDate dueDate,
+                         LocalDate returnedDate, double issuePrice, double fineAmount, PaymentStatus paymentStatus) {
+        this.ticketId = ticketId;
+        this.patronId = patronId;
+        this.isbn = isbn;
+        this.issueDate = issueDate;
+        this.dueDate = dueDate;
+        this.returnedDate = returnedDate;
+        this.issuePrice = issuePrice;
+        this.fineAmount = fineAmount;
+        this.paymentStatus = paymentStatus;
+    }
+
+    /**
+     * Creates the history record of a ticket that has just been closed.
+     * @param ticket The closed ticket.
+     * @param returnedDate The day the book came back.
+     * @return The record.
+     */
+    public static HistoryRecord of(LendingTicket ticket, LocalDate returnedDate) {
+        return new HistoryRecord(ticket.getId(), ticket.getPatron().getId(), ticket.getBook().getIsbn(),
+                ticket.getIssueDate(), ticket.getReturnDate(), returnedDate,
+                ticket.getIssuePrice(), ticket.getFineAmount(), ticket.getPaymentStatus());
+    }
+
+    // --- Getters ---
+
+    public String getTicketId() {
+        return ticketId;
+    }
+
+    public String getPatronId() {
+        return patronId;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public LocalDate getIssueDate() {
+        return issueDate;
+    }
+
+    public LocalDate getDueDate() {
+        return dueDate;
+    }
+
+    public LocalDate getReturnedDate() {
+        return returnedDate;
+    }
+
+    public double getIssuePrice() {
+        return issuePrice;
+    }
+
+    public double getFineAmount() {
+        return fineAmount;
+    }
+
+    public PaymentStatus getPaymentStatus() {
+        return paymentStatus;
+    }
+
+    // --- Overridden Methods ---
+
+    @Override
+    public String toString() {
+        return "HistoryRecord{" +
+                "ticketId='" + ticketId + '\'' +
+                ", patronId='" + patronId + '\'' +
+                ", isbn='" + isbn + '\'' +
+                ", issueDate=" + issueDate +
+                ", dueDate=" + dueDate +
+                ", returnedDate=" + returnedDate +
+                ", issuePrice=" + issuePrice +
+                ", fineAmount=" + fineAmount +
+                ", paymentStatus=" + paymentStatus +
+                '}';
+    }
+}
@@ -0,0 +1,549 @@
+package main.java.com.siddharth.librarysystem.persistence;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import main.java.com.siddharth.librarysystem.entity.PaymentStatus;
+import main.java.com.siddharth.librarysystem.id.Ids;
+
+/**
+ * One immutable, compressed file of lending history records.
+ *
+ * Layout:
+ * <pre>
+ * int magic, int version
+ * blocks: int rawLength, int compressedLength, deflated records   (up to BLOCK_RECORDS records each)
+ * footer: deflated; block table, then the patron and ISBN dictionaries, each entry followed by
+ *         the numbers of the blocks that mention it
+ * long footerOffset, int footerRawLength, int footerCompressedLength, int crc32 of the compressed footer, int magic
+ * </pre>
+ * Inside a block every number is a (zig-zag) varint. Patrons and ISBNs are written as their position in the
+ * segment's dictionaries, the return day as a delta from the previous record, and the issue and due
+ * days relative to the return day. Compact ticket IDs are stored as 8 raw bytes, UUIDs as 16.
+ *
+ * A query for one patron or ISBN looks up its blocks in the footer and inflates only those, one at a time,
+ * so neither the segment nor the query result is ever held in memory as a whole.
+ */
+final class HistorySegment {
+
+    private static final int MAGIC = 0x4C485347; // "LHSG"
+    // Version 2 added compact ticket IDs; version 1 segments are still readable.
+    private static final int VERSION = 2;
+    private static final int BLOCK_RECORDS = 256;
+    private static final int TRAILER_BYTES = 8 + 4 + 4 + 4 + 4;
+
+    // --- Ticket ID encodings ---
+    private static final byte ID_UUID = 0;
+    private static final byte ID_TEXT = 1;
+    private static final byte ID_COMPACT = 2;
+
+    private final Path file;
+    // The footer is small next to the blocks, but there may be many segments; let the GC drop it under pressure.
+    private volatile SoftReference<Index> cachedIndex = new SoftReference<>(null);
+
+    HistorySegment(Path file) {
+        this.file = file;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    // --- Writing ---
+
+    /**
+     * Encodes the records into a new segment, written to a temporary file and moved into place atomically.
+     * @param file The segment file to create.
+     * @param records The records, in the order they were closed.
+     * @return The new segment.
+     */
+    static HistorySegment write(Path file, List<HistoryRecord> records) throws IOException {
+        Map<String, IntList> patronBlocks = new LinkedHashMap<>();
+        Map<String, IntList> isbnBlocks = new LinkedHashMap<>();
+        Map<String, Integer> patronIds = new HashMap<>();
+        Map<String, Integer> isbnIds = new HashMap<>();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 16);
+        writeInt(out, MAGIC);
+        writeInt(out, VERSION);
+
+        int blockCount = (records.size() + BLOCK_RECORDS - 1) / BLOCK_RECORDS;
+        long[] blockOffsets = new long[blockCount];
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            VarintBuffer raw = new VarintBuffer();
+            for (int block = 0; block < blockCount; block++) {
+                raw.reset();
+                long previousDay = 0;
+                int end = Math.min(records.size(), (block + 1) * BLOCK_RECORDS);
+                for (int i = block * BLOCK_RECORDS; i < end; i++) {
+                    HistoryRecord record = records.get(i);
+                    int patron = dictionaryId(patronIds, patronBlocks, record.getPatronId(), block);
+                    int isbn = dictionaryId(isbnIds, isbnBlocks, record.getIsbn(), block);
+                    long returnedDay = record.getReturnedDate().toEpochDay();
+                    raw.writeVarint(patron);
+                    raw.writeVarint(isbn);
+                    raw.writeSigned(returnedDay - previousDay);
+                    raw.writeSigned(returnedDay - record.getIssueDate().toEpochDay());
+                    raw.writeSigned(returnedDay - record.getDueDate().toEpochDay());
+                    raw.writeSigned(Math.round(record.getIssuePrice() * 100));
+                    raw.writeSigned(Math.round(record.getFineAmount() * 100));
+                    raw.writeByte(record.getPaymentStatus().ordinal());
+                    writeTicketId(raw, record.getTicketId());
+                    previousDay = returnedDay;
+                }
+                blockOffsets[block] = out.size();
+                byte[] compressed = deflate(deflater, raw.bytes(), raw.size());
+                writeInt(out, raw.size());
+                writeInt(out, compressed.length);
+                out.write(compressed);
+            }
+
+            // Footer: block table, then each dictionary with the blocks every entry appears in.
+            raw.reset();
+            raw.writeVarint(records.size());
+            raw.writeVarint(blockCount);
+            for (long offset : blockOffsets) {
+                raw.writeVarint(offset);
+            }
+            writeDictionary(raw, patronBlocks);
+            writeDictionary(raw, isbnBlocks);
+            long footerOffset = out.size();
+            byte[] footer = deflate(deflater, raw.bytes(), raw.size());
+            out.write(footer);
+            writeLong(out, footerOffset);
+            writeInt(out, raw.size());
+            writeInt(out, footer.length);
+            CRC32 crc = new CRC32();
+            crc.update(footer);
+            writeInt(out, (int) crc.getValue());
+            writeInt(out, MAGIC);
+        } finally {
+            deflater.end();
+        }
+
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return new HistorySegment(file);
+    }
+
+    private static int dictionaryId(Map<String, Integer> ids, Map<String, IntList> blocks, String key, int block) {
+        Integer id = ids.get(key);
+        if (id == null) {
+            id = ids.size();
+            ids.put(key, id);
+        }
+        IntList keyBlocks = blocks.computeIfAbsent(key, k -> new IntList());
+        if (keyBlocks.size == 0 || keyBlocks.last() != block) {
+            keyBlocks.add(block);
+        }
+        return id;
+    }
+
+    // Entries are written in dictionary ID order, since LinkedHashMap keeps first-seen order.
+    private static void writeDictionary(VarintBuffer raw, Map<String, IntList> blocks) {
+        raw.writeVarint(blocks.size());
+        for (Map.Entry<String, IntList> entry : blocks.entrySet()) {
+            raw.writeString(entry.getKey());
+            IntList list = entry.getValue();
+            raw.writeVarint(list.size);
+            int previous = 0;
+            for (int i = 0; i < list.size; i++) {
+                raw.writeVarint(list.values[i] - previous);
+                previous = list.values[i];
+            }
+        }
+    }
+
+    private static void writeTicketId(VarintBuffer raw, String ticketId) {
+        if (Ids.isCompact(ticketId)) {
+            raw.writeByte(ID_COMPACT);
+            raw.writeLong(Ids.parse(ticketId));
+            return;
+        }
+        UUID uuid = parseUuid(ticketId);
+        if (uuid != null) {
+            raw.writeByte(ID_UUID);
+            raw.writeLong(uuid.getMostSignificantBits());
+            raw.writeLong(uuid.getLeastSignificantBits());
+        } else {
+            raw.writeByte(ID_TEXT);
+            raw.writeString(ticketId);
+        }
+    }
+
+    // Only canonical lower-case UUIDs, so the ID reads back exactly as it was written.
+    private static UUID parseUuid(String text) {
+        if (text.length() != 36 || text.charAt(8) != '-') {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(text);
+            return uuid.toString().equals(text) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static byte[] deflate(Deflater deflater, byte[] input, int length) {
+        deflater.reset();
+        deflater.setInput(input, 0, length);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, length / 3));
+        byte[] chunk = new byte[8192];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(chunk);
+            out.write(chunk, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    // --- Reading ---
+
+    /**
+     * Streams every record of the given patron in this segment, in the order they were closed.
+     */
+    void forEachByPatron(String patronId, Consumer<HistoryRecord> action) throws IOException {
+        Index index = index();
+        Integer id = index.patrons.ids.get(patronId);
+        if (id != null) {
+            scan(index, index.patrons.blocks[id], id, -1, action);
+        }
+    }
+
+    /**
+     * Streams every record of the given ISBN in this segment, in the order they were closed.
+     */
+    void forEachByIsbn(String isbn, Consumer<HistoryRecord> action) throws IOException {
+        Index index = index();
+        Integer id = index.isbns.ids.get(isbn);
+        if (id != null) {
+            scan(index, index.isbns.blocks[id], -1, id, action);
+        }
+    }
+
+    private void scan(Index index, int[] blocks, int patronFilter, int isbnFilter,
+                      Consumer<HistoryRecord> action) throws IOException {
+        PaymentStatus[] statuses = PaymentStatus.values();
+        Inflater inflater = new Inflater();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (int block : blocks) {
+                ByteBuffer in = readBlock(channel, inflater, index.blockOffsets[block]);
+                long previousDay = 0;
+                while (in.hasRemaining()) {
+                    int patron = (int) readVarint(in);
+                    int isbn = (int) readVarint(in);
+                    long returnedDay = previousDay + readSigned(in);
+                    long issueDay = returnedDay - readSigned(in);
+                    long dueDay = returnedDay - readSigned(in);
+                    double price = readSigned(in) / 100.0;
+                    double fine = readSigned(in) / 100.0;
+                    PaymentStatus status = statuses[in.get()];
+                    String ticketId = readTicketId(in);
+                    previousDay = returnedDay;
+                    if ((patronFilter < 0 || patron == patronFilter) && (isbnFilter < 0 || isbn == isbnFilter)) {
+                        action.accept(new HistoryRecord(ticketId, index.patrons.keys[patron], index.isbns.keys[isbn],
+                                LocalDate.ofEpochDay(issueDay), LocalDate.ofEpochDay(dueDay),
+                                LocalDate.ofEpochDay(returnedDay), price, fine, status));
+                    }
+                }
+            }
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static ByteBuffer readBlock(FileChannel channel, Inflater inflater, long offset) throws IOException {
+        ByteBuffer header = readFully(channel, offset, 8);
+        int rawLength = header.getInt();
+        int compressedLength = header.getInt();
+        ByteBuffer compressed = readFully(channel, offset + 8, compressedLength);
+        return ByteBuffer.wrap(inflate(inflater, compressed.array(), rawLength));
+    }
+
+    private static String readTicketId(ByteBuffer in) {
+        byte kind = in.get();
+        if (kind == ID_COMPACT) {
+            return Ids.toText(in.getLong());
+        }
+        if (kind == ID_UUID) {
+            return new UUID(in.getLong(), in.getLong()).toString();
+        }
+        return readString(in);
+    }
+
+    private Index index() throws IOException {
+        Index index = cachedIndex.get();
+        if (index == null) {
+            index = loadIndex();
+            cachedIndex = new SoftReference<>(index);
+        }
+        return index;
+    }
+
+    private Index loadIndex() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 8 + TRAILER_BYTES) {
+                throw new IOException("History segment " + file + " is truncated");
+            }
+            ByteBuffer trailer = readFully(channel, size - TRAILER_BYTES, TRAILER_BYTES);
+            long footerOffset = trailer.getLong();
+            int footerRawLength = trailer.getInt();
+            int footerLength = trailer.getInt();
+            int storedCrc = trailer.getInt();
+            if (trailer.getInt() != MAGIC || readFully(channel, 0, 4).getInt() != MAGIC) {
+                throw new IOException(file + " is not a history segment");
+            }
+            int version = readFully(channel, 4, 4).getInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported history segment version " + version);
+            }
+            ByteBuffer compressed = readFully(channel, footerOffset, footerLength);
+            CRC32 crc = new CRC32();
+            crc.update(compressed.array());
+            if ((int) crc.getValue() != storedCrc) {
+                throw new IOException("History segment " + file + " is corrupt");
+            }
+            Inflater inflater = new Inflater();
+            ByteBuffer footer;
+            try {
+                footer = ByteBuffer.wrap(inflate(inflater, compressed.array(), footerRawLength));
+            } finally {
+                inflater.end();
+            }
+
+            Index index = new Index();
+            index.recordCount = (int) readVarint(footer);
+            index.blockOffsets = new long[(int) readVarint(footer)];
+            for (int i = 0; i < index.blockOffsets.length; i++) {
+                index.blockOffsets[i] = readVarint(footer);
+            }
+            index.patrons = readDictionary(footer);
+            index.isbns = readDictionary(footer);
+            return index;
+        }
+    }
+
+    private static Dictionary readDictionary(ByteBuffer in) {
+        Dictionary dictionary = new Dictionary();
+        int count = (int) readVarint(in);
+        dictionary.keys = new String[count];
+        dictionary.ids = new HashMap<>(count * 2);
+        dictionary.blocks = new int[count][];
+        for (int i = 0; i < count; i++) {
+            dictionary.keys[i] = readString(in);
+            dictionary.ids.put(dictionary.keys[i], i);
+            int[] list = new int[(int) readVarint(in)];
+            int previous = 0;
+            for (int j = 0; j < list.length; j++) {
+                previous += (int) readVarint(in);
+                list[j] = previous;
+            }
+            dictionary.blocks[i] = list;
+        }
+        return dictionary;
+    }
+
+    int recordCount() throws IOException {
+        return index().recordCount;
+    }
+
+    // --- Helpers ---
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("History segment is truncated");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static byte[] inflate(Inflater inflater, byte[] input, int rawLength) throws IOException {
+        inflater.reset();
+        inflater.setInput(input);
+        byte[] output = new byte[rawLength];
+        try {
+            int written = 0;
+            while (written < rawLength && !inflater.finished()) {
+                int n = inflater.inflate(output, written, rawLength - written);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                written += n;
+            }
+            if (written != rawLength) {
+                throw new IOException("History segment block is corrupt");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("History segment block is corrupt", e);
+        }
+        return output;
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long value) {
+        writeInt(out, (int) (value >>> 32));
+        writeInt(out, (int) value);
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static long readSigned(ByteBuffer in) {
+        long zigzag = readVarint(in);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = (int) readVarint(in);
+        String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    /**
+     * The decoded footer: where the blocks are and which blocks mention each patron and ISBN.
+     */
+    private static final class Index {
+        int recordCount;
+        long[] blockOffsets;
+        Dictionary patrons;
+        Dictionary isbns;
+    }
+
+    /**
+     * The patrons or ISBNs of a segment: their IDs within the segment and the blocks that mention them.
+     */
+    private static final class Dictionary {
+        String[] keys;
+        Map<String, Integer> ids;
+        int[][] blocks;
+    }
+
+    /**
+     * A growable byte buffer with varint, zig-zag and string encoders.
+     */
+    private static final class VarintBuffer {
+        private byte[] bytes = new byte[8192];
+        private int size;
+
+        void reset() {
+            size = 0;
+        }
+
+        byte[] bytes() {
+            return bytes;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void writeByte(int b) {
+            if (size == bytes.length) {
+                bytes = Arrays.copyOf(bytes, size * 2);
+            }
+            bytes[size++] = (byte) b;
+        }
+
+        void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            writeByte((int) value);
+        }
+
+        void writeSigned(long value) {
+            writeVarint((value << 1) ^ (value >> 63));
+        }
+
+        void writeLong(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                writeByte((int) (value >>> shift));
+            }
+        }
+
+        void writeString(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(utf8.length);
+            for (byte b : utf8) {
+                writeByte(b);
+            }
+        }
+    }
+
+    /**
+     * A growable list of ints, to avoid boxing block numbers.
+     */
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int last() {
+            return values[size - 1];
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "HistorySegment{" + file.getFileName() + '}';
+    }
+}
@@ -0,0 +1,344 @@
+package main.java.com.siddharth.librarysystem.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import main.java.com.siddharth.librarysystem.logging.EventLogger;
+
+/**
+ * An append-only archive of closed loans, kept in a directory of immutable, compressed segment files.
+ *
+ * Closed tickets are collected in memory as small {@link HistoryRecord}s; once a batch is full it is
+ * written out as a new {@link HistorySegment} on a background thread and dropped from memory.
+ * Each segment carries its own per-patron and per-ISBN index, so a history query only inflates the
+ * blocks that mention the patron or book, and hands records to the caller one at a time.
+ *
+ * Records still in memory are written by {@link #flush()} and {@link #close()}. A segment that could not be
+ * written stays in memory and is retried by the next flush, which fails while any record is still unwritten.
+ * Records closed since the last successful flush are lost if the process is killed, so a long-running library flushes on a timer
+ * ({@link main.java.com.siddharth.librarysystem.core.Library#startHistoryFlushes}). The journal still has them, but replay does not rebuild
+ * history, so history should be attached only after the journal has been replayed.
+ */
+public class LendingHistoryStore implements AutoCloseable {
+    private static final EventLogger log = EventLogger.forClass(LendingHistoryStore.class);
+
+    public static final int DEFAULT_SEGMENT_RECORDS = 8192;
+
+    private static final String SEGMENT_PREFIX = "history-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final Path directory;
+    private final int segmentRecords;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "history-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Guards everything below. Never held while reading or writing segment files.
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<HistorySegment> segments;
+    // Full batches handed to the writer but not yet on disk; still answered from memory.
+    private final List<List<HistoryRecord>> sealing = new ArrayList<>();
+    // Those of them whose write failed, waiting to be retried by the next flush.
+    private final List<UnwrittenSegment> unwritten = new ArrayList<>();
+    private List<HistoryRecord> buffer;
+    private long nextSegmentNumber;
+    private boolean closed;
+
+    private LendingHistoryStore(Path directory, int segmentRecords, List<HistorySegment> segments,
+                                long nextSegmentNumber) {
+        this.directory = directory;
+        this.segmentRecords = segmentRecords;
+        this.segments = segments;
+        this.nextSegmentNumber = nextSegmentNumber;
+        this.buffer = new ArrayList<>(segmentRecords);
+    }
+
+    /**
+     * Opens (or creates) a history directory with the default segment size.
+     * @param directory The directory holding the segment files.
+     * @return The open store.
+     */
+    public static LendingHistoryStore open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_RECORDS);
+    }
+
+    /**
+     * Opens (or creates) a history directory.
+     * @param directory The directory holding the segment files.
+     * @param segmentRecords How many records to collect before writing a segment.
+     * @return The open store.
+     */
+    public static LendingHistoryStore open(Path directory, int segmentRecords) throws IOException {
+        if (segmentRecords <= 0) {
+            throw new IllegalArgumentException("Segment size must be positive.");
+        }
+        Files.createDirectories(directory);
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*")) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(SEGMENT_SUFFIX)) {
+                    files.add(file);
+                } else if (name.endsWith(".tmp")) {
+                    // Left over from a segment write that never finished.
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        // Zero-padded numbers, so name order is creation order.
+        files.sort(null);
+        List<HistorySegment> segments = new ArrayList<>(files.size());
+        long nextNumber = 1;
+        for (Path file : files) {
+            segments.add(new HistorySegment(file));
+            nextNumber = Math.max(nextNumber, segmentNumber(file) + 1);
+        }
+        return new LendingHistoryStore(directory, segmentRecords, segments, nextNumber);
+    }
+
+    private static long segmentNumber(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // --- Writing ---
+
+    /**
+     * Adds a closed loan to the history.
+     * @param record The closed loan.
+     */
+    public void append(HistoryRecord record) {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("History store is closed");
+            }
+            buffer.add(record);
+            if (buffer.size() >= segmentRecords) {
+                sealLocked();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Future<?> sealLocked() {
+        List<HistoryRecord> batch = buffer;
+        buffer = new ArrayList<>(segmentRecords);
+        if (batch.isEmpty()) {
+            return writer.submit(() -> { });
+        }
+        sealing.add(batch);
+        Path file = directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, nextSegmentNumber++, SEGMENT_SUFFIX));
+        return writer.submit(() -> writeSegment(file, batch));
+    }
+
+    private void writeSegment(Path file, List<HistoryRecord> batch) {
+        try {
+            HistorySegment segment = HistorySegment.write(file, batch);
+            lock.lock();
+            try {
+                // A retried segment goes back among the later ones in file order, so queries stay oldest first.
+                int index = segments.size();
+                while (index > 0 && segments.get(index - 1).getFile().compareTo(file) > 0) {
+                    index--;
+                }
+                segments.add(index, segment);
+                sealing.remove(batch);
+            } finally {
+                lock.unlock();
+            }
+            log.debug("History: wrote %d records to %s", batch.size(), file.getFileName());
+        } catch (IOException e) {
+            // The batch stays in memory, answering queries, until a flush writes it.
+            lock.lock();
+            try {
+                unwritten.add(new UnwrittenSegment(file, batch));
+            } finally {
+                lock.unlock();
+            }
+            log.error("History: could not write %s (%s); retrying on the next flush.", file.getFileName(), e.getMessage());
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes all records collected so far to a new segment, retries segments whose write failed before,
+     * and waits until they are on disk. Does nothing once the store is closed, as closing already wrote them.
+     * @throws IOException if a segment could not be written; its records stay in memory and are retried
+     *         by the next flush.
+     */
+    public void flush() throws IOException {
+        List<Future<?>> writes = new ArrayList<>();
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            for (UnwrittenSegment retry : unwritten) {
+                writes.add(writer.submit(() -> writeSegment(retry.file, retry.batch)));
+            }
+            unwritten.clear();
+            writes.add(sealLocked());
+        } finally {
+            lock.unlock();
+        }
+        IOException failure = null;
+        for (Future<?> write : writes) {
+            try {
+                write.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while flushing history", e);
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = new IOException("Could not flush history; " + getUnwrittenCount()
+                            + " records are kept in memory until a flush succeeds", e.getCause());
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // --- Queries ---
+
+    /**
+     * Streams every closed loan of a patron, oldest first.
+     * @param patronId The ID of the patron.
+     * @param action Called once per record, as the records are decoded.
+     */
+    public void forEachByPatron(String patronId, Consumer<HistoryRecord> action) throws IOException {
+        List<HistorySegment> onDisk = new ArrayList<>();
+        List<HistoryRecord> inMemory = new ArrayList<>();
+        snapshot(onDisk, inMemory, record -> record.getPatronId().equals(patronId));
+        for (HistorySegment segment : onDisk) {
+            segment.forEachByPatron(patronId, action);
+        }
+        inMemory.forEach(action);
+    }
+
+    /**
+     * Streams every closed loan of a book, oldest first.
+     * @param isbn The ISBN of the book.
+     * @param action Called once per record, as the records are decoded.
+     */
+    public void forEachByIsbn(String isbn, Consumer<HistoryRecord> action) throws IOException {
+        List<HistorySegment> onDisk = new ArrayList<>();
+        List<HistoryRecord> inMemory = new ArrayList<>();
+        snapshot(onDisk, inMemory, record -> record.getIsbn().equals(isbn));
+        for (HistorySegment segment : onDisk) {
+            segment.forEachByIsbn(isbn, action);
+        }
+        inMemory.forEach(action);
+    }
+
+    // Copies the segment list and the matching in-memory records together, so a batch moving
+    // from memory to disk in between is seen exactly once.
+    private void snapshot(List<HistorySegment> onDisk, List<HistoryRecord> inMemory,
+                          Predicate<HistoryRecord> filter) {
+        lock.lock();
+        try {
+            onDisk.addAll(segments);
+            for (List<HistoryRecord> batch : sealing) {
+                for (HistoryRecord record : batch) {
+                    if (filter.test(record)) {
+                        inMemory.add(record);
+                    }
+                }
+            }
+            for (HistoryRecord record : buffer) {
+                if (filter.test(record)) {
+                    inMemory.add(record);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of records in segments whose write failed, waiting for the next flush.
+     */
+    public int getUnwrittenCount() {
+        lock.lock();
+        try {
+            int records = 0;
+            for (UnwrittenSegment segment : unwritten) {
+                records += segment.batch.size();
+            }
+            return records;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getSegmentCount() {
+        lock.lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the remaining records and stops the background writer. The store is closed even if the
+     * write fails, and the records that could not be written are lost.
+     * @throws IOException if some records could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flush();
+        } finally {
+            lock.lock();
+            try {
+                closed = true;
+            } finally {
+                lock.unlock();
+            }
+            writer.shutdown();
+        }
+    }
+
+    /**
+     * A full batch whose segment file could not be written.
+     */
+    private static final class UnwrittenSegment {
+        private final Path file;
+        private final List<HistoryRecord> batch;
+
+        private UnwrittenSegment(Path file, List<HistoryRecord> batch) {
+            this.file = file;
+            this.batch = batch;
+        }
+    }
+}
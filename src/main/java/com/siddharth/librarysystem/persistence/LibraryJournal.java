@@ -0,0 +1,521 @@
+package main.java.com.siddharth.librarysystem.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import main.java.com.siddharth.librarysystem.entity.Book;
+import main.java.com.siddharth.librarysystem.entity.LendingTicket;
+import main.java.com.siddharth.librarysystem.entity.Patron;
+import main.java.com.siddharth.librarysystem.entity.PaymentStatus;
+import main.java.com.siddharth.librarysystem.logging.EventLogger;
+import main.java.com.siddharth.librarysystem.manager.BookInventory;
+import main.java.com.siddharth.librarysystem.manager.PatronManager;
+
+/**
+ * An append-only write-ahead journal of every change made to the library.
+ *
+ * Each change is encoded as a small binary record: {@code [int length][byte type][payload][int crc32]}.
+ * Writers only copy their record into a shared buffer; a background thread writes the buffer to the
+ * file and, depending on the {@link FsyncPolicy}, forces it to disk. Under {@link FsyncPolicy#EVERY_WRITE}
+ * all writers waiting at the same time are covered by a single fsync (group commit).
+ *
+ * On startup, {@link #replay(BookInventory, PatronManager)} rebuilds the in-memory state from the file,
+ * or {@link #replay(BookInventory, PatronManager, long)} brings a loaded snapshot up to date from the
+ * {@link #position()} it was taken at.
+ * A torn record at the end of the file (e.g. from a crash mid-write) is detected by its checksum and cut off.
+ */
+public class LibraryJournal implements AutoCloseable {
+    private static final EventLogger log = EventLogger.forClass(LibraryJournal.class);
+
+    public static final Duration DEFAULT_FSYNC_INTERVAL = Duration.ofMillis(100);
+
+    // --- Record types ---
+    static final byte ADD_BOOK = 1;
+    static final byte REGISTER_PATRON = 2;
+    static final byte ISSUE = 3;
+    static final byte RETURN = 4;
+    static final byte UPDATE_BOOK = 5;
+
+    private final FileChannel channel;
+    private final FsyncPolicy policy;
+    private final long fsyncIntervalNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition dataAvailable = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    // Records waiting to be written; swapped out by the flusher thread.
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream(8192);
+    private long appendedSeq;
+    private long durableSeq;
+    // The file offset just past the last record appended, written or not.
+    private long appendedBytes;
+    private IOException writeFailure;
+    private volatile boolean closed;
+    private Thread flusher;
+
+    private LibraryJournal(FileChannel channel, FsyncPolicy policy, Duration fsyncInterval) {
+        this.channel = channel;
+        this.policy = policy;
+        this.fsyncIntervalNanos = fsyncInterval.toNanos();
+    }
+
+    /**
+     * Opens (or creates) a journal file with the default fsync interval.
+     * @param file The journal file.
+     * @param policy When to force writes to disk.
+     * @return The open journal.
+     */
+    public static LibraryJournal open(Path file, FsyncPolicy policy) throws IOException {
+        return open(file, policy, DEFAULT_FSYNC_INTERVAL);
+    }
+
+    /**
+     * Opens (or creates) a journal file.
+     * @param file The journal file.
+     * @param policy When to force writes to disk.
+     * @param fsyncInterval How often to force writes under {@link FsyncPolicy#INTERVAL}.
+     * @return The open journal.
+     */
+    public static LibraryJournal open(Path file, FsyncPolicy policy, Duration fsyncInterval) throws IOException {
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new LibraryJournal(channel, policy, fsyncInterval);
+    }
+
+    // --- Replay ---
+
+    /**
+     * Applies every record in the journal to the given inventory and patron manager, then positions
+     * the journal for appending. Must be called once, before the journal is attached to them.
+     * @return The number of records replayed.
+     */
+    public long replay(BookInventory bookInventory, PatronManager patronManager) throws IOException {
+        return replay(bookInventory, patronManager, 0);
+    }
+
+    /**
+     * Applies the records from the given position on, e.g. those written after a snapshot that was just
+     * loaded, then positions the journal for appending. Must be called once, before the journal is attached.
+     * @param from A {@link #position()} of this journal; 0 for all records.
+     * @return The number of records replayed.
+     * @throws IOException if the journal is shorter than that, e.g. it is not the one the snapshot was taken from.
+     */
+    public long replay(BookInventory bookInventory, PatronManager patronManager, long from) throws IOException {
+        if (from < 0 || from > channel.size()) {
+            throw new IOException("The journal ends at byte " + channel.size() + ", before position " + from
+                    + "; it is not the journal this state was saved from");
+        }
+        long records = 0;
+        long goodPosition = from;
+        channel.position(from);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+        while (true) {
+            byte[] body;
+            try {
+                int length = in.readInt();
+                if (length <= 0 || length > channel.size()) {
+                    break;
+                }
+                body = new byte[length];
+                in.readFully(body);
+                int storedCrc = in.readInt();
+                if (storedCrc != crc(body)) {
+                    break;
+                }
+            } catch (EOFException e) {
+                break;
+            }
+            apply(body, bookInventory, patronManager);
+            goodPosition += 4 + body.length + 4;
+            records++;
+        }
+        if (goodPosition < channel.size()) {
+            log.warn("Journal: discarding %d bytes of incomplete records.", channel.size() - goodPosition);
+            channel.truncate(goodPosition);
+        }
+        channel.position(goodPosition);
+        appendedBytes = goodPosition;
+        startFlusher();
+        return records;
+    }
+
+    private static void apply(byte[] body, BookInventory bookInventory, PatronManager patronManager) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        byte type = in.readByte();
+        switch (type) {
+            case ADD_BOOK: {
+                String isbn = in.readUTF();
+                String title = in.readUTF();
+                String author = in.readUTF();
+                int pubYear = in.readInt();
+                int quantity = in.readInt();
+                // Not addBook, which would turn away books journaled before check digits were verified.
+                bookInventory.restoreBook(new Book(title, author, isbn, pubYear), quantity);
+                break;
+            }
+            case UPDATE_BOOK: {
+                String isbn = in.readUTF();
+                bookInventory.updateBookDetails(isbn, in.readUTF(), in.readUTF(), in.readInt());
+                break;
+            }
+            case REGISTER_PATRON: {
+                String id = in.readUTF();
+                String name = in.readUTF();
+                String email = in.readUTF();
+                LocalDateTime createdAt = readDateTime(in);
+                LocalDateTime updatedAt = readDateTime(in);
+                patronManager.restorePatron(new Patron(id, name, email, createdAt, updatedAt));
+                break;
+            }
+            case ISSUE: {
+                String ticketId = in.readUTF();
+                String patronId = in.readUTF();
+                String isbn = in.readUTF();
+                LocalDate issueDate = LocalDate.ofEpochDay(in.readInt());
+                LocalDate returnDate = LocalDate.ofEpochDay(in.readInt());
+                double price = in.readDouble();
+                PaymentStatus status = PaymentStatus.values()[in.readByte()];
+                Book book = bookInventory.getByIsbn(isbn);
+                Patron patron = patronManager.findPatronById(patronId);
+                if (book != null && patron != null) {
+                    patronManager.restoreTicket(new LendingTicket(ticketId, book, patron, issueDate, returnDate, price, status));
+                }
+                break;
+            }
+            case RETURN: {
+                String patronId = in.readUTF();
+                String isbn = in.readUTF();
+                Patron patron = patronManager.findPatronById(patronId);
+                if (patron != null) {
+                    patronManager.closeTicket(patron, isbn);
+                }
+                break;
+            }
+            default:
+                throw new IOException("Unknown journal record type " + type);
+        }
+    }
+
+    // --- Appending ---
+
+    public void appendAddBook(Book book, int quantity) {
+        append(ADD_BOOK, out -> {
+            out.writeUTF(book.getIsbn());
+            out.writeUTF(book.getTitle());
+            out.writeUTF(book.getAuthor());
+            out.writeInt(book.getPubYear());
+            out.writeInt(quantity);
+        });
+    }
+
+    /**
+     * Records several added books at once. Under {@link FsyncPolicy#EVERY_WRITE} the whole batch
+     * shares a single wait for the disk.
+     */
+    public void appendAddBooks(List<Book> books, int[] quantities) {
+        ByteArrayOutputStream batch = new ByteArrayOutputStream(books.size() * 64);
+        for (int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+            int quantity = quantities[i];
+            byte[] record = encode(ADD_BOOK, out -> {
+                out.writeUTF(book.getIsbn());
+                out.writeUTF(book.getTitle());
+                out.writeUTF(book.getAuthor());
+                out.writeInt(book.getPubYear());
+                out.writeInt(quantity);
+            });
+            batch.write(record, 0, record.length);
+        }
+        appendEncoded(batch.toByteArray());
+    }
+
+    public void appendUpdateBook(String isbn, String title, String author, int pubYear) {
+        append(UPDATE_BOOK, out -> {
+            out.writeUTF(isbn);
+            out.writeUTF(title);
+            out.writeUTF(author);
+            out.writeInt(pubYear);
+        });
+    }
+
+    public void appendRegisterPatron(Patron patron) {
+        append(REGISTER_PATRON, out -> {
+            out.writeUTF(patron.getId());
+            out.writeUTF(patron.getName());
+            out.writeUTF(patron.getEmail());
+            writeDateTime(out, patron.getCreatedAt());
+            writeDateTime(out, patron.getUpdatedAt());
+        });
+    }
+
+    public void appendIssue(LendingTicket ticket) {
+        append(ISSUE, out -> writeIssue(out, ticket));
+    }
+
+    /**
+     * Records several issues at once, e.g. a checkout: either all of them are handed to the flusher or,
+     * if this throws, none. Under {@link FsyncPolicy#EVERY_WRITE} they share a single wait for the disk.
+     */
+    public void appendIssues(List<LendingTicket> tickets) {
+        ByteArrayOutputStream batch = new ByteArrayOutputStream(tickets.size() * 96);
+        for (LendingTicket ticket : tickets) {
+            byte[] record = encode(ISSUE, out -> writeIssue(out, ticket));
+            batch.write(record, 0, record.length);
+        }
+        appendEncoded(batch.toByteArray());
+    }
+
+    private static void writeIssue(DataOutputStream out, LendingTicket ticket) throws IOException {
+        out.writeUTF(ticket.getId());
+        out.writeUTF(ticket.getPatron().getId());
+        out.writeUTF(ticket.getBook().getIsbn());
+        out.writeInt((int) ticket.getIssueDate().toEpochDay());
+        out.writeInt((int) ticket.getReturnDate().toEpochDay());
+        out.writeDouble(ticket.getIssuePrice());
+        out.writeByte(ticket.getPaymentStatus().ordinal());
+    }
+
+    public void appendReturn(String patronId, String isbn) {
+        append(RETURN, out -> {
+            out.writeUTF(patronId);
+            out.writeUTF(isbn);
+        });
+    }
+
+    /**
+     * Encodes a record and hands it to the flusher. Under {@link FsyncPolicy#EVERY_WRITE}
+     * this returns only once the record is on disk.
+     * @throws UncheckedIOException if the journal could not be written; the caller must not apply the change.
+     */
+    private void append(byte type, RecordWriter writer) {
+        appendEncoded(encode(type, writer));
+    }
+
+    private void appendEncoded(byte[] record) {
+        long seq;
+        lock.lock();
+        try {
+            checkUsable();
+            pending.write(record, 0, record.length);
+            appendedBytes += record.length;
+            seq = ++appendedSeq;
+            dataAvailable.signal();
+            if (policy != FsyncPolicy.EVERY_WRITE) {
+                return;
+            }
+            while (durableSeq < seq) {
+                if (writeFailure != null) {
+                    throw new UncheckedIOException("Journal write failed", writeFailure);
+                }
+                flushed.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkUsable() {
+        if (writeFailure != null) {
+            throw new UncheckedIOException("Journal write failed", writeFailure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        if (flusher == null) {
+            throw new IllegalStateException("Journal must be replayed before it is written to");
+        }
+    }
+
+    private static byte[] encode(byte type, RecordWriter writer) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0); // length placeholder
+            out.writeByte(type);
+            writer.write(out);
+            out.writeInt(0); // checksum placeholder
+            byte[] record = bytes.toByteArray();
+            int bodyLength = record.length - 8;
+            ByteBuffer buffer = ByteBuffer.wrap(record);
+            buffer.putInt(0, bodyLength);
+            CRC32 crc = new CRC32();
+            crc.update(record, 4, bodyLength);
+            buffer.putInt(4 + bodyLength, (int) crc.getValue());
+            return record;
+        } catch (IOException e) {
+            // Writing to a byte array never fails
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return The offset just past the last record appended so far, to replay from after loading a
+     *         snapshot of the state those records add up to.
+     */
+    public long position() {
+        lock.lock();
+        try {
+            return appendedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every record appended so far is written, then forces the file to disk, whatever the
+     * {@link FsyncPolicy}; e.g. before saving a snapshot that refers to {@link #position()}.
+     * @throws IOException if the journal could not be written.
+     */
+    public void sync() throws IOException {
+        lock.lock();
+        try {
+            checkUsable();
+            long seq = appendedSeq;
+            dataAvailable.signal();
+            while (durableSeq < seq) {
+                if (writeFailure != null) {
+                    throw new IOException("Journal write failed", writeFailure);
+                }
+                flushed.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+        channel.force(false);
+    }
+
+    // --- Flushing ---
+
+    private void startFlusher() {
+        flusher = new Thread(this::flushLoop, "journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    private void flushLoop() {
+        long lastSync = System.nanoTime();
+        while (true) {
+            ByteArrayOutputStream batch;
+            long batchSeq;
+            lock.lock();
+            try {
+                while (pending.size() == 0 && !closed) {
+                    if (policy == FsyncPolicy.INTERVAL) {
+                        dataAvailable.await(fsyncIntervalNanos, TimeUnit.NANOSECONDS);
+                        break;
+                    }
+                    dataAvailable.await();
+                }
+                if (closed && pending.size() == 0) {
+                    return;
+                }
+                batch = pending;
+                batchSeq = appendedSeq;
+                pending = new ByteArrayOutputStream(Math.max(8192, batch.size()));
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                long now = System.nanoTime();
+                if (policy == FsyncPolicy.EVERY_WRITE
+                        || (policy == FsyncPolicy.INTERVAL && now - lastSync >= fsyncIntervalNanos)) {
+                    channel.force(false);
+                    lastSync = now;
+                }
+            } catch (IOException e) {
+                lock.lock();
+                try {
+                    writeFailure = e;
+                    flushed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+
+            lock.lock();
+            try {
+                durableSeq = batchSeq;
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes out anything still buffered, forces it to disk and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            dataAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (flusher != null) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (channel.isOpen()) {
+            channel.force(true);
+            channel.close();
+        }
+    }
+
+    // --- Helpers ---
+
+    private static int crc(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+        return (int) crc.getValue();
+    }
+
+    private static void writeDateTime(DataOutputStream out, LocalDateTime dateTime) throws IOException {
+        out.writeLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(dateTime.getNano());
+    }
+
+    private static LocalDateTime readDateTime(DataInputStream in) throws IOException {
+        long seconds = in.readLong();
+        int nanos = in.readInt();
+        return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
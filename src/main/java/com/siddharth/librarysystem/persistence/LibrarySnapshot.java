@@ -0,0 +1,350 @@
+package main.java.com.siddharth.librarysystem.persistence;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import main.java.com.siddharth.librarysystem.entity.Book;
+import main.java.com.siddharth.librarysystem.entity.LendingTicket;
+import main.java.com.siddharth.librarysystem.entity.Patron;
+import main.java.com.siddharth.librarysystem.entity.PaymentStatus;
+import main.java.com.siddharth.librarysystem.manager.BookInventory;
+import main.java.com.siddharth.librarysystem.manager.ChangeGate;
+import main.java.com.siddharth.librarysystem.manager.PatronManager;
+import main.java.com.siddharth.librarysystem.query.CatalogPage;
+import main.java.com.siddharth.librarysystem.query.InventoryRow;
+
+/**
+ * Reads and writes a versioned binary snapshot of the whole library:
+ * books with their copy counts, patrons and active lending tickets.
+ *
+ * Layout (big-endian):
+ * <pre>
+ * int magic, int version, long createdAtMillis, long journalPosition
+ * int bookCount,   then per book:   id, title, author, isbn, int pubYear, int totalCopies
+ * int patronCount, then per patron: id, name, email, createdAt, updatedAt
+ * int ticketCount, then per ticket: id, patronId, isbn, int issueDay, int returnDay, double price, byte status
+ * int crc32 of everything before it
+ * </pre>
+ * Strings are stored as an int byte length followed by UTF-8 bytes.
+ *
+ * Only the total number of copies is stored per book; borrowed counts are rebuilt from the tickets.
+ * The state is copied with the inventory's {@link ChangeGate} closed, so it is exactly what the journal's
+ * records up to {@code journalPosition} add up to, and loading it then replaying the journal from there
+ * restores the library. Changes wait only while the state is copied, not while it is written to disk.
+ * A ticket that still finds no copy to borrow on loading is logged and left out rather than over-lending.
+ */
+public final class LibrarySnapshot {
+
+    private static final int MAGIC = 0x4C494253; // "LIBS"
+    private static final int VERSION = 2;
+    // Files are mapped in windows of this size, so snapshots larger than 2 GB can still be read.
+    private static final long MAP_WINDOW = 1L << 30;
+    private static final int CATALOG_PAGE_SIZE = 4096;
+
+    private LibrarySnapshot() {
+    }
+
+    // --- Writing ---
+
+    /**
+     * Writes a snapshot to a temporary file next to the target and atomically moves it into place,
+     * so readers never see a half-written snapshot.
+     * @param file The snapshot file.
+     * @param journal The journal the library records its changes to, or null if it has none.
+     *                It is forced to disk up to the snapshot's position before the snapshot is moved into place.
+     * @return The number of books written.
+     */
+    public static long write(Path file, BookInventory bookInventory, PatronManager patronManager,
+                             LibraryJournal journal) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            List<InventoryRow> books = new ArrayList<>(bookInventory.getBookCount());
+            List<Patron> patrons = new ArrayList<>();
+            List<List<LendingTicket>> ticketsByPatron = new ArrayList<>();
+            long[] journalPosition = new long[1];
+            bookInventory.getChangeGate().closeWhile(() -> {
+                journalPosition[0] = journal == null ? 0 : journal.position();
+                readCatalog(bookInventory, books);
+                patrons.addAll(patronManager.getAllPatrons());
+                for (Patron patron : patrons) {
+                    ticketsByPatron.add(patronManager.getActiveTickets(patron));
+                }
+            });
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                CRC32 crc = new CRC32();
+                DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                        new BufferedOutputStream(new NonClosingOutputStream(channel), 1 << 16), crc));
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(System.currentTimeMillis());
+                out.writeLong(journalPosition[0]);
+
+                out.writeInt(books.size());
+                for (InventoryRow row : books) {
+                    Book book = row.getBook();
+                    writeString(out, book.getId());
+                    writeString(out, book.getTitle());
+                    writeString(out, book.getAuthor());
+                    writeString(out, book.getIsbn());
+                    out.writeInt(book.getPubYear());
+                    out.writeInt(row.getTotalCopies());
+                }
+
+                out.writeInt(patrons.size());
+                for (Patron patron : patrons) {
+                    writeString(out, patron.getId());
+                    writeString(out, patron.getName());
+                    writeString(out, patron.getEmail());
+                    writeDateTime(out, patron.getCreatedAt());
+                    writeDateTime(out, patron.getUpdatedAt());
+                }
+
+                int ticketCount = 0;
+                for (List<LendingTicket> tickets : ticketsByPatron) {
+                    ticketCount += tickets.size();
+                }
+                out.writeInt(ticketCount);
+                for (List<LendingTicket> tickets : ticketsByPatron) {
+                    for (LendingTicket ticket : tickets) {
+                        writeString(out, ticket.getId());
+                        writeString(out, ticket.getPatron().getId());
+                        writeString(out, ticket.getBook().getIsbn());
+                        out.writeInt((int) ticket.getIssueDate().toEpochDay());
+                        out.writeInt((int) ticket.getReturnDate().toEpochDay());
+                        out.writeDouble(ticket.getIssuePrice());
+                        out.writeByte(ticket.getPaymentStatus().ordinal());
+                    }
+                }
+                out.flush();
+                int checksum = (int) crc.getValue();
+                out.writeInt(checksum);
+                out.flush();
+                channel.force(true);
+            }
+            if (journal != null) {
+                // The records before the snapshot's position must outlive a crash, or replay would skip later ones
+                journal.sync();
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return books.size();
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // --- Loading ---
+
+    /**
+     * Loads a snapshot into an empty inventory and patron manager by memory-mapping the file.
+     * @param file The snapshot file.
+     * @return The journal position the snapshot was taken at, to replay the journal from
+     *         (0 if the library had no journal).
+     * @throws IOException if the file is missing, of an unknown version or corrupt.
+     */
+    public static long load(Path file, BookInventory bookInventory, PatronManager patronManager) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            verifyChecksum(channel, size);
+            MappedReader in = new MappedReader(channel, size - 4);
+
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not a library snapshot");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            in.readLong(); // created at
+            long journalPosition = in.readLong();
+
+            int bookCount = in.readInt();
+            for (int i = 0; i < bookCount; i++) {
+                String id = in.readString();
+                String title = in.readString();
+                String author = in.readString();
+                String isbn = in.readString();
+                int pubYear = in.readInt();
+                int totalCopies = in.readInt();
+                bookInventory.restoreBook(new Book(id, title, author, isbn, pubYear), totalCopies);
+            }
+
+            int patronCount = in.readInt();
+            for (int i = 0; i < patronCount; i++) {
+                String id = in.readString();
+                String name = in.readString();
+                String email = in.readString();
+                LocalDateTime createdAt = in.readDateTime();
+                LocalDateTime updatedAt = in.readDateTime();
+                patronManager.restorePatron(new Patron(id, name, email, createdAt, updatedAt));
+            }
+
+            int ticketCount = in.readInt();
+            PaymentStatus[] statuses = PaymentStatus.values();
+            for (int i = 0; i < ticketCount; i++) {
+                String id = in.readString();
+                String patronId = in.readString();
+                String isbn = in.readString();
+                LocalDate issueDate = LocalDate.ofEpochDay(in.readInt());
+                LocalDate returnDate = LocalDate.ofEpochDay(in.readInt());
+                double price = in.readDouble();
+                PaymentStatus status = statuses[in.readByte()];
+                Book book = bookInventory.getByIsbn(isbn);
+                Patron patron = patronManager.findPatronById(patronId);
+                // A ticket finding no copy left is logged and skipped by restoreTicket
+                if (book != null && patron != null) {
+                    patronManager.restoreTicket(new LendingTicket(id, book, patron, issueDate, returnDate, price, status));
+                }
+            }
+            return journalPosition;
+        }
+    }
+
+    private static void verifyChecksum(FileChannel channel, long size) throws IOException {
+        if (size < 4) {
+            throw new IOException("Snapshot is truncated");
+        }
+        CRC32 crc = new CRC32();
+        for (long position = 0; position < size - 4; position += MAP_WINDOW) {
+            long length = Math.min(MAP_WINDOW, size - 4 - position);
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+        }
+        ByteBuffer stored = ByteBuffer.allocate(4);
+        channel.read(stored, size - 4);
+        if (stored.getInt(0) != (int) crc.getValue()) {
+            throw new IOException("Snapshot checksum mismatch");
+        }
+    }
+
+    // --- Helpers ---
+
+    // Reads every book with its copy counts through the paged listing, a page at a time.
+    private static void readCatalog(BookInventory bookInventory, List<InventoryRow> rows) {
+        String cursor = null;
+        do {
+            CatalogPage page = bookInventory.listBooks(cursor, CATALOG_PAGE_SIZE);
+            rows.addAll(page.getRows());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeDateTime(DataOutputStream out, LocalDateTime dateTime) throws IOException {
+        out.writeLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(dateTime.getNano());
+    }
+
+    /**
+     * Sequential reader over a memory-mapped file, remapping a new window whenever the current one runs out.
+     */
+    private static final class MappedReader {
+        private final FileChannel channel;
+        private final long limit;
+        private MappedByteBuffer buffer;
+        private long windowStart;
+        private byte[] scratch = new byte[256];
+
+        MappedReader(FileChannel channel, long limit) throws IOException {
+            this.channel = channel;
+            this.limit = limit;
+            map(0);
+        }
+
+        private void map(long position) throws IOException {
+            windowStart = position;
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW, limit - position));
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                long position = windowStart + buffer.position();
+                if (limit - position < bytes) {
+                    throw new IOException("Snapshot is truncated");
+                }
+                map(position);
+            }
+        }
+
+        int readInt() throws IOException {
+            ensure(4);
+            return buffer.getInt();
+        }
+
+        long readLong() throws IOException {
+            ensure(8);
+            return buffer.getLong();
+        }
+
+        double readDouble() throws IOException {
+            ensure(8);
+            return buffer.getDouble();
+        }
+
+        byte readByte() throws IOException {
+            ensure(1);
+            return buffer.get();
+        }
+
+        String readString() throws IOException {
+            int length = readInt();
+            ensure(length);
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            buffer.get(scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        LocalDateTime readDateTime() throws IOException {
+            long seconds = readLong();
+            int nanos = readInt();
+            return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+        }
+    }
+
+    /**
+     * Writes to a channel without closing it, so the channel's own try-with-resources can force it first.
+     */
+    private static final class NonClosingOutputStream extends OutputStream {
+        private final FileChannel channel;
+
+        NonClosingOutputStream(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package main.java.com.siddharth.librarysystem.query;
+
+import main.java.com.siddharth.librarysystem.entity.Book;
+
+/**
+ * A book found by a typo-tolerant lookup, with how closely its title or author matched what was typed.
+ */
+public class BookMatch {
+    private final Book book;
+    private final int distance;
+    private final double score;
+
+    /**
+     * @param distance The number of single-character edits between the typed text and the field.
+     * @param score The similarity from 0 to 1, where 1 is an exact match.
+     */
+    public BookMatch(Book book, int distance, double score) {
+        this.book = book;
+        this.distance = distance;
+        this.score = score;
+    }
+
+    // --- Getters ---
+
+    public Book getBook() {
+        return book;
+    }
+
+    public int getDistance() {
+        return distance;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    // --- Overridden Methods ---
+
+    @Override
+    public String toString() {
+        return book + String.format(", Match: %.0f%%", score * 100);
+    }
+}
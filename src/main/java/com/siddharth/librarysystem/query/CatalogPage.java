@@ -0,0 +1,64 @@
+package main.java.com.siddharth.librarysystem.query;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * One page of a catalog listing in ISBN order, plus the cursor to fetch the next page with.
+ *
+ * The cursor records the last ISBN returned rather than a position, so paging stays correct
+ * while books are being added: resuming never repeats a book or skips one that was there all along.
+ * Cursors are opaque URL-safe strings and stay valid across restarts.
+ */
+public class CatalogPage {
+    private final List<InventoryRow> rows;
+    private final String nextCursor;
+
+    public CatalogPage(List<InventoryRow> rows, String nextCursor) {
+        this.rows = rows;
+        this.nextCursor = nextCursor;
+    }
+
+    // --- Getters ---
+
+    public List<InventoryRow> getRows() {
+        return rows;
+    }
+
+    /**
+     * @return The cursor for the next page, or null if this is the last page.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+    // --- Cursor Encoding ---
+
+    /**
+     * Builds the cursor that resumes a listing right after the given ISBN.
+     * @param lastIsbn The last ISBN already returned.
+     * @return The cursor token.
+     */
+    public static String encodeCursor(String lastIsbn) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(lastIsbn.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads the ISBN back out of a cursor.
+     * @param cursor A cursor from {@link #getNextCursor()}.
+     * @return The last ISBN already returned.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    public static String decodeCursor(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package main.java.com.siddharth.librarysystem.query;
+
+/**
+ * A catalog query: a conjunction of predicates on title, author, publication year and availability,
+ * plus ordering and paging. Every predicate is optional; a query with none matches the whole catalog.
+ *
+ * Example: books by Asimov published 1950-1970 with a copy on the shelf, newest first:
+ * <pre>
+ * new CatalogQuery().author("asimov").publishedBetween(1950, 1970).availableOnly()
+ *         .orderBy(SortOrder.PUB_YEAR_DESC).limit(20)
+ * </pre>
+ * Title and author predicates follow the rules of the word searches: every word must match
+ * and the last one may be a prefix. A predicate without any words, e.g. only punctuation, matches nothing.
+ */
+public class CatalogQuery {
+    private String title;
+    private String author;
+    private Integer fromYear;
+    private Integer toYear;
+    private boolean availableOnly;
+    private SortOrder sortOrder = SortOrder.TITLE;
+    private int offset;
+    private int limit = Integer.MAX_VALUE;
+
+    // --- Predicates ---
+
+    public CatalogQuery title(String title) {
+        this.title = title;
+        return this;
+    }
+
+    public CatalogQuery author(String author) {
+        this.author = author;
+        return this;
+    }
+
+    public CatalogQuery publishedIn(int year) {
+        return publishedBetween(year, year);
+    }
+
+    /**
+     * Restricts the query to books published between the two years, both inclusive.
+     * @param fromYear The earliest publication year.
+     * @param toYear The latest publication year.
+     */
+    public CatalogQuery publishedBetween(int fromYear, int toYear) {
+        this.fromYear = fromYear;
+        this.toYear = toYear;
+        return this;
+    }
+
+    public CatalogQuery publishedFrom(int fromYear) {
+        this.fromYear = fromYear;
+        return this;
+    }
+
+    public CatalogQuery publishedUntil(int toYear) {
+        this.toYear = toYear;
+        return this;
+    }
+
+    /**
+     * Restricts the query to books with at least one copy available right now.
+     */
+    public CatalogQuery availableOnly() {
+        this.availableOnly = true;
+        return this;
+    }
+
+    // --- Ordering and Paging ---
+
+    public CatalogQuery orderBy(SortOrder sortOrder) {
+        if (sortOrder == null) {
+            throw new IllegalArgumentException("Sort order must not be null.");
+        }
+        this.sortOrder = sortOrder;
+        return this;
+    }
+
+    public CatalogQuery offset(int offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset must not be negative.");
+        }
+        this.offset = offset;
+        return this;
+    }
+
+    public CatalogQuery limit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative.");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    // --- Getters ---
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public boolean hasYearRange() {
+        return fromYear != null || toYear != null;
+    }
+
+    public int getFromYear() {
+        return fromYear == null ? Integer.MIN_VALUE : fromYear;
+    }
+
+    public int getToYear() {
+        return toYear == null ? Integer.MAX_VALUE : toYear;
+    }
+
+    public boolean isAvailableOnly() {
+        return availableOnly;
+    }
+
+    public SortOrder getSortOrder() {
+        return sortOrder;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    // --- Overridden Methods ---
+
+    @Override
+    public String toString() {
+        return "CatalogQuery{" +
+                "title='" + title + '\'' +
+                ", author='" + author + '\'' +
+                ", fromYear=" + fromYear +
+                ", toYear=" + toYear +
+                ", availableOnly=" + availableOnly +
+                ", sortOrder=" + sortOrder +
+                ", offset=" + offset +
+                ", limit=" + limit +
+                '}';
+    }
+}
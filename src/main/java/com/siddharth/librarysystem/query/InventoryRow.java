@@ -0,0 +1,58 @@
+package main.java.com.siddharth.librarysystem.query;
+
+import main.java.com.siddharth.librarysystem.entity.Book;
+
+/**
+ * One line of a catalog listing: a book together with its copy counts,
+ * read at the same instant so that available, reserved and borrowed always add up to the total.
+ */
+public class InventoryRow {
+    private final Book book;
+    private final int availableCopies;
+    private final int reservedCopies;
+    private final int borrowedCopies;
+
+    public InventoryRow(Book book, int availableCopies, int borrowedCopies) {
+        this(book, availableCopies, 0, borrowedCopies);
+    }
+
+    /**
+     * @param reservedCopies Copies held back for issues that are being paid for.
+     */
+    public InventoryRow(Book book, int availableCopies, int reservedCopies, int borrowedCopies) {
+        this.book = book;
+        this.availableCopies = availableCopies;
+        this.reservedCopies = reservedCopies;
+        this.borrowedCopies = borrowedCopies;
+    }
+
+    // --- Getters ---
+
+    public Book getBook() {
+        return book;
+    }
+
+    public int getAvailableCopies() {
+        return availableCopies;
+    }
+
+    public int getReservedCopies() {
+        return reservedCopies;
+    }
+
+    public int getBorrowedCopies() {
+        return borrowedCopies;
+    }
+
+    public int getTotalCopies() {
+        return availableCopies + reservedCopies + borrowedCopies;
+    }
+
+    // --- Overridden Methods ---
+
+    @Override
+    public String toString() {
+        return book + ", Available Copies: " + availableCopies + (reservedCopies > 0 ? ", Reserved Copies: " + reservedCopies : "")
+                + ", Borrowed Copies: " + borrowedCopies;
+    }
+}
@@ -0,0 +1,16 @@
+package main.java.com.siddharth.librarysystem.query;
+
+/**
+ * The order in which catalog query results are returned.
+ * Ties are always broken by ISBN, so paging through results with an offset is stable.
+ */
+public enum SortOrder {
+    // Alphabetical by title, ignoring case.
+    TITLE,
+    // Alphabetical by author, ignoring case.
+    AUTHOR,
+    // Oldest publication first.
+    PUB_YEAR,
+    // Newest publication first.
+    PUB_YEAR_DESC
+}
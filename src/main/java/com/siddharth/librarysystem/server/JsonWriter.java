@@ -0,0 +1,290 @@
+package main.java.com.siddharth.librarysystem.server;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Writes JSON straight into a growable UTF-8 byte array, which the server then sends as the response body.
+ *
+ * Numbers, dates and strings are encoded in place, so a response costs its byte array and nothing per field.
+ * Commas are added automatically:
+ * <pre>
+ * JsonWriter json = new JsonWriter();
+ * json.beginObject().name("isbn").value(book.getIsbn()).name("copies").value(3).endObject();
+ * exchange.getResponseBody().write(json.buffer(), 0, json.size());
+ * </pre>
+ * Not thread-safe; use one per response.
+ */
+public final class JsonWriter {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final int DEFAULT_CAPACITY = 512;
+
+    private byte[] buffer;
+    private int size;
+    // Whether the current object or array has no elements yet, so the next one needs no comma.
+    private boolean first = true;
+    // Whether a name was just written, so the value that follows needs no comma.
+    private boolean afterName;
+
+    public JsonWriter() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity The initial buffer size in bytes; it grows as needed.
+     */
+    public JsonWriter(int capacity) {
+        this.buffer = new byte[capacity];
+    }
+
+    // --- Structure ---
+
+    public JsonWriter beginObject() {
+        beforeValue();
+        write((byte) '{');
+        first = true;
+        return this;
+    }
+
+    public JsonWriter endObject() {
+        write((byte) '}');
+        first = false;
+        return this;
+    }
+
+    public JsonWriter beginArray() {
+        beforeValue();
+        write((byte) '[');
+        first = true;
+        return this;
+    }
+
+    public JsonWriter endArray() {
+        write((byte) ']');
+        first = false;
+        return this;
+    }
+
+    /**
+     * @param name The name of the next member of the current object.
+     */
+    public JsonWriter name(String name) {
+        separate();
+        writeString(name);
+        write((byte) ':');
+        afterName = true;
+        return this;
+    }
+
+    // --- Values ---
+
+    /**
+     * @param value The string, or null for a JSON null.
+     */
+    public JsonWriter value(String value) {
+        beforeValue();
+        if (value == null) {
+            writeAscii("null");
+        } else {
+            writeString(value);
+        }
+        return this;
+    }
+
+    public JsonWriter value(long value) {
+        beforeValue();
+        writeLong(value);
+        return this;
+    }
+
+    public JsonWriter value(boolean value) {
+        beforeValue();
+        writeAscii(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Writes an amount of money, rounded to cents, e.g. 5.0 as {@code 5.00}.
+     * @param amount The amount; must be finite.
+     */
+    public JsonWriter money(double amount) {
+        beforeValue();
+        long cents = Math.round(amount * 100);
+        if (cents < 0) {
+            write((byte) '-');
+            cents = -cents;
+        }
+        writeLong(cents / 100);
+        write((byte) '.');
+        write((byte) ('0' + cents % 100 / 10));
+        write((byte) ('0' + cents % 10));
+        return this;
+    }
+
+    /**
+     * Writes a date as an ISO-8601 string, e.g. {@code "2024-05-01"}, or null.
+     */
+    public JsonWriter value(LocalDate date) {
+        beforeValue();
+        if (date == null) {
+            writeAscii("null");
+            return this;
+        }
+        write((byte) '"');
+        int year = date.getYear();
+        if (year < 0 || year > 9999) {
+            writeAscii(date.toString()); // Outside the four-digit range ISO-8601 needs a sign or more digits
+        } else {
+            writeDigits(year, 4);
+            write((byte) '-');
+            writeDigits(date.getMonthValue(), 2);
+            write((byte) '-');
+            writeDigits(date.getDayOfMonth(), 2);
+        }
+        write((byte) '"');
+        return this;
+    }
+
+    // --- Output ---
+
+    /**
+     * @return The buffer holding the JSON in its first {@link #size()} bytes; valid until the next write.
+     */
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Empties the writer so it can be reused, keeping its buffer.
+     */
+    public void reset() {
+        size = 0;
+        first = true;
+        afterName = false;
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, size, StandardCharsets.UTF_8);
+    }
+
+    // --- Encoding ---
+
+    private void beforeValue() {
+        if (afterName) {
+            afterName = false;
+        } else {
+            separate();
+        }
+    }
+
+    private void separate() {
+        if (!first) {
+            write((byte) ',');
+        }
+        first = false;
+    }
+
+    private void writeString(String value) {
+        ensureCapacity(value.length() + 2);
+        write((byte) '"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\') {
+                write((byte) c);
+            } else if (c == '"' || c == '\\') {
+                write((byte) '\\');
+                write((byte) c);
+            } else if (c < 0x20) {
+                writeControl(c);
+            } else if (c < 0x800) {
+                write((byte) (0xC0 | c >> 6));
+                write((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                write((byte) (0xF0 | codePoint >> 18));
+                write((byte) (0x80 | codePoint >> 12 & 0x3F));
+                write((byte) (0x80 | codePoint >> 6 & 0x3F));
+                write((byte) (0x80 | codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                write((byte) '?'); // A lone surrogate has no UTF-8 encoding
+            } else {
+                write((byte) (0xE0 | c >> 12));
+                write((byte) (0x80 | c >> 6 & 0x3F));
+                write((byte) (0x80 | c & 0x3F));
+            }
+        }
+        write((byte) '"');
+    }
+
+    private void writeControl(char c) {
+        write((byte) '\\');
+        switch (c) {
+            case '\n' -> write((byte) 'n');
+            case '\r' -> write((byte) 'r');
+            case '\t' -> write((byte) 't');
+            default -> {
+                writeAscii("u00");
+                write(HEX[c >> 4]);
+                write(HEX[c & 0xF]);
+            }
+        }
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeAscii("-9223372036854775808");
+            return;
+        }
+        if (value < 0) {
+            write((byte) '-');
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        ensureCapacity(digits);
+        for (int i = size + digits - 1; i >= size; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        size += digits;
+    }
+
+    // Zero-padded to the given number of digits.
+    private void writeDigits(int value, int digits) {
+        ensureCapacity(digits);
+        for (int i = size + digits - 1; i >= size; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        size += digits;
+    }
+
+    private void writeAscii(String text) {
+        ensureCapacity(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            buffer[size++] = (byte) text.charAt(i);
+        }
+    }
+
+    private void write(byte b) {
+        if (size == buffer.length) {
+            ensureCapacity(1);
+        }
+        buffer[size++] = b;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+}
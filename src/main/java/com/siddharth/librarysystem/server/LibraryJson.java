@@ -0,0 +1,59 @@
+package main.java.com.siddharth.librarysystem.server;
+
+import main.java.com.siddharth.librarysystem.entity.Book;
+import main.java.com.siddharth.librarysystem.entity.LendingTicket;
+import main.java.com.siddharth.librarysystem.entity.Patron;
+
+/**
+ * The JSON shapes of the entities the server returns.
+ */
+public final class LibraryJson {
+
+    private LibraryJson() {
+    }
+
+    /**
+     * {@code {"isbn":"...","title":"...","author":"...","pubYear":1965,"available":2}}
+     * @param availableCopies The copies on the shelf, or a negative number to leave the field out.
+     */
+    public static JsonWriter book(JsonWriter json, Book book, int availableCopies) {
+        json.beginObject()
+                .name("isbn").value(book.getIsbn())
+                .name("title").value(book.getTitle())
+                .name("author").value(book.getAuthor())
+                .name("pubYear").value(book.getPubYear());
+        if (availableCopies >= 0) {
+            json.name("available").value(availableCopies);
+        }
+        return json.endObject();
+    }
+
+    /**
+     * {@code {"id":"...","name":"...","email":"..."}}
+     */
+    public static JsonWriter patron(JsonWriter json, Patron patron) {
+        return json.beginObject()
+                .name("id").value(patron.getId())
+                .name("name").value(patron.getName())
+                .name("email").value(patron.getEmail())
+                .endObject();
+    }
+
+    /**
+     * {@code {"id":"...","isbn":"...","title":"...","patronId":"...","issueDate":"...","returnDate":"...",
+     * "price":5.00,"paymentStatus":"PAID","fine":0.00}}
+     */
+    public static JsonWriter ticket(JsonWriter json, LendingTicket ticket) {
+        return json.beginObject()
+                .name("id").value(ticket.getId())
+                .name("isbn").value(ticket.getBook().getIsbn())
+                .name("title").value(ticket.getBook().getTitle())
+                .name("patronId").value(ticket.getPatron().getId())
+                .name("issueDate").value(ticket.getIssueDate())
+                .name("returnDate").value(ticket.getReturnDate())
+                .name("price").money(ticket.getIssuePrice())
+                .name("paymentStatus").value(ticket.getPaymentStatus().name())
+                .name("fine").money(ticket.getFineAmount())
+                .endObject();
+    }
+}
@@ -0,0 +1,338 @@
+package main.java.com.siddharth.librarysystem.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import main.java.com.siddharth.librarysystem.core.Library;
+import main.java.com.siddharth.librarysystem.entity.Book;
+import main.java.com.siddharth.librarysystem.entity.LendingTicket;
+import main.java.com.siddharth.librarysystem.entity.Patron;
+import main.java.com.siddharth.librarysystem.logging.EventLogger;
+
+/**
+ * An HTTP/JSON front end over the {@link Library} facade, for kiosks and the mobile app.
+ *
+ * Built on the JDK's HTTP server; every request is handled on its own virtual thread, so slow payments
+ * don't tie up a pool. Responses always carry a Content-Length, so clients can keep connections alive
+ * and send request after request over them. Parameters come from the query string or, for POST, a form
+ * body ({@code application/x-www-form-urlencoded}):
+ * <pre>
+ * GET  /books?title=great gat        Title search (also author=..., or isbn=... for one book)
+ * POST /patrons      name, email     Register a patron; 201 with the patron
+ * GET  /patrons/{id}                 The patron
+ * GET  /patrons/{id}/books           The books the patron has borrowed
+ * POST /loans        patronId, isbn  Issue a book; 201 with the ticket, 409 if no copy or payment failed
+ * POST /checkouts    patronId, isbns Issue several books (comma-separated ISBNs) with one payment;
+ *                                    201 with the tickets, 409 if any of them could not be issued
+ * POST /returns      patronId, isbn  Return a book; 409 if the patron has no loan of it
+ * </pre>
+ * Errors are {@code {"error":"..."}} with a 4xx or 5xx status.
+ */
+public class LibraryServer implements AutoCloseable {
+
+    private static final EventLogger log = EventLogger.forClass(LibraryServer.class);
+
+    // Pending connections the OS queues before the server accepts them.
+    private static final int BACKLOG = 1024;
+    private static final String JSON = "application/json; charset=utf-8";
+    // Form bodies are a few short fields; larger ones are refused rather than read into memory.
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+
+    static {
+        // The JDK server writes headers and body separately; with Nagle on, a keep-alive client waits for
+        // its delayed ACK (~40 ms) before the body arrives. Read once, when the server classes load.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final Library library;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Binds the server; call {@link #start()} to begin serving.
+     * @param library The library to serve.
+     * @param address The address to listen on; port 0 picks a free port.
+     */
+    public LibraryServer(Library library, InetSocketAddress address) throws IOException {
+        this.library = library;
+        this.server = HttpServer.create(address, BACKLOG);
+        server.setExecutor(executor);
+        server.createContext("/books", this::handle);
+        server.createContext("/patrons", this::handle);
+        server.createContext("/loans", this::handle);
+        server.createContext("/checkouts", this::handle);
+        server.createContext("/returns", this::handle);
+    }
+
+    public void start() {
+        server.start();
+        log.info("Library server listening on http://%s:%d", server.getAddress().getHostString(), getPort());
+    }
+
+    /**
+     * @return The port the server listens on, e.g. the one picked for port 0.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting connections, gives requests in progress up to a second to finish, and waits for their threads.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.close();
+    }
+
+    // --- Routing ---
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            Response response;
+            try {
+                response = route(exchange);
+            } catch (RuntimeException e) {
+                log.error("Request %s failed: %s", exchange.getRequestURI(), e);
+                response = error(500, "Internal error");
+            }
+            send(exchange, response);
+        }
+    }
+
+    private Response route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().split("/");
+        // path[0] is the empty string before the leading slash
+        Map<String, String> params = new HashMap<>();
+        Response rejected = readParams(exchange, params);
+        if (rejected != null) {
+            return rejected;
+        }
+        switch (path.length > 1 ? path[1] : "") {
+            case "books":
+                return path.length == 2 ? requireMethod(method, "GET", () -> searchBooks(params)) : notFound();
+            case "patrons":
+                if (path.length == 2) {
+                    return requireMethod(method, "POST", () -> registerPatron(params));
+                }
+                if (path.length == 3) {
+                    return requireMethod(method, "GET", () -> getPatron(path[2]));
+                }
+                if (path.length == 4 && path[3].equals("books")) {
+                    return requireMethod(method, "GET", () -> getBorrowedBooks(path[2]));
+                }
+                return notFound();
+            case "loans":
+                return path.length == 2 ? requireMethod(method, "POST", () -> issueBook(params)) : notFound();
+            case "checkouts":
+                return path.length == 2 ? requireMethod(method, "POST", () -> checkout(params)) : notFound();
+            case "returns":
+                return path.length == 2 ? requireMethod(method, "POST", () -> returnBook(params)) : notFound();
+            default:
+                return notFound();
+        }
+    }
+
+    private static Response requireMethod(String method, String allowed, Endpoint endpoint) {
+        return method.equals(allowed) ? endpoint.call() : error(405, "Use " + allowed);
+    }
+
+    // --- Endpoints ---
+
+    private Response searchBooks(Map<String, String> params) {
+        List<Book> books;
+        if (params.containsKey("isbn")) {
+            Book book = library.searchBookByIsbn(params.get("isbn"));
+            books = book == null ? List.of() : List.of(book);
+        } else if (params.containsKey("title")) {
+            books = library.searchBookByTitle(params.get("title"));
+        } else if (params.containsKey("author")) {
+            books = library.searchBookByAuthor(params.get("author"));
+        } else {
+            return error(400, "Give title, author or isbn");
+        }
+        return ok(200, bookArray(books, true));
+    }
+
+    private Response registerPatron(Map<String, String> params) {
+        String name = params.get("name");
+        String email = params.get("email");
+        if (isBlank(name) || isBlank(email)) {
+            return error(400, "Give name and email");
+        }
+        return ok(201, LibraryJson.patron(new JsonWriter(), library.registerNewPatron(name, email)));
+    }
+
+    private Response getPatron(String patronId) {
+        Patron patron = library.findPatronById(patronId);
+        return patron == null ? error(404, "Unknown patron") : ok(200, LibraryJson.patron(new JsonWriter(), patron));
+    }
+
+    private Response getBorrowedBooks(String patronId) {
+        Patron patron = library.findPatronById(patronId);
+        if (patron == null) {
+            return error(404, "Unknown patron");
+        }
+        return ok(200, bookArray(library.getBooksBorrowedByPatron(patron), false));
+    }
+
+    private Response issueBook(Map<String, String> params) {
+        Patron patron = library.findPatronById(params.getOrDefault("patronId", ""));
+        Book book = library.searchBookByIsbn(params.getOrDefault("isbn", ""));
+        if (patron == null || book == null) {
+            return error(404, patron == null ? "Unknown patron" : "Unknown ISBN");
+        }
+        LendingTicket ticket = library.issueBookToPatron(book, patron);
+        if (ticket == null) {
+            return error(409, "Not issued: no copy available or payment failed");
+        }
+        return ok(201, LibraryJson.ticket(new JsonWriter(), ticket));
+    }
+
+    private Response checkout(Map<String, String> params) {
+        Patron patron = library.findPatronById(params.getOrDefault("patronId", ""));
+        if (patron == null) {
+            return error(404, "Unknown patron");
+        }
+        String isbnList = params.getOrDefault("isbns", "");
+        if (isBlank(isbnList)) {
+            return error(400, "Give isbns");
+        }
+        List<String> isbns = List.of(isbnList.trim().split("\\s*,\\s*"));
+        for (String isbn : isbns) {
+            if (library.searchBookByIsbn(isbn) == null) {
+                return error(404, "Unknown ISBN " + isbn);
+            }
+        }
+        List<LendingTicket> tickets = library.checkoutBooks(patron, isbns);
+        if (tickets == null) {
+            return error(409, "Not checked out: a copy was unavailable or payment failed");
+        }
+        JsonWriter json = new JsonWriter(tickets.size() * 256).beginArray();
+        for (LendingTicket ticket : tickets) {
+            LibraryJson.ticket(json, ticket);
+        }
+        return ok(201, json.endArray());
+    }
+
+    private Response returnBook(Map<String, String> params) {
+        Patron patron = library.findPatronById(params.getOrDefault("patronId", ""));
+        Book book = library.searchBookByIsbn(params.getOrDefault("isbn", ""));
+        if (patron == null || book == null) {
+            return error(404, patron == null ? "Unknown patron" : "Unknown ISBN");
+        }
+        if (!library.returnBookFromPatron(book, patron)) {
+            return error(409, "No active loan of this book");
+        }
+        return ok(200, new JsonWriter().beginObject().name("returned").value(true).endObject());
+    }
+
+    private JsonWriter bookArray(List<Book> books, boolean withAvailability) {
+        JsonWriter json = new JsonWriter(Math.max(64, books.size() * 128));
+        json.beginArray();
+        for (Book book : books) {
+            LibraryJson.book(json, book, withAvailability ? library.getAvailableCopies(book) : -1);
+        }
+        return json.endArray();
+    }
+
+    // --- Requests and Responses ---
+
+    /**
+     * Reads the query string and, for form posts, the body, into the given map. The body is read to the end,
+     * otherwise the connection can't be reused for the next request; one over {@link #MAX_BODY_BYTES} is
+     * left unread and the server closes the connection instead.
+     * @return A 413 response if the body is too large, a 400 one if a parameter is badly percent-encoded,
+     *         or null if the parameters were read.
+     */
+    private static Response readParams(HttpExchange exchange, Map<String, String> params) throws IOException {
+        byte[] bytes;
+        try (InputStream body = exchange.getRequestBody()) {
+            bytes = body.readNBytes(MAX_BODY_BYTES + 1);
+        }
+        if (bytes.length > MAX_BODY_BYTES) {
+            return error(413, "Request body is larger than " + MAX_BODY_BYTES + " bytes");
+        }
+        try {
+            parseForm(exchange.getRequestURI().getRawQuery(), params);
+            String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+            if (bytes.length > 0 && contentType != null && contentType.startsWith("application/x-www-form-urlencoded")) {
+                parseForm(new String(bytes, StandardCharsets.UTF_8), params);
+            }
+        } catch (IllegalArgumentException e) {
+            // URLDecoder rejects a '%' not followed by two hex digits
+            return error(400, "Malformed parameter: " + e.getMessage());
+        }
+        return null;
+    }
+
+    private static void parseForm(String form, Map<String, String> params) {
+        if (form == null || form.isEmpty()) {
+            return;
+        }
+        for (String pair : form.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void send(HttpExchange exchange, Response response) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        // A fixed length keeps the connection open for the next request
+        exchange.sendResponseHeaders(response.status, response.json.size());
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response.json.buffer(), 0, response.json.size());
+        }
+    }
+
+    private static Response ok(int status, JsonWriter json) {
+        return new Response(status, json);
+    }
+
+    private static Response error(int status, String message) {
+        return new Response(status, new JsonWriter(64).beginObject().name("error").value(message).endObject());
+    }
+
+    private static Response notFound() {
+        return error(404, "No such endpoint");
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    /**
+     * A status code and its JSON body.
+     */
+    private static final class Response {
+        final int status;
+        final JsonWriter json;
+
+        Response(int status, JsonWriter json) {
+            this.status = status;
+            this.json = json;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Endpoint {
+        Response call();
+    }
+}
@@ -0,0 +1,121 @@
+package main.java.com.siddharth.librarysystem.shard;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Assigns keys to nodes by consistent hashing.
+ *
+ * Every node is placed on a ring of 64-bit hashes at many pseudo-random points (virtual nodes), and a
+ * key belongs to the first node point at or after the key's hash. Adding a node therefore only takes
+ * over the keys just before its own points, about 1/(n+1) of them, and leaves every other key where
+ * it was; the virtual nodes keep the share of each node close to even.
+ *
+ * Rings are immutable: {@link #with(Object, String)} returns a new ring, so a coordinator can work out
+ * which keys move before switching over.
+ *
+ * @param <T> The node type.
+ */
+public final class ConsistentHashRing<T> {
+
+    private final int virtualNodes;
+    private final TreeMap<Long, T> points;
+    // Insertion order, so nodes() lists them in the order they were added.
+    private final Map<String, T> nodes;
+
+    /**
+     * Creates an empty ring.
+     * @param virtualNodes The number of points each node gets on the ring.
+     */
+    public ConsistentHashRing(int virtualNodes) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("Virtual node count must be positive.");
+        }
+        this.virtualNodes = virtualNodes;
+        this.points = new TreeMap<>();
+        this.nodes = new LinkedHashMap<>();
+    }
+
+    private ConsistentHashRing(ConsistentHashRing<T> base) {
+        this.virtualNodes = base.virtualNodes;
+        this.points = new TreeMap<>(base.points);
+        this.nodes = new LinkedHashMap<>(base.nodes);
+    }
+
+    /**
+     * @param node The node to add.
+     * @param name A name unique among the nodes; its hash decides where the node's points go.
+     * @return A new ring with the node added.
+     */
+    public ConsistentHashRing<T> with(T node, String name) {
+        if (nodes.containsKey(name)) {
+            throw new IllegalArgumentException("Node already on the ring: " + name);
+        }
+        ConsistentHashRing<T> ring = new ConsistentHashRing<>(this);
+        ring.nodes.put(name, node);
+        for (int i = 0; i < virtualNodes; i++) {
+            // On the rare hash collision the earlier node keeps the point.
+            ring.points.putIfAbsent(hash(name + "#" + i), node);
+        }
+        return ring;
+    }
+
+    /**
+     * @param keyHash The key's hash, e.g. from {@link #hash(long)}.
+     * @return The node the key belongs to.
+     * @throws IllegalStateException if the ring has no nodes.
+     */
+    public T nodeFor(long keyHash) {
+        if (points.isEmpty()) {
+            throw new IllegalStateException("The ring has no nodes");
+        }
+        Map.Entry<Long, T> owner = points.ceilingEntry(keyHash);
+        return owner != null ? owner.getValue() : points.firstEntry().getValue();
+    }
+
+    /**
+     * @return The nodes, in the order they were added.
+     */
+    public List<T> nodes() {
+        return Collections.unmodifiableList(new ArrayList<>(nodes.values()));
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    // --- Hashing ---
+
+    /**
+     * Spreads a numeric key, such as a packed ISBN, over the whole ring.
+     * @param key The key.
+     * @return Its 64-bit hash.
+     */
+    public static long hash(long key) {
+        // The finalizer of MurmurHash3: every input bit affects every output bit.
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        key *= 0xC4CEB9FE1A85EC53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    /**
+     * @param key A text key or node name.
+     * @return Its 64-bit hash (FNV-1a over the UTF-8 bytes, then spread).
+     */
+    public static long hash(String key) {
+        long h = 0xCBF29CE484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xFF;
+            h *= 0x100000001B3L;
+        }
+        return hash(h);
+    }
+}
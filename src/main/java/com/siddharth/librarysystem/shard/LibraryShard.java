@@ -0,0 +1,193 @@
+package main.java.com.siddharth.librarysystem.shard;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import main.java.com.siddharth.librarysystem.entity.Book;
+import main.java.com.siddharth.librarysystem.manager.BookInventory;
+import main.java.com.siddharth.librarysystem.manager.StockCounter;
+import main.java.com.siddharth.librarysystem.manager.StockTable;
+import main.java.com.siddharth.librarysystem.query.InventoryRow;
+
+/**
+ * One partition of a {@link ShardedLibrary}: the books whose ISBNs hash to this shard, with their
+ * search indexes, library-wide counts and per-branch counts.
+ *
+ * All of the shard's state is read and changed only by its own single thread, reached through
+ * {@link #submit(Supplier)}, so a branch's count and the library-wide count of an ISBN always change
+ * together, and shards never contend with each other.
+ */
+final class LibraryShard implements AutoCloseable {
+
+    private final String name;
+    private final ExecutorService executor;
+    // Books, search indexes and the counts summed over all branches.
+    private final BookInventory catalog = new BookInventory();
+    // Per-branch counts, keyed by branch ID.
+    private final Map<String, StockTable> branchStock = new HashMap<>();
+
+    LibraryShard(String name, List<String> branchIds) {
+        this.name = name;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "library-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (String branchId : branchIds) {
+            branchStock.put(branchId, new StockTable());
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Runs a task on the shard's thread.
+     * @param task The task; may use every method of this class except {@code submit} and {@code close}.
+     * @return The task's result, once it has run.
+     */
+    <T> CompletableFuture<T> submit(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, executor);
+    }
+
+    // --- Shard-thread Operations ---
+
+    BookInventory catalog() {
+        return catalog;
+    }
+
+    void addBranch(String branchId) {
+        branchStock.putIfAbsent(branchId, new StockTable());
+    }
+
+    void addCopies(Book book, String branchId, int quantity) {
+        // Adds the book if its ISBN is new, otherwise just the copies.
+        catalog.restoreBook(book, quantity);
+        branchStock.get(branchId).addCopies(book.getIsbnKey(), quantity);
+    }
+
+    /**
+     * @return true if the branch had a copy on the shelf.
+     */
+    boolean borrow(String isbn, String branchId) {
+        Book book = catalog.getByIsbn(isbn);
+        if (book == null || !branchStock.get(branchId).tryBorrow(book.getIsbnKey())) {
+            return false;
+        }
+        catalog.markAsBorrowed(book);
+        return true;
+    }
+
+    /**
+     * @return true if the branch had a copy on loan.
+     */
+    boolean giveBack(String isbn, String branchId) {
+        Book book = catalog.getByIsbn(isbn);
+        if (book == null || !branchStock.get(branchId).tryReturn(book.getIsbnKey())) {
+            return false;
+        }
+        catalog.markAsReturned(book);
+        return true;
+    }
+
+    int availableAt(String isbn, String branchId) {
+        Book book = catalog.getByIsbn(isbn);
+        if (book == null) {
+            return 0;
+        }
+        long counts = branchStock.get(branchId).snapshot(book.getIsbnKey());
+        return counts == StockTable.ABSENT ? 0 : StockCounter.available(counts);
+    }
+
+    /**
+     * Moves available copies between branches; the library-wide counts don't change.
+     * @return true if the source branch had that many copies on the shelf.
+     */
+    boolean transfer(String isbn, String fromBranchId, String toBranchId, int quantity) {
+        Book book = catalog.getByIsbn(isbn);
+        if (book == null || !branchStock.get(fromBranchId).tryRemoveCopies(book.getIsbnKey(), quantity)) {
+            return false;
+        }
+        branchStock.get(toBranchId).addCopies(book.getIsbnKey(), quantity);
+        return true;
+    }
+
+    /**
+     * @param branchIds Branch IDs, nearest first.
+     * @return The first of them with a copy on the shelf, or null if none has one.
+     */
+    String firstWithCopy(String isbn, List<String> branchIds) {
+        for (String branchId : branchIds) {
+            if (availableAt(isbn, branchId) > 0) {
+                return branchId;
+            }
+        }
+        return null;
+    }
+
+    // --- Rebalancing ---
+
+    /**
+     * Takes out every book whose ISBN matches, with its library-wide and per-branch counts.
+     * @param leaving Selects the ISBNs that now belong to another shard.
+     * @return The books taken out.
+     */
+    List<MovedBook> extract(Predicate<Book> leaving) {
+        List<MovedBook> moved = new ArrayList<>();
+        for (Book book : catalog.getAllBooks()) {
+            if (!leaving.test(book)) {
+                continue;
+            }
+            InventoryRow row = catalog.removeBook(book.getIsbn());
+            Map<String, Long> perBranch = new HashMap<>();
+            for (Map.Entry<String, StockTable> branch : branchStock.entrySet()) {
+                long counts = branch.getValue().remove(book.getIsbnKey());
+                if (counts != StockTable.ABSENT) {
+                    perBranch.put(branch.getKey(), counts);
+                }
+            }
+            moved.add(new MovedBook(row, perBranch));
+        }
+        return moved;
+    }
+
+    void absorb(List<MovedBook> books) {
+        for (MovedBook moved : books) {
+            Book book = moved.row.getBook();
+            // Leases stay with the shard the book left, where they can no longer be committed, so reserved copies arrive available
+            catalog.restoreBook(book, moved.row.getAvailableCopies() + moved.row.getReservedCopies(), moved.row.getBorrowedCopies());
+            for (Map.Entry<String, Long> branch : moved.perBranch.entrySet()) {
+                long counts = branch.getValue();
+                branchStock.computeIfAbsent(branch.getKey(), k -> new StockTable()).addCopies(book.getIsbnKey(),
+                        StockCounter.available(counts) + StockCounter.reserved(counts), StockCounter.borrowed(counts));
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * A book on its way from one shard to another, with its counts.
+     */
+    static final class MovedBook {
+        final InventoryRow row;
+        // Packed counts per branch ID.
+        final Map<String, Long> perBranch;
+
+        MovedBook(InventoryRow row, Map<String, Long> perBranch) {
+            this.row = row;
+            this.perBranch = perBranch;
+        }
+    }
+}
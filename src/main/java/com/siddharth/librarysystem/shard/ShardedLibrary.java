@@ -0,0 +1,412 @@
+package main.java.com.siddharth.librarysystem.shard;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import main.java.com.siddharth.librarysystem.entity.Book;
+import main.java.com.siddharth.librarysystem.entity.Branch;
+import main.java.com.siddharth.librarysystem.entity.IsbnCodec;
+import main.java.com.siddharth.librarysystem.index.TokenIndex;
+import main.java.com.siddharth.librarysystem.logging.EventLogger;
+import main.java.com.siddharth.librarysystem.manager.BookInventory;
+
+/**
+ * A catalog spread over several shards, with stock kept per branch.
+ *
+ * ISBNs are assigned to shards by consistent hashing. Each shard owns the books, search indexes and
+ * per-branch counts of its ISBNs and runs on its own thread, so work on different ISBNs proceeds in
+ * parallel and a shard's state never needs locks. Operations on one ISBN go to its shard only; title and
+ * author searches are sent to every shard at once and the ranked results merged.
+ *
+ * {@link #addShard()} moves only the ISBNs the new shard takes over, about 1/(n+1) of them. Operations
+ * wait while it runs, so none of them sees a book in the middle of moving.
+ */
+public class ShardedLibrary implements AutoCloseable {
+
+    private static final EventLogger log = EventLogger.forClass(ShardedLibrary.class);
+
+    // Points per shard on the hash ring; enough to keep shard sizes within a few percent of each other.
+    private static final int VIRTUAL_NODES = 128;
+
+    // Operations share the read lock; adding a shard or a branch takes the write lock.
+    private final ReentrantReadWriteLock topology = new ReentrantReadWriteLock();
+    private ConsistentHashRing<LibraryShard> ring = new ConsistentHashRing<>(VIRTUAL_NODES);
+    private int nextShardNumber = 1;
+    private final Map<String, Branch> branches = new LinkedHashMap<>();
+    // For each branch, the IDs of all branches, nearest first (itself first of all).
+    private final Map<String, List<String>> branchesByDistance = new LinkedHashMap<>();
+
+    /**
+     * Creates a library with the given branches and number of shards.
+     * @param shardCount The number of shards to start with.
+     * @param branches The branches that hold stock.
+     */
+    public ShardedLibrary(int shardCount, List<Branch> branches) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive.");
+        }
+        for (Branch branch : branches) {
+            this.branches.put(branch.getId(), branch);
+        }
+        orderBranchesByDistance();
+        for (int i = 0; i < shardCount; i++) {
+            LibraryShard shard = newShard();
+            ring = ring.with(shard, shard.getName());
+        }
+    }
+
+    private LibraryShard newShard() {
+        return new LibraryShard("shard-" + nextShardNumber++, new ArrayList<>(branches.keySet()));
+    }
+
+    private void orderBranchesByDistance() {
+        branchesByDistance.clear();
+        for (Branch from : branches.values()) {
+            List<String> ids = new ArrayList<>(branches.keySet());
+            ids.sort(Comparator.comparingDouble(id -> from.distanceTo(branches.get(id))));
+            branchesByDistance.put(from.getId(), ids);
+        }
+    }
+
+    // --- Topology ---
+
+    /**
+     * Adds a shard and moves to it the ISBNs it now owns; all other ISBNs stay where they are.
+     * @return The number of ISBNs moved.
+     */
+    public int addShard() {
+        topology.writeLock().lock();
+        try {
+            LibraryShard added = newShard();
+            ConsistentHashRing<LibraryShard> next = ring.with(added, added.getName());
+            List<CompletableFuture<List<LibraryShard.MovedBook>>> leaving = new ArrayList<>();
+            for (LibraryShard shard : ring.nodes()) {
+                leaving.add(shard.submit(() -> shard.extract(book -> next.nodeFor(hashOf(book.getIsbn())) == added)));
+            }
+            int moved = 0;
+            for (CompletableFuture<List<LibraryShard.MovedBook>> books : leaving) {
+                List<LibraryShard.MovedBook> batch = await(books);
+                moved += batch.size();
+                await(added.submit(() -> {
+                    added.absorb(batch);
+                    return null;
+                }));
+            }
+            ring = next;
+            log.info("Added %s; moved %d ISBNs to it.", added.getName(), moved);
+            return moved;
+        } finally {
+            topology.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a branch with no stock yet.
+     * @param branch The branch.
+     */
+    public void addBranch(Branch branch) {
+        topology.writeLock().lock();
+        try {
+            if (branches.putIfAbsent(branch.getId(), branch) != null) {
+                throw new IllegalArgumentException("Branch already exists: " + branch.getId());
+            }
+            orderBranchesByDistance();
+            List<CompletableFuture<Object>> added = new ArrayList<>();
+            for (LibraryShard shard : ring.nodes()) {
+                added.add(shard.submit(() -> {
+                    shard.addBranch(branch.getId());
+                    return null;
+                }));
+            }
+            added.forEach(ShardedLibrary::await);
+        } finally {
+            topology.writeLock().unlock();
+        }
+    }
+
+    public int getShardCount() {
+        topology.readLock().lock();
+        try {
+            return ring.size();
+        } finally {
+            topology.readLock().unlock();
+        }
+    }
+
+    public List<Branch> getBranches() {
+        topology.readLock().lock();
+        try {
+            return new ArrayList<>(branches.values());
+        } finally {
+            topology.readLock().unlock();
+        }
+    }
+
+    // --- Stock ---
+
+    /**
+     * Adds copies of a book to a branch, adding the book to the catalog if it is new.
+     * @param book The book.
+     * @param branchId The branch receiving the copies.
+     * @param quantity The number of copies.
+     */
+    public void addCopies(Book book, String branchId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive.");
+        }
+        if (!IsbnCodec.isValid(book.getIsbn())) {
+            throw new IllegalArgumentException("Not a valid ISBN-10 or ISBN-13: " + book.getIsbn());
+        }
+        onShard(book.getIsbn(), branchId, shard -> {
+            shard.addCopies(book, branchId, quantity);
+            return null;
+        });
+    }
+
+    /**
+     * Lends out one copy from a branch's shelf.
+     * @param isbn The ISBN of the book.
+     * @param branchId The branch lending the copy.
+     * @return true if the branch had a copy on the shelf.
+     */
+    public boolean borrowCopy(String isbn, String branchId) {
+        return onShard(isbn, branchId, shard -> shard.borrow(isbn, branchId));
+    }
+
+    /**
+     * Takes back one copy at the branch that lent it.
+     * @param isbn The ISBN of the book.
+     * @param branchId The branch the copy belongs to.
+     * @return true if the branch had a copy on loan.
+     */
+    public boolean returnCopy(String isbn, String branchId) {
+        return onShard(isbn, branchId, shard -> shard.giveBack(isbn, branchId));
+    }
+
+    /**
+     * Moves copies from one branch's shelf to another's.
+     * @param isbn The ISBN of the book.
+     * @param fromBranchId The branch sending the copies.
+     * @param toBranchId The branch receiving them.
+     * @param quantity The number of copies.
+     * @return true if the sending branch had that many copies on the shelf; otherwise nothing moves.
+     */
+    public boolean transferCopies(String isbn, String fromBranchId, String toBranchId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive.");
+        }
+        requireBranch(toBranchId);
+        boolean moved = onShard(isbn, fromBranchId, shard -> shard.transfer(isbn, fromBranchId, toBranchId, quantity));
+        if (moved) {
+            log.info("Transferred %d copies of %s to %s.", quantity, isbn, toBranchId);
+        }
+        return moved;
+    }
+
+    /**
+     * @param isbn The ISBN of the book.
+     * @param branchId The branch.
+     * @return The number of copies on that branch's shelf.
+     */
+    public int getAvailableCopies(String isbn, String branchId) {
+        return onShard(isbn, branchId, shard -> shard.availableAt(isbn, branchId));
+    }
+
+    /**
+     * @param isbn The ISBN of the book.
+     * @return The number of copies on the shelf across all branches.
+     */
+    public int getAvailableCopies(String isbn) {
+        return onShard(isbn, null, shard -> shard.catalog().getAvailableCopiesCount(isbn));
+    }
+
+    /**
+     * Finds the branch closest to the given one that has a copy of the book on its shelf.
+     * @param isbn The ISBN of the book.
+     * @param branchId The branch the patron is at; it is returned itself if it has a copy.
+     * @return The nearest branch with a copy, or null if no branch has one.
+     */
+    public Branch findNearestBranchWithCopy(String isbn, String branchId) {
+        topology.readLock().lock();
+        try {
+            requireBranch(branchId);
+            List<String> nearestFirst = branchesByDistance.get(branchId);
+            LibraryShard shard = shardFor(isbn);
+            String found = await(shard.submit(() -> shard.firstWithCopy(isbn, nearestFirst)));
+            return found == null ? null : branches.get(found);
+        } finally {
+            topology.readLock().unlock();
+        }
+    }
+
+    // --- Search ---
+
+    public Book getByIsbn(String isbn) {
+        return onShard(isbn, null, shard -> shard.catalog().getByIsbn(isbn));
+    }
+
+    /**
+     * Searches titles on every shard in parallel and merges the results.
+     * Same matching and ranking as {@link BookInventory#searchByTitle(String)}.
+     * @param query The words to search for.
+     * @return The matching books, best match first.
+     */
+    public List<Book> searchByTitle(String query) {
+        return searchAll(query, BookInventory::searchByTitle, Book::getTitle);
+    }
+
+    /**
+     * Searches authors on every shard in parallel and merges the results.
+     * Same matching and ranking as {@link BookInventory#searchByAuthor(String)}.
+     * @param query The words to search for.
+     * @return The matching books, best match first.
+     */
+    public List<Book> searchByAuthor(String query) {
+        return searchAll(query, BookInventory::searchByAuthor, Book::getAuthor);
+    }
+
+    public int getBookCount() {
+        topology.readLock().lock();
+        try {
+            List<CompletableFuture<Integer>> counts = new ArrayList<>();
+            for (LibraryShard shard : ring.nodes()) {
+                counts.add(shard.submit(() -> shard.catalog().getBookCount()));
+            }
+            int total = 0;
+            for (CompletableFuture<Integer> count : counts) {
+                total += await(count);
+            }
+            return total;
+        } finally {
+            topology.readLock().unlock();
+        }
+    }
+
+    private List<Book> searchAll(String query, BiFunction<BookInventory, String, List<Book>> search,
+                                 Function<Book, String> field) {
+        List<CompletableFuture<List<Book>>> parts = new ArrayList<>();
+        topology.readLock().lock();
+        try {
+            for (LibraryShard shard : ring.nodes()) {
+                parts.add(shard.submit(() -> search.apply(shard.catalog(), query)));
+            }
+            // Each shard's list is already ranked, so a k-way merge keeps the overall order.
+            Comparator<String> relevance = TokenIndex.relevanceOrder(TokenIndex.normalize(query));
+            PriorityQueue<RankedCursor> heads = new PriorityQueue<>((a, b) -> {
+                int byRelevance = relevance.compare(a.key, b.key);
+                return byRelevance != 0 ? byRelevance : a.current().getIsbn().compareTo(b.current().getIsbn());
+            });
+            int total = 0;
+            for (CompletableFuture<List<Book>> part : parts) {
+                List<Book> books = await(part);
+                total += books.size();
+                if (!books.isEmpty()) {
+                    heads.add(new RankedCursor(books, field));
+                }
+            }
+            List<Book> merged = new ArrayList<>(total);
+            while (!heads.isEmpty()) {
+                RankedCursor head = heads.poll();
+                merged.add(head.current());
+                if (head.advance()) {
+                    heads.add(head);
+                }
+            }
+            return merged;
+        } finally {
+            topology.readLock().unlock();
+        }
+    }
+
+    // --- Routing ---
+
+    private <T> T onShard(String isbn, String branchId, Function<LibraryShard, T> task) {
+        topology.readLock().lock();
+        try {
+            if (branchId != null) {
+                requireBranch(branchId);
+            }
+            LibraryShard shard = shardFor(isbn);
+            return await(shard.submit(() -> task.apply(shard)));
+        } finally {
+            topology.readLock().unlock();
+        }
+    }
+
+    private LibraryShard shardFor(String isbn) {
+        return ring.nodeFor(hashOf(isbn));
+    }
+
+    private static long hashOf(String isbn) {
+        long key = IsbnCodec.toKey(isbn);
+        return key == IsbnCodec.NO_KEY ? ConsistentHashRing.hash(isbn) : ConsistentHashRing.hash(key);
+    }
+
+    private void requireBranch(String branchId) {
+        if (!branches.containsKey(branchId)) {
+            throw new IllegalArgumentException("Unknown branch: " + branchId);
+        }
+    }
+
+    // Rethrows what the shard thread threw, rather than a CompletionException around it.
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Stops the shard threads.
+     */
+    @Override
+    public void close() {
+        topology.writeLock().lock();
+        try {
+            ring.nodes().forEach(LibraryShard::close);
+        } finally {
+            topology.writeLock().unlock();
+        }
+    }
+
+    /**
+     * One shard's ranked search results, with the normalized field of the current book as its merge key.
+     */
+    private static final class RankedCursor {
+        private final List<Book> books;
+        private final Function<Book, String> field;
+        private int position;
+        private String key;
+
+        RankedCursor(List<Book> books, Function<Book, String> field) {
+            this.books = books;
+            this.field = field;
+            this.key = TokenIndex.normalize(field.apply(books.get(0)));
+        }
+
+        Book current() {
+            return books.get(position);
+        }
+
+        boolean advance() {
+            if (++position == books.size()) {
+                return false;
+            }
+            key = TokenIndex.normalize(field.apply(books.get(position)));
+            return true;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package main.java.com.siddharth.librarysystem.commandline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import main.java.com.siddharth.librarysystem.core.Library;
+import main.java.com.siddharth.librarysystem.entity.Book;
+import main.java.com.siddharth.librarysystem.entity.Patron;
+
+class BatchCommandRunnerTest {
+
+    private Library library;
+
+    @BeforeEach
+    void setUp() {
+        // Payments take a random few milliseconds, so commands that may overlap finish out of order.
+        library = new Library(amount -> {
+            try {
+                Thread.sleep(ThreadLocalRandom.current().nextInt(4));
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        });
+    }
+
+    @Test
+    void runsEachPatronsCommandsInScriptOrderAndWritesResultsInOrder() throws Exception {
+        // Every patron has a book with a single copy and borrows and returns it over and over:
+        // each command only succeeds if the one before it has finished.
+        List<Patron> patrons = new ArrayList<>();
+        StringBuilder script = new StringBuilder();
+        for (int p = 0; p < 20; p++) {
+            patrons.add(library.registerNewPatron("Patron " + p, "p" + p + "@example.com"));
+            library.addNewBook(new Book("Title " + p, "Author", isbn(p), 2000), 1);
+        }
+        for (int round = 0; round < 10; round++) {
+            for (int p = 0; p < patrons.size(); p++) {
+                script.append("ISSUE ").append(patrons.get(p).getId()).append(' ').append(isbn(p)).append('\n');
+            }
+            for (int p = patrons.size() - 1; p >= 0; p--) {
+                // Patron IDs are matched in any case, and so is their ordering.
+                script.append("return ").append(patrons.get(p).getId().toUpperCase()).append(' ').append(isbn(p)).append('\n');
+            }
+        }
+
+        BatchCommandRunner runner = new BatchCommandRunner(library, 64);
+        List<String[]> results = run(runner, script.toString());
+
+        assertEquals(400, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(String.valueOf(i + 1), results.get(i)[0]);
+            assertEquals("OK", results.get(i)[1], String.join("\t", results.get(i)));
+        }
+        assertEquals(400, runner.getSucceededCount());
+        for (int p = 0; p < patrons.size(); p++) {
+            assertTrue(library.getBooksBorrowedByPatron(patrons.get(p)).isEmpty());
+        }
+    }
+
+    @Test
+    void addAndRegisterWaitForEverythingBeforeThemAndHoldBackEverythingAfter() throws Exception {
+        Patron alice = library.registerNewPatron("Alice", "alice@example.com");
+        String script = String.join("\n",
+                "# Issued before the book exists",
+                "ISSUE " + alice.getId() + " " + isbn(1),
+                "SEARCH river",
+                "ADD " + isbn(1) + " 1 1999 The River | Ann Lee",
+                "",
+                "ISSUE " + alice.getId() + " " + isbn(1),
+                "SEARCH river",
+                "REGISTER bob@example.com Bob Stone",
+                "ISSUE " + alice.getId() + " " + isbn(1),
+                "RETURN " + alice.getId() + " " + isbn(1),
+                "RETURN " + alice.getId() + " " + isbn(1));
+
+        BatchCommandRunner runner = new BatchCommandRunner(library, 2);
+        List<String[]> results = run(runner, script);
+
+        assertEquals(List.of("2\tERROR\tUnknown ISBN", "3\tOK\t0\t", "4\tOK\t" + isbn(1) + "\t1",
+                "6\tOK", "7\tOK\t1\t" + isbn(1), "8\tOK",
+                "9\tFAILED\tNot issued: no copy available or payment failed",
+                "10\tOK\t" + isbn(1), "11\tFAILED\tNo active loan of this book"), summaries(results));
+        assertEquals("Bob Stone", library.findPatronById(results.get(5)[2]).getName());
+        assertEquals(6, runner.getSucceededCount());
+        assertEquals(2, runner.getFailedCount());
+        assertEquals(1, runner.getErrorCount());
+    }
+
+    @Test
+    void reportsMalformedLinesWithoutStopping() throws Exception {
+        Patron alice = library.registerNewPatron("Alice", "alice@example.com");
+        library.addNewBook(new Book("Emma", "Jane Austen", isbn(7), 1815), 2);
+        String script = String.join("\n",
+                "LEND " + alice.getId() + " " + isbn(7),
+                "ISSUE " + alice.getId(),
+                "ADD " + isbn(8) + " 1 2000 No Author",
+                "ADD 9780141439519 1 2000 Bad | Digit",
+                "HOLD " + alice.getId() + " " + isbn(7) + " URGENT",
+                "ISSUE unknown " + isbn(7),
+                "CHECKOUT " + alice.getId() + " " + isbn(7) + " " + isbn(7));
+
+        BatchCommandRunner runner = new BatchCommandRunner(library, 1);
+        List<String[]> results = run(runner, script);
+
+        assertEquals(7, results.size());
+        assertEquals("Unknown command: LEND", results.get(0)[2]);
+        assertTrue(results.get(1)[2].startsWith("Expected ISSUE <patronId> <isbn>"), results.get(1)[2]);
+        assertTrue(results.get(2)[2].startsWith("Expected ADD"), results.get(2)[2]);
+        assertEquals("Not a valid ISBN-10 or ISBN-13: 9780141439519", results.get(3)[2]);
+        assertTrue(results.get(4)[2].startsWith("java.lang.IllegalArgumentException"), results.get(4)[2]);
+        assertEquals("Unknown patron", results.get(5)[2]);
+        assertEquals("OK", results.get(6)[1]);
+        assertEquals(6, runner.getErrorCount());
+        assertEquals(2, library.getBooksBorrowedByPatron(alice).size());
+    }
+
+    private static List<String[]> run(BatchCommandRunner runner, String script) throws IOException, InterruptedException {
+        StringWriter out = new StringWriter();
+        long commands = runner.run(new BufferedReader(new StringReader(script)), out);
+        List<String[]> results = new ArrayList<>();
+        for (String line : out.toString().split("\n")) {
+            results.add(line.split("\t", -1));
+        }
+        assertEquals(commands, results.size());
+        return results;
+    }
+
+    // Each result without the IDs that change from run to run.
+    private static List<String> summaries(List<String[]> results) {
+        List<String> summaries = new ArrayList<>();
+        for (String[] result : results) {
+            boolean hasId = result[1].equals("OK") && result.length >= 3 && !result[2].matches("\\d+");
+            summaries.add(hasId && !result[2].startsWith("978") ? result[0] + "\t" + result[1] : String.join("\t", result));
+        }
+        return summaries;
+    }
+
+    private static String isbn(int n) {
+        String digits = String.format("978%09d", n);
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += (digits.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return digits + (10 - sum % 10) % 10;
+    }
+}
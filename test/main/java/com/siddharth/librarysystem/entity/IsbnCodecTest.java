@@ -0,0 +1,62 @@
+package main.java.com.siddharth.librarysystem.entity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class IsbnCodecTest {
+
+    @Test
+    void normalizesHyphensSpacesAndALowerCaseX() {
+        assertEquals("9780306406157", IsbnCodec.normalize("978-0-306-40615-7"));
+        assertEquals("080442957X", IsbnCodec.normalize("0 8044 2957 x"));
+        assertNull(IsbnCodec.normalize("978-0-306-4061"));
+        assertNull(IsbnCodec.normalize("97803064061X7"));
+        assertNull(IsbnCodec.normalize("X804429570"));
+    }
+
+    @Test
+    void checksCheckDigits() {
+        assertTrue(IsbnCodec.isValid("9780306406157"));
+        assertFalse(IsbnCodec.isValid("9780306406158"));
+        assertTrue(IsbnCodec.isValid("080442957X"));
+        assertTrue(IsbnCodec.isValid("0306406152"));
+        assertFalse(IsbnCodec.isValid("0306406153"));
+        assertFalse(IsbnCodec.isValid("978-0306406157"));
+        assertFalse(IsbnCodec.isValid(null));
+    }
+
+    @Test
+    void convertsIsbn10ToIsbn13() {
+        assertEquals("9780306406157", IsbnCodec.toIsbn13("0306406152"));
+        assertEquals("9780804429573", IsbnCodec.toIsbn13("080442957X"));
+        assertThrows(IllegalArgumentException.class, () -> IsbnCodec.toIsbn13("9780306406157"));
+    }
+
+    @Test
+    void keysRoundTripAndKeepBothFormsApart() {
+        String[] isbns = {"9780306406157", "0000000000000", "9999999999999", "0306406152", "080442957X", "0000000000"};
+        for (String isbn : isbns) {
+            long key = IsbnCodec.toKey(isbn);
+            assertTrue(key > 0, isbn);
+            assertEquals(isbn, IsbnCodec.fromKey(key));
+        }
+        assertNotEquals(IsbnCodec.toKey("0306406152"), IsbnCodec.toKey("0000306406152"));
+        // The check digit is kept as written, so old records with a wrong one still get a key.
+        assertEquals("9780306406158", IsbnCodec.fromKey(IsbnCodec.toKey("9780306406158")));
+    }
+
+    @Test
+    void rejectsTextThatIsNotACompactIsbn() {
+        assertEquals(IsbnCodec.NO_KEY, IsbnCodec.toKey(null));
+        assertEquals(IsbnCodec.NO_KEY, IsbnCodec.toKey("978-0306406157"));
+        assertEquals(IsbnCodec.NO_KEY, IsbnCodec.toKey("978030640615X"));
+        assertEquals(IsbnCodec.NO_KEY, IsbnCodec.toKey("12345"));
+        assertThrows(IllegalArgumentException.class, () -> IsbnCodec.fromKey(12345));
+    }
+}
@@ -0,0 +1,71 @@
+package main.java.com.siddharth.librarysystem.id;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class IdsTest {
+
+    @Test
+    void textFormRoundTripsAndSortsLikeTheId() {
+        Random random = new Random(7);
+        String previousText = Ids.toText(0);
+        long previous = 0;
+        for (int i = 0; i < 10_000; i++) {
+            long id = random.nextLong() & Long.MAX_VALUE;
+            String text = Ids.toText(id);
+            assertEquals(Ids.TEXT_LENGTH, text.length());
+            assertTrue(Ids.isCompact(text), text);
+            assertEquals(id, Ids.parse(text));
+            assertEquals(Long.compare(previous, id) < 0, previousText.compareTo(text) < 0);
+            previous = id;
+            previousText = text;
+        }
+        assertEquals("0000000000000", Ids.toText(0));
+        assertEquals("7ZZZZZZZZZZZZ", Ids.toText(Long.MAX_VALUE));
+    }
+
+    @Test
+    void parsesAnyCaseButOnlyUpperCaseIsCanonical() {
+        String text = Ids.toText(0x0123_4567_89AB_CDEFL);
+        String lower = text.toLowerCase();
+
+        assertEquals(0x0123_4567_89AB_CDEFL, Ids.parse(lower));
+        assertFalse(Ids.isCompact(lower));
+        assertEquals(text, Ids.normalize("  " + lower + " "));
+    }
+
+    @Test
+    void rejectsTextThatIsNotACompactId() {
+        assertThrows(IllegalArgumentException.class, () -> Ids.parse("8000000000000"));
+        assertThrows(IllegalArgumentException.class, () -> Ids.parse("000000000000I"));
+        assertThrows(IllegalArgumentException.class, () -> Ids.parse("000000000000"));
+        assertFalse(Ids.isCompact("000000000000U"));
+        assertFalse(Ids.isCompact(null));
+
+        String uuid = "3f1c2a4e-5b6d-4e7f-8a9b-0c1d2e3f4a5b";
+        assertEquals(uuid, Ids.normalize(" " + uuid + " "));
+    }
+
+    @Test
+    void keysLegacyIdsBelowEveryCompactId() {
+        String uuid = "7a6b5c4d-3e2f-4a1b-9c8d-7e6f5a4b3c2d";
+        assertNull(Ids.toKey(uuid));
+
+        long key = Ids.legacyKey(uuid);
+        assertTrue(key < 0);
+        assertEquals(key, Ids.legacyKey(uuid));
+        assertEquals(Long.valueOf(key), Ids.toKey(" " + uuid + " "));
+        assertNotEquals(key, Ids.legacyKey(uuid.toUpperCase()));
+
+        assertEquals(Long.valueOf(42), Ids.toKey(Ids.toText(42).toLowerCase()));
+        assertNull(Ids.toKey(null));
+    }
+}
@@ -0,0 +1,78 @@
+package main.java.com.siddharth.librarysystem.id;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class TimeOrderedIdGeneratorTest {
+
+    private static final long NOW = TimeOrderedIdGenerator.EPOCH_MILLIS + 86_400_000L;
+
+    @Test
+    void packsTimestampNodeAndSequence() {
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(TimeOrderedIdGenerator.MAX_NODE_ID, () -> NOW);
+
+        long first = generator.nextId();
+        long second = generator.nextId();
+
+        assertTrue(first > 0);
+        assertEquals(NOW, TimeOrderedIdGenerator.timestampOf(first));
+        assertEquals(TimeOrderedIdGenerator.MAX_NODE_ID, TimeOrderedIdGenerator.nodeOf(first));
+        assertEquals(0, first & 0xFFF);
+        assertEquals(first + 1, second);
+    }
+
+    @Test
+    void restartsTheSequenceEachMillisecond() {
+        AtomicLong clock = new AtomicLong(NOW);
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(5, clock::get);
+        generator.nextId();
+        generator.nextId();
+
+        clock.incrementAndGet();
+        long id = generator.nextId();
+
+        assertEquals(NOW + 1, TimeOrderedIdGenerator.timestampOf(id));
+        assertEquals(5, TimeOrderedIdGenerator.nodeOf(id));
+        assertEquals(0, id & 0xFFF);
+    }
+
+    @Test
+    void borrowsTheNextMillisecondWhenTheSequenceRunsOut() {
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(3, () -> NOW);
+        long last = 0;
+        for (int i = 0; i < 4096; i++) {
+            last = generator.nextId();
+        }
+        assertEquals(NOW, TimeOrderedIdGenerator.timestampOf(last));
+        assertEquals(4095, last & 0xFFF);
+
+        long borrowed = generator.nextId();
+        assertEquals(NOW + 1, TimeOrderedIdGenerator.timestampOf(borrowed));
+        assertEquals(3, TimeOrderedIdGenerator.nodeOf(borrowed));
+        assertTrue(borrowed > last);
+    }
+
+    @Test
+    void keepsIncreasingWhenTheClockStepsBack() {
+        AtomicLong clock = new AtomicLong(NOW);
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(0, clock::get);
+        long before = generator.nextId();
+
+        clock.addAndGet(-1_000);
+        long after = generator.nextId();
+
+        assertTrue(after > before);
+        assertEquals(NOW, TimeOrderedIdGenerator.timestampOf(after));
+    }
+
+    @Test
+    void rejectsNodeIdsOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new TimeOrderedIdGenerator(-1));
+        assertThrows(IllegalArgumentException.class, () -> new TimeOrderedIdGenerator(TimeOrderedIdGenerator.MAX_NODE_ID + 1));
+    }
+}
@@ -0,0 +1,155 @@
+package main.java.com.siddharth.librarysystem.importer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import main.java.com.siddharth.librarysystem.entity.Book;
+import main.java.com.siddharth.librarysystem.manager.BookInventory;
+
+class CatalogImporterTest {
+
+    @TempDir
+    Path directory;
+
+    private BookInventory inventory;
+    private Path rejects;
+
+    @BeforeEach
+    void setUp() {
+        inventory = new BookInventory();
+        rejects = directory.resolve("rejects.tsv");
+    }
+
+    @Test
+    void importsGoodRowsAndRejectsBadOnesWithTheirLineNumbers() throws IOException {
+        Path source = write("catalog.csv",
+                "title,author,isbn,year,quantity",
+                "\"Pride and Prejudice, Illustrated\",Jane Austen,978-0-14-143951-8,1813,2",
+                "Emma,Jane Austen,9780141439587,1815,1",
+                "",
+                "Emma,jane austen,9780141439587,1815,3",
+                "Not Emma,Someone Else,9780141439587,1900,1",
+                "Missing,Fields,9780141439686",
+                "Bad Digit,Author,9780141439519,2000,1",
+                "Bad Isbn,Author,12345,2000,1",
+                "Far Future,Author,9780141439686,9999,1",
+                "No Copies,Author,9780141439686,2000,0",
+                "Odd Year,Author,9780141439686,MCMXX,1",
+                "The Art of Computer Programming,Donald Knuth,0306406152,1968,1");
+
+        ImportReport report = new CatalogImporter(inventory, 2).importFile(source, rejects);
+
+        assertEquals(11, report.getRowsRead());
+        assertEquals(3, report.getBooksAdded());
+        assertEquals(7, report.getCopiesAdded());
+        assertEquals(1, report.getDuplicatesMerged());
+        assertEquals(7, report.getRowsRejected());
+        assertEquals("Pride and Prejudice, Illustrated", inventory.getByIsbn("9780141439518").getTitle());
+        assertEquals(2, inventory.getTotalCopiesCount("9780141439518"));
+        assertEquals(4, inventory.getTotalCopiesCount("9780141439587"));
+        assertEquals(1, inventory.getTotalCopiesCount("0306406152"));
+
+        List<String> rejected = Files.readAllLines(rejects);
+        assertEquals(List.of("6", "7", "8", "9", "10", "11", "12"),
+                rejected.stream().map(line -> line.substring(0, line.indexOf('\t'))).sorted(CatalogImporterTest::byNumber).toList());
+        assertTrue(reasonFor(rejected, 6).startsWith("ISBN 9780141439587 was already imported as 'Emma'"), reasonFor(rejected, 6));
+        assertEquals("expected 5 fields but found 3", reasonFor(rejected, 7));
+        assertEquals("wrong check digit in ISBN '9780141439519'", reasonFor(rejected, 8));
+        assertEquals("invalid ISBN '12345'", reasonFor(rejected, 9));
+        assertEquals("implausible publication year 9999", reasonFor(rejected, 10));
+        assertEquals("quantity must be positive", reasonFor(rejected, 11));
+        assertEquals("year and quantity must be whole numbers", reasonFor(rejected, 12));
+    }
+
+    @Test
+    void readsTabSeparatedFilesAndMergesIntoBooksAlreadyInTheInventory() throws IOException {
+        inventory.addBook(new Book("Emma", "Jane Austen", "9780141439587", 1815), 1);
+        Path source = write("catalog.txt",
+                "Emma\tJane Austen\t9780141439587\t1815\t2",
+                "Persuasion, or not\tJane Austen\t9780141439686\t1817\t1");
+
+        ImportReport report = new CatalogImporter(inventory).importFile(source, rejects);
+
+        assertEquals(2, report.getRowsRead());
+        assertEquals(1, report.getDuplicatesMerged());
+        assertEquals(3, inventory.getTotalCopiesCount("9780141439587"));
+        assertEquals("Persuasion, or not", inventory.getByIsbn("9780141439686").getTitle());
+        assertTrue(Files.readAllLines(rejects).isEmpty());
+    }
+
+    @Test
+    void keepsFileOrderAcrossChunksParsedInParallel() throws IOException {
+        // Four chunks of 10,000 rows. The first row of each ISBN wins and later ones merge into it,
+        // except rows in the last chunk that give a different title, which are rejected.
+        List<String> lines = new ArrayList<>();
+        int distinct = 12_000;
+        for (int row = 0; row < 40_000; row++) {
+            int n = row % distinct;
+            String title = row >= 30_000 && n % 2 == 0 ? "Other " + n : "Title " + n;
+            lines.add(title + ",Author " + n + "," + isbn(n) + ",2000,1");
+        }
+        Path source = write("catalog.csv", lines.toArray(new String[0]));
+
+        ImportReport report = new CatalogImporter(inventory, 4).importFile(source, rejects);
+
+        assertEquals(40_000, report.getRowsRead());
+        assertEquals(distinct, report.getBooksAdded());
+        assertEquals(5_000, report.getRowsRejected());
+        assertEquals(40_000 - distinct - 5_000, report.getDuplicatesMerged());
+        assertEquals(distinct, inventory.getBookCount());
+        int copies = 0;
+        for (int n = 0; n < distinct; n++) {
+            Book book = inventory.getByIsbn(isbn(n));
+            assertEquals("Title " + n, book.getTitle());
+            copies += inventory.getTotalCopiesCount(book.getIsbn());
+        }
+        assertEquals(35_000, copies);
+        List<String> rejected = Files.readAllLines(rejects);
+        assertEquals(5_000, rejected.size());
+        // Written in file order.
+        assertEquals(rejected.stream().sorted(CatalogImporterTest::byNumber).toList(), rejected);
+    }
+
+    @Test
+    void splitsQuotedFieldsWithDoubledQuotes() {
+        assertEquals(List.of("a, b", "say \"hi\"", "", "c"), CatalogImporter.split("\"a, b\",\"say \"\"hi\"\"\",,c ", ','));
+    }
+
+    private Path write(String name, String... lines) throws IOException {
+        return Files.write(directory.resolve(name), List.of(lines));
+    }
+
+    // A valid ISBN-13 for every number below 1,000,000.
+    private static String isbn(int n) {
+        String digits = String.format("978%09d", n);
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += (digits.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return digits + (10 - sum % 10) % 10;
+    }
+
+    private static String reasonFor(List<String> rejected, int lineNumber) {
+        for (String line : rejected) {
+            String[] parts = line.split("\t", 3);
+            if (parts[0].equals(String.valueOf(lineNumber))) {
+                return parts[1];
+            }
+        }
+        return null;
+    }
+
+    private static int byNumber(String a, String b) {
+        return Long.compare(Long.parseLong(a.split("\t", 2)[0]), Long.parseLong(b.split("\t", 2)[0]));
+    }
+}
@@ -0,0 +1,244 @@
+package main.java.com.siddharth.librarysystem.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class TrigramIndexTest {
+
+    @Test
+    void bandedDistanceMatchesFullLevenshteinUpToTheBound() {
+        Random random = new Random(42);
+        for (int round = 0; round < 20_000; round++) {
+            String query = randomText(random, 1 + random.nextInt(12));
+            int maxDistance = 1 + random.nextInt(3);
+            TrigramIndex.EditDistance distance = new TrigramIndex.EditDistance(query, maxDistance);
+            // Reuse the rows across candidates, as a search does.
+            for (int c = 0; c < 5; c++) {
+                String candidate = randomText(random, random.nextInt(query.length() + maxDistance + 1));
+                int bound = random.nextInt(maxDistance + 1);
+                int expected = Math.min(levenshtein(query, candidate), bound + 1);
+                assertEquals(expected, distance.to(candidate, bound),
+                        () -> "'" + query + "' -> '" + candidate + "' within " + bound);
+            }
+        }
+    }
+
+    @Test
+    void bandedDistanceCountsEachKindOfEdit() {
+        TrigramIndex.EditDistance distance = new TrigramIndex.EditDistance("prejudice", 3);
+        assertEquals(0, distance.to("prejudice", 3));
+        assertEquals(1, distance.to("predjudice", 3));
+        assertEquals(1, distance.to("prejudce", 3));
+        assertEquals(1, distance.to("prejudise", 3));
+        assertEquals(2, distance.to("prejduice", 3));
+        assertEquals(2, distance.to("prejudiceses", 1));
+        assertEquals(2, distance.to("justice", 1));
+    }
+
+    @Test
+    void findsTheClosestFieldsDespiteTypos() {
+        TrigramIndex index = austen();
+
+        List<TrigramIndex.Match> matches = index.findClosest("pride and predjudice", 5);
+
+        assertEquals(1, matches.size());
+        assertEquals("9780141439518", matches.get(0).getIsbn());
+        assertEquals(1, matches.get(0).getDistance());
+        assertEquals(1 - 1.0 / 20, matches.get(0).getScore(), 1e-9);
+        assertEquals("9780141439662", index.findClosest("SENSE and Sensibilty", 5).get(0).getIsbn());
+        assertEquals("9780141439686", index.findClosest("persuasian", 5).get(0).getIsbn());
+        assertTrue(index.findClosest("moby dick", 5).isEmpty());
+        assertTrue(index.findClosest("!!!", 5).isEmpty());
+    }
+
+    @Test
+    void ranksByDistanceThenScoreAndKeepsTheTopK() {
+        TrigramIndex index = new TrigramIndex();
+        index.put("1", "the hobbit");
+        index.put("2", "the hobbits");
+        index.put("3", "the rabbit");
+        index.put("4", "a hobbit");
+        index.put("5", "the hobbit");
+
+        List<TrigramIndex.Match> all = index.findClosest("the hobbit", 10);
+        // "the rabbit" and "a hobbit" are more than the one edit a ten-letter query allows.
+        assertEquals(List.of("1", "5", "2"), isbns(all));
+        assertEquals(List.of(0, 0, 1), all.stream().map(TrigramIndex.Match::getDistance).toList());
+
+        assertEquals(List.of("1", "5"), isbns(index.findClosest("the hobbit", 2)));
+        assertTrue(index.findClosest("the hobbit", 0).isEmpty());
+    }
+
+    @Test
+    void agreesWithABruteForceScan() {
+        Random random = new Random(3);
+        TrigramIndex index = new TrigramIndex();
+        Map<String, String> texts = new HashMap<>();
+        for (int i = 0; i < 2_000; i++) {
+            String isbn = String.valueOf(i);
+            String text = randomWords(random);
+            index.put(isbn, text);
+            texts.put(isbn, text);
+        }
+        for (int q = 0; q < 200; q++) {
+            String query = mistype(random, texts.get(String.valueOf(random.nextInt(texts.size()))));
+            assertEquals(bruteForce(texts, query, 5), isbns(index.findClosest(query, 5)), query);
+        }
+    }
+
+    @Test
+    void forgetsRemovedAndRenamedFields() {
+        TrigramIndex index = austen();
+        index.remove("9780141439518");
+        assertTrue(index.findClosest("pride and prejudice", 5).isEmpty());
+
+        index.put("9780141439587", "Mansfield Park");
+        assertTrue(index.findClosest("emma", 5).isEmpty());
+        assertEquals("9780141439587", index.findClosest("mansfeld park", 5).get(0).getIsbn());
+
+        index.put("9780141439518", "Pride and Prejudice");
+        List<TrigramIndex.Match> matches = index.findClosest("pride and prejudice", 5);
+        assertEquals(1, matches.size());
+        assertEquals(0, matches.get(0).getDistance());
+    }
+
+    @Test
+    void keepsFindingFieldsAfterGapsAreClosedUp() {
+        Random random = new Random(5);
+        TrigramIndex index = new TrigramIndex();
+        Map<String, String> texts = new HashMap<>();
+        // 4096 fields fill the arrays; removing three in four leaves enough gaps that the next put compacts.
+        for (int i = 0; i < 4_096; i++) {
+            String text = randomWords(random);
+            index.put(String.valueOf(i), text);
+            texts.put(String.valueOf(i), text);
+        }
+        for (int i = 0; i < 4_096; i++) {
+            if (i % 4 != 0) {
+                index.remove(String.valueOf(i));
+                texts.remove(String.valueOf(i));
+            }
+        }
+        for (int i = 4_096; i < 5_000; i++) {
+            String text = randomWords(random);
+            index.put(String.valueOf(i), text);
+            texts.put(String.valueOf(i), text);
+        }
+
+        for (Map.Entry<String, String> field : texts.entrySet()) {
+            List<TrigramIndex.Match> matches = index.findClosest(field.getValue(), 10);
+            assertEquals(0, matches.get(0).getDistance(), field.getValue());
+            assertTrue(isbns(matches).contains(field.getKey()), field.getValue());
+        }
+        for (int q = 0; q < 200; q++) {
+            String query = randomWords(random);
+            assertEquals(bruteForce(texts, query, 5), isbns(index.findClosest(query, 5)), query);
+        }
+    }
+
+    private static TrigramIndex austen() {
+        TrigramIndex index = new TrigramIndex();
+        index.put("9780141439518", "Pride and Prejudice");
+        index.put("9780141439587", "Emma");
+        index.put("9780141439686", "Persuasion");
+        index.put("9780141439662", "Sense and Sensibility");
+        return index;
+    }
+
+    private static List<String> isbns(List<TrigramIndex.Match> matches) {
+        return matches.stream().map(TrigramIndex.Match::getIsbn).toList();
+    }
+
+    // The ranking findClosest promises, over every field: within one edit per six characters and sharing a
+    // trigram, fewest edits first, then highest score, then ISBN. Lower-case words need no normalizing.
+    private static List<String> bruteForce(Map<String, String> texts, String query, int limit) {
+        int maxDistance = Math.max(1, query.length() / 6);
+        return texts.entrySet().stream()
+                .map(field -> new TrigramIndex.Match(field.getKey(), levenshtein(query, field.getValue()),
+                        1.0 - (double) levenshtein(query, field.getValue()) / Math.max(query.length(), field.getValue().length())))
+                .filter(match -> match.getDistance() <= maxDistance)
+                .filter(match -> sharesTrigram(query, texts.get(match.getIsbn())))
+                .sorted(Comparator.comparingInt(TrigramIndex.Match::getDistance)
+                        .thenComparing(Comparator.comparingDouble(TrigramIndex.Match::getScore).reversed())
+                        .thenComparing(TrigramIndex.Match::getIsbn))
+                .limit(limit)
+                .map(TrigramIndex.Match::getIsbn)
+                .toList();
+    }
+
+    private static boolean sharesTrigram(String a, String b) {
+        String paddedA = " " + a + " ";
+        String paddedB = " " + b + " ";
+        for (int i = 0; i + 3 <= paddedA.length(); i++) {
+            if (paddedB.contains(paddedA.substring(i, i + 3))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String randomWords(Random random) {
+        StringBuilder text = new StringBuilder();
+        int words = 1 + random.nextInt(4);
+        for (int w = 0; w < words; w++) {
+            if (w > 0) {
+                text.append(' ');
+            }
+            int length = 2 + random.nextInt(7);
+            for (int i = 0; i < length; i++) {
+                text.append((char) ('a' + random.nextInt(8)));
+            }
+        }
+        return text.toString();
+    }
+
+    // One random substitution, insertion or deletion of a letter.
+    private static String mistype(Random random, String text) {
+        StringBuilder typed = new StringBuilder(text);
+        int at = random.nextInt(text.length());
+        char letter = (char) ('a' + random.nextInt(8));
+        switch (random.nextInt(3)) {
+            case 0 -> typed.setCharAt(at, typed.charAt(at) == ' ' ? ' ' : letter);
+            case 1 -> typed.insert(at, letter);
+            default -> {
+                if (typed.charAt(at) != ' ' && text.length() > 3) {
+                    typed.deleteCharAt(at);
+                }
+            }
+        }
+        return typed.toString();
+    }
+
+    private static String randomText(Random random, int length) {
+        char[] text = new char[length];
+        for (int i = 0; i < length; i++) {
+            text[i] = (char) ('a' + random.nextInt(4));
+        }
+        return new String(text);
+    }
+
+    private static int levenshtein(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int substitute = d[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                d[i][j] = Math.min(substitute, Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+}
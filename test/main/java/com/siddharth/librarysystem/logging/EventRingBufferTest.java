@@ -0,0 +1,102 @@
+package main.java.com.siddharth.librarysystem.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+class EventRingBufferTest {
+
+    private static LogEvent event(String message) {
+        return new LogEvent(Level.INFO, "test", message, new Object[0]);
+    }
+
+    @Test
+    void pollsEventsInTheOrderTheyWereOffered() {
+        EventRingBuffer buffer = new EventRingBuffer(8);
+        LogEvent first = event("first");
+        LogEvent second = event("second");
+        assertTrue(buffer.offer(first));
+        assertTrue(buffer.offer(second));
+
+        assertSame(first, buffer.poll());
+        assertSame(second, buffer.poll());
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    void roundsCapacityUpToAPowerOfTwoAndRejectsWhenFull() {
+        EventRingBuffer buffer = new EventRingBuffer(5);
+        for (int i = 0; i < 8; i++) {
+            assertTrue(buffer.offer(event("event " + i)), "offer " + i);
+        }
+        assertFalse(buffer.offer(event("overflow")));
+        assertEquals(8, buffer.claimed());
+
+        buffer.poll();
+        assertTrue(buffer.offer(event("after poll")));
+    }
+
+    @Test
+    void reusesSlotsAcrossManyWraps() {
+        EventRingBuffer buffer = new EventRingBuffer(2);
+        for (int i = 0; i < 1_000; i++) {
+            LogEvent event = event("event " + i);
+            assertTrue(buffer.offer(event));
+            assertSame(event, buffer.poll());
+        }
+        assertEquals(1_000, buffer.claimed());
+        assertEquals(1_000, buffer.consumed());
+    }
+
+    @Test
+    void deliversEveryEventOfferedByConcurrentProducers() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 10_000;
+        EventRingBuffer buffer = new EventRingBuffer(64);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            String prefix = "p" + p + "-";
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    LogEvent event = event(prefix + i);
+                    while (!buffer.offer(event)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+
+        Set<String> received = new HashSet<>();
+        while (received.size() < producers * perProducer) {
+            LogEvent event = buffer.poll();
+            if (event == null) {
+                Thread.onSpinWait();
+            } else {
+                assertTrue(received.add(event.getTemplate()), "delivered twice: " + event.getTemplate());
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(buffer.poll());
+    }
+}
@@ -0,0 +1,184 @@
+package main.java.com.siddharth.librarysystem.manager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import main.java.com.siddharth.librarysystem.entity.Book;
+import main.java.com.siddharth.librarysystem.query.CatalogPage;
+import main.java.com.siddharth.librarysystem.query.InventoryRow;
+
+class BookInventoryTest {
+
+    private BookInventory inventory;
+
+    @BeforeEach
+    void setUp() {
+        inventory = new BookInventory();
+    }
+
+    // --- Listing ---
+
+    @Test
+    void listsTheWholeCatalogInIsbnOrderAPageAtATime() {
+        List<String> isbns = new ArrayList<>();
+        // Added out of order.
+        for (int n = 24; n >= 0; n--) {
+            inventory.addBook(book(n), 1 + n % 3);
+            isbns.add(0, isbn(n));
+        }
+        assertTrue(inventory.markAsBorrowed(isbn(3)));
+
+        List<InventoryRow> rows = new ArrayList<>();
+        int pages = 0;
+        String cursor = null;
+        do {
+            CatalogPage page = inventory.listBooks(cursor, 10);
+            rows.addAll(page.getRows());
+            cursor = page.getNextCursor();
+            assertEquals(cursor != null, page.hasMore());
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(isbns, rows.stream().map(row -> row.getBook().getIsbn()).toList());
+        InventoryRow third = rows.get(3);
+        assertEquals(0, third.getAvailableCopies());
+        assertEquals(1, third.getBorrowedCopies());
+        assertEquals(1, third.getTotalCopies());
+        assertEquals(3, rows.get(2).getAvailableCopies());
+    }
+
+    @Test
+    void endsWithoutACursorWhenTheLastPageIsExactlyFull() {
+        for (int n = 0; n < 4; n++) {
+            inventory.addBook(book(n), 1);
+        }
+
+        CatalogPage first = inventory.listBooks(null, 2);
+        CatalogPage second = inventory.listBooks(first.getNextCursor(), 2);
+
+        assertEquals(2, second.getRows().size());
+        assertFalse(second.hasMore());
+        assertNull(inventory.listBooks(null, 4).getNextCursor());
+    }
+
+    @Test
+    void resumesAfterTheLastIsbnWhileBooksAreAddedAndRemoved() {
+        for (int n = 0; n < 10; n += 2) {
+            inventory.addBook(book(n), 1);
+        }
+        CatalogPage first = inventory.listBooks(null, 2);
+        assertEquals(List.of(isbn(0), isbn(2)), isbnsOf(first));
+
+        // Before the cursor: not listed. After it: listed. The cursor's own book going away doesn't matter.
+        inventory.addBook(book(1), 1);
+        inventory.addBook(book(5), 1);
+        inventory.removeBook(isbn(2));
+        inventory.removeBook(isbn(6));
+        CatalogPage rest = inventory.listBooks(first.getNextCursor(), 10);
+
+        assertEquals(List.of(isbn(4), isbn(5), isbn(8)), isbnsOf(rest));
+        assertNull(rest.getNextCursor());
+    }
+
+    @Test
+    void cursorsRoundTripAndBadOnesAreRejected() {
+        assertEquals("9780141439518", CatalogPage.decodeCursor(CatalogPage.encodeCursor("9780141439518")));
+        assertTrue(CatalogPage.encodeCursor("9780141439518").matches("[A-Za-z0-9_-]+"));
+        assertThrows(IllegalArgumentException.class, () -> inventory.listBooks("not a cursor!", 10));
+        assertThrows(IllegalArgumentException.class, () -> inventory.listBooks(null, 0));
+    }
+
+    // --- Leases ---
+
+    @Test
+    void aReservedCopyIsNeitherOnTheShelfNorOnLoanUntilCommitted() {
+        Book book = book(1);
+        inventory.addBook(book, 2);
+
+        CopyLease lease = inventory.reserve(book);
+        assertCounts(book, 1, 1, 0);
+        assertTrue(inventory.commit(lease));
+        assertCounts(book, 1, 0, 1);
+        assertFalse(inventory.commit(lease));
+        assertFalse(inventory.release(lease));
+
+        CopyLease other = inventory.reserve(book);
+        assertNull(inventory.reserve(book));
+        assertTrue(inventory.release(other));
+        assertCounts(book, 1, 0, 1);
+        assertTrue(inventory.markAsReturned(book));
+        assertCounts(book, 2, 0, 0);
+    }
+
+    @Test
+    void putsExpiredReservationsBackWhenTheStockIsRead() throws InterruptedException {
+        Book book = book(1);
+        inventory.addBook(book, 1);
+        List<Book> expired = new ArrayList<>();
+        inventory.setLeaseExpiryListener(expired::add);
+        inventory.setLeaseDuration(Duration.ofMillis(20));
+        CopyLease lease = inventory.reserve(book);
+        assertFalse(inventory.isBookAvailable(book.getIsbn()));
+
+        Thread.sleep(50);
+
+        // No explicit sweep: the read notices the lease is due.
+        assertCounts(book, 1, 0, 0);
+        assertEquals(List.of(book), expired);
+        assertFalse(inventory.commit(lease));
+        assertFalse(inventory.release(lease));
+        assertEquals(0, inventory.expireLeases());
+    }
+
+    @Test
+    void reservesTheLastCopyOnceAnExpiredLeaseOnItIsSwept() throws InterruptedException {
+        Book book = book(1);
+        inventory.addBook(book, 1);
+        inventory.setLeaseDuration(Duration.ofMillis(20));
+        assertNotNull(inventory.reserve(book));
+        assertNull(inventory.reserve(book));
+
+        Thread.sleep(50);
+
+        assertNotNull(inventory.reserve(book));
+        assertThrows(IllegalArgumentException.class, () -> inventory.setLeaseDuration(Duration.ZERO));
+    }
+
+    private void assertCounts(Book book, int available, int reserved, int borrowed) {
+        assertEquals(available, inventory.getAvailableCopiesCount(book.getIsbn()), "available");
+        assertEquals(reserved, inventory.getReservedCopiesCount(book.getIsbn()), "reserved");
+        assertEquals(borrowed, inventory.getBorrowedCopiesCount(book.getIsbn()), "borrowed");
+    }
+
+    // --- Helpers ---
+
+    private static List<String> isbnsOf(CatalogPage page) {
+        return page.getRows().stream().map(row -> row.getBook().getIsbn()).toList();
+    }
+
+    private static Book book(int n) {
+        return new Book("Title " + n, "Author " + n, isbn(n), 2000);
+    }
+
+    // A valid ISBN-13 for every number below 1,000,000, in the same order as the numbers.
+    private static String isbn(int n) {
+        String digits = String.format("978%09d", n);
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += (digits.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return digits + (10 - sum % 10) % 10;
+    }
+}
@@ -0,0 +1,195 @@
+package main.java.com.siddharth.librarysystem.manager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import main.java.com.siddharth.librarysystem.entity.Book;
+import main.java.com.siddharth.librarysystem.logging.ConsoleSink;
+import main.java.com.siddharth.librarysystem.logging.EventLog;
+import main.java.com.siddharth.librarysystem.logging.Level;
+import main.java.com.siddharth.librarysystem.logging.LogEvent;
+import main.java.com.siddharth.librarysystem.logging.LogSink;
+import main.java.com.siddharth.librarysystem.logging.OverflowPolicy;
+import main.java.com.siddharth.librarysystem.query.CatalogQuery;
+import main.java.com.siddharth.librarysystem.query.SortOrder;
+
+class CatalogQueryPlannerTest {
+
+    private static final String[] WORDS = {"river", "night", "garden", "stone", "winter", "silver", "shadow", "house"};
+    private static final String[] AUTHORS = {"Ann Lee", "Bo Chan", "Cy Dorn", "Di Egan", "Ed Ford", "Flo Gray"};
+
+    private final List<String> plans = new ArrayList<>();
+    private BookInventory inventory;
+    private List<Book> books;
+
+    @BeforeEach
+    void setUp() {
+        EventLog.configure(Level.DEBUG, OverflowPolicy.BLOCK, EventLog.DEFAULT_CAPACITY, new LogSink() {
+            @Override
+            public void write(LogEvent event) {
+                if (event.getMessage().startsWith("Query plan")) {
+                    plans.add(event.getMessage());
+                }
+            }
+        });
+        Random random = new Random(9);
+        inventory = new BookInventory();
+        books = new ArrayList<>();
+        for (int n = 0; n < 2_000; n++) {
+            String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + n;
+            // Most books are by the first author, so an author predicate on her is not selective.
+            String author = random.nextInt(4) > 0 ? AUTHORS[0] : AUTHORS[1 + random.nextInt(AUTHORS.length - 1)];
+            Book book = new Book(title, author, isbn(n), 1900 + random.nextInt(120));
+            inventory.addBook(book, 1);
+            if (random.nextInt(3) == 0) {
+                assertTrue(inventory.markAsBorrowed(book));
+            }
+            books.add(book);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        EventLog.configure(Level.INFO, OverflowPolicy.BLOCK, EventLog.DEFAULT_CAPACITY, new ConsoleSink());
+    }
+
+    // --- Plans ---
+
+    @Test
+    void drivesFromTheMostSelectiveIndexAndIntersectsSimilarOnes() {
+        // About 50 books in those years and 100 by Bo Chan: close enough to intersect.
+        CatalogQuery query = new CatalogQuery().publishedBetween(1950, 1952).author("bo chan");
+
+        assertEquals(expected(query), inventory.query(query));
+        assertEquals("drive from pubYear, intersect [author], 0 per-book checks", planText());
+    }
+
+    @Test
+    void checksAMuchLargerIndexBookByBook() {
+        CatalogQuery query = new CatalogQuery().publishedIn(1950).author("ann lee").availableOnly();
+
+        assertEquals(expected(query), inventory.query(query));
+        // The single year is small and "ann lee" covers most of the catalog: two per-book checks.
+        assertEquals("drive from pubYear, intersect [], 2 per-book checks", planText());
+    }
+
+    @Test
+    void walksTheYearIndexInOrderForAPagedYearQuery() {
+        CatalogQuery query = new CatalogQuery().publishedBetween(1930, 1940).title("stone")
+                .orderBy(SortOrder.PUB_YEAR_DESC).offset(3).limit(5);
+
+        assertEquals(expected(query), inventory.query(query));
+        assertEquals("drive from ordered pubYear scan, intersect [], 1 per-book checks", planText());
+    }
+
+    @Test
+    void scansEverythingWithoutAnIndexedPredicate() {
+        CatalogQuery query = new CatalogQuery().availableOnly().orderBy(SortOrder.AUTHOR).offset(10).limit(20);
+
+        assertEquals(expected(query), inventory.query(query));
+        assertEquals("drive from full scan, intersect [], 1 per-book checks", planText());
+    }
+
+    @Test
+    void matchesNothingForATextPredicateWithoutWords() {
+        assertEquals(List.of(), inventory.query(new CatalogQuery().title("?!").publishedFrom(1900)));
+        assertTrue(plan().contains("nothing"), plan());
+    }
+
+    // --- Results ---
+
+    @Test
+    void agreesWithAFullScanOnRandomQueries() {
+        Random random = new Random(21);
+        for (int i = 0; i < 500; i++) {
+            CatalogQuery query = new CatalogQuery();
+            if (random.nextBoolean()) {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                query.title(random.nextBoolean() ? word : word.substring(0, 1 + random.nextInt(word.length() - 1)));
+            }
+            if (random.nextInt(3) == 0) {
+                query.author(AUTHORS[random.nextInt(AUTHORS.length)].split(" ")[random.nextInt(2)]);
+            }
+            if (random.nextBoolean()) {
+                int from = 1890 + random.nextInt(140);
+                query.publishedBetween(from, from + random.nextInt(30));
+            }
+            if (random.nextInt(4) == 0) {
+                query.availableOnly();
+            }
+            query.orderBy(SortOrder.values()[random.nextInt(SortOrder.values().length)]);
+            if (random.nextBoolean()) {
+                query.offset(random.nextInt(50)).limit(random.nextInt(30));
+            }
+            assertEquals(expected(query), inventory.query(query), query.toString());
+        }
+    }
+
+    // --- Helpers ---
+
+    // The result of the query computed by checking every book.
+    private List<Book> expected(CatalogQuery query) {
+        Comparator<Book> order = switch (query.getSortOrder()) {
+            case TITLE -> Comparator.comparing(book -> book.getTitle().toLowerCase(Locale.ROOT));
+            case AUTHOR -> Comparator.comparing(book -> book.getAuthor().toLowerCase(Locale.ROOT));
+            case PUB_YEAR -> Comparator.comparingInt(Book::getPubYear);
+            case PUB_YEAR_DESC -> Comparator.comparingInt(book -> -book.getPubYear());
+        };
+        return books.stream()
+                .filter(book -> query.getTitle() == null || matches(book.getTitle(), query.getTitle()))
+                .filter(book -> query.getAuthor() == null || matches(book.getAuthor(), query.getAuthor()))
+                .filter(book -> !query.hasYearRange()
+                        || (book.getPubYear() >= query.getFromYear() && book.getPubYear() <= query.getToYear()))
+                .filter(book -> !query.isAvailableOnly() || inventory.getAvailableCopiesCount(book.getIsbn()) > 0)
+                .sorted(order.thenComparing(Book::getIsbn))
+                .skip(query.getOffset())
+                .limit(query.getLimit())
+                .toList();
+    }
+
+    // Every word must be in the text and the last one may be a prefix.
+    private static boolean matches(String text, String query) {
+        List<String> words = List.of(text.toLowerCase(Locale.ROOT).split(" "));
+        String[] wanted = query.toLowerCase(Locale.ROOT).split(" ");
+        for (int i = 0; i < wanted.length; i++) {
+            String word = wanted[i];
+            Stream<String> candidates = words.stream();
+            if (i < wanted.length - 1 ? candidates.noneMatch(word::equals) : candidates.noneMatch(w -> w.startsWith(word))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String plan() {
+        EventLog.flush();
+        assertEquals(1, plans.size(), plans.toString());
+        return plans.get(0);
+    }
+
+    // The plan without the query's own description.
+    private String planText() {
+        String plan = plan();
+        return plan.substring(plan.lastIndexOf(": ") + 2);
+    }
+
+    private static String isbn(int n) {
+        String digits = String.format("978%09d", n);
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += (digits.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return digits + (10 - sum % 10) % 10;
+    }
+}
@@ -0,0 +1,162 @@
+package main.java.com.siddharth.librarysystem.manager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import main.java.com.siddharth.librarysystem.entity.Book;
+import main.java.com.siddharth.librarysystem.entity.LendingTicket;
+import main.java.com.siddharth.librarysystem.entity.Patron;
+import main.java.com.siddharth.librarysystem.entity.PaymentStatus;
+
+class DueDateSchedulerTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 3, 1);
+    private static final double FINE_PER_DAY = 0.5;
+
+    private final Book book = new Book("Emma", "Jane Austen", "9780141439587", 1815);
+    private final Patron patron = new Patron("Alice", "alice@example.com");
+    private TestClock clock;
+    private DueDateScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        clock = new TestClock(TODAY.atStartOfDay(ZoneOffset.UTC).toInstant());
+        scheduler = new DueDateScheduler(clock, FINE_PER_DAY);
+    }
+
+    @Test
+    void becomesOverdueTheDayAfterItIsDue() {
+        LendingTicket ticket = loanDueIn(2);
+        scheduler.schedule(ticket);
+
+        clock.advanceDays(2);
+        assertEquals(0, scheduler.getOverdueCount());
+        assertEquals(PaymentStatus.PAID, ticket.getPaymentStatus());
+
+        clock.advanceDays(1);
+        assertEquals(List.of(ticket), scheduler.getOverdue());
+        assertEquals(PaymentStatus.OVERDUE, ticket.getPaymentStatus());
+        assertEquals(FINE_PER_DAY, ticket.getFineAmount());
+    }
+
+    @Test
+    void chargesEveryDayLateIncludingDaysSkippedBetweenChecks() {
+        LendingTicket early = loanDueIn(0);
+        LendingTicket late = loanDueIn(3);
+        scheduler.schedule(early);
+        scheduler.schedule(late);
+
+        clock.advanceDays(2);
+        assertEquals(1, scheduler.advance());
+        assertEquals(2 * FINE_PER_DAY, early.getFineAmount());
+
+        // Nobody looks for a week.
+        clock.advanceDays(7);
+        assertEquals(1, scheduler.advance());
+        assertEquals(9 * FINE_PER_DAY, early.getFineAmount());
+        assertEquals(6 * FINE_PER_DAY, late.getFineAmount());
+        assertEquals(15 * FINE_PER_DAY, scheduler.getOutstandingFines());
+        assertEquals(List.of(early, late), scheduler.getOverdue());
+        // Advancing twice on the same day charges nothing more.
+        assertEquals(0, scheduler.advance());
+        assertEquals(15 * FINE_PER_DAY, scheduler.getOutstandingFines());
+    }
+
+    @Test
+    void aLoanAlreadyPastItsDueDayIsOverdueAtOnce() {
+        LendingTicket ticket = loanDueIn(-4);
+
+        scheduler.schedule(ticket);
+
+        assertEquals(PaymentStatus.OVERDUE, ticket.getPaymentStatus());
+        assertEquals(4 * FINE_PER_DAY, scheduler.getOutstandingFines());
+    }
+
+    @Test
+    void cancellingFreezesTheFineAndTakesItOffTheOutstandingTotal() {
+        LendingTicket overdue = loanDueIn(0);
+        LendingTicket onTime = loanDueIn(10);
+        scheduler.schedule(overdue);
+        scheduler.schedule(onTime);
+        clock.advanceDays(3);
+
+        assertTrue(scheduler.cancel(overdue));
+        assertEquals(3 * FINE_PER_DAY, overdue.getFineAmount());
+        assertEquals(0.0, scheduler.getOutstandingFines());
+        assertTrue(scheduler.cancel(onTime));
+        assertFalse(scheduler.cancel(onTime));
+
+        clock.advanceDays(30);
+        assertEquals(3 * FINE_PER_DAY, overdue.getFineAmount());
+        assertEquals(PaymentStatus.PAID, onTime.getPaymentStatus());
+        assertEquals(0, scheduler.getOverdueCount());
+    }
+
+    @Test
+    void listsLoansDueWithinARangeInDueDateOrder() {
+        LendingTicket inFive = loanDueIn(5);
+        LendingTicket today = loanDueIn(0);
+        LendingTicket inTwo = loanDueIn(2);
+        LendingTicket past = loanDueIn(-1);
+        for (LendingTicket ticket : List.of(inFive, today, inTwo, past)) {
+            scheduler.schedule(ticket);
+        }
+
+        assertEquals(List.of(today), scheduler.getDueWithin(0));
+        assertEquals(List.of(today, inTwo), scheduler.getDueWithin(4));
+        assertEquals(List.of(today, inTwo, inFive), scheduler.getDueWithin(5));
+        clock.advanceDays(1);
+        assertEquals(List.of(inTwo), scheduler.getDueWithin(1));
+        assertThrows(IllegalArgumentException.class, () -> scheduler.getDueWithin(-1));
+    }
+
+    private LendingTicket loanDueIn(int days) {
+        LocalDate due = TODAY.plusDays(days);
+        LendingTicket ticket = new LendingTicket(book, patron, due.minusDays(14), due, 5.0);
+        ticket.setPaymentStatus(PaymentStatus.PAID);
+        return ticket;
+    }
+
+    /**
+     * A clock that only moves when told to.
+     */
+    private static final class TestClock extends Clock {
+        private Instant now;
+
+        TestClock(Instant now) {
+            this.now = now;
+        }
+
+        void advanceDays(int days) {
+            now = now.plus(Duration.ofDays(days));
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
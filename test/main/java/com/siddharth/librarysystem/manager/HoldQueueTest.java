@@ -0,0 +1,188 @@
+package main.java.com.siddharth.librarysystem.manager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import main.java.com.siddharth.librarysystem.entity.Book;
+import main.java.com.siddharth.librarysystem.entity.Hold;
+import main.java.com.siddharth.librarysystem.entity.HoldPriority;
+import main.java.com.siddharth.librarysystem.entity.HoldStatus;
+import main.java.com.siddharth.librarysystem.entity.Patron;
+
+class HoldQueueTest {
+
+    private static final Duration PICKUP_WINDOW = Duration.ofDays(3);
+
+    private final MutableClock clock = new MutableClock();
+    private BookInventory inventory;
+    private HoldQueue holds;
+    private Book book;
+    private Patron alice;
+    private Patron bob;
+    private Patron carol;
+
+    @BeforeEach
+    void setUp() {
+        inventory = new BookInventory();
+        holds = new HoldQueue(inventory, clock, PICKUP_WINDOW, 2);
+        book = new Book("Pride and Prejudice", "Jane Austen", "9780141439518", 1813);
+        inventory.addBook(book, 1);
+        alice = new Patron("Alice", "alice@example.com");
+        bob = new Patron("Bob", "bob@example.com");
+        carol = new Patron("Carol", "carol@example.com");
+    }
+
+    @Test
+    void setsAsideACopyOnTheShelfStraightAway() {
+        Hold hold = holds.place(book, alice, HoldPriority.NORMAL);
+
+        assertEquals(HoldStatus.READY, hold.getStatus());
+        assertTrue(hold.whenReady().isDone());
+        assertStock(0, 1, 0);
+    }
+
+    @Test
+    void givesAReturnedCopyToTheNextHolder() {
+        assertTrue(inventory.markAsBorrowed(book));
+        Hold hold = holds.place(book, alice, HoldPriority.NORMAL);
+        assertEquals(HoldStatus.WAITING, hold.getStatus());
+        assertEquals(1, holds.getWaitingCount(book.getIsbn()));
+
+        holds.release(book);
+
+        assertEquals(HoldStatus.READY, hold.getStatus());
+        assertEquals(0, holds.getWaitingCount(book.getIsbn()));
+        assertStock(0, 1, 0);
+    }
+
+    @Test
+    void shelvesAReturnedCopyWhenNobodyIsWaiting() {
+        assertTrue(inventory.markAsBorrowed(book));
+        holds.release(book);
+        assertStock(1, 0, 0);
+    }
+
+    @Test
+    void servesHigherPrioritiesFirstThenInOrderPlaced() {
+        assertTrue(inventory.markAsBorrowed(book));
+        Hold first = holds.place(book, alice, HoldPriority.NORMAL);
+        Hold second = holds.place(book, bob, HoldPriority.NORMAL);
+        Hold urgent = holds.place(book, carol, HoldPriority.HIGH);
+
+        holds.release(book);
+        assertEquals(HoldStatus.READY, urgent.getStatus());
+        assertEquals(HoldStatus.WAITING, first.getStatus());
+
+        assertTrue(holds.cancel(urgent));
+        assertEquals(HoldStatus.READY, first.getStatus());
+        assertEquals(HoldStatus.WAITING, second.getStatus());
+        assertStock(0, 1, 0);
+    }
+
+    @Test
+    void skipsCancelledWaitingHolds() {
+        assertTrue(inventory.markAsBorrowed(book));
+        Hold first = holds.place(book, alice, HoldPriority.NORMAL);
+        Hold second = holds.place(book, bob, HoldPriority.NORMAL);
+
+        assertTrue(holds.cancel(first));
+        assertFalse(holds.cancel(first));
+        holds.release(book);
+
+        assertEquals(HoldStatus.CANCELLED, first.getStatus());
+        assertEquals(HoldStatus.READY, second.getStatus());
+    }
+
+    @Test
+    void passesAnUncollectedCopyOnAfterThePickupWindow() {
+        Hold ready = holds.place(book, alice, HoldPriority.NORMAL);
+        Hold next = holds.place(book, bob, HoldPriority.NORMAL);
+        assertEquals(HoldStatus.WAITING, next.getStatus());
+
+        clock.advance(PICKUP_WINDOW.minusSeconds(1));
+        assertEquals(0, holds.expire());
+        clock.advance(Duration.ofSeconds(1));
+        assertEquals(1, holds.expire());
+
+        assertEquals(HoldStatus.EXPIRED, ready.getStatus());
+        assertEquals(HoldStatus.READY, next.getStatus());
+        clock.advance(PICKUP_WINDOW);
+        assertEquals(1, holds.expire());
+        assertStock(1, 0, 0);
+    }
+
+    @Test
+    void collectingLeavesTheCopySetAsideUntilItIsLent() {
+        Hold hold = holds.place(book, alice, HoldPriority.NORMAL);
+
+        assertNull(holds.collect(bob, book.getIsbn()));
+        assertSame(hold, holds.collect(alice, book.getIsbn()));
+        assertEquals(HoldStatus.COLLECTED, hold.getStatus());
+        assertStock(0, 1, 0);
+
+        holds.restore(hold);
+        assertEquals(HoldStatus.READY, hold.getStatus());
+        assertSame(hold, holds.collect(alice, book.getIsbn()));
+        assertTrue(inventory.lendSetAside(book));
+        assertStock(0, 0, 1);
+    }
+
+    @Test
+    void limitsOpenHoldsPerPatron() {
+        Book second = new Book("Emma", "Jane Austen", "9780141439587", 1815);
+        Book third = new Book("Persuasion", "Jane Austen", "9780141439686", 1817);
+        inventory.addBook(second, 1);
+        inventory.addBook(third, 1);
+
+        Hold hold = holds.place(book, alice, HoldPriority.NORMAL);
+        assertSame(hold, holds.place(book, alice, HoldPriority.HIGH));
+        holds.place(second, alice, HoldPriority.NORMAL);
+        assertNull(holds.place(third, alice, HoldPriority.NORMAL));
+        assertEquals(2, holds.getHolds(alice).size());
+    }
+
+    private void assertStock(int available, int reserved, int borrowed) {
+        String isbn = book.getIsbn();
+        assertEquals(available, inventory.getAvailableCopiesCount(isbn), "available");
+        assertEquals(reserved, inventory.getReservedCopiesCount(isbn), "reserved");
+        assertEquals(borrowed, inventory.getBorrowedCopiesCount(isbn), "borrowed");
+    }
+
+    /**
+     * A clock that only moves when told to.
+     */
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-05-01T10:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package main.java.com.siddharth.librarysystem.manager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class LeaseQueueTest {
+
+    private static CopyLease lease(long takenNanos) {
+        return new CopyLease(null, takenNanos, takenNanos + 100);
+    }
+
+    @Test
+    void startsEmpty() {
+        LeaseQueue queue = new LeaseQueue();
+        assertNull(queue.peek());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void returnsLeasesOldestFirst() {
+        LeaseQueue queue = new LeaseQueue();
+        CopyLease first = lease(1);
+        CopyLease second = lease(2);
+        CopyLease third = lease(3);
+        queue.add(first);
+        queue.add(second);
+
+        assertSame(first, queue.peek());
+        assertSame(first, queue.poll());
+        queue.add(third);
+        assertSame(second, queue.poll());
+        assertSame(third, queue.peek());
+        assertSame(third, queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void unlinksPolledLeases() {
+        LeaseQueue queue = new LeaseQueue();
+        CopyLease first = lease(1);
+        queue.add(first);
+        queue.add(lease(2));
+        queue.poll();
+        queue.poll();
+
+        // The lease before the current head must not keep later leases reachable.
+        assertNull(first.next);
+    }
+
+    @Test
+    void keepsEveryLeaseAddedConcurrently() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 10_000;
+        LeaseQueue queue = new LeaseQueue();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    queue.add(lease(i));
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        int polled = 0;
+        while (queue.poll() != null) {
+            polled++;
+        }
+        assertEquals(producers * perProducer, polled);
+    }
+}
@@ -0,0 +1,260 @@
+package main.java.com.siddharth.librarysystem.manager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import main.java.com.siddharth.librarysystem.entity.Book;
+import main.java.com.siddharth.librarysystem.entity.Hold;
+import main.java.com.siddharth.librarysystem.entity.HoldPriority;
+import main.java.com.siddharth.librarysystem.entity.HoldStatus;
+import main.java.com.siddharth.librarysystem.entity.LendingTicket;
+import main.java.com.siddharth.librarysystem.entity.Patron;
+import main.java.com.siddharth.librarysystem.entity.PaymentStatus;
+import main.java.com.siddharth.librarysystem.payment.PaymentProcessor;
+
+class PatronManagerTest {
+
+    private BookInventory inventory;
+    private TestProcessor payments;
+    private PatronManager patrons;
+    private Patron patron;
+    // pride sorts before emma by ISBN, so a checkout of both handles pride first.
+    private Book pride;
+    private Book emma;
+
+    @BeforeEach
+    void setUp() {
+        inventory = new BookInventory();
+        payments = new TestProcessor();
+        patrons = new PatronManager(payments, inventory);
+        patron = patrons.registerPatron("Alice", "alice@example.com");
+        pride = new Book("Pride and Prejudice", "Jane Austen", "9780141439518", 1813);
+        emma = new Book("Emma", "Jane Austen", "9780141439587", 1815);
+        inventory.addBook(pride, 1);
+        inventory.addBook(emma, 1);
+    }
+
+    // --- Checkout ---
+
+    @Test
+    void checksOutEveryBookForOnePayment() {
+        List<LendingTicket> tickets = patrons.checkoutBooks(List.of(emma, pride), patron);
+
+        assertEquals(List.of(pride, emma), tickets.stream().map(LendingTicket::getBook).toList());
+        assertEquals(List.of(10.0), payments.amounts);
+        assertStock(pride, 0, 0, 1);
+        assertStock(emma, 0, 0, 1);
+        assertEquals(2, patrons.getActiveTickets(patron).size());
+    }
+
+    @Test
+    void checksOutNothingWhenABookHasNoCopy() {
+        Book persuasion = new Book("Persuasion", "Jane Austen", "9780141439686", 1817);
+        inventory.addBook(persuasion, 1);
+        assertTrue(inventory.markAsBorrowed(persuasion));
+
+        assertNull(patrons.checkoutBooks(List.of(pride, emma, persuasion), patron));
+
+        assertTrue(payments.amounts.isEmpty());
+        assertStock(pride, 1, 0, 0);
+        assertStock(emma, 1, 0, 0);
+    }
+
+    @Test
+    void givesEverythingBackWhenTheCheckoutPaymentFails() {
+        Hold hold = patrons.placeHold(emma, patron, HoldPriority.NORMAL);
+        payments.accept = false;
+
+        assertNull(patrons.checkoutBooks(List.of(pride, emma), patron));
+
+        assertStock(pride, 1, 0, 0);
+        assertStock(emma, 0, 1, 0);
+        assertEquals(HoldStatus.READY, hold.getStatus());
+        assertSame(hold, patrons.findHold(hold.getId()));
+        assertTrue(patrons.getActiveTickets(patron).isEmpty());
+    }
+
+    @Test
+    void restoresTheHoldWhoseCopyCouldNotBeLentInACheckout() {
+        Hold hold = patrons.placeHold(emma, patron, HoldPriority.NORMAL);
+        // The copy set aside for the hold goes while the payment runs, so pride is lent and emma can't be.
+        payments.whilePaying = () -> inventory.shelveSetAside(emma);
+
+        assertNull(patrons.checkoutBooks(List.of(pride, emma), patron));
+
+        assertStock(pride, 1, 0, 0);
+        assertEquals(HoldStatus.READY, hold.getStatus());
+        assertSame(hold, patrons.findHold(hold.getId()));
+        assertEquals(List.of(hold), patrons.getHolds(patron));
+        assertTrue(patrons.getActiveTickets(patron).isEmpty());
+    }
+
+    @Test
+    void restoresTheHoldWhoseCopyCouldNotBeLentInAnIssue() {
+        Hold hold = patrons.placeHold(emma, patron, HoldPriority.NORMAL);
+        payments.whilePaying = () -> inventory.shelveSetAside(emma);
+
+        assertNull(patrons.issueBook(emma, patron));
+
+        assertEquals(HoldStatus.READY, hold.getStatus());
+        assertEquals(List.of(hold), patrons.getHolds(patron));
+        assertTrue(patrons.getActiveTickets(patron).isEmpty());
+    }
+
+    @Test
+    void checksOutTheCopiesSetAsideForHolds() {
+        Hold hold = patrons.placeHold(emma, patron, HoldPriority.NORMAL);
+
+        assertNotNull(patrons.checkoutBooks(List.of(pride, emma), patron));
+
+        assertEquals(HoldStatus.COLLECTED, hold.getStatus());
+        assertTrue(patrons.getHolds(patron).isEmpty());
+        assertStock(emma, 0, 0, 1);
+    }
+
+    // --- Active loans ---
+
+    @Test
+    void findsActiveLoansByTicketIdAndByBookUntilTheyAreReturned() {
+        inventory.addBook(pride, 1);
+        Patron bob = patrons.registerPatron("Bob", "bob@example.com");
+        LendingTicket alices = patrons.issueBook(pride, patron);
+        LendingTicket bobs = patrons.issueBook(pride, bob);
+
+        assertSame(alices, patrons.findActiveTicket(alices.getId()));
+        // Compact IDs are matched in any case, as typed at the desk.
+        assertSame(bobs, patrons.findActiveTicket(bobs.getId().toUpperCase()));
+        assertEquals(2, patrons.getActiveTicketsForBook(pride.getIsbn()).size());
+
+        assertTrue(patrons.returnBook(pride, patron));
+
+        assertNull(patrons.findActiveTicket(alices.getId()));
+        assertEquals(List.of(bobs), patrons.getActiveTicketsForBook(pride.getIsbn()));
+        assertEquals(List.of(bobs), patrons.getActiveTickets(bob));
+        assertTrue(patrons.getActiveTickets(patron).isEmpty());
+        assertFalse(patrons.returnBook(pride, patron));
+        assertTrue(patrons.returnBook(pride, bob));
+        assertTrue(patrons.getActiveTicketsForBook(pride.getIsbn()).isEmpty());
+        assertEquals(0, patrons.getActiveLoanCount());
+    }
+
+    @Test
+    void findsPatronsAndLoansWithLegacyIdsByTheirText() {
+        String uuid = "3f1c2a4e-5b6d-4e7f-8a9b-0c1d2e3f4a5b";
+        Patron legacy = new Patron(uuid, "Carol", "carol@example.com", LocalDateTime.now(), LocalDateTime.now());
+        patrons.restorePatron(legacy);
+        LendingTicket ticket = new LendingTicket("9d8c7b6a-5f4e-4d3c-8b2a-1f0e9d8c7b6a", emma, legacy,
+                LocalDate.now(), LocalDate.now().plusDays(14), 5.0, PaymentStatus.PAID);
+        assertTrue(patrons.restoreTicket(ticket));
+
+        assertSame(legacy, patrons.findPatronById(" " + uuid + " "));
+        assertSame(patron, patrons.findPatronById(patron.getId().toLowerCase()));
+        assertNull(patrons.findPatronById("0e1f2a3b-4c5d-4e6f-8a7b-9c0d1e2f3a4b"));
+        assertNull(patrons.findPatronById(null));
+        assertSame(ticket, patrons.findActiveTicket(ticket.getId()));
+        assertEquals(List.of(ticket), patrons.getActiveTickets(legacy));
+
+        assertTrue(patrons.returnBook(emma, legacy));
+        assertNull(patrons.findActiveTicket(ticket.getId()));
+    }
+
+    @Test
+    void returnsTheOldestCopyOfABookFirst() {
+        inventory.addBook(emma, 2);
+        LendingTicket first = patrons.issueBook(emma, patron);
+        LendingTicket second = patrons.issueBook(emma, patron);
+        LendingTicket third = patrons.issueBook(emma, patron);
+        patrons.issueBook(pride, patron);
+
+        assertTrue(patrons.returnBook(emma, patron));
+
+        assertNull(patrons.findActiveTicket(first.getId()));
+        assertEquals(Set.of(second, third), Set.copyOf(patrons.getActiveTicketsForBook(emma.getIsbn())));
+        assertEquals(List.of(emma, emma, pride), patrons.getBorrowedBooks(patron));
+    }
+
+    // --- Leases ---
+
+    @Test
+    void givesUpAPaymentThatOutlastsTheReservation() throws InterruptedException {
+        inventory.setLeaseDuration(Duration.ofMillis(100));
+        CountDownLatch interrupted = new CountDownLatch(1);
+        payments.whilePaying = () -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        };
+
+        long start = System.nanoTime();
+        assertNull(patrons.issueBook(pride, patron));
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertStock(pride, 1, 0, 0);
+        assertTrue(patrons.getActiveTickets(patron).isEmpty());
+    }
+
+    @Test
+    void handsAnExpiredReservationToTheNextHolder() throws InterruptedException {
+        inventory.setLeaseDuration(Duration.ofMillis(20));
+        CopyLease lease = inventory.reserve(pride);
+        Patron bob = patrons.registerPatron("Bob", "bob@example.com");
+        Hold hold = patrons.placeHold(pride, bob, HoldPriority.NORMAL);
+        assertEquals(HoldStatus.WAITING, hold.getStatus());
+
+        Thread.sleep(50);
+        assertEquals(1, inventory.expireLeases());
+
+        assertEquals(HoldStatus.READY, hold.getStatus());
+        assertStock(pride, 0, 1, 0);
+        assertFalse(inventory.commit(lease));
+        // Only bob can borrow it now.
+        assertNull(patrons.issueBook(pride, patron));
+        assertNotNull(patrons.issueBook(pride, bob));
+        assertStock(pride, 0, 0, 1);
+        assertTrue(patrons.returnBook(pride, bob));
+        assertStock(pride, 1, 0, 0);
+    }
+
+    private void assertStock(Book book, int available, int reserved, int borrowed) {
+        String isbn = book.getIsbn();
+        assertEquals(available, inventory.getAvailableCopiesCount(isbn), "available");
+        assertEquals(reserved, inventory.getReservedCopiesCount(isbn), "reserved");
+        assertEquals(borrowed, inventory.getBorrowedCopiesCount(isbn), "borrowed");
+    }
+
+    /**
+     * Records each payment, runs a hook while it is being made and then accepts or declines it.
+     */
+    private static final class TestProcessor implements PaymentProcessor {
+        final List<Double> amounts = Collections.synchronizedList(new ArrayList<>());
+        volatile boolean accept = true;
+        volatile Runnable whilePaying = () -> { };
+
+        @Override
+        public boolean processPayment(double amount) {
+            amounts.add(amount);
+            whilePaying.run();
+            return accept;
+        }
+    }
+}
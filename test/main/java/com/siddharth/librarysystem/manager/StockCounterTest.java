@@ -0,0 +1,42 @@
+package main.java.com.siddharth.librarysystem.manager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class StockCounterTest {
+
+    @Test
+    void packsEachCountIntoItsOwnBits() {
+        long packed = StockCounter.pack(StockCounter.MAX_COPIES, 2, 3);
+
+        assertTrue(packed > 0);
+        assertEquals(StockCounter.MAX_COPIES, StockCounter.available(packed));
+        assertEquals(2, StockCounter.reserved(packed));
+        assertEquals(3, StockCounter.borrowed(packed));
+    }
+
+    @Test
+    void movesOneCopyWithoutDisturbingTheOtherCounts() {
+        long packed = StockCounter.pack(5, 0, 1);
+
+        packed = StockCounter.move(packed, StockCounter.AVAILABLE, StockCounter.RESERVED);
+        assertEquals(StockCounter.pack(4, 1, 1), packed);
+        packed = StockCounter.move(packed, StockCounter.RESERVED, StockCounter.BORROWED);
+        assertEquals(StockCounter.pack(4, 0, 2), packed);
+        packed = StockCounter.move(packed, StockCounter.BORROWED, StockCounter.AVAILABLE);
+        assertEquals(StockCounter.pack(5, 0, 1), packed);
+    }
+
+    @Test
+    void addsUpToTheMaximumOverAllCounts() {
+        long packed = StockCounter.add(StockCounter.pack(1, 1, 1), 10, 2);
+        assertEquals(StockCounter.pack(11, 1, 3), packed);
+
+        long full = StockCounter.pack(StockCounter.MAX_COPIES - 2, 1, 1);
+        assertThrows(IllegalStateException.class, () -> StockCounter.add(full, 1, 0));
+        assertThrows(IllegalStateException.class, () -> StockCounter.add(full, 0, 1));
+    }
+}
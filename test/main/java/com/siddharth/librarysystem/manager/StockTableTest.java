@@ -0,0 +1,117 @@
+package main.java.com.siddharth.librarysystem.manager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class StockTableTest {
+
+    private static final long KEY = 9_780_141_439_518L;
+
+    @Test
+    void unknownKeysAreAbsent() {
+        StockTable table = new StockTable();
+        assertEquals(StockTable.ABSENT, table.snapshot(KEY));
+        assertFalse(table.tryBorrow(KEY));
+        assertEquals(StockTable.ABSENT, table.remove(KEY));
+    }
+
+    @Test
+    void movesCopiesBetweenCounts() {
+        StockTable table = new StockTable();
+        table.addCopies(KEY, 2);
+
+        assertTrue(table.tryBorrow(KEY));
+        assertTrue(table.tryReserve(KEY));
+        assertFalse(table.tryBorrow(KEY));
+        assertEquals(StockCounter.pack(0, 1, 1), table.snapshot(KEY));
+
+        assertTrue(table.commitReserved(KEY));
+        assertFalse(table.releaseReserved(KEY));
+        assertTrue(table.reserveReturned(KEY));
+        assertTrue(table.releaseReserved(KEY));
+        assertTrue(table.tryReturn(KEY));
+        assertFalse(table.tryReturn(KEY));
+        assertEquals(StockCounter.pack(2, 0, 0), table.snapshot(KEY));
+    }
+
+    @Test
+    void removesOnlyAvailableCopies() {
+        StockTable table = new StockTable();
+        table.addCopies(KEY, 3, 1);
+
+        assertFalse(table.tryRemoveCopies(KEY, 4));
+        assertTrue(table.tryRemoveCopies(KEY, 3));
+        assertEquals(StockCounter.pack(0, 0, 1), table.remove(KEY));
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    void rejectsMoreThanTheMaximumNumberOfCopies() {
+        StockTable table = new StockTable();
+        table.addCopies(KEY, StockCounter.MAX_COPIES);
+        assertThrows(IllegalStateException.class, () -> table.addCopies(KEY, 1));
+    }
+
+    @Test
+    void keepsCountsWhileGrowingAndAfterRemovals() {
+        StockTable table = new StockTable();
+        int keys = 50_000;
+        for (long key = 1; key <= keys; key++) {
+            table.addCopies(key, (int) (key % 7) + 1);
+        }
+        for (long key = 1; key <= keys; key += 2) {
+            table.remove(key);
+        }
+        table.ensureCapacity(4 * keys);
+        for (long key = keys + 1; key <= 2 * keys; key++) {
+            table.addCopies(key, 1);
+        }
+
+        assertEquals(keys / 2 + keys, table.size());
+        for (long key = 1; key <= keys; key++) {
+            long expected = key % 2 == 1 ? StockTable.ABSENT : StockCounter.pack((int) (key % 7) + 1, 0, 0);
+            assertEquals(expected, table.snapshot(key), "key " + key);
+        }
+    }
+
+    @Test
+    void neverLendsMoreCopiesThanThereAre() throws InterruptedException {
+        StockTable table = new StockTable();
+        int copies = 1_000;
+        table.addCopies(KEY, copies);
+        int threads = 8;
+        int[] borrowed = new int[threads];
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < copies; i++) {
+                    if (table.tryBorrow(KEY)) {
+                        borrowed[id]++;
+                    }
+                    // New ISBNs keep the segments growing while copies are being lent.
+                    table.addCopies(KEY + 1 + (long) id * copies + i, 1);
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        int total = 0;
+        for (int count : borrowed) {
+            total += count;
+        }
+        assertEquals(copies, total);
+        assertEquals(StockCounter.pack(0, 0, copies), table.snapshot(KEY));
+    }
+}
@@ -0,0 +1,95 @@
+package main.java.com.siddharth.librarysystem.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+    @Test
+    void smallValuesGetABucketEach() {
+        for (long value = 0; value < 128; value++) {
+            assertEquals(value, LatencyHistogram.indexOf(value));
+            assertEquals(value, LatencyHistogram.highestValueIn((int) value));
+        }
+    }
+
+    @Test
+    void bucketsAreContiguousAndIncreasing() {
+        int last = LatencyHistogram.indexOf(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValueIn(last));
+        for (int index = 0; index < last; index++) {
+            long highest = LatencyHistogram.highestValueIn(index);
+            assertEquals(index, LatencyHistogram.indexOf(highest), "highest value of bucket " + index);
+            assertEquals(index + 1, LatencyHistogram.indexOf(highest + 1), "value after bucket " + index);
+        }
+    }
+
+    @Test
+    void bucketsAreWithinTwoPercentOfTheirValues() {
+        Random random = new Random(11);
+        for (int i = 0; i < 100_000; i++) {
+            long value = (random.nextLong() & Long.MAX_VALUE) >>> random.nextInt(64);
+            long highest = LatencyHistogram.highestValueIn(LatencyHistogram.indexOf(value));
+            assertTrue(highest >= value);
+            assertTrue(highest - value <= value / 63, value + " reported as " + highest);
+        }
+    }
+
+    @Test
+    void reportsCountMeanMaxAndPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(99));
+        for (long value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+        histogram.record(-5);
+
+        assertEquals(101, histogram.count());
+        assertEquals(100, histogram.max());
+        assertEquals(5050 / 101.0, histogram.mean(), 1e-9);
+        assertEquals(0, histogram.percentile(0));
+        assertEquals(50, histogram.percentile(50));
+        assertEquals(100, histogram.percentile(100));
+    }
+
+    @Test
+    void percentilesOfLargeValuesAreNeverBelowTheTruth() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long millis = 1; millis <= 1_000; millis++) {
+            histogram.record(millis * 1_000_000);
+        }
+
+        long p99 = histogram.percentile(99);
+        assertTrue(p99 >= 990_000_000L && p99 <= 990_000_000L * 102 / 100, String.valueOf(p99));
+        assertEquals(1_000_000_000L, histogram.percentile(100));
+    }
+
+    @Test
+    void countsEveryValueRecordedConcurrently() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int threads = 8;
+        int perThread = 50_000;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    histogram.record(1_000);
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals((long) threads * perThread, histogram.count());
+        assertEquals(1_000, histogram.mean(), 1e-9);
+    }
+}
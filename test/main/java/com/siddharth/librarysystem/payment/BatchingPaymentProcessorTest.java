@@ -0,0 +1,146 @@
+package main.java.com.siddharth.librarysystem.payment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+class BatchingPaymentProcessorTest {
+
+    @Test
+    void sendsAFullBatchInOneCall() {
+        RecordingProcessor delegate = new RecordingProcessor();
+        try (BatchingPaymentProcessor batcher = new BatchingPaymentProcessor(delegate, 4, Duration.ofSeconds(30))) {
+            List<CompletableFuture<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(batcher.processPaymentAsync(10 + i));
+            }
+            results.forEach(result -> assertTrue(result.join()));
+
+            assertEquals(List.of(4, 4), delegate.batchSizes);
+            assertEquals(8, batcher.getRequestCount());
+            assertEquals(2, batcher.getBatchCount());
+            assertEquals(6, batcher.getRoundTripsSaved());
+        }
+    }
+
+    @Test
+    void sendsAPartialBatchOnceItsOldestPaymentHasLingered() {
+        RecordingProcessor delegate = new RecordingProcessor();
+        try (BatchingPaymentProcessor batcher = new BatchingPaymentProcessor(delegate, 64, Duration.ofMillis(50))) {
+            long start = System.nanoTime();
+            assertTrue(batcher.processPayment(5));
+            long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertTrue(waitedMillis >= 50, waitedMillis + " ms");
+            assertEquals(List.of(1), delegate.batchSizes);
+            assertEquals(0, batcher.getRoundTripsSaved());
+            assertTrue(batcher.getAverageAddedLatencyMillis() >= 50);
+            assertTrue(batcher.getMaxAddedLatencyMillis() >= batcher.getAverageAddedLatencyMillis());
+        }
+    }
+
+    @Test
+    void fallsBackToOnePaymentAtATimeWithPerItemResults() {
+        List<Double> paid = Collections.synchronizedList(new ArrayList<>());
+        // Only processPayment is implemented, so each batch goes through the default processPayments.
+        PaymentProcessor declinesOverHundred = amount -> {
+            paid.add(amount);
+            return amount <= 100;
+        };
+        try (BatchingPaymentProcessor batcher = new BatchingPaymentProcessor(declinesOverHundred, 3, Duration.ofSeconds(30))) {
+            CompletableFuture<Boolean> small = batcher.processPaymentAsync(20);
+            CompletableFuture<Boolean> large = batcher.processPaymentAsync(500);
+            CompletableFuture<Boolean> exact = batcher.processPaymentAsync(100);
+
+            assertTrue(small.join());
+            assertFalse(large.join());
+            assertTrue(exact.join());
+            assertEquals(List.of(20.0, 500.0, 100.0), paid);
+            assertEquals(1, batcher.getBatchCount());
+        }
+    }
+
+    @Test
+    void passesProcessorFailuresToEveryCallerInTheBatch() {
+        PaymentProcessor failing = new PaymentProcessor() {
+            @Override
+            public boolean processPayment(double amount) {
+                throw new IllegalStateException("gateway down");
+            }
+        };
+        try (BatchingPaymentProcessor batcher = new BatchingPaymentProcessor(failing, 1, Duration.ofSeconds(30))) {
+            IllegalStateException e = assertThrows(IllegalStateException.class, () -> batcher.processPayment(5));
+            assertEquals("gateway down", e.getMessage());
+        }
+    }
+
+    @Test
+    void neverSendsAPaymentWithdrawnByAnInterrupt() throws InterruptedException {
+        RecordingProcessor delegate = new RecordingProcessor();
+        try (BatchingPaymentProcessor batcher = new BatchingPaymentProcessor(delegate, 64, Duration.ofMillis(300))) {
+            AtomicBoolean result = new AtomicBoolean(true);
+            AtomicBoolean stillInterrupted = new AtomicBoolean();
+            Thread payer = new Thread(() -> {
+                result.set(batcher.processPayment(42));
+                stillInterrupted.set(Thread.currentThread().isInterrupted());
+            });
+            payer.start();
+            Thread.sleep(50);
+            payer.interrupt();
+            payer.join();
+
+            assertFalse(result.get());
+            assertTrue(stillInterrupted.get());
+            // Another payment goes out on its own once the withdrawn one's batch would have been sent.
+            assertTrue(batcher.processPayment(7));
+            assertEquals(List.of(7.0), delegate.amounts);
+        }
+    }
+
+    @Test
+    void failsPaymentsMadeAfterClosing() throws InterruptedException {
+        CountDownLatch settling = new CountDownLatch(1);
+        BatchingPaymentProcessor batcher = new BatchingPaymentProcessor(amount -> {
+            settling.countDown();
+            return true;
+        }, 64, Duration.ofSeconds(30));
+        CompletableFuture<Boolean> queued = batcher.processPaymentAsync(1);
+        batcher.close();
+
+        assertFalse(queued.join());
+        assertFalse(batcher.processPayment(2));
+        assertFalse(settling.await(50, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Settles every batch in one call and remembers what it was sent.
+     */
+    private static final class RecordingProcessor implements PaymentProcessor {
+        final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        final List<Double> amounts = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public boolean processPayment(double amount) {
+            return processPayments(List.of(amount)).get(0);
+        }
+
+        @Override
+        public List<Boolean> processPayments(List<Double> batch) {
+            batchSizes.add(batch.size());
+            amounts.addAll(batch);
+            return Collections.nCopies(batch.size(), true);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package main.java.com.siddharth.librarysystem.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import main.java.com.siddharth.librarysystem.entity.PaymentStatus;
+import main.java.com.siddharth.librarysystem.id.Ids;
+
+class HistorySegmentTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsBackEveryFieldAndEachKindOfTicketId() throws IOException {
+        LocalDate returned = LocalDate.of(2024, 5, 1);
+        List<HistoryRecord> records = List.of(
+                new HistoryRecord(Ids.toText(123_456_789L), "P1", "9780141439518",
+                        returned.minusDays(20), returned.minusDays(6), returned, 5.0, 6.0, PaymentStatus.OVERDUE),
+                new HistoryRecord("3f1c2a4e-5b6d-4e7f-8a9b-0c1d2e3f4a5b", "P1", "0306406152",
+                        LocalDate.of(1969, 12, 1), LocalDate.of(1969, 12, 15), LocalDate.of(1969, 12, 10),
+                        4.99, 0.0, PaymentStatus.PAID),
+                // Neither compact nor a canonical UUID, so kept as text.
+                new HistoryRecord("3F1C2A4E-5B6D-4E7F-8A9B-0C1D2E3F4A5B", "P2", "9780141439518",
+                        returned, returned.plusDays(14), returned.plusDays(1), 0.0, 0.0, PaymentStatus.PENDING));
+
+        HistorySegment segment = HistorySegment.write(directory.resolve("segment.seg"), records);
+
+        assertEquals(text(records.subList(0, 2)), text(byPatron(segment, "P1")));
+        assertEquals(text(List.of(records.get(0), records.get(2))), text(byIsbn(segment, "9780141439518")));
+        assertTrue(byPatron(segment, "P3").isEmpty());
+        // A fresh instance reads the footer from the file rather than from a cache.
+        assertEquals(text(records.subList(2, 3)), text(byPatron(new HistorySegment(segment.getFile()), "P2")));
+    }
+
+    @Test
+    void findsRecordsSpreadOverManyBlocksInTheOrderTheyWereClosed() throws IOException {
+        Random random = new Random(13);
+        List<HistoryRecord> records = new ArrayList<>();
+        LocalDate day = LocalDate.of(2024, 1, 1);
+        for (int i = 0; i < 2_000; i++) {
+            day = day.plusDays(random.nextInt(2));
+            records.add(new HistoryRecord(Ids.toText(i), "P" + random.nextInt(7), "97801414395" + (10 + random.nextInt(13)),
+                    day.minusDays(random.nextInt(30)), day.plusDays(random.nextInt(30) - 15), day,
+                    5.0, random.nextInt(500) / 100.0, PaymentStatus.values()[random.nextInt(PaymentStatus.values().length)]));
+        }
+        HistorySegment segment = HistorySegment.write(directory.resolve("segment.seg"), records);
+
+        for (int p = 0; p < 7; p++) {
+            String patron = "P" + p;
+            assertEquals(text(records.stream().filter(r -> r.getPatronId().equals(patron)).toList()),
+                    text(byPatron(segment, patron)), patron);
+        }
+        for (int i = 10; i < 23; i++) {
+            String isbn = "97801414395" + i;
+            assertEquals(text(records.stream().filter(r -> r.getIsbn().equals(isbn)).toList()),
+                    text(byIsbn(segment, isbn)), isbn);
+        }
+    }
+
+    @Test
+    void rejectsACorruptFooter() throws IOException {
+        Path file = directory.resolve("segment.seg");
+        HistorySegment.write(file, List.of(new HistoryRecord("T1", "P1", "9780141439518",
+                LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 15), LocalDate.of(2024, 1, 10), 5.0, 0.0, PaymentStatus.PAID)));
+        byte[] bytes = Files.readAllBytes(file);
+        // The last byte of the compressed footer, just before the trailer.
+        bytes[bytes.length - 25] ^= 1;
+        Files.write(file, bytes);
+
+        IOException e = assertThrows(IOException.class, () -> byPatron(new HistorySegment(file), "P1"));
+        assertTrue(e.getMessage().contains("corrupt"), e.getMessage());
+    }
+
+    static List<String> text(List<HistoryRecord> records) {
+        return records.stream().map(HistoryRecord::toString).toList();
+    }
+
+    private static List<HistoryRecord> byPatron(HistorySegment segment, String patronId) throws IOException {
+        List<HistoryRecord> found = new ArrayList<>();
+        segment.forEachByPatron(patronId, found::add);
+        return found;
+    }
+
+    private static List<HistoryRecord> byIsbn(HistorySegment segment, String isbn) throws IOException {
+        List<HistoryRecord> found = new ArrayList<>();
+        segment.forEachByIsbn(isbn, found::add);
+        return found;
+    }
+}
@@ -0,0 +1,107 @@
+package main.java.com.siddharth.librarysystem.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import main.java.com.siddharth.librarysystem.entity.PaymentStatus;
+
+class LendingHistoryStoreTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void answersFromMemoryAndDiskAlikeAndAcrossReopening() throws IOException {
+        Path directory = root.resolve("history");
+        List<HistoryRecord> records = new ArrayList<>();
+        try (LendingHistoryStore store = LendingHistoryStore.open(directory, 4)) {
+            for (int i = 0; i < 10; i++) {
+                HistoryRecord record = record(i, "P" + i % 2);
+                records.add(record);
+                store.append(record);
+            }
+            // Two full batches went to the writer; two records are still buffered.
+            assertEquals(expected(records, "P0"), HistorySegmentTest.text(byPatron(store, "P0")));
+            store.flush();
+            assertEquals(3, store.getSegmentCount());
+        }
+
+        try (LendingHistoryStore reopened = LendingHistoryStore.open(directory, 4)) {
+            assertEquals(3, reopened.getSegmentCount());
+            assertEquals(expected(records, "P1"), HistorySegmentTest.text(byPatron(reopened, "P1")));
+            HistoryRecord later = record(10, "P1");
+            records.add(later);
+            reopened.append(later);
+            assertEquals(expected(records, "P1"), HistorySegmentTest.text(byPatron(reopened, "P1")));
+            List<HistoryRecord> byIsbn = new ArrayList<>();
+            reopened.forEachByIsbn("9780141439518", byIsbn::add);
+            assertEquals(11, byIsbn.size());
+        }
+    }
+
+    @Test
+    void retriesASegmentThatCouldNotBeWritten() throws IOException {
+        Path directory = root.resolve("history");
+        LendingHistoryStore store = LendingHistoryStore.open(directory, 100);
+        List<HistoryRecord> records = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            records.add(record(i, "P0"));
+            store.append(records.get(i));
+        }
+        Files.delete(directory);
+
+        assertThrows(IOException.class, store::flush);
+        assertEquals(3, store.getUnwrittenCount());
+        // Still answered from memory meanwhile.
+        assertEquals(expected(records, "P0"), HistorySegmentTest.text(byPatron(store, "P0")));
+
+        Files.createDirectories(directory);
+        records.add(record(3, "P0"));
+        store.append(records.get(3));
+        store.close();
+
+        try (LendingHistoryStore reopened = LendingHistoryStore.open(directory, 100)) {
+            assertEquals(2, reopened.getSegmentCount());
+            assertEquals(expected(records, "P0"), HistorySegmentTest.text(byPatron(reopened, "P0")));
+        }
+    }
+
+    @Test
+    void closesEvenWhenTheLastFlushFails() throws IOException {
+        Path directory = root.resolve("history");
+        LendingHistoryStore store = LendingHistoryStore.open(directory, 100);
+        store.append(record(0, "P0"));
+        Files.delete(directory);
+
+        assertThrows(IOException.class, store::close);
+        // Closed regardless: a second close does nothing and appends are refused.
+        store.close();
+        assertThrows(IllegalStateException.class, () -> store.append(record(1, "P0")));
+    }
+
+    private static HistoryRecord record(int day, String patronId) {
+        LocalDate returned = LocalDate.of(2024, 1, 1).plusDays(day);
+        return new HistoryRecord("T" + day, patronId, "9780141439518", returned.minusDays(10), returned.plusDays(4),
+                returned, 5.0, 0.0, PaymentStatus.PAID);
+    }
+
+    private static List<String> expected(List<HistoryRecord> records, String patronId) {
+        return HistorySegmentTest.text(records.stream().filter(r -> r.getPatronId().equals(patronId)).toList());
+    }
+
+    private static List<HistoryRecord> byPatron(LendingHistoryStore store, String patronId) throws IOException {
+        List<HistoryRecord> found = new ArrayList<>();
+        store.forEachByPatron(patronId, found::add);
+        return found;
+    }
+}
@@ -0,0 +1,119 @@
+package main.java.com.siddharth.librarysystem.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import main.java.com.siddharth.librarysystem.core.Library;
+import main.java.com.siddharth.librarysystem.entity.Book;
+import main.java.com.siddharth.librarysystem.entity.Patron;
+
+class LibraryJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysEveryKindOfRecord() throws IOException {
+        Path file = directory.resolve("library.journal");
+        String aliceId;
+        try (LibraryJournal journal = LibraryJournal.open(file, FsyncPolicy.EVERY_WRITE)) {
+            Library library = new Library(amount -> true);
+            library.attachJournal(journal);
+            library.addNewBook(new Book("Pride and Prejudice", "Jane Austen", "9780141439518", 1813), 2);
+            library.addNewBook(new Book("Emma", "Jane Austen", "9780141439587", 1815), 1);
+            assertTrue(library.updateBookDetails("9780141439587", "Emma (Penguin Classics)", "Jane Austen", 1816));
+            Patron alice = library.registerNewPatron("Alice", "alice@example.com");
+            aliceId = alice.getId();
+            library.checkoutBooks(alice, List.of("9780141439518", "9780141439587"));
+            assertTrue(library.returnBookFromPatron(library.searchBookByIsbn("9780141439518"), alice));
+        }
+
+        Library replayed = new Library(amount -> true);
+        try (LibraryJournal journal = LibraryJournal.open(file, FsyncPolicy.EVERY_WRITE)) {
+            // Two books, an update, a patron, the checkout's two issues and a return.
+            assertEquals(7, replayed.attachJournal(journal));
+        }
+        Book pride = replayed.searchBookByIsbn("9780141439518");
+        Book emma = replayed.searchBookByIsbn("9780141439587");
+        assertEquals("Emma (Penguin Classics)", emma.getTitle());
+        assertEquals(1816, emma.getPubYear());
+        assertEquals(2, replayed.getAvailableCopies(pride));
+        assertEquals(0, replayed.getAvailableCopies(emma));
+        Patron alice = replayed.findPatronById(aliceId);
+        assertEquals("alice@example.com", alice.getEmail());
+        assertEquals(List.of(emma), replayed.getBooksBorrowedByPatron(alice));
+    }
+
+    @Test
+    void cutsOffATornRecordAndAppendsAfterTheLastGoodOne() throws IOException {
+        Path file = directory.resolve("library.journal");
+        try (LibraryJournal journal = LibraryJournal.open(file, FsyncPolicy.EVERY_WRITE)) {
+            Library library = new Library(amount -> true);
+            library.attachJournal(journal);
+            library.addNewBook(new Book("Pride and Prejudice", "Jane Austen", "9780141439518", 1813), 1);
+            library.addNewBook(new Book("Emma", "Jane Austen", "9780141439587", 1815), 1);
+        }
+        // A crash half-way through writing the second record.
+        byte[] bytes = Files.readAllBytes(file);
+        long intact = bytes.length - 5;
+        Files.write(file, Arrays.copyOf(bytes, (int) intact));
+
+        Library replayed = new Library(amount -> true);
+        try (LibraryJournal journal = LibraryJournal.open(file, FsyncPolicy.EVERY_WRITE)) {
+            assertEquals(1, replayed.attachJournal(journal));
+            assertNull(replayed.searchBookByIsbn("9780141439587"));
+            long firstRecordEnd = journal.position();
+            assertTrue(firstRecordEnd < intact);
+            assertEquals(firstRecordEnd, Files.size(file));
+            replayed.addNewBook(new Book("Persuasion", "Jane Austen", "9780141439686", 1817), 1);
+        }
+
+        Library again = new Library(amount -> true);
+        try (LibraryJournal journal = LibraryJournal.open(file, FsyncPolicy.EVERY_WRITE)) {
+            assertEquals(2, again.attachJournal(journal));
+        }
+        assertEquals(List.of("9780141439518", "9780141439686"),
+                again.listAllBooks().stream().map(Book::getIsbn).sorted().toList());
+    }
+
+    @Test
+    void stopsAtARecordWhoseChecksumDoesNotMatch() throws IOException {
+        Path file = directory.resolve("library.journal");
+        long firstRecordEnd;
+        try (LibraryJournal journal = LibraryJournal.open(file, FsyncPolicy.EVERY_WRITE)) {
+            Library library = new Library(amount -> true);
+            library.attachJournal(journal);
+            library.addNewBook(new Book("Pride and Prejudice", "Jane Austen", "9780141439518", 1813), 1);
+            journal.sync();
+            firstRecordEnd = journal.position();
+            library.addNewBook(new Book("Emma", "Jane Austen", "9780141439587", 1815), 1);
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[(int) firstRecordEnd + 10] ^= 1;
+        Files.write(file, bytes);
+
+        try (LibraryJournal journal = LibraryJournal.open(file, FsyncPolicy.EVERY_WRITE)) {
+            assertEquals(1, new Library(amount -> true).attachJournal(journal));
+        }
+        assertEquals(firstRecordEnd, Files.size(file));
+    }
+
+    @Test
+    void refusesWritesBeforeReplay() throws IOException {
+        try (LibraryJournal journal = LibraryJournal.open(directory.resolve("library.journal"), FsyncPolicy.NONE)) {
+            assertThrows(IllegalStateException.class,
+                    () -> journal.appendAddBook(new Book("Emma", "Jane Austen", "9780141439587", 1815), 1));
+        }
+    }
+}
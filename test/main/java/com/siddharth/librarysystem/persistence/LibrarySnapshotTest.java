@@ -0,0 +1,117 @@
+package main.java.com.siddharth.librarysystem.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import main.java.com.siddharth.librarysystem.core.Library;
+import main.java.com.siddharth.librarysystem.entity.Book;
+import main.java.com.siddharth.librarysystem.entity.LendingTicket;
+import main.java.com.siddharth.librarysystem.entity.Patron;
+
+class LibrarySnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void loadsWhatWasSavedWithoutAJournal() throws IOException {
+        Library library = new Library(amount -> true);
+        library.addNewBook(new Book("Pride and Prejudice", "Jane Austen", "9780141439518", 1813), 3);
+        library.addNewBook(new Book("Emma", "Jane Austen", "9780141439587", 1815), 1);
+        Patron alice = library.registerNewPatron("Alice", "alice@example.com");
+        LendingTicket ticket = library.issueBookToPatron(library.searchBookByIsbn("9780141439518"), alice);
+        Path file = directory.resolve("library.snapshot");
+
+        assertEquals(2, library.saveSnapshot(file));
+
+        Library loaded = new Library(amount -> true);
+        assertEquals(2, loaded.loadSnapshot(file));
+        assertEquals(describe(library, alice.getId()), describe(loaded, alice.getId()));
+        LendingTicket loadedTicket = loaded.findActiveLoan(ticket.getId());
+        assertNotNull(loadedTicket);
+        assertEquals(ticket.toString(), loadedTicket.toString());
+    }
+
+    @Test
+    void replaysOnlyWhatTheJournalRecordedAfterTheSnapshot() throws IOException {
+        Path journalFile = directory.resolve("library.journal");
+        Path file = directory.resolve("library.snapshot");
+        Library library = new Library(amount -> true);
+        String aliceId;
+        try (LibraryJournal journal = LibraryJournal.open(journalFile, FsyncPolicy.EVERY_WRITE)) {
+            assertEquals(0, library.attachJournal(journal));
+            library.addNewBook(new Book("Pride and Prejudice", "Jane Austen", "9780141439518", 1813), 2);
+            Patron alice = library.registerNewPatron("Alice", "alice@example.com");
+            aliceId = alice.getId();
+            library.issueBookToPatron(library.searchBookByIsbn("9780141439518"), alice);
+            library.saveSnapshot(file);
+
+            // Three more records: a book, an issue and a return.
+            library.addNewBook(new Book("Emma", "Jane Austen", "9780141439587", 1815), 1);
+            library.issueBookToPatron(library.searchBookByIsbn("9780141439587"), alice);
+            assertTrue(library.returnBookFromPatron(library.searchBookByIsbn("9780141439518"), alice));
+        }
+
+        Library restored = new Library(amount -> true);
+        restored.loadSnapshot(file);
+        try (LibraryJournal journal = LibraryJournal.open(journalFile, FsyncPolicy.EVERY_WRITE)) {
+            assertEquals(3, restored.attachJournal(journal));
+        }
+        assertEquals(describe(library, aliceId), describe(restored, aliceId));
+    }
+
+    @Test
+    void refusesAJournalShorterThanTheSnapshotPosition() throws IOException {
+        Path file = directory.resolve("library.snapshot");
+        Library library = new Library(amount -> true);
+        try (LibraryJournal journal = LibraryJournal.open(directory.resolve("library.journal"), FsyncPolicy.EVERY_WRITE)) {
+            library.attachJournal(journal);
+            library.addNewBook(new Book("Emma", "Jane Austen", "9780141439587", 1815), 1);
+            library.saveSnapshot(file);
+        }
+
+        Library restored = new Library(amount -> true);
+        restored.loadSnapshot(file);
+        try (LibraryJournal other = LibraryJournal.open(directory.resolve("other.journal"), FsyncPolicy.EVERY_WRITE)) {
+            assertThrows(IOException.class, () -> restored.attachJournal(other));
+        }
+    }
+
+    @Test
+    void rejectsACorruptedSnapshot() throws IOException {
+        Path file = directory.resolve("library.snapshot");
+        Library library = new Library(amount -> true);
+        library.addNewBook(new Book("Emma", "Jane Austen", "9780141439587", 1815), 1);
+        library.saveSnapshot(file);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+
+        IOException e = assertThrows(IOException.class, () -> new Library(amount -> true).loadSnapshot(file));
+        assertEquals("Snapshot checksum mismatch", e.getMessage());
+    }
+
+    // Every book with its copy counts, then what the patron has borrowed.
+    private static String describe(Library library, String patronId) {
+        StringBuilder text = new StringBuilder();
+        for (Book book : library.listAllBooks()) {
+            text.append(book.getIsbn()).append(' ').append(book.getTitle())
+                    .append(' ').append(library.getAvailableCopies(book))
+                    .append('/').append(library.getBorrowedCopies(book)).append('\n');
+        }
+        Patron patron = library.findPatronById(patronId);
+        List<Book> borrowed = library.getBooksBorrowedByPatron(patron);
+        text.append(patron.getName()).append(" has ").append(borrowed.stream().map(Book::getIsbn).sorted().toList());
+        return text.toString();
+    }
+}
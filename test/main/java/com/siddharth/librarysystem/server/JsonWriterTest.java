@@ -0,0 +1,90 @@
+package main.java.com.siddharth.librarysystem.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+
+class JsonWriterTest {
+
+    @Test
+    void separatesMembersAndElementsWithCommas() {
+        JsonWriter json = new JsonWriter();
+        json.beginObject()
+                .name("isbn").value("9780141439518")
+                .name("copies").value(3)
+                .name("available").value(true)
+                .name("tags").beginArray().value("classic").value("romance").endArray()
+                .name("empty").beginArray().endArray()
+                .name("branch").beginObject().name("id").value(7).endObject()
+                .endObject();
+
+        assertEquals("{\"isbn\":\"9780141439518\",\"copies\":3,\"available\":true,"
+                + "\"tags\":[\"classic\",\"romance\"],\"empty\":[],\"branch\":{\"id\":7}}", json.toString());
+    }
+
+    @Test
+    void writesArraysOfObjects() {
+        JsonWriter json = new JsonWriter();
+        json.beginArray();
+        for (int i = 0; i < 3; i++) {
+            json.beginObject().name("n").value(i).endObject();
+        }
+        json.endArray();
+
+        assertEquals("[{\"n\":0},{\"n\":1},{\"n\":2}]", json.toString());
+    }
+
+    @Test
+    void writesNumbersIncludingTheExtremes() {
+        JsonWriter json = new JsonWriter();
+        json.beginArray().value(0).value(-42).value(Long.MAX_VALUE).value(Long.MIN_VALUE).endArray();
+
+        assertEquals("[0,-42," + Long.MAX_VALUE + "," + Long.MIN_VALUE + "]", json.toString());
+    }
+
+    @Test
+    void roundsMoneyToCents() {
+        JsonWriter json = new JsonWriter();
+        json.beginArray().money(5).money(0.1 + 0.2).money(12.346).money(-0.5).money(0.004).endArray();
+
+        assertEquals("[5.00,0.30,12.35,-0.50,0.00]", json.toString());
+    }
+
+    @Test
+    void writesDatesAndNulls() {
+        JsonWriter json = new JsonWriter();
+        json.beginArray()
+                .value(LocalDate.of(2024, 5, 1))
+                .value(LocalDate.of(812, 12, 31))
+                .value(LocalDate.of(10_000, 1, 1))
+                .value((LocalDate) null)
+                .value((String) null)
+                .endArray();
+
+        assertEquals("[\"2024-05-01\",\"0812-12-31\",\"+10000-01-01\",null,null]", json.toString());
+    }
+
+    @Test
+    void escapesStringsAndKeepsUnicode() {
+        JsonWriter json = new JsonWriter();
+        json.value("quote \" backslash \\ newline \n tab \t bell \u0007 café 📚");
+
+        assertEquals("\"quote \\\" backslash \\\\ newline \\n tab \\t bell \\u0007 café 📚\"", json.toString());
+        assertEquals(json.toString().getBytes(StandardCharsets.UTF_8).length, json.size());
+    }
+
+    @Test
+    void growsPastItsInitialCapacityAndCanBeReused() {
+        JsonWriter json = new JsonWriter(4);
+        String title = "x".repeat(1_000);
+        json.beginObject().name("title").value(title).endObject();
+        assertEquals("{\"title\":\"" + title + "\"}", json.toString());
+
+        json.reset();
+        json.beginArray().value(1).endArray();
+        assertEquals("[1]", json.toString());
+    }
+}
@@ -0,0 +1,243 @@
+package main.java.com.siddharth.librarysystem.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import main.java.com.siddharth.librarysystem.core.Library;
+import main.java.com.siddharth.librarysystem.entity.Book;
+
+class LibraryServerTest {
+
+    private static final String PRIDE = "9780141439518";
+    private static final String EMMA = "9780141439587";
+    private static final Pattern ID = Pattern.compile("\"id\":\"([^\"]+)\"");
+
+    private LibraryServer server;
+    private Client client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Library library = new Library(amount -> true);
+        library.addNewBook(new Book("Pride and Prejudice", "Jane Austen", PRIDE, 1813), 1);
+        library.addNewBook(new Book("Emma", "Jane Austen", EMMA, 1815), 2);
+        server = new LibraryServer(library, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.start();
+        client = new Client(server.getPort());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    void servesALoanFromRegistrationToReturn() throws IOException {
+        Response registered = client.post("/patrons", "name=Alice+Smith&email=alice%40example.com");
+        assertEquals(201, registered.status);
+        String patronId = id(registered.body);
+        assertEquals("{\"id\":\"" + patronId + "\",\"name\":\"Alice Smith\",\"email\":\"alice@example.com\"}", registered.body);
+        assertEquals("application/json; charset=utf-8", registered.headers.get("content-type"));
+
+        Response found = client.get("/books?title=pride%20and");
+        assertEquals(200, found.status);
+        assertTrue(found.body.startsWith("[{\"isbn\":\"" + PRIDE + "\""), found.body);
+        assertTrue(found.body.contains("\"available\":1"), found.body);
+
+        Response loan = client.post("/loans", "patronId=" + patronId + "&isbn=" + PRIDE);
+        assertEquals(201, loan.status);
+        assertTrue(loan.body.contains("\"patronId\":\"" + patronId + "\""), loan.body);
+        assertEquals(409, client.post("/loans", "patronId=" + patronId + "&isbn=" + PRIDE).status);
+
+        Response checkout = client.post("/checkouts", "patronId=" + patronId + "&isbns=" + EMMA + ",%20" + EMMA);
+        assertEquals(201, checkout.status);
+        assertEquals(2, checkout.body.split("\"id\"").length - 1);
+
+        Response borrowed = client.get("/patrons/" + patronId + "/books");
+        assertEquals(200, borrowed.status);
+        assertEquals(3, borrowed.body.split("\"isbn\"").length - 1);
+        assertFalse(borrowed.body.contains("available"), borrowed.body);
+
+        assertEquals(200, client.post("/returns", "patronId=" + patronId + "&isbn=" + PRIDE).status);
+        assertEquals(409, client.post("/returns", "patronId=" + patronId + "&isbn=" + PRIDE).status);
+        assertEquals(200, client.get("/books?isbn=" + PRIDE).status);
+        assertTrue(client.get("/books?isbn=" + PRIDE).body.contains("\"available\":1"));
+    }
+
+    @Test
+    void answersMistakesWithTheRightStatus() throws IOException {
+        String patronId = id(client.post("/patrons", "name=Bob&email=bob@example.com").body);
+
+        // Paths outside the server's contexts are answered by the JDK server itself.
+        assertEquals(404, client.get("/shelves").status);
+        assertEquals("{\"error\":\"No such endpoint\"}", client.get("/books/" + EMMA).body);
+        assertEquals(404, client.get("/patrons/" + patronId + "/holds").status);
+        assertEquals(404, client.get("/patrons/NOBODY").status);
+        assertEquals(200, client.get("/patrons/" + patronId.toLowerCase(Locale.ROOT)).status);
+        assertEquals(405, client.get("/loans").status);
+        assertEquals("{\"error\":\"Use GET\"}", client.post("/books", "title=emma").body);
+        assertEquals(400, client.get("/books").status);
+        assertEquals(400, client.post("/patrons", "name=Bob").status);
+        assertEquals(400, client.post("/checkouts", "patronId=" + patronId).status);
+        assertEquals(404, client.post("/loans", "patronId=" + patronId + "&isbn=9780141439686").status);
+        Response unknown = client.post("/checkouts", "patronId=" + patronId + "&isbns=" + EMMA + ",9780141439686");
+        assertEquals(404, unknown.status);
+        assertEquals("{\"error\":\"Unknown ISBN 9780141439686\"}", unknown.body);
+        assertEquals(404, client.post("/returns", "patronId=nobody&isbn=" + EMMA).status);
+    }
+
+    @Test
+    void rejectsBadlyEncodedParametersWith400() throws IOException {
+        Response inBody = client.post("/patrons", "name=Bob&email=bob%4");
+        assertEquals(400, inBody.status);
+        assertTrue(inBody.body.startsWith("{\"error\":\"Malformed parameter"), inBody.body);
+        assertEquals(400, client.post("/patrons", "name=%zzBob&email=bob@example.com").status);
+        // The connection is still usable afterwards.
+        assertEquals(200, client.get("/books?author=austen").status);
+        assertEquals(1, client.connections);
+        // A bad escape in the query string is already turned down by the JDK server, also with a 400.
+        assertEquals(400, client.get("/books?title=%zz").status);
+    }
+
+    @Test
+    void rejectsAnOversizedBodyWith413() throws IOException {
+        String body = "name=" + "a".repeat(70_000) + "&email=big@example.com";
+
+        Response response = client.post("/patrons", body);
+
+        assertEquals(413, response.status);
+        assertEquals("{\"error\":\"Request body is larger than 65536 bytes\"}", response.body);
+        try (Client other = new Client(server.getPort())) {
+            assertEquals(201, other.post("/patrons", "name=Small&email=small@example.com").status);
+        }
+    }
+
+    @Test
+    void keepsTheConnectionOpenAcrossRequests() throws IOException {
+        for (int i = 0; i < 50; i++) {
+            Response response = i % 2 == 0
+                    ? client.get("/books?author=austen")
+                    : client.post("/patrons", "name=P" + i + "&email=p" + i + "@example.com");
+            assertEquals(i % 2 == 0 ? 200 : 201, response.status);
+            assertFalse("close".equalsIgnoreCase(response.headers.get("connection")));
+        }
+        // Errors don't close it either.
+        assertEquals(404, client.get("/books/9780141439587").status);
+        assertEquals(405, client.get("/returns").status);
+        assertEquals(200, client.get("/books?isbn=" + EMMA).status);
+        assertEquals(1, client.connections);
+    }
+
+    private static String id(String json) {
+        Matcher matcher = ID.matcher(json);
+        assertTrue(matcher.find(), json);
+        return matcher.group(1);
+    }
+
+    /**
+     * A minimal HTTP/1.1 client over one socket, so tests can see whether the connection is kept alive.
+     */
+    private static final class Client implements AutoCloseable {
+        private final int port;
+        private Socket socket;
+        private InputStream in;
+        private OutputStream out;
+        // Connections opened so far; a new one is opened only if the server closed the last.
+        private int connections;
+
+        Client(int port) {
+            this.port = port;
+        }
+
+        Response get(String target) throws IOException {
+            return send("GET " + target + " HTTP/1.1\r\nHost: localhost\r\n\r\n", new byte[0]);
+        }
+
+        Response post(String target, String form) throws IOException {
+            byte[] body = form.getBytes(StandardCharsets.UTF_8);
+            return send("POST " + target + " HTTP/1.1\r\nHost: localhost\r\n"
+                    + "Content-Type: application/x-www-form-urlencoded\r\n"
+                    + "Content-Length: " + body.length + "\r\n\r\n", body);
+        }
+
+        private Response send(String head, byte[] body) throws IOException {
+            if (socket == null) {
+                socket = new Socket(InetAddress.getLoopbackAddress(), port);
+                socket.setSoTimeout(10_000);
+                in = new BufferedInputStream(socket.getInputStream());
+                out = socket.getOutputStream();
+                connections++;
+            }
+            out.write(head.getBytes(StandardCharsets.US_ASCII));
+            out.write(body);
+            out.flush();
+
+            String statusLine = readLine();
+            Map<String, String> headers = new HashMap<>();
+            for (String line = readLine(); !line.isEmpty(); line = readLine()) {
+                int colon = line.indexOf(':');
+                headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+            }
+            byte[] content = in.readNBytes(Integer.parseInt(headers.get("content-length")));
+            if ("close".equalsIgnoreCase(headers.get("connection"))) {
+                close();
+            }
+            return new Response(Integer.parseInt(statusLine.split(" ")[1]), headers,
+                    new String(content, StandardCharsets.UTF_8));
+        }
+
+        private String readLine() throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != '\n') {
+                if (b < 0) {
+                    throw new IOException("Connection closed by the server");
+                }
+                if (b != '\r') {
+                    line.write(b);
+                }
+            }
+            return line.toString(StandardCharsets.US_ASCII);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (socket != null) {
+                socket.close();
+                socket = null;
+            }
+        }
+    }
+
+    private static final class Response {
+        final int status;
+        final Map<String, String> headers;
+        final String body;
+
+        Response(int status, Map<String, String> headers, String body) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+    }
+}
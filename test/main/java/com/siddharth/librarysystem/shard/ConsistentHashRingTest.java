@@ -0,0 +1,86 @@
+package main.java.com.siddharth.librarysystem.shard;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class ConsistentHashRingTest {
+
+    private static final int KEYS = 100_000;
+
+    @Test
+    void anEmptyRingHasNoOwner() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(16);
+        assertThrows(IllegalStateException.class, () -> ring.nodeFor(1));
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing<String>(0));
+    }
+
+    @Test
+    void ringsAreImmutable() {
+        ConsistentHashRing<String> empty = new ConsistentHashRing<>(16);
+        ConsistentHashRing<String> one = empty.with("a", "shard-a");
+        ConsistentHashRing<String> two = one.with("b", "shard-b");
+
+        assertEquals(0, empty.size());
+        assertEquals(1, one.size());
+        assertEquals(List.of("a", "b"), two.nodes());
+        for (long key = 0; key < 1_000; key++) {
+            assertEquals("a", one.nodeFor(ConsistentHashRing.hash(key)));
+        }
+        assertThrows(IllegalArgumentException.class, () -> two.with("c", "shard-a"));
+    }
+
+    @Test
+    void spreadsKeysEvenly() {
+        ConsistentHashRing<Integer> ring = ring(4);
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (long key = 0; key < KEYS; key++) {
+            counts.merge(ring.nodeFor(ConsistentHashRing.hash(key)), 1, Integer::sum);
+        }
+
+        assertEquals(4, counts.size());
+        for (int count : counts.values()) {
+            assertTrue(Math.abs(count - KEYS / 4) < KEYS / 4 / 5, counts.toString());
+        }
+    }
+
+    @Test
+    void addingANodeOnlyMovesKeysToIt() {
+        ConsistentHashRing<Integer> before = ring(4);
+        ConsistentHashRing<Integer> after = before.with(4, "shard-4");
+        int moved = 0;
+        for (long key = 0; key < KEYS; key++) {
+            long hash = ConsistentHashRing.hash(key);
+            Integer owner = after.nodeFor(hash);
+            if (!owner.equals(before.nodeFor(hash))) {
+                assertEquals(4, owner);
+                moved++;
+            }
+        }
+
+        // About a fifth of the keys should move to the new node.
+        assertTrue(Math.abs(moved - KEYS / 5) < KEYS / 5 / 4, String.valueOf(moved));
+    }
+
+    @Test
+    void hashesAreStable() {
+        assertEquals(ConsistentHashRing.hash("shard-1"), ConsistentHashRing.hash("shard-1"));
+        assertTrue(ConsistentHashRing.hash("shard-1") != ConsistentHashRing.hash("shard-2"));
+        assertEquals(0, ConsistentHashRing.hash(0L));
+        assertTrue(ConsistentHashRing.hash(1L) != ConsistentHashRing.hash(2L));
+    }
+
+    private static ConsistentHashRing<Integer> ring(int nodes) {
+        ConsistentHashRing<Integer> ring = new ConsistentHashRing<>(128);
+        for (int i = 0; i < nodes; i++) {
+            ring = ring.with(i, "shard-" + i);
+        }
+        return ring;
+    }
+}